@@ -0,0 +1,155 @@
+package com.example.android.guardiantech;
+
+import android.app.Instrumentation;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.SdkSuppress;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.Choreographer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Frame times while flinging the article list, on a device.
+ *
+ * Every frame drawn during a series of flings up and down is timed from the Choreographer's
+ * frame timestamps, and p50/p90/p99, the worst frame and the number of janky frames (longer
+ * than one and a half refresh periods) are reported as instrumentation status and logged:
+ *
+ *   adb shell am instrument -w -e class com.example.android.guardiantech.RowRenderingBenchmark \
+ *       com.example.android.guardiantech.test/android.support.test.runner.AndroidJUnitRunner
+ *
+ * Needs articles to fling through, stored from an earlier run or fetched; skipped otherwise.
+ * Run on a release-like build with the screen on, and compare runs on the same device only.
+ */
+@RunWith(AndroidJUnit4.class)
+@SdkSuppress(minSdkVersion = 16)
+public class RowRenderingBenchmark {
+
+    private static final String LOG_TAG = RowRenderingBenchmark.class.getName();
+
+    private static final long LOAD_TIMEOUT_MILLIS = 20000;
+    private static final int FLINGS = 10;
+    private static final int FLING_VELOCITY = 8000;
+    private static final long FLING_TIMEOUT_MILLIS = 5000;
+    private static final long FRAME_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    @Rule
+    public ActivityTestRule<MainActivity> activityRule = new ActivityTestRule<>(MainActivity.class);
+
+    @Test
+    public void flingFrameTimes() throws InterruptedException {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final RecyclerView recyclerView = (RecyclerView) activityRule.getActivity().findViewById(R.id.recyclerView);
+        assumeTrue("No articles to fling through", waitForRows(recyclerView));
+
+        final Histogram frames = new Histogram("ui.frameTime", Metrics.UNIT_MICROS);
+        final FrameRecorder recorder = new FrameRecorder(frames);
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                recorder.start();
+            }
+        });
+        for (int i = 0; i < FLINGS; i++) {
+            final int velocity = i % 2 == 0 ? FLING_VELOCITY : -FLING_VELOCITY;
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    recyclerView.fling(0, velocity);
+                }
+            });
+            waitForIdle(recyclerView);
+        }
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                recorder.stop();
+            }
+        });
+
+        Bundle results = new Bundle();
+        results.putLong("frames", frames.getCount());
+        results.putLong("p50_us", frames.getPercentile(0.50));
+        results.putLong("p90_us", frames.getPercentile(0.90));
+        results.putLong("p99_us", frames.getPercentile(0.99));
+        results.putLong("max_us", frames.getMax());
+        results.putInt("janky", recorder.janky);
+        instrumentation.sendStatus(0, results);
+        Log.i(LOG_TAG, frames + " janky=" + recorder.janky
+                + " rows: " + ((ArticleAdapter) recyclerView.getAdapter()).getRowPool());
+    }
+
+    private static boolean waitForRows(RecyclerView recyclerView) throws InterruptedException {
+        long deadline = SystemClock.uptimeMillis() + LOAD_TIMEOUT_MILLIS;
+        while (SystemClock.uptimeMillis() < deadline) {
+            RecyclerView.Adapter adapter = recyclerView.getAdapter();
+            if (adapter != null && adapter.getItemCount() > 0) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    private static void waitForIdle(RecyclerView recyclerView) throws InterruptedException {
+        // Let the fling start before waiting for it to end
+        Thread.sleep(50);
+        long deadline = SystemClock.uptimeMillis() + FLING_TIMEOUT_MILLIS;
+        while (recyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE
+                && SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(16);
+        }
+    }
+
+    /**
+     * Records the time between consecutive frames. Main thread only.
+     */
+    private static final class FrameRecorder implements Choreographer.FrameCallback {
+        private final Histogram frames;
+        private long mLastFrameNanos;
+        private boolean mRunning;
+        int janky;
+
+        FrameRecorder(Histogram frames) {
+            this.frames = frames;
+        }
+
+        void start() {
+            mRunning = true;
+            mLastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void stop() {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRunning) {
+                return;
+            }
+            if (mLastFrameNanos != 0) {
+                long frameNanos = frameTimeNanos - mLastFrameNanos;
+                frames.record(TimeUnit.NANOSECONDS.toMicros(frameNanos));
+                if (frameNanos > FRAME_PERIOD_NANOS * 3 / 2) {
+                    janky++;
+                }
+            }
+            mLastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -4,37 +4,95 @@ import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.bumptech.glide.Glide;
-
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
 
 public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHolder> {
 
+
     private List<Article> articles;
     private Context mContext;
+    private final ArticleDateFormatter dateFormatter;
+    private final Thumbnails thumbnails;
+    /** Diffs run on the compute pool; only the latest is applied, so their order doesn't matter */
+    private final Executor diffExecutor = TaskExecutors.getDefault().compute();
+    private final Executor mainExecutor = TaskExecutors.getDefault().main();
+
+    /** Bumped by every submitList so only the latest diff is applied */
+    private int mSubmitGeneration;
+    /** Bumped by every direct change to the list, to spot diffs computed against a stale copy */
+    private int mModCount;
+
+    /** Rows inflated off the main thread before the first list arrives */
+    private final RowViewPool rowPool;
+    /** Lays headlines out on the compute pool before they are bound */
+    private final TextLayoutWarmer headlineWarmer = new TextLayoutWarmer(diffExecutor);
+    private RecyclerView mRecyclerView;
+
+    /** One listener for every row, the article is looked up by the row's position when tapped */
+    private final View.OnClickListener onRowClick = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            int position = mRecyclerView != null ? mRecyclerView.getChildAdapterPosition(v) : RecyclerView.NO_POSITION;
+            if (position != RecyclerView.NO_POSITION && position < articles.size()) {
+                MainActivity.onArticleClick(mContext, articles.get(position).getWebUrl());
+            }
+        }
+    };
 
     public ArticleAdapter(Context context, List<Article> articles) {
         this.mContext = context;
         this.articles = articles;
+        this.dateFormatter = new ArticleDateFormatter(TimeZone.getDefault(), Locale.UK,
+                context.getString(R.string.date_just_now),
+                context.getString(R.string.date_minutes_ago),
+                context.getString(R.string.date_hours_ago));
+        this.thumbnails = new Thumbnails(context,
+                context.getResources().getDimensionPixelSize(R.dimen.thumbnail_size));
+        this.rowPool = new RowViewPool(context, R.layout.article_item);
+    }
+
+    /**
+     * Start inflating rows in the background, call before the first list is submitted.
+     */
+    public void prefillRows(ViewGroup parent, int count) {
+        rowPool.prefill(parent, count);
+    }
+
+    public RowViewPool getRowPool() {
+        return rowPool;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = null;
     }
 
     @Override
     @NonNull
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.article_item, parent, false);
-        return new ViewHolder(v);
+        View v = rowPool.obtain(parent);
+        v.setOnClickListener(onRowClick);
+        ViewHolder holder = new ViewHolder(v);
+        if (!headlineWarmer.isConfigured()) {
+            holder.configureWarmerOnLayout();
+        }
+        return holder;
     }
 
     @Override
@@ -62,32 +120,71 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
             imageItem = articleView.findViewById(R.id.imageItem);
         }
 
-        public void bind(final Article articleList) {
+        /**
+         * Once this row is laid out, use its headline's paint and room to lay out the rest.
+         */
+        void configureWarmerOnLayout() {
+            headline.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+                @Override
+                public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                           int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                    v.removeOnLayoutChangeListener(this);
+                    if (!headlineWarmer.isConfigured() && headlineWarmer.configure(headline)) {
+                        warmHeadlines(articles);
+                    }
+                }
+            });
+        }
+
+        public void bind(Article articleList) {
             section.setText(articleList.getCategory());
             headline.setText(articleList.getHeadline());
-            String rawDate = articleList.getWebPublicationDate();
-            String formattedDate = formatDate(rawDate);
-
-            // Set the text from the formatted date method.
-            date.setText(formattedDate);
+            // Dates are parsed when the article is built, formatting here hits the formatter's cache.
+            date.setText(dateFormatter.format(articleList.getPublishedAtMillis(), System.currentTimeMillis()));
 
             author.setText(articleList.getAuthor());
-            String imageItemUrl = articleList.getThumbnail();
-            Glide.with(mContext).load(imageItemUrl).into(imageItem);
+            // Sized to the view, so a preloaded thumbnail comes straight from memory
+            thumbnails.load(articleList.getThumbnail(), imageItem);
+        }
+    }
 
-            itemView.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    MainActivity.onArticleClick(mContext, articleList.getWebUrl());
-                }
-            });
+    private void warmHeadlines(List<Article> list) {
+        List<String> headlines = new ArrayList<>(list.size());
+        for (Article article : list) {
+            headlines.add(article.getHeadline());
         }
+        headlineWarmer.warm(headlines);
+    }
+
+    /**
+     * Fetch the thumbnail of a row that is about to be bound
+     */
+    public void preloadThumbnail(int position) {
+        if (position >= 0 && position < articles.size()) {
+            thumbnails.preload(articles.get(position).getThumbnail());
+        }
+    }
+
+    /** webUrl of the row, or null if there is no such row. */
+    public String getWebUrl(int position) {
+        return position >= 0 && position < articles.size() ? articles.get(position).getWebUrl() : null;
+    }
+
+    /** See {@link Thumbnails#setDownloadScale(float)}. */
+    public void setThumbnailScale(float scale) {
+        thumbnails.setDownloadScale(scale);
+    }
+
+    public ThumbnailStats getThumbnailStats() {
+        return thumbnails.getStats();
     }
 
     /**
      * Can't clear adapter from MainActivity so call it from here
      */
     public void clearArticles() {
+        mSubmitGeneration++;
+        mModCount++;
         articles.clear();
         notifyDataSetChanged();
     }
@@ -96,28 +193,117 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
      * Method to add data to adapter
      */
     public void addData(List<Article> data) {
+        mModCount++;
         articles.addAll(data);
         notifyDataSetChanged();  // Necessary to refresh view
     }
 
+    /**
+     * Replace the list with a new one. The diff against the current list is worked out on a
+     * background thread, keyed by webUrl, and only inserted, moved, removed or changed rows are
+     * dispatched, so unchanged rows keep their views and thumbnails and the scroll position holds.
+     * The optional callback runs on the main thread once the new list is showing.
+     */
+    public void submitList(List<Article> data, final Runnable onCommitted) {
+        final List<Article> newList = new ArrayList<>(data);
+        final List<Article> oldList = new ArrayList<>(articles);
+        final int generation = ++mSubmitGeneration;
+        final int modCount = mModCount;
+        // Queued ahead of the diff, so the new rows' text is ready by the time they are bound
+        warmHeadlines(newList);
 
+        diffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result =
+                        DiffUtil.calculateDiff(new ArticleDiffCallback(oldList, newList));
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mSubmitGeneration) {
+                            // A newer list was submitted meanwhile
+                            return;
+                        }
+                        if (modCount != mModCount) {
+                            // The list was changed under us, diff again from what is showing now
+                            submitList(newList, onCommitted);
+                            return;
+                        }
+                        articles.clear();
+                        articles.addAll(newList);
+                        mModCount++;
+                        result.dispatchUpdatesTo(ArticleAdapter.this);
+                        if (onCommitted != null) {
+                            onCommitted.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
 
     /**
-     * Return the formatted date string.
-     * Initially received an error on this method as was passing in a String and needed to utilise a date
-     * so had to parse an input/output
+     * Replace the first headCount rows with the given ones and leave the rows after them as
+     * they are, e.g. a refreshed first page above the pages scrolled in since. Diffed in the
+     * background like {@link #submitList}. If the rows change before the diff is applied,
+     * onStale runs instead of onCommitted, both on the main thread, to try again against what
+     * is showing then.
      */
-    private String formatDate(String dateObject) {
+    public void submitHead(List<Article> head, int headCount, final Runnable onCommitted,
+                           final Runnable onStale) {
+        final List<Article> newHead = new ArrayList<>(head);
+        final List<Article> oldHead = new ArrayList<>(articles.subList(0, headCount));
+        final int generation = ++mSubmitGeneration;
+        final int modCount = mModCount;
+        warmHeadlines(newHead);
 
-        DateFormat outputFormat = new SimpleDateFormat("dd-MM-yyyy", Locale.UK);
-        DateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.UK);
+        diffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Positions in the diff start at 0, the same as the head's in the adapter
+                final DiffUtil.DiffResult result =
+                        DiffUtil.calculateDiff(new ArticleDiffCallback(oldHead, newHead));
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mSubmitGeneration) {
+                            return;
+                        }
+                        if (modCount != mModCount) {
+                            if (onStale != null) {
+                                onStale.run();
+                            }
+                            return;
+                        }
+                        articles.subList(0, oldHead.size()).clear();
+                        articles.addAll(0, newHead);
+                        mModCount++;
+                        result.dispatchUpdatesTo(ArticleAdapter.this);
+                        if (onCommitted != null) {
+                            onCommitted.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
 
-        Date date = null;
-        try {
-            date = inputFormat.parse(dateObject);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-        return outputFormat.format(date);
+    /**
+     * Insert a page of articles, only the new rows are bound
+     */
+    public void insertArticles(int position, List<Article> data) {
+        warmHeadlines(data);
+        mModCount++;
+        articles.addAll(position, data);
+        notifyItemRangeInserted(position, data.size());
+    }
+
+    /**
+     * Remove a page of articles that has scrolled far out of view
+     */
+    public void removeArticles(int position, int count) {
+        mModCount++;
+        articles.subList(position, position + count).clear();
+        notifyItemRangeRemoved(position, count);
     }
 }
@@ -0,0 +1,175 @@
+package com.example.android.guardiantech;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The text of one article for the in-app reader: headline, byline and body paragraphs.
+ * Immutable.
+ *
+ * Built from the API's body field by {@link #fromHtml(String, String, String)}, which keeps
+ * the paragraphs and headings and drops everything the reader can't show, figures, embeds and
+ * scripts included, so what is stored is only the words.
+ */
+public final class ArticleBody {
+
+    /** Elements whose contents are left out altogether */
+    private static final String[] SKIPPED = {"figure", "script", "style", "aside", "iframe"};
+    /** Elements that start or end a paragraph */
+    private static final String[] BLOCKS = {"p", "br", "h2", "h3", "h4", "li", "blockquote", "div"};
+
+    private final String headline;
+    private final String author;
+    private final List<String> paragraphs;
+
+    public ArticleBody(String headline, String author, List<String> paragraphs) {
+        this.headline = headline;
+        this.author = author;
+        this.paragraphs = Collections.unmodifiableList(new ArrayList<>(paragraphs));
+    }
+
+    public String getHeadline() {
+        return headline;
+    }
+
+    /** Null if the article has no contributor. */
+    public String getAuthor() {
+        return author;
+    }
+
+    public List<String> getParagraphs() {
+        return paragraphs;
+    }
+
+    /** Characters in all paragraphs together. */
+    public int getLength() {
+        int length = 0;
+        for (String paragraph : paragraphs) {
+            length += paragraph.length();
+        }
+        return length;
+    }
+
+    /**
+     * Turn the API's body HTML into plain paragraphs.
+     */
+    public static ArticleBody fromHtml(String headline, String author, String html) {
+        List<String> paragraphs = new ArrayList<>();
+        StringBuilder paragraph = new StringBuilder();
+        String skipping = null;
+        int i = 0;
+        int length = html.length();
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                int end = html.indexOf('>', i);
+                if (end < 0) {
+                    break;
+                }
+                String tag = tagName(html, i + 1, end);
+                boolean closing = i + 1 < length && html.charAt(i + 1) == '/';
+                i = end + 1;
+                if (skipping != null) {
+                    if (closing && skipping.equals(tag)) {
+                        skipping = null;
+                    }
+                } else if (!closing && contains(SKIPPED, tag) && html.charAt(end - 1) != '/') {
+                    skipping = tag;
+                } else if (contains(BLOCKS, tag)) {
+                    endParagraph(paragraph, paragraphs);
+                }
+            } else if (skipping != null) {
+                i++;
+            } else if (c == '&') {
+                int end = html.indexOf(';', i);
+                String decoded = end > i && end - i <= 10 ? decodeEntity(html.substring(i + 1, end)) : null;
+                if (decoded != null) {
+                    appendText(paragraph, decoded);
+                    i = end + 1;
+                } else {
+                    appendText(paragraph, "&");
+                    i++;
+                }
+            } else {
+                appendText(paragraph, String.valueOf(c));
+                i++;
+            }
+        }
+        endParagraph(paragraph, paragraphs);
+        return new ArticleBody(headline, author, paragraphs);
+    }
+
+    private static String tagName(String html, int start, int end) {
+        if (start < end && html.charAt(start) == '/') {
+            start++;
+        }
+        int nameEnd = start;
+        while (nameEnd < end && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        return html.substring(start, nameEnd).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean contains(String[] names, String name) {
+        for (String candidate : names) {
+            if (candidate.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Collapse runs of whitespace to one space, none at the start of a paragraph. */
+    private static void appendText(StringBuilder paragraph, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '\u00a0') {
+                int last = paragraph.length() - 1;
+                if (last >= 0 && paragraph.charAt(last) != ' ') {
+                    paragraph.append(' ');
+                }
+            } else {
+                paragraph.append(c);
+            }
+        }
+    }
+
+    private static void endParagraph(StringBuilder paragraph, List<String> paragraphs) {
+        String text = paragraph.toString().trim();
+        if (!text.isEmpty()) {
+            paragraphs.add(text);
+        }
+        paragraph.setLength(0);
+    }
+
+    private static String decodeEntity(String entity) {
+        switch (entity) {
+            case "amp":
+                return "&";
+            case "lt":
+                return "<";
+            case "gt":
+                return ">";
+            case "quot":
+                return "\"";
+            case "apos":
+                return "'";
+            case "nbsp":
+                return " ";
+            default:
+                break;
+        }
+        if (entity.startsWith("#")) {
+            try {
+                int codePoint = entity.startsWith("#x") || entity.startsWith("#X")
+                        ? Integer.parseInt(entity.substring(2), 16) : Integer.parseInt(entity.substring(1));
+                return new String(Character.toChars(codePoint));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
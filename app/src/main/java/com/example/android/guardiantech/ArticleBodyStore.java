@@ -0,0 +1,387 @@
+package com.example.android.guardiantech;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Disk store of article bodies for reading offline, keyed by webUrl and capped in size.
+ *
+ * Each body is one file of deflated blocks of whole paragraphs, around {@link #BLOCK_CHARS}
+ * characters each. Every block carries its own lengths, so a block whose data doesn't inflate
+ * is skipped and only its paragraphs are lost; damage to the lengths themselves loses the
+ * body. Article text deflates to well under half its size.
+ *
+ * Once the files add up to more than the cap the least recently read or written are deleted.
+ * Reading a body touches its file, so the order survives a restart.
+ *
+ * Plain Java apart from logging. {@link #contains(String)} is answered from memory and may be
+ * called on the main thread once {@link #loadIndex()} has run; everything else does disk I/O.
+ */
+public class ArticleBodyStore {
+
+    private static final String LOG_TAG = ArticleBodyStore.class.getName();
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x47544244; // "GTBD"
+    private static final int VERSION = 1;
+    private static final String FILE_PREFIX = "body-";
+    private static final String FILE_SUFFIX = ".z";
+
+    /** Target characters of text per compressed block */
+    static final int BLOCK_CHARS = 8 * 1024;
+    /** Larger blocks are taken as corrupt rather than allocated */
+    private static final int MAX_BLOCK_BYTES = 4 * 1024 * 1024;
+    public static final long DEFAULT_MAX_BYTES = 10 * 1024 * 1024;
+
+    private final File directory;
+    private final long maxBytes;
+
+    /** File sizes, least recently used first. Guarded by this */
+    private final LinkedHashMap<String, Long> mFiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long mTotalBytes;
+    private boolean mIndexLoaded;
+    /** Names of the stored files, for lock-free lookups from the main thread */
+    private final Set<String> mStored = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public ArticleBodyStore(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Find what is already on disk. Done on first use otherwise; call it early on a background
+     * thread so {@link #contains(String)} knows about bodies stored by an earlier run.
+     */
+    public synchronized void loadIndex() {
+        if (mIndexLoaded) {
+            return;
+        }
+        mIndexLoaded = true;
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> bodies = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+                bodies.add(file);
+            } else if (name.endsWith(".tmp")) {
+                // Left behind by a write that didn't finish
+                file.delete();
+            }
+        }
+        Collections.sort(bodies, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long ta = a.lastModified();
+                long tb = b.lastModified();
+                return ta < tb ? -1 : (ta == tb ? 0 : 1);
+            }
+        });
+        for (File file : bodies) {
+            mFiles.put(file.getName(), file.length());
+            mStored.add(file.getName());
+            mTotalBytes += file.length();
+        }
+    }
+
+    /** Whether a body is stored for the URL. Answered from memory. */
+    public boolean contains(String webUrl) {
+        return mStored.contains(fileName(webUrl));
+    }
+
+    /** Bytes on disk. */
+    public synchronized long getSizeBytes() {
+        loadIndex();
+        return mTotalBytes;
+    }
+
+    /**
+     * Store an article's body given as the API's HTML, replacing any stored before.
+     * Returns false if it couldn't be written.
+     */
+    public boolean write(Article article, String html) {
+        return write(article.getWebUrl(), ArticleBody.fromHtml(article.getHeadline(), article.getAuthor(), html));
+    }
+
+    /**
+     * Store the bodies that came with a page of articles, keyed by webUrl.
+     */
+    public void writeAll(List<Article> articles, Map<String, String> bodies) {
+        if (bodies.isEmpty()) {
+            return;
+        }
+        for (Article article : articles) {
+            String html = bodies.get(article.getWebUrl());
+            if (html != null) {
+                write(article, html);
+            }
+        }
+    }
+
+    public synchronized boolean write(String webUrl, ArticleBody body) {
+        loadIndex();
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create " + directory);
+            return false;
+        }
+        String name = fileName(webUrl);
+        File file = new File(directory, name);
+        File temp = new File(directory, name + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(webUrl);
+            writeString(out, body.getHeadline());
+            writeString(out, body.getAuthor());
+            List<List<String>> blocks = blocks(body.getParagraphs());
+            out.writeInt(blocks.size());
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            try {
+                for (List<String> block : blocks) {
+                    writeBlock(out, block, deflater);
+                }
+            } finally {
+                deflater.end();
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                Log.e(LOG_TAG, "Unable to replace " + file);
+                temp.delete();
+                return false;
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing article body", e);
+            closeQuietly(out);
+            temp.delete();
+            return false;
+        }
+
+        Long previous = mFiles.put(name, file.length());
+        mTotalBytes += file.length() - (previous != null ? previous : 0);
+        mStored.add(name);
+        trim(name);
+        return true;
+    }
+
+    /**
+     * Return the stored body for the URL, or null if there is none or it can't be read.
+     */
+    public synchronized ArticleBody read(String webUrl) {
+        loadIndex();
+        String name = fileName(webUrl);
+        File file = new File(directory, name);
+        if (!mFiles.containsKey(name) || !file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !webUrl.equals(in.readUTF())) {
+                return null;
+            }
+            String headline = readString(in);
+            String author = readString(in);
+            int blocks = in.readInt();
+            List<String> paragraphs = new ArrayList<>();
+            int damaged = 0;
+            Inflater inflater = new Inflater();
+            try {
+                for (int i = 0; i < blocks; i++) {
+                    if (!readBlock(in, inflater, paragraphs)) {
+                        damaged++;
+                    }
+                }
+            } finally {
+                inflater.end();
+            }
+            if (damaged > 0) {
+                Log.e(LOG_TAG, "Skipped " + damaged + " of " + blocks + " blocks of " + webUrl);
+                if (damaged == blocks) {
+                    return null;
+                }
+            }
+            // Most recently used now, here and on disk
+            mFiles.get(name);
+            file.setLastModified(System.currentTimeMillis());
+            return new ArticleBody(headline, author, paragraphs);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading article body", e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /** Delete every stored body. */
+    public synchronized void clear() {
+        loadIndex();
+        for (String name : new ArrayList<>(mFiles.keySet())) {
+            delete(name);
+        }
+    }
+
+    /** Delete the least recently used bodies until the store fits its cap, keeping the given one. */
+    private void trim(String keep) {
+        Iterator<Map.Entry<String, Long>> eldest = mFiles.entrySet().iterator();
+        while (mTotalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            eldest.remove();
+            mStored.remove(entry.getKey());
+            mTotalBytes -= entry.getValue();
+            new File(directory, entry.getKey()).delete();
+        }
+    }
+
+    private void delete(String name) {
+        Long size = mFiles.remove(name);
+        if (size != null) {
+            mTotalBytes -= size;
+        }
+        mStored.remove(name);
+        new File(directory, name).delete();
+    }
+
+    /**
+     * Paragraphs grouped into blocks of about BLOCK_CHARS characters, never splitting one.
+     */
+    static List<List<String>> blocks(List<String> paragraphs) {
+        List<List<String>> blocks = new ArrayList<>();
+        List<String> block = new ArrayList<>();
+        int chars = 0;
+        for (String paragraph : paragraphs) {
+            if (!block.isEmpty() && chars + paragraph.length() > BLOCK_CHARS) {
+                blocks.add(block);
+                block = new ArrayList<>();
+                chars = 0;
+            }
+            block.add(paragraph);
+            chars += paragraph.length();
+        }
+        if (!block.isEmpty()) {
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    /** A block is its paragraphs joined by newlines, which no paragraph contains. */
+    private static void writeBlock(DataOutputStream out, List<String> paragraphs, Deflater deflater)
+            throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String paragraph : paragraphs) {
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(paragraph);
+        }
+        byte[] raw = text.toString().getBytes(UTF_8);
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            compressed.write(buffer, 0, n);
+        }
+        out.writeInt(raw.length);
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+    }
+
+    /**
+     * Read the next block's paragraphs into the list. Returns false, adding nothing, if its data
+     * doesn't inflate to its length; the blocks after it can still be read. Lengths that can't
+     * be right throw, since where the next block starts is then unknown.
+     */
+    private static boolean readBlock(DataInputStream in, Inflater inflater, List<String> paragraphs)
+            throws IOException {
+        int rawLength = in.readInt();
+        int compressedLength = in.readInt();
+        if (rawLength < 0 || rawLength > MAX_BLOCK_BYTES
+                || compressedLength < 0 || compressedLength > maxCompressedLength(rawLength)) {
+            throw new IOException("Bad block " + rawLength + "/" + compressedLength);
+        }
+        byte[] compressed = new byte[compressedLength];
+        in.readFully(compressed);
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int done = 0;
+            while (done < rawLength) {
+                int n = inflater.inflate(raw, done, rawLength - done);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    return false;
+                }
+                done += n;
+            }
+        } catch (DataFormatException e) {
+            return false;
+        }
+        paragraphs.addAll(Arrays.asList(new String(raw, UTF_8).split("\n")));
+        return true;
+    }
+
+    /** Most a block of rawLength bytes can deflate to, zlib's deflateBound. */
+    static int maxCompressedLength(int rawLength) {
+        return rawLength + (rawLength >> 12) + (rawLength >> 14) + (rawLength >> 25) + 13;
+    }
+
+    private static String fileName(String webUrl) {
+        // The URL itself is stored in the file, so a hash collision only costs a miss.
+        return FILE_PREFIX + Long.toHexString(Article.idFor(webUrl)) + FILE_SUFFIX;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error closing article body", e);
+            }
+        }
+    }
+}
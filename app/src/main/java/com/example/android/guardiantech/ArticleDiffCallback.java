@@ -0,0 +1,44 @@
+package com.example.android.guardiantech;
+
+import android.support.v7.util.DiffUtil;
+
+import java.util.List;
+
+/**
+ * Diffs two article lists. Rows are the same article when their webUrl matches,
+ * and only need rebinding when any displayed field changed.
+ */
+public class ArticleDiffCallback extends DiffUtil.Callback {
+
+    private final List<Article> oldList;
+    private final List<Article> newList;
+
+    public ArticleDiffCallback(List<Article> oldList, List<Article> newList) {
+        this.oldList = oldList;
+        this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        Article oldItem = oldList.get(oldItemPosition);
+        Article newItem = newList.get(newItemPosition);
+        // Ids differ for nearly every pair, so the string compare only runs on a likely match
+        return oldItem.getId() == newItem.getId() && oldItem.getWebUrl() != null
+                && oldItem.getWebUrl().equals(newItem.getWebUrl());
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        return oldList.get(oldItemPosition).equals(newList.get(newItemPosition));
+    }
+}
@@ -1,38 +1,319 @@
 package com.example.android.guardiantech;
 
-import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.content.Loader;
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class ArticleLoader extends AsyncTaskLoader<List<Article>> {
+/**
+ * Loads articles for one or more feed queries, stale-while-revalidate: the stored lists are
+ * merged and delivered first, then, if any is past its TTL and we are online, every feed is
+ * revalidated in parallel with conditional requests. The merged list is re-delivered as each
+ * feed arrives, but only when it differs from what is already on screen.
+ *
+ * Refreshes go through a {@link LoadScheduler}: taps while a load is under way join it, taps
+ * while the last fetch is still fresh are dropped, and stopping the loader aborts the fetch.
+ *
+ * Loads run on the io executor of {@link TaskExecutors} rather than AsyncTaskLoader's single
+ * thread, and results, partial ones included, come back through its batched main executor.
+ */
+public class ArticleLoader extends Loader<List<Article>> {
 
-    /** Query URL */
-    private String url;
+    /** Feed queries by feed key, in feed order */
+    private final Map<String, GuardianQuery> queries = new LinkedHashMap<>();
+    /** Feed keys, one per feed, what the aggregator knows feeds by */
+    private final List<String> keys;
     private static final String LOG_TAG = ArticleLoader.class.getName();
 
-    public ArticleLoader(Context context, String url) {
+    private final ArticleRepository repository;
+    private final FeedAggregator aggregator;
+    private final LoadScheduler scheduler;
+    private final TaskExecutors executors;
+    private final NetworkStatus network;
+
+    /** Latest stored entry per feed key, carries the validators for the next conditional request */
+    private final Map<String, ArticleStore.Entry> mEntries = new ConcurrentHashMap<>();
+
+    /** Last list handed to the UI */
+    private volatile List<Article> mArticles;
+    private boolean mDelivered;
+    /** Token of the load queued or running, main thread only */
+    private CancellationToken mLoadToken;
+    /** Latest partial result not yet handed to the UI, only the newest is worth showing */
+    private final AtomicReference<List<Article>> mPendingPartial = new AtomicReference<>();
+
+    // Written on the io thread, read back on the main thread
+    private volatile boolean mStoreChecked;
+    private volatile boolean mRevalidate;
+    /** Page size of the page 1 the returned list was merged from, see {@link #getPageSize()} */
+    private volatile int mPageSize;
+
+    public ArticleLoader(Context context, List<GuardianQuery> queries, ArticleRepository repository,
+                         FeedAggregator aggregator, LoadScheduler scheduler, TaskExecutors executors,
+                         NetworkStatus network) {
         super(context);
-        this.url = url;
+        for (GuardianQuery query : queries) {
+            this.queries.put(query.getFeedKey(), query);
+        }
+        this.keys = new ArrayList<>(this.queries.keySet());
+        this.repository = repository;
+        this.aggregator = aggregator;
+        this.scheduler = scheduler;
+        this.executors = executors;
+        this.network = network;
     }
 
+    /**
+     * Start a load on the io executor, dropping the one before it if it hasn't finished.
+     */
     @Override
-    public List<Article> loadInBackground() {
+    protected void onForceLoad() {
+        cancelTask();
+        final CancellationToken loadToken = new CancellationToken();
+        mLoadToken = loadToken;
+        final long scheduledAt = Metrics.now();
+        scheduler.onScheduled();
+        executors.io().execute(new Runnable() {
+            @Override
+            public void run() {
+                Metrics.getDefault().recordSince(Metrics.LOADER_QUEUE_WAIT, scheduledAt);
+                final List<Article> result = loadToken.isCancelled() ? skipLoad() : loadInBackground();
+                executors.main().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (loadToken != mLoadToken) {
+                            // Cancelled or superseded
+                            return;
+                        }
+                        mLoadToken = null;
+                        deliverResult(result);
+                    }
+                });
+            }
+        });
+    }
+
+    /** Cancelled before it started, just let the scheduler know it is no longer queued. */
+    private List<Article> skipLoad() {
+        scheduler.onLoadStarted();
+        return null;
+    }
+
+    /**
+     * Cancel the queued or running load, if any. Returns true if there was one.
+     */
+    private boolean cancelTask() {
+        if (mLoadToken == null) {
+            return false;
+        }
+        mLoadToken.cancel();
+        mLoadToken = null;
+        return true;
+    }
+
+    List<Article> loadInBackground() {
 
         Log.i(LOG_TAG, "Test loadinBackground() called");
+        long start = Metrics.now();
+        try {
+            return load();
+        } finally {
+            Metrics.getDefault().recordSince(Metrics.LOADER_TIME, start);
+        }
+    }
 
-        if (url == null) {
+    private List<Article> load() {
+        scheduler.onLoadStarted();
+
+        if (keys.isEmpty()) {
             return null;
         }
+        boolean online = network.isConnected();
+
+        // First pass: serve whatever we have on disk.
+        if (!mStoreChecked) {
+            mStoreChecked = true;
+            boolean stale = false;
+            for (GuardianQuery query : queries.values()) {
+                ArticleStore.Entry entry = repository.getStored(query);
+                if (entry != null) {
+                    mEntries.put(query.getFeedKey(), entry);
+                }
+                // A page 1 kept from another page size is served, but fetched again at this one
+                stale |= entry == null || !entry.isFresh(System.currentTimeMillis())
+                        || entry.getPageSize() != query.getPageSize();
+            }
+            if (!mEntries.isEmpty()) {
+                mRevalidate = online && stale;
+                mPageSize = entriesPageSize();
+                return FeedAggregator.merge(keys, storedArticles(), null);
+            }
+        }
+
+        if (!online) {
+            return mArticles;
+        }
+
+        // Revalidate every feed at once, showing each as it arrives.
+        final CancellationToken token = scheduler.startFetch();
+        FeedAggregator.FeedFetcher fetcher = new FeedAggregator.FeedFetcher() {
+            @Override
+            public List<Article> fetch(String key, CancellationToken feedToken) {
+                ArticleStore.Entry entry = repository.refresh(queries.get(key), mEntries.get(key), feedToken);
+                if (entry == null) {
+                    return null;
+                }
+                mEntries.put(key, entry);
+                return entry.getArticles();
+            }
+        };
+        FeedAggregator.Listener listener = new FeedAggregator.Listener() {
+            @Override
+            public void onPartialResult(List<Article> merged, int feedsDone, int feedsTotal) {
+                if (feedsDone == feedsTotal || token.isCancelled()) {
+                    // The last one is returned from loadInBackground as usual
+                    return;
+                }
+                if (mPendingPartial.getAndSet(merged) != null) {
+                    // One is already on its way to the main thread, it will take this instead
+                    return;
+                }
+                executors.main().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<Article> latest = mPendingPartial.getAndSet(null);
+                        if (latest != null && !isAbandoned() && !token.isCancelled()) {
+                            deliverResult(latest);
+                        }
+                    }
+                });
+            }
+        };
+        try {
+            List<Article> articles = aggregator.load(keys, fetcher, storedArticles(), listener, token);
+            if (token.isCancelled()) {
+                return mArticles;
+            }
+            // Keep showing the stored list rather than blanking the screen on a failed refresh.
+            if (articles.isEmpty()) {
+                return mArticles;
+            }
+            mPageSize = entriesPageSize();
+            return articles;
+        } catch (InterruptedException e) {
+            Log.e(LOG_TAG, "Interrupted loading articles", e);
+            Thread.currentThread().interrupt();
+            return mArticles;
+        } finally {
+            scheduler.finishFetch(token, SystemClock.elapsedRealtime());
+        }
+    }
+
+    /**
+     * Check the network for new articles, unless a load is already under way or the last
+     * fetch is recent enough. Returns true if a load was started. Call on the main thread.
+     */
+    public boolean refresh() {
+        if (!scheduler.requestRefresh(SystemClock.elapsedRealtime())) {
+            Log.i(LOG_TAG, "Refresh skipped, " + scheduler);
+            return false;
+        }
+        forceLoad();
+        return true;
+    }
+
+    /** Whether a load is queued or fetching, so a refresh now would join it. */
+    public boolean isRefreshing() {
+        return scheduler.isBusy();
+    }
+
+    /** Whether the stored lists just loaded are to be checked against the network next. */
+    boolean isRevalidationPending() {
+        return mRevalidate;
+    }
+
+    /**
+     * Page size the feeds of the last full list were fetched at, or 0 if they differ or aren't
+     * known. Later pages only follow on from page 1 at the size it was fetched at. Read it in
+     * onLoadFinished; partial results don't change it.
+     */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    private int entriesPageSize() {
+        int pageSize = -1;
+        for (ArticleStore.Entry entry : mEntries.values()) {
+            if (pageSize != -1 && entry.getPageSize() != pageSize) {
+                return 0;
+            }
+            pageSize = entry.getPageSize();
+        }
+        return Math.max(pageSize, 0);
+    }
 
-        // Perform the HTTP request for article data and process the response.
-        List<Article> articles = QueryUtils.fetchArticleData(url);
-        return articles;
+    private Map<String, List<Article>> storedArticles() {
+        Map<String, List<Article>> stored = new HashMap<>();
+        for (Map.Entry<String, ArticleStore.Entry> entry : mEntries.entrySet()) {
+            stored.put(entry.getKey(), entry.getValue().getArticles());
+        }
+        return stored;
+    }
+
+    @Override
+    public void deliverResult(List<Article> data) {
+        if (isReset()) {
+            return;
+        }
+
+        // The first result always goes out, even if empty, so the UI can leave its loading state.
+        boolean changed = !mDelivered || (data == null ? mArticles != null : !data.equals(mArticles));
+        mArticles = data;
+        if (isStarted() && changed) {
+            mDelivered = true;
+            super.deliverResult(data);
+        }
+
+        // The stored list is on screen, now revalidate it against the network.
+        if (mRevalidate) {
+            mRevalidate = false;
+            forceLoad();
+        }
     }
 
     @Override
     protected void onStartLoading() {
-        forceLoad();
+        if (mArticles != null) {
+            // Use super so the list is re-sent to a newly attached activity.
+            super.deliverResult(mArticles);
+        }
+        if (takeContentChanged() || mArticles == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        // Loader.cancelLoad needs API 16, cancel directly
+        boolean pending = cancelTask();
+        if (scheduler.cancel() || pending) {
+            // The load was abandoned part way, pick it up again when we are next started
+            onContentChanged();
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        mArticles = null;
+        mDelivered = false;
     }
 }
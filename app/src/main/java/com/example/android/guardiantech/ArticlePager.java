@@ -0,0 +1,421 @@
+package com.example.android.guardiantech;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Infinite scroll over the Guardian page/pages fields.
+ *
+ * Holds a window of consecutive pages. When the visible rows get within the prefetch distance
+ * of either end of the window, the neighbouring page is fetched in the background. A page that
+ * is already in flight is never requested twice. Once the window holds more than the page cap,
+ * the page at the far end from the one just added is dropped, so memory stays bounded however
+ * far the user scrolls; dropped pages are fetched again if the user scrolls back to them.
+ *
+ * Given a {@link PageSpill}, dropped pages are written to it instead and read back from it
+ * when scrolled back to, so only pages never loaded cost a request. Under memory pressure
+ * {@link #trimTo(float)} shrinks the window the same way, keeping the pages on screen.
+ *
+ * A page that fails to load is asked for again on a later scroll, after a backoff that grows
+ * with each failure in a row, so a timeout or an open circuit doesn't end the scroll for good.
+ *
+ * All public methods must be called on the main thread. Fetches run on the background executor
+ * and their results come back through the main executor. The spill is only touched on the
+ * spill executor, which must run one thing at a time in order, so a clear or a rewrite of a
+ * page can't overtake the writes before it.
+ */
+public class ArticlePager {
+
+    private static final String LOG_TAG = ArticlePager.class.getName();
+
+    /** Room for the page being read and the one being prefetched */
+    private static final int MIN_PAGES = 2;
+    private static final int NO_POSITION = -1;
+    /** Backoff before a failed page is asked for again, doubled for each failure in a row */
+    static final long RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+
+    /** Fetches one 1-based page of the query. Called on the background executor. */
+    public interface PageSource {
+        FetchResult fetchPage(int page);
+    }
+
+    /**
+     * Holds pages dropped from the window until they are scrolled back to. Called on the
+     * spill executor.
+     */
+    public interface PageSpill {
+        void write(String key, List<Article> articles);
+
+        /** The articles written under the key, or null. */
+        List<Article> read(String key);
+
+        void clear();
+    }
+
+    /** Told where rows appeared or disappeared in the adapter. */
+    public interface Listener {
+        void onArticlesInserted(int position, List<Article> articles);
+
+        void onArticlesRemoved(int position, int count);
+    }
+
+    private final PageSource source;
+    private final PageSpill spill;
+    private final Listener listener;
+    private final Executor backgroundExecutor;
+    private final Executor spillExecutor;
+    private final Executor mainExecutor;
+    private final int maxPages;
+
+    /** Pages in the window, in order, starting at mFirstPage */
+    private final List<List<Article>> mPages = new ArrayList<>();
+    private final Set<Integer> mInFlight = new HashSet<>();
+    private int mFirstPage = 1;
+    /** Most pages the window may hold, maxPages unless trimmed */
+    private int mPageLimit;
+    /** Rows from either end of the window at which the next page is fetched */
+    private int mPrefetchDistance;
+    private int mFirstVisible = NO_POSITION;
+    private int mLastVisible = NO_POSITION;
+    private int mTotalPages = ArticlePage.UNKNOWN;
+    /** Page that last failed to load, not asked for again before mRetryAt */
+    private int mFailedPage = ArticlePage.UNKNOWN;
+    private int mFailures;
+    /** Metrics.now() time from which the failed page may be asked for again */
+    private long mRetryAt;
+    /** Bumped on reset so results of fetches started before it are ignored */
+    private int mGeneration;
+
+    public ArticlePager(PageSource source, Listener listener, Executor backgroundExecutor,
+                        Executor mainExecutor, int prefetchDistance, int maxPages) {
+        this(source, null, listener, backgroundExecutor, null, mainExecutor, prefetchDistance, maxPages);
+    }
+
+    /**
+     * @param spill         if not null, pages dropped from the window are kept there
+     * @param spillExecutor runs the spill's reads and writes one at a time, in order, e.g. a
+     *                      {@link SerialExecutor}; share one between pagers sharing a spill
+     */
+    public ArticlePager(PageSource source, PageSpill spill, Listener listener, Executor backgroundExecutor,
+                        Executor spillExecutor, Executor mainExecutor, int prefetchDistance, int maxPages) {
+        if (maxPages < MIN_PAGES) {
+            throw new IllegalArgumentException("maxPages must be at least " + MIN_PAGES);
+        }
+        if (spill != null && spillExecutor == null) {
+            throw new IllegalArgumentException("A spill needs a spill executor");
+        }
+        this.source = source;
+        this.spill = spill;
+        this.listener = listener;
+        this.backgroundExecutor = backgroundExecutor;
+        this.spillExecutor = spillExecutor;
+        this.mainExecutor = mainExecutor;
+        this.mPrefetchDistance = prefetchDistance;
+        this.maxPages = maxPages;
+        this.mPageLimit = maxPages;
+    }
+
+    /**
+     * Start again from page 1, whose articles the caller has already put in the adapter.
+     */
+    public void reset(List<Article> firstPage) {
+        mGeneration++;
+        mPages.clear();
+        mInFlight.clear();
+        mFirstPage = 1;
+        mTotalPages = ArticlePage.UNKNOWN;
+        mFailedPage = ArticlePage.UNKNOWN;
+        mFailures = 0;
+        mFirstVisible = NO_POSITION;
+        mLastVisible = NO_POSITION;
+        if (firstPage != null && !firstPage.isEmpty()) {
+            mPages.add(new ArrayList<>(firstPage));
+        }
+        clearSpill();
+    }
+
+    /**
+     * Take a newer version of page 1, e.g. the feed once revalidated, without starting again:
+     * the pages after it, the fetches in flight and the spill are kept. If page 1 is in the
+     * window the caller has already put the new rows in the adapter in place of the old ones;
+     * if it has been dropped, the new one is spilled in its place for when the user scrolls
+     * back up.
+     */
+    public void replaceFirstPage(List<Article> firstPage) {
+        if (holdsFirstPage()) {
+            int oldSize = mPages.get(0).size();
+            mPages.set(0, new ArrayList<>(firstPage));
+            if (mFirstVisible != NO_POSITION && mFirstVisible >= oldSize) {
+                shiftVisible(firstPage.size() - oldSize);
+            }
+        } else if (mFirstPage > 1 && spill != null) {
+            final String key = spillKey(1);
+            final List<Article> articles = new ArrayList<>(firstPage);
+            spillExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    spill.write(key, articles);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop delivering results, e.g. when the activity is destroyed.
+     */
+    public void release() {
+        mGeneration++;
+        mInFlight.clear();
+        clearSpill();
+    }
+
+    /**
+     * Fetch the next page this many rows before the end from the next scroll on.
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        mPrefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Report the adapter positions currently on screen.
+     */
+    public void onScrolled(int firstVisiblePosition, int lastVisiblePosition) {
+        if (mPages.isEmpty() || firstVisiblePosition < 0) {
+            return;
+        }
+        mFirstVisible = firstVisiblePosition;
+        mLastVisible = lastVisiblePosition;
+        int itemCount = getItemCount();
+        if (itemCount - 1 - lastVisiblePosition <= mPrefetchDistance) {
+            int next = mFirstPage + mPages.size();
+            if (mTotalPages == ArticlePage.UNKNOWN || next <= mTotalPages) {
+                request(next);
+            }
+        }
+        if (firstVisiblePosition <= mPrefetchDistance && mFirstPage > 1) {
+            request(mFirstPage - 1);
+        }
+    }
+
+    /**
+     * Hold at most the given share of the usual number of pages, spilling the ones furthest
+     * from the screen; the pages on screen are always kept. A share of 1 lets the window grow
+     * back to its full size as the user scrolls.
+     */
+    public void trimTo(float share) {
+        mPageLimit = Math.max(MIN_PAGES, Math.round(maxPages * share));
+        if (mPages.size() <= mPageLimit) {
+            return;
+        }
+        int firstShown = 0;
+        int lastShown = mPages.size() - 1;
+        if (mFirstVisible != NO_POSITION) {
+            firstShown = pageIndexOf(mFirstVisible);
+            lastShown = pageIndexOf(mLastVisible);
+        }
+        while (mPages.size() > Math.max(mPageLimit, lastShown - firstShown + 1)) {
+            // Drop from whichever end is further from the screen
+            if (firstShown > mPages.size() - 1 - lastShown) {
+                int count = dropPage(0);
+                firstShown--;
+                lastShown--;
+                listener.onArticlesRemoved(0, count);
+            } else {
+                int count = dropPage(mPages.size() - 1);
+                listener.onArticlesRemoved(getItemCount(), count);
+            }
+        }
+    }
+
+    /** Number of articles currently held, which is what the adapter shows. */
+    public int getItemCount() {
+        int count = 0;
+        for (int i = 0; i < mPages.size(); i++) {
+            count += mPages.get(i).size();
+        }
+        return count;
+    }
+
+    public int getFirstPage() {
+        return mFirstPage;
+    }
+
+    /** Whether page 1 is in the window, i.e. at the top of the adapter. */
+    public boolean holdsFirstPage() {
+        return mFirstPage == 1 && !mPages.isEmpty();
+    }
+
+    /** Rows page 1 takes at the top of the adapter, 0 if it isn't in the window. */
+    public int getFirstPageSize() {
+        return holdsFirstPage() ? mPages.get(0).size() : 0;
+    }
+
+    public int getPageCount() {
+        return mPages.size();
+    }
+
+    public boolean isInFlight(int page) {
+        return mInFlight.contains(page);
+    }
+
+    /** Index in the window of the page holding the adapter position. */
+    private int pageIndexOf(int position) {
+        int end = 0;
+        for (int i = 0; i < mPages.size(); i++) {
+            end += mPages.get(i).size();
+            if (position < end) {
+                return i;
+            }
+        }
+        return mPages.size() - 1;
+    }
+
+    private void request(final int page) {
+        if (mInFlight.contains(page) || (page == mFailedPage && Metrics.now() < mRetryAt)) {
+            return;
+        }
+        mInFlight.add(page);
+        final int generation = mGeneration;
+        Log.i(LOG_TAG, "Prefetching page " + page);
+        if (spill == null) {
+            fetch(page, generation);
+            return;
+        }
+        final String key = spillKey(page);
+        spillExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<Article> spilled = spill.read(key);
+                if (spilled != null) {
+                    deliver(page, generation, unspilled(spilled));
+                } else {
+                    fetch(page, generation);
+                }
+            }
+        });
+    }
+
+    /** Fetch on the background executor, so a slow request holds up no spill I/O. */
+    private void fetch(final int page, final int generation) {
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                deliver(page, generation, source.fetchPage(page));
+            }
+        });
+    }
+
+    private void deliver(final int page, final int generation, final FetchResult result) {
+        mainExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == mGeneration) {
+                    onPageLoaded(page, result);
+                }
+            }
+        });
+    }
+
+    private void onPageLoaded(int page, FetchResult result) {
+        mInFlight.remove(page);
+
+        if (result.getStatus() != FetchResult.STATUS_OK || result.getArticles() == null) {
+            mFailedPage = page;
+            mFailures++;
+            long delay = Math.min(MAX_RETRY_DELAY_MILLIS, RETRY_DELAY_MILLIS << Math.min(mFailures - 1, 5));
+            mRetryAt = Metrics.now() + TimeUnit.MILLISECONDS.toNanos(delay);
+            Log.e(LOG_TAG, "Unable to load page " + page + ", asking again in " + delay + "ms");
+            return;
+        }
+        mFailedPage = ArticlePage.UNKNOWN;
+        mFailures = 0;
+        if (result.getPages() != ArticlePage.UNKNOWN) {
+            mTotalPages = result.getPages();
+        }
+        List<Article> articles = result.getArticles();
+        if (articles.isEmpty()) {
+            // Past the last page
+            mTotalPages = page - 1;
+            return;
+        }
+
+        if (page == mFirstPage + mPages.size()) {
+            mPages.add(articles);
+            listener.onArticlesInserted(getItemCount() - articles.size(), articles);
+            // Scrolling down, so the page furthest from view is the first one
+            while (mPages.size() > mPageLimit) {
+                int count = dropPage(0);
+                listener.onArticlesRemoved(0, count);
+            }
+        } else if (page == mFirstPage - 1) {
+            mPages.add(0, articles);
+            mFirstPage--;
+            shiftVisible(articles.size());
+            listener.onArticlesInserted(0, articles);
+            while (mPages.size() > mPageLimit) {
+                int count = dropPage(mPages.size() - 1);
+                listener.onArticlesRemoved(getItemCount(), count);
+            }
+        }
+        // Otherwise the window moved on while the page was loading, drop it.
+    }
+
+    /**
+     * Take the page at the index out of the window, into the spill if there is one.
+     * Returns how many articles it held.
+     */
+    private int dropPage(int index) {
+        final List<Article> articles = mPages.remove(index);
+        final String key = spillKey(mFirstPage + index);
+        if (index == 0) {
+            mFirstPage++;
+            shiftVisible(-articles.size());
+        }
+        if (spill != null) {
+            spillExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    spill.write(key, articles);
+                }
+            });
+        }
+        return articles.size();
+    }
+
+    /** Keep the rows on screen in step with rows added or removed above them. */
+    private void shiftVisible(int count) {
+        if (mFirstVisible != NO_POSITION) {
+            mFirstVisible = Math.max(0, mFirstVisible + count);
+            mLastVisible = Math.max(0, mLastVisible + count);
+        }
+    }
+
+    /** Spilled pages are filed under the generation too, so none outlive a reset. */
+    private String spillKey(int page) {
+        return mGeneration + "/" + page;
+    }
+
+    private void clearSpill() {
+        if (spill != null) {
+            spillExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    spill.clear();
+                }
+            });
+        }
+    }
+
+    private static FetchResult unspilled(List<Article> articles) {
+        ArticlePage page = new ArticlePage();
+        page.articles.addAll(articles);
+        return new FetchResult(FetchResult.STATUS_OK, page, null, null, 0);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.android.guardiantech;
+
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Single place the loaders go to for articles: the on-disk {@link ArticleStore} in front of
+ * conditional requests made through an {@link HttpTransport}.
+ * Bodies that come with a page are saved to the {@link ArticleBodyStore} if one is given.
+ * Methods block on disk or network, so call them from a background thread.
+ */
+public class ArticleRepository {
+
+    private static final String LOG_TAG = ArticleRepository.class.getName();
+
+    private final ArticleStore store;
+    private final HttpTransport transport;
+    private final ArticleIndex index;
+    private final ArticleBodyStore bodyStore;
+
+    public ArticleRepository(ArticleStore store, HttpTransport transport) {
+        this(store, transport, null);
+    }
+
+    /**
+     * @param index if not null, every article read from the store or the network is added to it
+     */
+    public ArticleRepository(ArticleStore store, HttpTransport transport, ArticleIndex index) {
+        this(store, transport, index, null);
+    }
+
+    /**
+     * @param bodyStore if not null, article bodies fetched with a page are written to it
+     */
+    public ArticleRepository(ArticleStore store, HttpTransport transport, ArticleIndex index,
+                             ArticleBodyStore bodyStore) {
+        this.store = store;
+        this.transport = transport;
+        this.index = index;
+        this.bodyStore = bodyStore;
+    }
+
+    /**
+     * Return the stored entry for the query, or null if nothing has been saved yet.
+     */
+    public ArticleStore.Entry getStored(String url) {
+        return indexed(store.read(url));
+    }
+
+    /**
+     * Return the stored entry for the query's feed, whatever page size and fields it was
+     * last fetched with.
+     */
+    public ArticleStore.Entry getStored(GuardianQuery query) {
+        return getStored(query.getFeedKey());
+    }
+
+    /**
+     * Ask the network for the query, revalidating the given stored entry if there is one.
+     * Returns the updated entry, which keeps the stored article list instance when the server
+     * answers 304, or null if the request failed.
+     */
+    public ArticleStore.Entry refresh(String url, ArticleStore.Entry stored) {
+        return refresh(url, stored, null);
+    }
+
+    /**
+     * As above, giving up on the request once the token is cancelled. The store is left
+     * untouched by a cancelled refresh.
+     */
+    public ArticleStore.Entry refresh(String url, ArticleStore.Entry stored, CancellationToken token) {
+        return refresh(url, url, 0, stored, token);
+    }
+
+    /**
+     * As above for a query, stored under its feed key so the entry and its ETag follow the
+     * feed whatever API key, parameter order, page size or fields it was sent with. An ETag
+     * from another set of fields just gets a full response. An entry from another page size
+     * isn't revalidated at all, a 304 would keep it at the old size.
+     */
+    public ArticleStore.Entry refresh(GuardianQuery query, ArticleStore.Entry stored, CancellationToken token) {
+        if (stored != null && stored.getPageSize() != query.getPageSize()) {
+            stored = null;
+        }
+        return refresh(query.getFeedKey(), query.getUrl(), query.getPageSize(), stored, token);
+    }
+
+    private ArticleStore.Entry refresh(String key, String url, int pageSize, ArticleStore.Entry stored,
+                                       CancellationToken token) {
+        String etag = stored != null ? stored.getEtag() : null;
+        String lastModified = stored != null ? stored.getLastModified() : null;
+
+        FetchResult result = QueryUtils.fetchArticleData(transport, url, etag, lastModified, token);
+        if (token != null && token.isCancelled()) {
+            // Given up on while in flight, whatever came back isn't wanted any more
+            return null;
+        }
+
+        if (result.getStatus() == FetchResult.STATUS_NOT_MODIFIED && stored != null) {
+            Log.i(LOG_TAG, "Not modified, keeping " + stored.getArticles().size() + " stored articles");
+            // Rewrite to restart the TTL, keeping the same list so the loader sees no change.
+            return store.writePage(key, stored.getArticles(), result.getEtag(), result.getLastModified(), pageSize);
+        }
+
+        List<Article> articles = result.getArticles();
+        if (result.getStatus() != FetchResult.STATUS_OK || articles == null || articles.isEmpty()) {
+            return null;
+        }
+        if (bodyStore != null) {
+            bodyStore.writeAll(articles, result.getBodies());
+        }
+        return indexed(store.writePage(key, articles, result.getEtag(), result.getLastModified(), pageSize));
+    }
+
+    private ArticleStore.Entry indexed(ArticleStore.Entry entry) {
+        if (index != null && entry != null) {
+            index.addAll(entry.getArticles());
+        }
+        return entry;
+    }
+}
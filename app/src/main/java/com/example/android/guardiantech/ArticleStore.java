@@ -0,0 +1,225 @@
+package com.example.android.guardiantech;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk-backed store of the last articles received for each query, so the list can be shown
+ * straight away on launch and while offline.
+ * Each query is kept in its own small binary file, the articles in {@link ArticleCodec} form. Reads and writes do disk I/O,
+ * so call them off the main thread.
+ */
+public class ArticleStore {
+
+    private static final String LOG_TAG = ArticleStore.class.getName();
+
+    /** How long a stored list counts as fresh before the loader revalidates it. */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final int MAGIC = 0x47544152; // "GTAR"
+    private static final int VERSION = 4;
+    private static final String FILE_PREFIX = "articles-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private final File directory;
+    private final long ttlMillis;
+
+    /**
+     * A stored list of articles, when it was saved, the validators the server sent with it and
+     * the page size it was fetched at.
+     */
+    public static final class Entry {
+
+        private final List<Article> articles;
+        private final String etag;
+        private final String lastModified;
+        private final int pageSize;
+        private final long savedAt;
+        private final long ttlMillis;
+
+        Entry(List<Article> articles, String etag, String lastModified, int pageSize, long savedAt,
+              long ttlMillis) {
+            this.articles = articles;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.pageSize = pageSize;
+            this.savedAt = savedAt;
+            this.ttlMillis = ttlMillis;
+        }
+
+        public List<Article> getArticles() {
+            return articles;
+        }
+
+        /** ETag of the response the articles came from, or null. */
+        public String getEtag() {
+            return etag;
+        }
+
+        /** Last-Modified of the response the articles came from, or null. */
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Page size of the request the articles are the first page of, or 0 if they aren't one
+         * page of a query. Page 2 onwards only follows on from a page 1 of the same size.
+         */
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public long getSavedAt() {
+            return savedAt;
+        }
+
+        /**
+         * Whether the entry is still within the store's TTL at the given wall-clock time.
+         */
+        public boolean isFresh(long now) {
+            return now >= savedAt && now - savedAt < ttlMillis;
+        }
+    }
+
+    public ArticleStore(File directory, long ttlMillis) {
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Return the stored entry for the query, or null if there is none or it can't be read.
+     */
+    public Entry read(String key) {
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+            String etag = readString(in);
+            String lastModified = readString(in);
+            int pageSize = in.readInt();
+            long savedAt = in.readLong();
+            List<Article> articles = ArticleCodec.read(in);
+            return new Entry(Collections.unmodifiableList(articles), etag, lastModified, pageSize, savedAt,
+                    ttlMillis);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading stored articles", e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Replace the stored articles for the query and return the new entry. The file is written
+     * to a temporary name first so a crash part way through never leaves a corrupt entry behind.
+     */
+    public Entry write(String key, List<Article> articles, String etag, String lastModified) {
+        return writePage(key, articles, etag, lastModified, 0);
+    }
+
+    /**
+     * As above for the first page of a query fetched at the given page size.
+     */
+    public Entry writePage(String key, List<Article> articles, String etag, String lastModified, int pageSize) {
+        return writePage(key, articles, etag, lastModified, pageSize, System.currentTimeMillis());
+    }
+
+    Entry write(String key, List<Article> articles, String etag, String lastModified, long savedAt) {
+        return writePage(key, articles, etag, lastModified, 0, savedAt);
+    }
+
+    Entry writePage(String key, List<Article> articles, String etag, String lastModified, int pageSize,
+                    long savedAt) {
+        Entry entry = new Entry(articles, etag, lastModified, pageSize, savedAt, ttlMillis);
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create " + directory);
+            return entry;
+        }
+
+        File file = fileFor(key);
+        File temp = new File(directory, file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            writeString(out, etag);
+            writeString(out, lastModified);
+            out.writeInt(pageSize);
+            out.writeLong(savedAt);
+            ArticleCodec.write(articles, out);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                Log.e(LOG_TAG, "Unable to replace " + file);
+                temp.delete();
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing stored articles", e);
+            closeQuietly(out);
+            temp.delete();
+        }
+        return entry;
+    }
+
+    /**
+     * Delete every stored entry.
+     */
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(FILE_PREFIX)) {
+                file.delete();
+            }
+        }
+    }
+
+    private File fileFor(String key) {
+        // The key itself is stored in the file, so a hash collision only costs a cache miss.
+        return new File(directory, FILE_PREFIX + Integer.toHexString(key.hashCode()) + FILE_SUFFIX);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error closing stored articles", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.android.guardiantech;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brings the stored feeds up to date in the background by fetching only what is new.
+ *
+ * For each feed the newest stored webPublicationDate is sent as from-date, newest first, and
+ * pages are followed until the delta is complete, so a sync with nothing new costs one small
+ * response instead of a full page. New articles are merged in front of the stored ones and
+ * the result is cut back to one page, the newest, since the stored feed is what ArticleLoader
+ * shows as page 1 and ArticlePager asks for page 2 by offset from it. The stored validators
+ * are kept: they describe an older page 1, so the next revalidation gets the whole page once
+ * rather than a 304 for a list we no longer have. A feed with nothing stored yet gets a normal
+ * full fetch.
+ *
+ * Plain Java apart from logging, everything blocks, so call it from a background thread.
+ */
+public class ArticleSync {
+
+    private static final String LOG_TAG = ArticleSync.class.getName();
+
+    // Keys for merging with FeedAggregator.merge, earlier wins on duplicates
+    private static final String FRESH = "fresh";
+    private static final String STORED = "stored";
+    private static final List<String> MERGE_ORDER = Arrays.asList(FRESH, STORED);
+
+    private final ArticleStore store;
+    private final ArticleRepository repository;
+    private final HttpTransport transport;
+    private final ArticleBodyStore bodyStore;
+    private final int maxPages;
+
+    /**
+     * @param maxPages most delta pages fetched per feed in one sync
+     */
+    public ArticleSync(ArticleStore store, HttpTransport transport, int maxPages) {
+        this(store, transport, null, maxPages);
+    }
+
+    /**
+     * @param bodyStore if not null, bodies that come with new articles are written to it
+     */
+    public ArticleSync(ArticleStore store, HttpTransport transport, ArticleBodyStore bodyStore, int maxPages) {
+        this.store = store;
+        this.repository = new ArticleRepository(store, transport, null, bodyStore);
+        this.transport = transport;
+        this.bodyStore = bodyStore;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Sync every feed. Returns false if any feed failed, so the caller can try again later.
+     */
+    public boolean syncAll(List<GuardianQuery> queries, CancellationToken token) {
+        boolean ok = true;
+        for (GuardianQuery query : queries) {
+            if (token != null && token.isCancelled()) {
+                return false;
+            }
+            ok &= sync(query, token) >= 0;
+        }
+        return ok;
+    }
+
+    /**
+     * Sync one feed. Returns the number of new articles stored, or -1 if the feed failed.
+     * The store is not touched by a failed or cancelled sync.
+     */
+    public int sync(GuardianQuery query, CancellationToken token) {
+        String key = query.getFeedKey();
+        ArticleStore.Entry stored = store.read(key);
+        long newest = newestPublished(stored);
+        if (newest == ArticleDateFormatter.UNKNOWN) {
+            // Nothing to take a delta from
+            ArticleStore.Entry entry = repository.refresh(query, null, token);
+            return entry == null ? -1 : entry.getArticles().size();
+        }
+
+        GuardianQuery.Builder delta = deltaQuery(query, newest);
+        int pageSize = query.getPageSize();
+        List<Article> fresh = new ArrayList<>();
+        long bytes = 0;
+        int pages = 1;
+        // Newest first, so once a page's worth is in nothing later can make it into page 1
+        for (int page = 1; page <= pages && page <= maxPages && fresh.size() < pageSize; page++) {
+            FetchResult result = QueryUtils.fetchArticleData(transport, delta.page(page).build(), null, null, token);
+            bytes += result.getBytesOnWire();
+            if (result.getStatus() != FetchResult.STATUS_OK || result.getArticles() == null) {
+                Log.e(LOG_TAG, "Delta sync failed for " + key);
+                return -1;
+            }
+            fresh.addAll(result.getArticles());
+            if (bodyStore != null) {
+                bodyStore.writeAll(result.getArticles(), result.getBodies());
+            }
+            pages = result.getPages();
+        }
+
+        // Short of a full page at the new size, a page 1 kept from a smaller size stays that size
+        // and the loader fetches the new one in full
+        int size = fresh.size() < pageSize && stored.getPageSize() > 0
+                ? Math.min(pageSize, stored.getPageSize()) : pageSize;
+        List<Article> merged = merge(fresh, stored.getArticles(), size);
+        int added = countNew(fresh, stored.getArticles());
+        Log.i(LOG_TAG, "Synced " + fresh.size() + " articles in " + bytes + " bytes for " + key);
+        // Restarts the TTL too when there is nothing new
+        store.writePage(key, merged.equals(stored.getArticles()) ? stored.getArticles() : merged,
+                stored.getEtag(), stored.getLastModified(), size);
+        return added;
+    }
+
+    /**
+     * The query asking only for articles published at or after the given time, newest first.
+     * from-date is inclusive, so the newest stored article comes back and is merged away.
+     */
+    static GuardianQuery.Builder deltaQuery(GuardianQuery query, long fromMillis) {
+        return query.newBuilder().fromDate(fromMillis).orderBy(GuardianQuery.ORDER_NEWEST);
+    }
+
+    private static long newestPublished(ArticleStore.Entry stored) {
+        long newest = ArticleDateFormatter.UNKNOWN;
+        if (stored != null) {
+            for (Article article : stored.getArticles()) {
+                newest = Math.max(newest, article.getPublishedAtMillis());
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * New articles replace stored ones with the same webUrl, newest first, one page of them.
+     */
+    private static List<Article> merge(List<Article> fresh, List<Article> stored, int pageSize) {
+        Map<String, List<Article>> lists = new HashMap<>();
+        lists.put(FRESH, fresh);
+        lists.put(STORED, stored);
+        List<Article> merged = FeedAggregator.merge(MERGE_ORDER, lists, null);
+        if (merged.size() > pageSize) {
+            merged = new ArrayList<>(merged.subList(0, pageSize));
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    private static int countNew(List<Article> fresh, List<Article> stored) {
+        Set<String> known = new HashSet<>();
+        for (Article article : stored) {
+            known.add(article.getWebUrl());
+        }
+        int count = 0;
+        for (Article article : fresh) {
+            if (known.add(article.getWebUrl())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
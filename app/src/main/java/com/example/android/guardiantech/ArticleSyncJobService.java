@@ -0,0 +1,100 @@
+package com.example.android.guardiantech;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic background sync of the followed sections into the {@link ArticleStore}, so opening
+ * the app can show fresh articles from disk straight away.
+ *
+ * Runs only on an unmetered network with the battery not low (charging before API 26), and is
+ * stopped as soon as those no longer hold. JobScheduler needs API 21, older devices simply
+ * refresh in the foreground as before.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class ArticleSyncJobService extends JobService {
+
+    private static final String LOG_TAG = ArticleSyncJobService.class.getName();
+
+    private static final int JOB_ID = 1;
+    private static final long SYNC_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_DELTA_PAGES = 5;
+
+    private CancellationToken mToken;
+
+    /**
+     * Schedule the periodic sync if it isn't already. Safe to call on every launch,
+     * rescheduling an existing job would restart its period.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null) {
+            return;
+        }
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                return;
+            }
+        }
+
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, ArticleSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setPeriodic(SYNC_INTERVAL_MILLIS)
+                .setPersisted(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setRequiresBatteryNotLow(true);
+        } else {
+            builder.setRequiresCharging(true);
+        }
+        if (scheduler.schedule(builder.build()) != JobScheduler.RESULT_SUCCESS) {
+            Log.e(LOG_TAG, "Unable to schedule article sync");
+        }
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        Log.i(LOG_TAG, "Test onStartJob() called");
+
+        final CancellationToken token = new CancellationToken();
+        mToken = token;
+        final List<GuardianQuery> queries =
+                MainActivity.queryConfig(this).feeds(getResources().getStringArray(R.array.feed_sections), 1);
+        final ArticleSync sync = new ArticleSync(MainActivity.openStore(this), QueryUtils.getDefaultTransport(),
+                MainActivity.bodyStore(this), MAX_DELTA_PAGES);
+
+        TaskExecutors.getDefault().io().execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean ok = sync.syncAll(queries, token);
+                if (!token.isCancelled()) {
+                    // Let the scheduler back off and retry a failed sync
+                    jobFinished(params, !ok);
+                }
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Constraints no longer hold, abort the request in flight and try again later
+        if (mToken != null) {
+            mToken.cancel();
+        }
+        return true;
+    }
+}
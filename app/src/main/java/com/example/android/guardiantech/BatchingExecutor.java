@@ -0,0 +1,64 @@
+package com.example.android.guardiantech;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs commands on another executor, gathering those that arrive before it gets round to them
+ * into one batch. On the main thread that turns a burst of results (several feeds landing at
+ * once, a page and a diff) into one message and one pass of the UI, instead of one each.
+ *
+ * Commands run in the order they were submitted.
+ */
+public class BatchingExecutor implements Executor {
+
+    private final Executor target;
+    private List<Runnable> mPending = new ArrayList<>();
+    private boolean mScheduled;
+    private int mBatches;
+    private int mCommands;
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            List<Runnable> batch;
+            synchronized (BatchingExecutor.this) {
+                batch = mPending;
+                mPending = new ArrayList<>();
+                mScheduled = false;
+                mBatches++;
+                mCommands += batch.size();
+            }
+            for (Runnable command : batch) {
+                command.run();
+            }
+        }
+    };
+
+    public BatchingExecutor(Executor target) {
+        this.target = target;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        synchronized (this) {
+            mPending.add(command);
+            if (mScheduled) {
+                return;
+            }
+            mScheduled = true;
+        }
+        target.execute(drain);
+    }
+
+    /** Batches run so far. */
+    public synchronized int getBatches() {
+        return mBatches;
+    }
+
+    /** Commands run so far, over all batches. */
+    public synchronized int getCommands() {
+        return mCommands;
+    }
+}
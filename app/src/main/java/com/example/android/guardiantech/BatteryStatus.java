@@ -0,0 +1,47 @@
+package com.example.android.guardiantech;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+
+/**
+ * Whether the battery is too low to spend on work the user didn't ask for, such as preloading
+ * pages that may never be opened.
+ */
+public class BatteryStatus {
+
+    /** At or below this percentage, and not charging, the battery counts as low */
+    private static final int LOW_PERCENT = 15;
+
+    private final Context context;
+    private final PowerManager power;
+
+    public BatteryStatus(Context context) {
+        this.context = context.getApplicationContext();
+        this.power = (PowerManager) this.context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    /**
+     * True in battery saver mode, or when the battery is low and not charging.
+     */
+    public boolean isLow() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && power != null && power.isPowerSaveMode()) {
+            return true;
+        }
+        // Sticky broadcast, read without registering a receiver
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) {
+            return false;
+        }
+        int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        if (status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL) {
+            return false;
+        }
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        return level >= 0 && scale > 0 && level * 100 / scale <= LOW_PERCENT;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.android.guardiantech;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.customtabs.CustomTabsCallback;
+import android.support.customtabs.CustomTabsClient;
+import android.support.customtabs.CustomTabsIntent;
+import android.support.customtabs.CustomTabsService;
+import android.support.customtabs.CustomTabsServiceConnection;
+import android.support.customtabs.CustomTabsSession;
+import android.support.v4.content.ContextCompat;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opens articles in a Chrome Custom Tab, set up lazily so none of it is on the way to the
+ * first frame.
+ *
+ * {@link #warmUp()} binds the service and decodes the close button off the main thread; call it
+ * once the first rows are showing. The intent is built on first use with the session, so the
+ * tab opens in the warmed up browser. {@link #onRowsVisible(List)} and {@link #hint()} feed a
+ * {@link TabPreloader}, which tells the browser which article is likeliest to be tapped so it
+ * can start loading before it is. Opening an article before warm up still works, just without
+ * the head start.
+ *
+ * Tap to content time is recorded in {@link Metrics}, split by whether the article was hinted.
+ *
+ * Main thread only.
+ */
+public class CustomTabs {
+
+    private static final String LOG_TAG = CustomTabs.class.getName();
+    public static final String CUSTOM_TAB_PACKAGE_NAME = "com.android.chrome";
+
+    /** How long a row must stay on screen before it is worth preloading */
+    public static final long HINT_DWELL_MILLIS = 600;
+    private static final long HINT_INTERVAL_MILLIS = 2000;
+    private static final int HINT_OTHER_URLS = 4;
+
+    private final Context context;
+    private boolean mBound;
+    private CustomTabsClient mClient;
+    private CustomTabsSession mSession;
+    private CustomTabsIntent mIntent;
+    /** The session mIntent was built for */
+    private CustomTabsSession mIntentSession;
+    private volatile Bitmap mCloseIcon;
+    private final TabPreloader preloader;
+    /** When the article being opened was tapped, 0 once its page has loaded */
+    private volatile long mLaunchStart;
+    private volatile boolean mLaunchHinted;
+
+    private final CustomTabsCallback callback = new CustomTabsCallback() {
+        @Override
+        public void onNavigationEvent(int navigationEvent, Bundle extras) {
+            if (navigationEvent != NAVIGATION_FINISHED || mLaunchStart == 0) {
+                return;
+            }
+            Metrics.getDefault().recordSince(
+                    mLaunchHinted ? Metrics.TAP_TO_CONTENT_HINTED : Metrics.TAP_TO_CONTENT_COLD, mLaunchStart);
+            mLaunchStart = 0;
+        }
+    };
+
+    private final CustomTabsServiceConnection connection = new CustomTabsServiceConnection() {
+        @Override
+        public void onCustomTabsServiceConnected(ComponentName componentName, CustomTabsClient client) {
+            mClient = client;
+            mClient.warmup(0L);
+            mSession = mClient.newSession(callback);
+            preloader.setSession(mSession != null ? new SessionHints(mSession) : null);
+            // Rows may have been on screen for a while already
+            hint();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            mClient = null;
+            mSession = null;
+            preloader.setSession(null);
+        }
+    };
+
+    /**
+     * Sends {@link TabPreloader} hints through a Custom Tabs session.
+     */
+    private static class SessionHints implements TabPreloader.Session {
+        private final CustomTabsSession session;
+
+        SessionHints(CustomTabsSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public boolean mayLaunchUrl(String url, List<String> otherLikelyUrls) {
+            List<Bundle> others = new ArrayList<>(otherLikelyUrls.size());
+            for (String other : otherLikelyUrls) {
+                Bundle bundle = new Bundle();
+                bundle.putParcelable(CustomTabsService.KEY_URL, Uri.parse(other));
+                others.add(bundle);
+            }
+            return session.mayLaunchUrl(Uri.parse(url), null, others);
+        }
+    }
+
+    public CustomTabs(Context context) {
+        this.context = context;
+        final NetworkStatus network = new NetworkStatus(context);
+        final BatteryStatus battery = new BatteryStatus(context);
+        this.preloader = new TabPreloader(new TabPreloader.Conditions() {
+            @Override
+            public boolean isMetered() {
+                return network.isMetered();
+            }
+
+            @Override
+            public boolean isBatteryLow() {
+                return battery.isLow();
+            }
+        }, HINT_DWELL_MILLIS, HINT_INTERVAL_MILLIS, HINT_OTHER_URLS);
+    }
+
+    /**
+     * Bind to the browser and get the close button ready. Safe to call more than once.
+     */
+    public void warmUp() {
+        if (mBound) {
+            return;
+        }
+        mBound = CustomTabsClient.bindCustomTabsService(context, CUSTOM_TAB_PACKAGE_NAME, connection);
+        TaskExecutors.getDefault().compute().execute(new Runnable() {
+            @Override
+            public void run() {
+                closeIcon();
+            }
+        });
+    }
+
+    /**
+     * The URLs of the rows on screen, top first.
+     */
+    public void onRowsVisible(List<String> urls) {
+        preloader.onRowsVisible(urls, SystemClock.uptimeMillis());
+    }
+
+    /**
+     * Tell the browser about the likeliest article on screen, if worth it. Call again
+     * {@link #HINT_DWELL_MILLIS} after the rows settle, as rows only count once they stayed.
+     */
+    public void hint() {
+        preloader.hint(SystemClock.uptimeMillis());
+    }
+
+    public void launch(Context activity, String url) {
+        mLaunchStart = Metrics.now();
+        mLaunchHinted = preloader.wasHinted(url);
+        if (mIntent == null || mIntentSession != mSession) {
+            CustomTabsIntent.Builder builder = mSession != null
+                    ? new CustomTabsIntent.Builder(mSession) : new CustomTabsIntent.Builder();
+            mIntent = builder
+                    .setToolbarColor(ContextCompat.getColor(context, R.color.colorBar))
+                    .setShowTitle(true)
+                    .setCloseButtonIcon(closeIcon())
+                    .build();
+            mIntentSession = mSession;
+        }
+        mIntent.launchUrl(activity, Uri.parse(url));
+    }
+
+    /** Decoded once, on whichever thread asks first. */
+    private synchronized Bitmap closeIcon() {
+        if (mCloseIcon == null) {
+            mCloseIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.ic_arrow_back);
+        }
+        return mCloseIcon;
+    }
+
+    public void unbind() {
+        if (mBound) {
+            context.unbindService(connection);
+            mBound = false;
+            mClient = null;
+            mSession = null;
+            preloader.setSession(null);
+            Log.i(LOG_TAG, "Preload hints: " + preloader);
+        }
+    }
+}
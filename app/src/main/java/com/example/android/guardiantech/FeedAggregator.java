@@ -0,0 +1,284 @@
+package com.example.android.guardiantech;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches several feeds (one query per section, tag or search) at once and merges them into a
+ * single newest-first list without duplicates.
+ *
+ * Requests run on a bounded pool, each with its own timeout counted from when it starts and
+ * its own {@link CancellationToken}. A feed that times out or is given up on has its token
+ * cancelled, which aborts the request it has in flight, so it neither keeps a pool thread
+ * blocked on the socket nor stores its result late.
+ * The merged list is published again as each feed arrives, so the screen fills in at the pace
+ * of the fastest feed and the whole load takes about as long as the slowest one.
+ */
+public class FeedAggregator {
+
+    private static final String LOG_TAG = FeedAggregator.class.getName();
+
+    /** How often the collector wakes up to check for overdue requests */
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Fetches one feed, on a pool thread. Returns null if the feed could not be loaded.
+     * The token is cancelled once the feed is given up on; pass it to the request, and store
+     * nothing after it is cancelled.
+     */
+    public interface FeedFetcher {
+        List<Article> fetch(String key, CancellationToken token) throws Exception;
+    }
+
+    /** Receives the merged list each time another feed arrives, on the thread that called load. */
+    public interface Listener {
+        void onPartialResult(List<Article> merged, int feedsDone, int feedsTotal);
+    }
+
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+
+    /**
+     * @param executor runs the fetches; none of its threads may be waiting in load, or feeds
+     *                 queued behind them would never start, and so never time out either
+     */
+    public FeedAggregator(ExecutorService executor, long timeoutMillis) {
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * A fixed-size pool with an unbounded queue, so no more than the given number of
+     * requests are ever in flight.
+     */
+    public static ExecutorService newBoundedExecutor(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "feed-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Fetch every feed and return the merged list. Blocks until every feed has arrived,
+     * failed or timed out. Feeds that did not arrive are given by the fallback map, if any,
+     * so a slow or failed feed keeps its previous articles instead of disappearing.
+     *
+     * @param keys one per feed, handed to the fetcher and used to merge in feed order
+     */
+    public List<Article> load(List<String> keys, FeedFetcher fetcher,
+                              Map<String, List<Article>> fallback, Listener listener)
+            throws InterruptedException {
+        return load(keys, fetcher, fallback, listener, null);
+    }
+
+    /**
+     * As above, giving up on every feed still in flight once the token is cancelled. The
+     * token's cancel action is taken over for the length of the load.
+     */
+    public List<Article> load(List<String> keys, final FeedFetcher fetcher,
+                              Map<String, List<Article>> fallback, Listener listener,
+                              CancellationToken token)
+            throws InterruptedException {
+        CompletionService<List<Article>> completion = new ExecutorCompletionService<>(executor);
+        final Map<Future<List<Article>>, String> pending = new HashMap<>();
+        final Map<String, Long> startedAt = new ConcurrentHashMap<>();
+        final Map<String, CancellationToken> tokens = new LinkedHashMap<>();
+        Map<String, List<Article>> arrived = new LinkedHashMap<>();
+
+        for (String key : keys) {
+            tokens.put(key, new CancellationToken());
+        }
+        if (token != null) {
+            token.setOnCancelListener(new Runnable() {
+                @Override
+                public void run() {
+                    for (CancellationToken feed : tokens.values()) {
+                        feed.cancel();
+                    }
+                }
+            });
+        }
+        for (final String key : keys) {
+            final CancellationToken feedToken = tokens.get(key);
+            Future<List<Article>> future = completion.submit(new Callable<List<Article>>() {
+                @Override
+                public List<Article> call() throws Exception {
+                    startedAt.put(key, System.nanoTime());
+                    return feedToken.isCancelled() ? null : fetcher.fetch(key, feedToken);
+                }
+            });
+            pending.put(future, key);
+        }
+
+        int done = 0;
+        try {
+            while (!pending.isEmpty()) {
+                Future<List<Article>> future = completion.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (future == null) {
+                    cancelOverdue(pending, startedAt, tokens);
+                    continue;
+                }
+                String key = pending.remove(future);
+                if (key == null) {
+                    // Already given up on
+                    continue;
+                }
+                done++;
+                List<Article> articles = getQuietly(future, key);
+                if (articles != null) {
+                    arrived.put(key, articles);
+                    if (listener != null) {
+                        listener.onPartialResult(merge(keys, arrived, fallback), done, keys.size());
+                    }
+                }
+            }
+        } finally {
+            if (token != null) {
+                token.setOnCancelListener(null);
+            }
+            for (Map.Entry<Future<List<Article>>, String> entry : pending.entrySet()) {
+                // Interrupting alone doesn't unblock socket I/O, the token aborts the request
+                tokens.get(entry.getValue()).cancel();
+                entry.getKey().cancel(true);
+            }
+        }
+        return merge(keys, arrived, fallback);
+    }
+
+    private void cancelOverdue(Map<Future<List<Article>>, String> pending, Map<String, Long> startedAt,
+                               Map<String, CancellationToken> tokens) {
+        long now = System.nanoTime();
+        List<Future<List<Article>>> overdue = new ArrayList<>();
+        for (Map.Entry<Future<List<Article>>, String> entry : pending.entrySet()) {
+            Long start = startedAt.get(entry.getValue());
+            if (start != null && TimeUnit.NANOSECONDS.toMillis(now - start) > timeoutMillis) {
+                overdue.add(entry.getKey());
+            }
+        }
+        for (Future<List<Article>> future : overdue) {
+            String key = pending.remove(future);
+            Log.e(LOG_TAG, "Timed out loading " + key);
+            tokens.get(key).cancel();
+            future.cancel(true);
+        }
+    }
+
+    private static List<Article> getQuietly(Future<List<Article>> future, String key)
+            throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem loading " + key, e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Fetch the same page of every feed straight from the network and merge it into one page.
+     * The page count is the largest any feed reported. Fails only if every feed failed.
+     */
+    public FetchResult loadPage(List<GuardianQuery> queries, final HttpTransport transport) {
+        final Map<String, GuardianQuery> byKey = new LinkedHashMap<>();
+        for (GuardianQuery query : queries) {
+            byKey.put(query.getFeedKey(), query);
+        }
+        final AtomicInteger pages = new AtomicInteger(ArticlePage.UNKNOWN);
+        final Map<String, String> bodies = new ConcurrentHashMap<>();
+        FeedFetcher fetcher = new FeedFetcher() {
+            @Override
+            public List<Article> fetch(String key, CancellationToken token) {
+                FetchResult result = QueryUtils.fetchArticleData(transport, byKey.get(key), null, null, token);
+                bodies.putAll(result.getBodies());
+                int reported = result.getPages();
+                int current;
+                while (reported > (current = pages.get()) && !pages.compareAndSet(current, reported)) {
+                    // Retry until the largest count is recorded
+                }
+                return result.getStatus() == FetchResult.STATUS_OK ? result.getArticles() : null;
+            }
+        };
+
+        final AtomicInteger arrived = new AtomicInteger();
+        try {
+            List<Article> merged = load(new ArrayList<>(byKey.keySet()), fetcher, null, new Listener() {
+                @Override
+                public void onPartialResult(List<Article> merged, int feedsDone, int feedsTotal) {
+                    arrived.incrementAndGet();
+                }
+            });
+            if (arrived.get() == 0) {
+                return FetchResult.failed(0);
+            }
+            ArticlePage page = new ArticlePage();
+            page.articles.addAll(merged);
+            page.pages = pages.get();
+            page.bodies.putAll(bodies);
+            return new FetchResult(FetchResult.STATUS_OK, page, null, null, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FetchResult.failed(0);
+        }
+    }
+
+    /**
+     * Newest first, one row per webUrl. Feeds earlier in the list win ties.
+     */
+    static List<Article> merge(List<String> keys, Map<String, List<Article>> arrived,
+                               Map<String, List<Article>> fallback) {
+        Map<String, Article> byUrl = new LinkedHashMap<>();
+        for (String key : keys) {
+            List<Article> articles = arrived.get(key);
+            if (articles == null && fallback != null) {
+                articles = fallback.get(key);
+            }
+            if (articles == null) {
+                continue;
+            }
+            for (Article article : articles) {
+                if (!byUrl.containsKey(article.getWebUrl())) {
+                    byUrl.put(article.getWebUrl(), article);
+                }
+            }
+        }
+        List<Article> merged = new ArrayList<>(byUrl.values());
+        // Stable, so equal times keep feed order
+        Collections.sort(merged, NEWEST_FIRST);
+        return merged;
+    }
+
+    private static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article a, Article b) {
+            long x = a.getPublishedAtMillis();
+            long y = b.getPublishedAtMillis();
+            return x < y ? 1 : (x == y ? 0 : -1);
+        }
+    };
+}
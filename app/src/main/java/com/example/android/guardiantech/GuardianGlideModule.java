@@ -0,0 +1,81 @@
+package com.example.android.guardiantech;
+
+import android.content.Context;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+
+/**
+ * Glide configuration for the article thumbnails.
+ *
+ * Caches are sized in screens' worth of pixels rather than Glide's defaults, which are tuned
+ * for full-screen images; a few screens of 80dp thumbnails is plenty. Thumbnails are JPEGs
+ * with no alpha, so they decode to RGB_565 at half the memory of ARGB_8888.
+ *
+ * The memory cache and bitmap pool are kept so {@link #thumbnailCache()} can hold them to
+ * a smaller size while memory is short.
+ */
+@GlideModule
+public final class GuardianGlideModule extends AppGlideModule {
+
+    private static final float MEMORY_CACHE_SCREENS = 2;
+    private static final float BITMAP_POOL_SCREENS = 2;
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final int DISK_CACHE_BYTES = 32 * 1024 * 1024;
+
+    // Set when Glide is first used
+    private static volatile LruResourceCache sMemoryCache;
+    private static volatile LruBitmapPool sBitmapPool;
+
+    @Override
+    public void applyOptions(Context context, GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+                .setBitmapPoolScreens(BITMAP_POOL_SCREENS)
+                .build();
+        sMemoryCache = new LruResourceCache(calculator.getMemoryCacheSize());
+        sBitmapPool = new LruBitmapPool(calculator.getBitmapPoolSize());
+        builder.setMemoryCache(sMemoryCache);
+        builder.setBitmapPool(sBitmapPool);
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_DIR, DISK_CACHE_BYTES));
+        builder.setDefaultRequestOptions(RequestOptions.formatOf(DecodeFormat.PREFER_RGB_565));
+    }
+
+    /**
+     * The thumbnail memory cache and bitmap pool as one {@link MemoryTrimmer.Cache}, in bytes.
+     * Glide already empties them on the same trim callbacks; scaling their size also stops them
+     * filling straight back up.
+     */
+    static MemoryTrimmer.Cache thumbnailCache() {
+        return new MemoryTrimmer.Cache() {
+            @Override
+            public void trimTo(float share) {
+                LruResourceCache memoryCache = sMemoryCache;
+                LruBitmapPool bitmapPool = sBitmapPool;
+                if (memoryCache != null && bitmapPool != null) {
+                    memoryCache.setSizeMultiplier(share);
+                    bitmapPool.setSizeMultiplier(share);
+                }
+            }
+
+            @Override
+            public long getResidentSize() {
+                LruResourceCache memoryCache = sMemoryCache;
+                return memoryCache != null ? memoryCache.getCurrentSize() : 0;
+            }
+        };
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        // No v3 modules to pick up, skip the manifest scan at startup
+        return false;
+    }
+}
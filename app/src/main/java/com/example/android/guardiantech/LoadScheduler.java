@@ -0,0 +1,128 @@
+package com.example.android.guardiantech;
+
+/**
+ * Decides when a refresh actually goes to the network.
+ *
+ * Refresh requests made while a load is scheduled or running are coalesced into it, and
+ * requests within the freshness window of the last completed fetch are dropped. Starting a
+ * fetch cancels any fetch it supersedes, aborting its HTTP exchange through its token.
+ * Counters are kept so we can see how much redundant work is being avoided.
+ */
+public class LoadScheduler {
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final long minIntervalMillis;
+
+    private boolean mScheduled;
+    private CancellationToken mCurrent;
+    private long mLastCompletedAt = NEVER;
+
+    private int mIssued;
+    private int mCoalesced;
+    private int mThrottled;
+    private int mCancelled;
+
+    /**
+     * @param minIntervalMillis refreshes sooner than this after a completed fetch are skipped
+     */
+    public LoadScheduler(long minIntervalMillis) {
+        this.minIntervalMillis = minIntervalMillis;
+    }
+
+    /**
+     * Ask for a refresh at the given time (any monotonic clock). Returns true if the caller
+     * should start a load, false if the request was folded into one already under way or
+     * the data is still fresh.
+     */
+    public synchronized boolean requestRefresh(long now) {
+        if (mScheduled || mCurrent != null) {
+            mCoalesced++;
+            return false;
+        }
+        if (mLastCompletedAt != NEVER && now - mLastCompletedAt < minIntervalMillis) {
+            mThrottled++;
+            return false;
+        }
+        return true;
+    }
+
+    /** A load has been queued but hasn't started yet. */
+    public synchronized void onScheduled() {
+        mScheduled = true;
+    }
+
+    /** The queued load has started running, whether or not it will fetch. */
+    public synchronized void onLoadStarted() {
+        mScheduled = false;
+    }
+
+    /**
+     * A network fetch is starting. Any fetch still running is superseded and cancelled.
+     */
+    public synchronized CancellationToken startFetch() {
+        mScheduled = false;
+        if (mCurrent != null) {
+            mCurrent.cancel();
+            mCancelled++;
+        }
+        mCurrent = new CancellationToken();
+        mIssued++;
+        return mCurrent;
+    }
+
+    /**
+     * The fetch for the token is over. Only a fetch that wasn't cancelled restarts
+     * the freshness window.
+     */
+    public synchronized void finishFetch(CancellationToken token, long now) {
+        if (mCurrent == token) {
+            mCurrent = null;
+        }
+        if (!token.isCancelled()) {
+            mLastCompletedAt = now;
+        }
+    }
+
+    /**
+     * Cancel whatever is scheduled or running, e.g. because the UI went away.
+     * Returns true if a running fetch was cancelled.
+     */
+    public synchronized boolean cancel() {
+        mScheduled = false;
+        if (mCurrent == null) {
+            return false;
+        }
+        mCurrent.cancel();
+        mCurrent = null;
+        mCancelled++;
+        return true;
+    }
+
+    /** Whether a load is scheduled or a fetch is running. */
+    public synchronized boolean isBusy() {
+        return mScheduled || mCurrent != null;
+    }
+
+    public synchronized int getFetchesIssued() {
+        return mIssued;
+    }
+
+    public synchronized int getFetchesCoalesced() {
+        return mCoalesced;
+    }
+
+    public synchronized int getRefreshesThrottled() {
+        return mThrottled;
+    }
+
+    public synchronized int getFetchesCancelled() {
+        return mCancelled;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "issued=" + mIssued + " coalesced=" + mCoalesced
+                + " throttled=" + mThrottled + " cancelled=" + mCancelled;
+    }
+}
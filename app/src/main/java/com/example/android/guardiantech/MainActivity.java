@@ -1,23 +1,18 @@
 package com.example.android.guardiantech;
 
 import android.app.LoaderManager;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.Loader;
-import android.graphics.BitmapFactory;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
-import android.support.customtabs.CustomTabsClient;
+import android.os.Build;
+import android.preference.PreferenceManager;
 import android.support.customtabs.CustomTabsIntent;
-import android.support.customtabs.CustomTabsServiceConnection;
-import android.support.customtabs.CustomTabsSession;
-import android.support.v4.content.ContextCompat;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
 import android.support.v7.widget.Toolbar;
 import android.util.Log;
 import android.view.Menu;
@@ -27,26 +22,113 @@ import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static android.provider.ContactsContract.CommonDataKinds.Website.URL;
 
 public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<Article>> {
 
     public static final String LOG_TAG = MainActivity.class.getName();
-    private static final String API_URL =
-            "https://content.guardianapis.com/search?&section=technology&format=json&show-fields=headline,thumbnail&show-tags=contributor&order-by=newest&api-key=test";
-
-    // Custom Tabs variables
-    public static final String CUSTOM_TAB_PACKAGE_NAME = "com.android.chrome";
-    CustomTabsClient mClient;
-    CustomTabsSession mCustomTabsSession;
-    CustomTabsServiceConnection mCustomTabsServiceConnection;
-    static CustomTabsIntent customTabsIntent;
+    /**
+     * Shapes the feed queries, one per section listed in R.array.feed_sections, against the
+     * endpoint the build was pointed at
+     */
+    static final QueryConfig sQueryConfig = new QueryConfig(BuildConfig.GUARDIAN_SEARCH_URL,
+            QueryConfig.DEFAULT_API_KEY, QueryConfig.DEFAULT_PAGE_SIZE, GuardianQuery.ORDER_NEWEST);
+
+    // Article bodies for the in-app reader, fetched along with the feeds while offline reading
+    // is switched on, and kept to a fixed size on disk
+    private static final String BODY_STORE_DIR = "bodies";
+    private static final String PREF_OFFLINE_READING = "offline_reading";
+    private static ArticleBodyStore sBodyStore;
+
+    // Sections are fetched in parallel, each request given this long, a little over the budget
+    // RetryPolicy.DEFAULT gives a request and its retries. They get threads of their own, the
+    // loads waiting for them are on the io pool and could otherwise take every thread.
+    private static final long FEED_TIMEOUT_MILLIS = 10000;
+    // Enough for the feeds of two loads at once, say the loader and the next page
+    private static final int FEED_THREADS = 6;
+    private static final FeedAggregator sAggregator =
+            new FeedAggregator(FeedAggregator.newBoundedExecutor(FEED_THREADS), FEED_TIMEOUT_MILLIS);
+
+    /** Background work of this activity, cancelled when it is destroyed */
+    private TaskScope mScope;
+    private CancellationToken mSearchToken;
+
+    // Every article loaded this session, searched locally as the user types
+    private static final ArticleIndex sIndex = new ArticleIndex();
+    private static final int SEARCH_RESULTS_LIMIT = 50;
+    private boolean mSearching;
+    /** Latest list from the loader, put back when the search closes */
+    private List<Article> mLoadedArticles = new ArrayList<>();
+
+    // Bound once the first rows are showing, articles that stay on screen are hinted to the browser
+    private CustomTabs mCustomTabs;
+    private final Runnable mHintArticles = new Runnable() {
+        @Override
+        public void run() {
+            mCustomTabs.hint();
+        }
+    };
+
+    // Offline article cache
+    private static final String ARTICLE_STORE_DIR = "articles";
+    private static final long ARTICLE_CACHE_TTL_MILLIS = ArticleStore.DEFAULT_TTL_MILLIS;
+    private ArticleRepository mRepository;
+    private NetworkStatus mNetworkStatus;
+    private List<GuardianQuery> mFeedQueries;
+    /** Config of the feeds the loader is on */
+    private volatile QueryConfig mFeedConfig;
+    /** As above at the size page 1 was fetched at, which a stored page 1 may have kept */
+    private volatile QueryConfig mPagingConfig;
+
+    // What to ask of the network is re-evaluated as the estimate changes. Prefetching and
+    // thumbnails follow it straight away; page size and bodies when the feeds are next loaded,
+    // so the pages of one list match. The last class is kept for the next cold start.
+    private static final String PREF_NETWORK_CLASS = "network_class";
+    private NetworkQualityEstimator.Listener mNetworkListener;
+    /** Set in onDestroy, a change already posted to the main thread is then dropped */
+    private boolean mDestroyed;
+
+    // Infinite scroll: start fetching the next page as many rows before the end as the
+    // NetworkPolicy says, and keep at most this many pages in memory
+    private static final int MAX_PAGES_IN_MEMORY = 5;
+
+    // A screen of rows and the ones RecyclerView prefetches below it
+    private static final int PREINFLATED_ROWS = 8;
+    private ArticlePager mPager;
+    /** Set when the loader is restarted or refreshed, its next list starts paging again */
+    private boolean mResetPager;
+    // Pages dropped from the window are kept here until scrolled back to
+    private static final String PAGE_SPILL_DIR = "pages";
+    // One at a time and in order, across activities too: a destroyed activity's pager clears
+    // the spill while the next one's starts writing to it
+    private static final Executor sSpillExecutor = new SerialExecutor(TaskExecutors.getDefault().io());
+
+    // Caches are shrunk tier by tier under memory pressure. The search index is held to this
+    // many articles times the share its tier keeps, and filled again when the app is back.
+    private static final int INDEX_TRIM_ARTICLES = 1000;
+    private MemoryTrimmer mMemoryTrimmer;
+
+    // Thumbnails are fetched as many rows ahead in the direction of scrolling as the
+    // NetworkPolicy says
+    private ThumbnailPreloader mThumbnailPreloader;
+
+    // Refreshes sooner than this after the last completed fetch are skipped
+    private static final long MIN_REFRESH_INTERVAL_MILLIS = 30000;
+
+    // Time to first row is measured once per activity, from onCreate
+    private long mCreatedAtNanos;
+    private boolean mFirstRowRecorded;
+    /** Set once the first list is on screen and the deferred startup work has been started */
+    private boolean mFullyDrawn;
 
     private ProgressBar mspinner;
     private ImageView noData;
+    private TextView mEmptyTextView;
     RecyclerView recyclerView;
 
     /**
@@ -58,9 +140,11 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     protected void onCreate(Bundle savedInstanceState) {
 
         Log.i(LOG_TAG, "Test OnCreate() called");
+        mCreatedAtNanos = Metrics.now();
 
         super.onCreate(savedInstanceState);
         setContentView(R.layout.layout_recycler);
+        mScope = new TaskScope(TaskExecutors.getDefault().main());
 
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
@@ -68,31 +152,14 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         getSupportActionBar().setDisplayHomeAsUpEnabled(false);
         findViewById(R.id.appBarLayout).bringToFront();
 
-        //Initialise Custom Tabs
-        mCustomTabsServiceConnection = new CustomTabsServiceConnection() {
-            @Override
-            public void onCustomTabsServiceConnected(ComponentName componentName, CustomTabsClient customTabsClient) {
-                mClient = customTabsClient;
-                mClient.warmup(0L);
-                mCustomTabsSession = mClient.newSession(null);
-            }
-            @Override
-            public void onServiceDisconnected(ComponentName name) {
-                mClient = null;
-            }
-        };
-        CustomTabsClient.bindCustomTabsService(MainActivity.this, CUSTOM_TAB_PACKAGE_NAME, mCustomTabsServiceConnection);
-        customTabsIntent = new CustomTabsIntent.Builder(mCustomTabsSession)
-                .setToolbarColor(ContextCompat.getColor(this, R.color.colorBar))
-                .setShowTitle(true)
-                .setCloseButtonIcon(BitmapFactory.decodeResource(getResources(), R.drawable.ic_arrow_back))
-                .build();
+        // Custom Tabs are only bound once the first rows are showing, see onFirstListShown
+        mCustomTabs = new CustomTabs(this);
 
         recyclerView = findViewById(R.id.recyclerView);
-        recyclerView.setLayoutManager(new LinearLayoutManager(MainActivity.this));
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(MainActivity.this);
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setHasFixedSize(true);
 
-        TextView mEmptyTextView;
         mEmptyTextView = findViewById(R.id.empty_state);
         mspinner = findViewById(R.id.loading_spinner);
         noData = findViewById(R.id.no_data);
@@ -102,52 +169,422 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
         // setEmptyView not avail for a recyclerView
         recyclerView.setAdapter(mAdapter);
+        // Inflated in the background while the first list loads
+        mAdapter.prefillRows(recyclerView, PREINFLATED_ROWS);
+
+        NetworkPolicy policy = networkPolicy(this);
+        mPager = createPager(policy);
+        mThumbnailPreloader = new ThumbnailPreloader(new ThumbnailPreloader.Rows() {
+            @Override
+            public int getItemCount() {
+                return mAdapter.getItemCount();
+            }
+
+            @Override
+            public void preload(int position) {
+                mAdapter.preloadThumbnail(position);
+            }
+        }, policy.getThumbnailPreloadRows());
+        mAdapter.setThumbnailScale(policy.getThumbnailScale());
+        mNetworkListener = createNetworkListener();
+        NetworkQualityEstimator.getDefault().addListener(mNetworkListener);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView view, int dx, int dy) {
+                int first = layoutManager.findFirstVisibleItemPosition();
+                int last = layoutManager.findLastVisibleItemPosition();
+                if (!mSearching) {
+                    mPager.onScrolled(first, last);
+                }
+                mThumbnailPreloader.onScrolled(first, last);
+            }
+
+            @Override
+            public void onScrollStateChanged(RecyclerView view, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    hintVisibleArticles();
+                } else {
+                    // The rows are on the move, what was on screen is no longer worth a hint
+                    view.removeCallbacks(mHintArticles);
+                }
+            }
+        });
 
         Log.i(LOG_TAG, "Calling initLoader()");
 
-        //Check for internet connectivity
-        ConnectivityManager cm = (ConnectivityManager) getBaseContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        // Connectivity is checked by the loader on its own thread when it needs to know
+        mNetworkStatus = new NetworkStatus(this);
+
+        // Start the loader even when offline, it shows the stored articles first.
+        // The loader starts its own first load, forcing another here would cancel the cache read.
+        mRepository = new ArticleRepository(openStore(this), QueryUtils.getDefaultTransport(), sIndex,
+                bodyStore(this));
+        mMemoryTrimmer = createMemoryTrimmer();
+        getApplicationContext().registerComponentCallbacks(mMemoryTrimmer);
+        updateFeedQueries();
+        getLoaderManager().initLoader(1, null, this);
+    }
+
+    /**
+     * Startup work that nothing on the first screen depends on, run once that screen is up.
+     */
+    private void onFirstListShown() {
+        if (mFullyDrawn) {
+            return;
+        }
+        mFullyDrawn = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            // Marks the end of startup for am start -W and the startup benchmark
+            reportFullyDrawn();
+        }
+        mCustomTabs.warmUp();
+        hintVisibleArticles();
+
+        // Keep the store topped up in the background so the next launch has fresh articles.
+        // Looking up the pending job is an IPC, keep it off the main thread, and so is
+        // finding which bodies are stored, needed by the time a row is tapped.
+        final Context context = getApplicationContext();
+        final ArticleBodyStore bodyStore = bodyStore(context);
+        TaskExecutors.getDefault().io().execute(new Runnable() {
+            @Override
+            public void run() {
+                ArticleSyncJobService.schedule(context);
+                bodyStore.loadIndex();
+            }
+        });
+    }
 
-        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-        boolean isConnected = activeNetwork != null && activeNetwork.isConnectedOrConnecting();
+    /**
+     * Tell the preloader which articles are on screen, and ask it for a hint once they have
+     * been there long enough to be worth one.
+     */
+    private void hintVisibleArticles() {
+        if (!mFullyDrawn) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstCompletelyVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            first = layoutManager.findFirstVisibleItemPosition();
+        }
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        List<String> urls = new ArrayList<>();
+        for (int position = first; position <= last; position++) {
+            String url = mAdapter.getWebUrl(position);
+            if (url != null) {
+                urls.add(url);
+            }
+        }
+        mCustomTabs.onRowsVisible(urls);
+        recyclerView.removeCallbacks(mHintArticles);
+        recyclerView.postDelayed(mHintArticles, CustomTabs.HINT_DWELL_MILLIS);
+    }
 
-        if (isConnected) {
-            getLoaderManager().initLoader(1, null, this).forceLoad();
-        } else {
-            mspinner.setVisibility(View.GONE);
-            mEmptyTextView.setVisibility(View.VISIBLE);
-            mEmptyTextView.setText(R.string.no_internet);
+    /**
+     * The store shared by the loader and the background sync.
+     */
+    static ArticleStore openStore(Context context) {
+        return new ArticleStore(new File(context.getFilesDir(), ARTICLE_STORE_DIR), ARTICLE_CACHE_TTL_MILLIS);
+    }
+
+    /**
+     * The body store shared by the loader, the pager, the background sync and the reader.
+     * One per process, so what it knows is stored stays in step with what each of them writes.
+     */
+    static synchronized ArticleBodyStore bodyStore(Context context) {
+        if (sBodyStore == null) {
+            sBodyStore = new ArticleBodyStore(new File(context.getApplicationContext().getFilesDir(), BODY_STORE_DIR),
+                    ArticleBodyStore.DEFAULT_MAX_BYTES);
+        }
+        return sBodyStore;
+    }
+
+    static boolean isOfflineReadingEnabled(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(PREF_OFFLINE_READING, false);
+    }
+
+    /**
+     * The feed config for the network as last estimated, asking for article bodies when
+     * offline reading is on and the network allows.
+     */
+    static QueryConfig queryConfig(Context context) {
+        return networkPolicy(context).apply(sQueryConfig, isOfflineReadingEnabled(context));
+    }
+
+    /**
+     * The policy for the current network estimate; until this run has measured one, for the
+     * class last measured.
+     */
+    static NetworkPolicy networkPolicy(Context context) {
+        NetworkQualityEstimator estimator = NetworkQualityEstimator.getDefault();
+        if (estimator.getNetworkClass() == NetworkQualityEstimator.UNKNOWN) {
+            estimator.seed(PreferenceManager.getDefaultSharedPreferences(context)
+                    .getInt(PREF_NETWORK_CLASS, NetworkQualityEstimator.UNKNOWN));
+        }
+        return NetworkPolicy.forClass(estimator.getNetworkClass());
+    }
+
+    /**
+     * The queries the loader starts with, for the network and offline setting as they are now.
+     */
+    private void updateFeedQueries() {
+        mFeedConfig = queryConfig(this);
+        mPagingConfig = mFeedConfig;
+        mFeedQueries = mFeedConfig.feeds(getResources().getStringArray(R.array.feed_sections), 1);
+    }
+
+    /**
+     * Applies the policy for each new network class on the main thread, and remembers the
+     * class for the next run.
+     */
+    private NetworkQualityEstimator.Listener createNetworkListener() {
+        final Context context = getApplicationContext();
+        return new NetworkQualityEstimator.Listener() {
+            @Override
+            public void onNetworkClassChanged(final int networkClass) {
+                PreferenceManager.getDefaultSharedPreferences(context).edit()
+                        .putInt(PREF_NETWORK_CLASS, networkClass)
+                        .apply();
+                TaskExecutors.getDefault().main().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mDestroyed) {
+                            return;
+                        }
+                        NetworkPolicy policy = NetworkPolicy.forClass(networkClass);
+                        Log.i(LOG_TAG, "Network " + NetworkQualityEstimator.getDefault() + ", " + policy);
+                        mPager.setPrefetchDistance(policy.getPrefetchRows());
+                        mThumbnailPreloader.setDistance(policy.getThumbnailPreloadRows());
+                        mAdapter.setThumbnailScale(policy.getThumbnailScale());
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Thumbnails, then the pages beyond the ones on screen, then the search index.
+     */
+    private MemoryTrimmer createMemoryTrimmer() {
+        MemoryTrimmer trimmer = new MemoryTrimmer();
+        trimmer.register(MemoryTrimmer.TIER_THUMBNAILS, GuardianGlideModule.thumbnailCache());
+        trimmer.register(MemoryTrimmer.TIER_PAGES, new MemoryTrimmer.Cache() {
+            @Override
+            public void trimTo(float share) {
+                mPager.trimTo(share);
+            }
+
+            @Override
+            public long getResidentSize() {
+                return mPager.getPageCount();
+            }
+        });
+        trimmer.register(MemoryTrimmer.TIER_ARTICLES, new MemoryTrimmer.Cache() {
+            @Override
+            public void trimTo(final float share) {
+                final List<Article> shown = mLoadedArticles;
+                TaskExecutors.getDefault().compute().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (share < 1f) {
+                            sIndex.trimTo(Math.round(INDEX_TRIM_ARTICLES * share));
+                        } else {
+                            // The rest come back as pages are loaded
+                            sIndex.addAll(shown);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public long getResidentSize() {
+                return sIndex.size();
+            }
+        });
+        return trimmer;
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // In front again, let the caches trimmed while away refill as they are used
+        mMemoryTrimmer.restore();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (BuildConfig.DEBUG) {
+            // Metrics are on the metrics screen, the cache and row figures only here
+            Log.d(LOG_TAG, "Caches: " + mMemoryTrimmer);
+            Log.d(LOG_TAG, "Thumbnails: " + mAdapter.getThumbnailStats());
+            Log.d(LOG_TAG, "Rows: " + mAdapter.getRowPool());
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mDestroyed = true;
+        mScope.close();
+        getApplicationContext().unregisterComponentCallbacks(mMemoryTrimmer);
+        NetworkQualityEstimator.getDefault().removeListener(mNetworkListener);
+        recyclerView.removeCallbacks(mHintArticles);
+        mCustomTabs.unbind();
+        mPager.release();
+    }
+
+    /**
+     * Pages after the first are fetched straight from the network, one request per section,
+     * page 1 comes through the loader so it can be served from the store. Pages dropped from
+     * the window are spilled to the cache dir and read back from there.
+     */
+    private ArticlePager createPager(NetworkPolicy policy) {
+        final String[] sections = getResources().getStringArray(R.array.feed_sections);
+        final Context context = getApplicationContext();
+        ArticlePager.PageSource source = new ArticlePager.PageSource() {
+            @Override
+            public FetchResult fetchPage(int page) {
+                FetchResult result = sAggregator.loadPage(mPagingConfig.feeds(sections, page),
+                        QueryUtils.getDefaultTransport());
+                if (result.getArticles() != null) {
+                    sIndex.addAll(result.getArticles());
+                    bodyStore(context).writeAll(result.getArticles(), result.getBodies());
+                }
+                return result;
+            }
+        };
+        ArticlePager.Listener listener = new ArticlePager.Listener() {
+            @Override
+            public void onArticlesInserted(int position, List<Article> articles) {
+                mAdapter.insertArticles(position, articles);
+            }
+
+            @Override
+            public void onArticlesRemoved(int position, int count) {
+                mAdapter.removeArticles(position, count);
+            }
+        };
+        // Spilled pages are read back as they were, freshness doesn't come into it
+        final ArticleStore spillStore = new ArticleStore(new File(getCacheDir(), PAGE_SPILL_DIR), 0);
+        ArticlePager.PageSpill spill = new ArticlePager.PageSpill() {
+            @Override
+            public void write(String key, List<Article> articles) {
+                spillStore.write(key, articles, null, null);
+            }
+
+            @Override
+            public List<Article> read(String key) {
+                ArticleStore.Entry entry = spillStore.read(key);
+                return entry != null ? entry.getArticles() : null;
+            }
+
+            @Override
+            public void clear() {
+                spillStore.clear();
+            }
+        };
+        TaskExecutors executors = TaskExecutors.getDefault();
+        return new ArticlePager(source, spill, listener, executors.io(), sSpillExecutor, executors.main(),
+                policy.getPrefetchRows(), MAX_PAGES_IN_MEMORY);
+    }
+
     @Override
     public Loader<List<Article>> onCreateLoader(int id, Bundle args) {
 
         Log.i(LOG_TAG, "Test OnCreateLoader() called");
-        return new ArticleLoader(MainActivity.this, API_URL);
+        return new ArticleLoader(MainActivity.this, mFeedQueries, mRepository, sAggregator,
+                new LoadScheduler(MIN_REFRESH_INTERVAL_MILLIS), TaskExecutors.getDefault(), mNetworkStatus);
     }
 
     @Override
     public void onLoadFinished(Loader<List<Article>> loader, List<Article> data) {
 
-        //Hide loading spinner as loading is completed
-        mspinner.setVisibility(View.GONE);
-
         Log.i(LOG_TAG, "Test OnLoadFinished() called");
 
-        // Clear the adapter of previous articles
-        mAdapter.clearArticles();
+        // Diff the new list against what is on screen, only changed rows are rebound.
+        final List<Article> articles = data != null ? data : new ArrayList<Article>();
+        mLoadedArticles = articles;
+        int pageSize = ((ArticleLoader) loader).getPageSize();
+        if (pageSize > 0 && pageSize != mPagingConfig.getPageSize()) {
+            // Page 1 was fetched at another size, pages after it at the old one would skip or
+            // repeat articles
+            mPagingConfig = mFeedConfig.withPageSize(pageSize);
+            mResetPager = true;
+        }
+        if (mSearching) {
+            // Shown when the search closes
+            return;
+        }
+        if (!mResetPager && mPager.getPageCount() > 0) {
+            // Revalidated or partly loaded feed: only page 1 is new, keep the pages below it
+            updateFirstPage(articles);
+            return;
+        }
+        // A new or refreshed feed, paging restarts from the first page once it is showing
+        mResetPager = false;
+        mAdapter.submitList(articles, new Runnable() {
+            @Override
+            public void run() {
+                mPager.reset(articles);
+                mThumbnailPreloader.reset();
+
+                //Hide loading spinner as loading is completed
+                mspinner.setVisibility(View.GONE);
+                updateEmptyState();
+                if (!mFirstRowRecorded && mAdapter.getItemCount() > 0) {
+                    mFirstRowRecorded = true;
+                    Metrics.getDefault().recordSince(Metrics.TIME_TO_FIRST_ROW, mCreatedAtNanos);
+                }
+                onFirstListShown();
+            }
+        });
+    }
 
-        // If there is a valid list of articles, then add them to the adapter's
-        // data set.
-        if (data != null && !data.isEmpty()) {
-            mAdapter.addData(data);
+    /**
+     * Put a newer page 1 in place of the one in the window, leaving the pages scrolled in since
+     * and the scroll position alone. If page 1 has been dropped from the window it is only
+     * swapped in for when the user scrolls back up.
+     */
+    private void updateFirstPage(final List<Article> articles) {
+        if (!mPager.holdsFirstPage()) {
+            mPager.replaceFirstPage(articles);
+            return;
         }
+        mAdapter.submitHead(articles, mPager.getFirstPageSize(), new Runnable() {
+            @Override
+            public void run() {
+                mPager.replaceFirstPage(articles);
+                updateEmptyState();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                // A page came or went meanwhile, diff against the window as it is now
+                updateFirstPage(articles);
+            }
+        });
+    }
 
-        // Check for data, if none received, enable empty views
+    /**
+     * Check for data, if none received, enable empty views
+     */
+    private void updateEmptyState() {
         if (mAdapter.getItemCount() == 0) {
-            recyclerView.setVisibility(View.GONE);
-            noData.setImageResource(R.drawable.nodata);
+            if (!mNetworkStatus.isConnected()) {
+                mEmptyTextView.setVisibility(View.VISIBLE);
+                mEmptyTextView.setText(R.string.no_internet);
+            } else {
+                recyclerView.setVisibility(View.GONE);
+                noData.setImageResource(R.drawable.nodata);
+            }
+        } else {
+            mEmptyTextView.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
+            noData.setImageDrawable(null);
         }
     }
 
@@ -158,21 +595,104 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
         // Loader reset, so we can clear out our existing data.
         mAdapter.clearArticles();
+        mPager.reset(null);
     }
 
     /**
      *
-     * Method to send intent to browse full article on Guardian website
+     * Method to send intent to browse full article on Guardian website, or to show it in the
+     * reader when its body is stored
      */
     public static void onArticleClick(Context context, String webUrl) {
-        customTabsIntent.launchUrl(context, Uri.parse(webUrl));
+        if (bodyStore(context).contains(webUrl)) {
+            ReaderActivity.start(context, webUrl);
+        } else if (context instanceof MainActivity) {
+            ((MainActivity) context).mCustomTabs.launch(context, webUrl);
+        } else {
+            new CustomTabsIntent.Builder().build().launchUrl(context, Uri.parse(webUrl));
+        }
     }
 
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_main, menu);
+        menu.findItem(R.id.metrics).setVisible(BuildConfig.DEBUG);
+        menu.findItem(R.id.offline_reading).setChecked(isOfflineReadingEnabled(this));
+
+        MenuItem searchItem = menu.findItem(R.id.search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                showSearchResults(query);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String query) {
+                showSearchResults(query);
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                mSearching = true;
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                mSearching = false;
+                // Back to the feed, paging starts again from its first page
+                mAdapter.submitList(mLoadedArticles, new Runnable() {
+                    @Override
+                    public void run() {
+                        mPager.reset(mLoadedArticles);
+                        mThumbnailPreloader.reset();
+                        updateEmptyState();
+                    }
+                });
+                return true;
+            }
+        });
         return true;
     }
 
+    /**
+     * Replace the list with the best local matches for the query, or the feed if it is empty.
+     * The index answers in a few milliseconds, so this runs on every keystroke, on the compute
+     * pool; a newer query cancels the one before.
+     */
+    private void showSearchResults(final String query) {
+        if (!mSearching) {
+            return;
+        }
+        if (mSearchToken != null) {
+            mSearchToken.cancel();
+        }
+        mPager.reset(null);
+        mThumbnailPreloader.reset();
+        if (query.trim().isEmpty()) {
+            mSearchToken = null;
+            mAdapter.submitList(mLoadedArticles, null);
+            return;
+        }
+        mSearchToken = mScope.launch(TaskExecutors.getDefault().compute(), new TaskScope.Task<List<Article>>() {
+            @Override
+            public List<Article> run(CancellationToken token) {
+                return sIndex.search(query, SEARCH_RESULTS_LIMIT);
+            }
+        }, new TaskScope.Callback<List<Article>>() {
+            @Override
+            public void onResult(List<Article> results) {
+                if (mSearching && results != null) {
+                    mAdapter.submitList(results, null);
+                }
+            }
+        });
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
@@ -181,12 +701,53 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
             refreshData();
             return true;
         }
+        if (id == R.id.metrics) {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        }
+        if (id == R.id.offline_reading) {
+            setOfflineReading(!item.isChecked());
+            item.setChecked(isOfflineReadingEnabled(this));
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Switch fetching bodies with the feeds on or off. The feeds are loaded again with the
+     * new queries; switching off also deletes the stored bodies to give the space back.
+     */
+    private void setOfflineReading(boolean enabled) {
+        PreferenceManager.getDefaultSharedPreferences(this).edit()
+                .putBoolean(PREF_OFFLINE_READING, enabled)
+                .apply();
+        updateFeedQueries();
+        mResetPager = true;
+        getLoaderManager().restartLoader(1, null, this);
+        if (!enabled) {
+            final ArticleBodyStore bodyStore = bodyStore(this);
+            TaskExecutors.getDefault().io().execute(new Runnable() {
+                @Override
+                public void run() {
+                    bodyStore.clear();
+                }
+            });
+        }
+    }
+
     private void refreshData() {
-        Toast.makeText(this, R.string.checkNewData, Toast.LENGTH_SHORT).show();
-        mAdapter.clearArticles();
-        getLoaderManager().initLoader(1, null, this).forceLoad();
+        // Keep the current list on screen, the loader only delivers if something changed.
+        // Repeated taps join the load already running rather than restarting it.
+        ArticleLoader loader = (ArticleLoader) getLoaderManager().initLoader(1, null, this);
+        boolean started = loader.refresh();
+        if (started) {
+            // Pages after the first are fetched again against what the refresh brings
+            mResetPager = true;
+        }
+        if (started || loader.isRefreshing()) {
+            Toast.makeText(this, R.string.checkNewData, Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, R.string.upToDate, Toast.LENGTH_SHORT).show();
+        }
     }
 }
@@ -0,0 +1,172 @@
+package com.example.android.guardiantech;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shrinks the in-memory caches when the system reports memory pressure, so the process gives
+ * memory back instead of being killed and starting cold.
+ *
+ * Caches are registered under one of three tiers, cheapest to refill first: thumbnails (from
+ * Glide's disk cache), pages of the list beyond the first (spilled to disk by ArticlePager)
+ * and the articles kept for search. Each trim level maps to the share of its usual size every
+ * tier keeps, see {@link #shareFor(int, int)}, and the tiers are trimmed in that order. The
+ * cheap tiers give up memory at the first sign of pressure, the articles only once the
+ * process is in the background and next in line to go.
+ *
+ * A milder level never grows a cache back, only {@link #restore()} does, so call it once
+ * the app is in front again; the caches then refill as they are used.
+ *
+ * Register it with {@link android.content.Context#registerComponentCallbacks}. Callbacks
+ * arrive on the main thread, which is where the caches are trimmed.
+ */
+public class MemoryTrimmer implements ComponentCallbacks2 {
+
+    private static final String LOG_TAG = MemoryTrimmer.class.getName();
+
+    public static final int TIER_THUMBNAILS = 0;
+    public static final int TIER_PAGES = 1;
+    public static final int TIER_ARTICLES = 2;
+    private static final int TIERS = 3;
+
+    /** Trim levels, most severe first, and the share of each tier kept at that level */
+    private static final int[] LEVELS = {
+            TRIM_MEMORY_COMPLETE,
+            TRIM_MEMORY_MODERATE,
+            TRIM_MEMORY_BACKGROUND,
+            TRIM_MEMORY_UI_HIDDEN,
+            TRIM_MEMORY_RUNNING_CRITICAL,
+            TRIM_MEMORY_RUNNING_LOW,
+            TRIM_MEMORY_RUNNING_MODERATE
+    };
+    private static final float[][] SHARES = {
+            // thumbnails, pages, articles
+            {0f, 0f, 0f},
+            {0f, 0f, 0.25f},
+            {0f, 0.5f, 1f},
+            // Nothing is on screen, thumbnails come back from disk when it is
+            {0f, 1f, 1f},
+            {0.25f, 0f, 0.5f},
+            {0.5f, 0.5f, 1f},
+            {0.5f, 1f, 1f}
+    };
+
+    /** One in-memory cache. Called on the main thread. */
+    public interface Cache {
+        /**
+         * Shrink to the given share of the usual size, 0 for empty. A share of 1 lets the
+         * cache grow back to its usual size.
+         */
+        void trimTo(float share);
+
+        /** What the cache holds now, in its own unit, for the log. */
+        long getResidentSize();
+    }
+
+    private final List<List<Cache>> tiers = new ArrayList<>(TIERS);
+    private final float[] mShares = new float[TIERS];
+
+    public MemoryTrimmer() {
+        for (int tier = 0; tier < TIERS; tier++) {
+            tiers.add(new ArrayList<Cache>());
+            mShares[tier] = 1f;
+        }
+    }
+
+    /** Add a cache to a tier, trimmed after the caches added to it before. */
+    public void register(int tier, Cache cache) {
+        tiers.get(tier).add(cache);
+        if (mShares[tier] < 1f) {
+            cache.trimTo(mShares[tier]);
+        }
+    }
+
+    public void unregister(Cache cache) {
+        for (List<Cache> caches : tiers) {
+            caches.remove(cache);
+        }
+    }
+
+    /** Share of its usual size the tier is held to now. */
+    public float getShare(int tier) {
+        return mShares[tier];
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        boolean trimmed = false;
+        for (int tier = 0; tier < TIERS; tier++) {
+            float share = shareFor(tier, level);
+            if (share < mShares[tier]) {
+                mShares[tier] = share;
+                trimTo(tier, share);
+                trimmed = true;
+            }
+        }
+        if (trimmed) {
+            Log.i(LOG_TAG, "Trimmed for level " + level + ": " + this);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Let every cache grow back to its usual size.
+     */
+    public void restore() {
+        for (int tier = 0; tier < TIERS; tier++) {
+            if (mShares[tier] < 1f) {
+                mShares[tier] = 1f;
+                trimTo(tier, 1f);
+            }
+        }
+    }
+
+    private void trimTo(int tier, float share) {
+        for (Cache cache : tiers.get(tier)) {
+            cache.trimTo(share);
+        }
+    }
+
+    /**
+     * The share of its usual size a tier keeps at the trim level. Levels between the named
+     * ones count as the named one below them.
+     */
+    static float shareFor(int tier, int level) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (level >= LEVELS[i]) {
+                return SHARES[i][tier];
+            }
+        }
+        return 1f;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int tier = 0; tier < TIERS; tier++) {
+            long resident = 0;
+            for (Cache cache : tiers.get(tier)) {
+                resident += cache.getResidentSize();
+            }
+            if (tier > 0) {
+                sb.append(' ');
+            }
+            sb.append(tier == TIER_THUMBNAILS ? "thumbnails" : tier == TIER_PAGES ? "pages" : "articles")
+                    .append('=').append(resident)
+                    .append(" (").append(Math.round(mShares[tier] * 100)).append("%)");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.android.guardiantech;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Debug screen showing the {@link Metrics} histograms, with export to a text file in the app's
+ * external files directory (Android/data/&lt;package&gt;/files), which can be pulled over adb.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String LOG_TAG = MetricsActivity.class.getName();
+
+    private TextView mReport;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        mReport = findViewById(R.id.metrics_report);
+
+        findViewById(R.id.metrics_refresh).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showReport();
+            }
+        });
+        findViewById(R.id.metrics_reset).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Metrics.getDefault().reset();
+                showReport();
+            }
+        });
+        findViewById(R.id.metrics_export).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                export();
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    private void showReport() {
+        String report = Metrics.getDefault().toString();
+        mReport.setText(report.isEmpty() ? getString(R.string.metrics_empty) : report);
+    }
+
+    private void export() {
+        File dir = getExternalFilesDir(null);
+        if (dir == null) {
+            // External storage not mounted
+            dir = getFilesDir();
+        }
+        String name = "metrics-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.UK).format(new Date()) + ".txt";
+        final File file = new File(dir, name);
+        TaskExecutors.getDefault().io().execute(new Runnable() {
+            @Override
+            public void run() {
+                final boolean ok = writeReport(file);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        String message = ok ? getString(R.string.metrics_exported, file.getAbsolutePath())
+                                : getString(R.string.metrics_export_failed);
+                        Toast.makeText(MetricsActivity.this, message, Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        });
+    }
+
+    private static boolean writeReport(File file) {
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"));
+            Metrics.getDefault().dump(writer);
+            return true;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error exporting metrics", e);
+            return false;
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error closing metrics file", e);
+                }
+            }
+        }
+    }
+}
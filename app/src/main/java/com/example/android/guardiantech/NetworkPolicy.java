@@ -0,0 +1,90 @@
+package com.example.android.guardiantech;
+
+import java.util.Locale;
+
+/**
+ * How much to ask of the network in each {@link NetworkQualityEstimator} class.
+ *
+ * On a slow link the first page is smaller, thumbnails come at the next published width
+ * down and bodies aren't fetched with the feeds, so the first rows show sooner; little is
+ * fetched ahead so what is on screen isn't queued behind it. On a fast link pages are larger
+ * and pages and thumbnails are fetched well ahead, keeping the link busy while the user reads.
+ * Until there is an estimate the app's usual settings apply.
+ *
+ * Plain Java and immutable.
+ */
+public final class NetworkPolicy {
+
+    // By class: unknown, poor, moderate, good, excellent
+    private static final int[] PAGE_SIZES = {QueryConfig.DEFAULT_PAGE_SIZE, 5, 10, 10, 20};
+    private static final int[] PREFETCH_ROWS = {5, 2, 5, 8, 15};
+    private static final int[] THUMBNAIL_PRELOAD_ROWS = {6, 0, 3, 6, 12};
+    private static final float[] THUMBNAIL_SCALES = {1f, 0.5f, 0.75f, 1f, 1f};
+    private static final boolean[] BODIES = {true, false, false, true, true};
+
+    private static final NetworkPolicy[] POLICIES = new NetworkPolicy[PAGE_SIZES.length];
+
+    static {
+        for (int i = 0; i < POLICIES.length; i++) {
+            POLICIES[i] = new NetworkPolicy(i);
+        }
+    }
+
+    private final int networkClass;
+
+    private NetworkPolicy(int networkClass) {
+        this.networkClass = networkClass;
+    }
+
+    /** The policy for a NetworkQualityEstimator class, the usual settings if it is unknown. */
+    public static NetworkPolicy forClass(int networkClass) {
+        return networkClass >= 0 && networkClass < POLICIES.length
+                ? POLICIES[networkClass] : POLICIES[NetworkQualityEstimator.UNKNOWN];
+    }
+
+    public int getNetworkClass() {
+        return networkClass;
+    }
+
+    /** Articles per section per page. */
+    public int getPageSize() {
+        return PAGE_SIZES[networkClass];
+    }
+
+    /** Rows from the end of the list at which the next page is fetched. */
+    public int getPrefetchRows() {
+        return PREFETCH_ROWS[networkClass];
+    }
+
+    /** Rows ahead of the screen whose thumbnails are fetched, 0 for none. */
+    public int getThumbnailPreloadRows() {
+        return THUMBNAIL_PRELOAD_ROWS[networkClass];
+    }
+
+    /**
+     * Share of the drawn size to download thumbnails at. Below 1 the next smaller published
+     * width is picked and scaled up, softer but a fraction of the bytes.
+     */
+    public float getThumbnailScale() {
+        return THUMBNAIL_SCALES[networkClass];
+    }
+
+    /** Whether article bodies may be fetched along with the feeds for offline reading. */
+    public boolean allowsBodies() {
+        return BODIES[networkClass];
+    }
+
+    /**
+     * The feed config for this policy, asking for bodies only if wanted and allowed.
+     */
+    public QueryConfig apply(QueryConfig config, boolean wantBodies) {
+        return config.withPageSize(getPageSize()).withBodies(wantBodies && allowsBodies());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %d a page, prefetch %d rows, thumbnails %d rows at %.2f, bodies %b",
+                NetworkQualityEstimator.name(networkClass), getPageSize(), getPrefetchRows(),
+                getThumbnailPreloadRows(), getThumbnailScale(), allowsBodies());
+    }
+}
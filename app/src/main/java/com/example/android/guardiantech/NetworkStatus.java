@@ -0,0 +1,31 @@
+package com.example.android.guardiantech;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+/**
+ * Whether we are online, asked at the moment it matters rather than once at startup, so the
+ * question isn't on the main thread before the first frame and the answer isn't stale by the
+ * time a refresh runs.
+ */
+public class NetworkStatus {
+
+    private final ConnectivityManager connectivity;
+
+    public NetworkStatus(Context context) {
+        this.connectivity = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    public boolean isConnected() {
+        NetworkInfo activeNetwork = connectivity != null ? connectivity.getActiveNetworkInfo() : null;
+        return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
+    }
+
+    /** Whether data may cost the user money, e.g. mobile data or a hotspot. True if unsure. */
+    public boolean isMetered() {
+        return connectivity == null || ConnectivityManagerCompat.isActiveNetworkMetered(connectivity);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.android.guardiantech;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.customtabs.CustomTabsIntent;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.List;
+
+/**
+ * Shows an article stored by {@link ArticleBodyStore} without going to the network.
+ *
+ * Each paragraph is a row of a RecyclerView, so only the paragraphs on screen are laid out
+ * when the article opens and the rest as they are scrolled to, however long it is. The body
+ * is read on the io pool; if it has gone from the store the article opens in a Custom Tab.
+ */
+public class ReaderActivity extends AppCompatActivity {
+
+    private static final String EXTRA_URL = "url";
+    /** Metrics.now() when the row was tapped */
+    private static final String EXTRA_TAPPED_AT = "tappedAt";
+
+    private TaskScope mScope;
+    private RecyclerView mParagraphs;
+    private String mUrl;
+
+    public static void start(Context context, String webUrl) {
+        Intent intent = new Intent(context, ReaderActivity.class)
+                .putExtra(EXTRA_URL, webUrl)
+                .putExtra(EXTRA_TAPPED_AT, Metrics.now());
+        context.startActivity(intent);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_reader);
+        mScope = new TaskScope(TaskExecutors.getDefault().main());
+        mUrl = getIntent().getStringExtra(EXTRA_URL);
+        final long tappedAt = getIntent().getLongExtra(EXTRA_TAPPED_AT, 0);
+        // Not again when recreated on rotation
+        final boolean recordOpen = tappedAt != 0 && savedInstanceState == null;
+
+        mParagraphs = findViewById(R.id.reader_paragraphs);
+        mParagraphs.setLayoutManager(new LinearLayoutManager(this));
+
+        final ArticleBodyStore bodyStore = MainActivity.bodyStore(this);
+        mScope.launch(TaskExecutors.getDefault().io(), new TaskScope.Task<ArticleBody>() {
+            @Override
+            public ArticleBody run(CancellationToken token) {
+                return bodyStore.read(mUrl);
+            }
+        }, new TaskScope.Callback<ArticleBody>() {
+            @Override
+            public void onResult(ArticleBody body) {
+                if (body == null) {
+                    openInBrowser();
+                    finish();
+                    return;
+                }
+                mParagraphs.setAdapter(new ParagraphAdapter(body));
+                if (recordOpen) {
+                    // Runs once the first paragraphs have been laid out and drawn
+                    mParagraphs.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            Metrics.getDefault().recordSince(Metrics.TAP_TO_READER, tappedAt);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mScope.close();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_reader, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.open_in_browser) {
+            openInBrowser();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void openInBrowser() {
+        new CustomTabsIntent.Builder().build().launchUrl(this, Uri.parse(mUrl));
+    }
+
+    /**
+     * The headline and byline as the first row, then one row per paragraph.
+     */
+    private static class ParagraphAdapter extends RecyclerView.Adapter<ParagraphAdapter.ViewHolder> {
+
+        private static final int TYPE_HEADER = 0;
+        private static final int TYPE_PARAGRAPH = 1;
+
+        private final ArticleBody body;
+        private final List<String> paragraphs;
+
+        ParagraphAdapter(ArticleBody body) {
+            this.body = body;
+            this.paragraphs = body.getParagraphs();
+        }
+
+        @Override
+        public int getItemCount() {
+            return paragraphs.size() + 1;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return position == 0 ? TYPE_HEADER : TYPE_PARAGRAPH;
+        }
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            int layout = viewType == TYPE_HEADER ? R.layout.reader_header : R.layout.reader_paragraph;
+            return new ViewHolder(LayoutInflater.from(parent.getContext()).inflate(layout, parent, false));
+        }
+
+        @Override
+        public void onBindViewHolder(ViewHolder holder, int position) {
+            if (position == 0) {
+                holder.text.setText(body.getHeadline());
+                String author = body.getAuthor();
+                holder.author.setText(author);
+                holder.author.setVisibility(author != null ? View.VISIBLE : View.GONE);
+            } else {
+                holder.text.setText(paragraphs.get(position - 1));
+            }
+        }
+
+        static class ViewHolder extends RecyclerView.ViewHolder {
+            final TextView text;
+            final TextView author;
+
+            ViewHolder(View itemView) {
+                super(itemView);
+                text = itemView.findViewById(R.id.reader_text);
+                author = itemView.findViewById(R.id.reader_author);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.android.guardiantech;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayDeque;
+
+/**
+ * Rows of one layout inflated ahead of time on a background thread, so neither the first
+ * screen nor the first fling pays for inflating them on the main thread.
+ *
+ * {@link #prefill(ViewGroup, int)} queues the inflations on {@link AsyncLayoutInflater}'s
+ * thread and each finished row waits here until the adapter asks for one. Once the pool runs
+ * dry rows are inflated on the spot as before, and from then on RecyclerView recycles them.
+ *
+ * Main thread only.
+ */
+public class RowViewPool {
+
+    private final int layout;
+    private final Context context;
+    private final AsyncLayoutInflater asyncInflater;
+    private final ArrayDeque<View> mViews = new ArrayDeque<>();
+
+    private int mHits;
+    private int mMisses;
+
+    public RowViewPool(Context context, int layout) {
+        this.context = context;
+        this.layout = layout;
+        this.asyncInflater = new AsyncLayoutInflater(context);
+    }
+
+    /**
+     * Start inflating rows for the given parent, which is only used for its layout params.
+     */
+    public void prefill(ViewGroup parent, int count) {
+        AsyncLayoutInflater.OnInflateFinishedListener listener = new AsyncLayoutInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup root) {
+                mViews.add(view);
+            }
+        };
+        for (int i = 0; i < count; i++) {
+            asyncInflater.inflate(layout, parent, listener);
+        }
+    }
+
+    /**
+     * A row inflated ahead of time if one is ready, otherwise one inflated now.
+     */
+    public View obtain(ViewGroup parent) {
+        View view = mViews.poll();
+        if (view != null) {
+            mHits++;
+            return view;
+        }
+        mMisses++;
+        return LayoutInflater.from(context).inflate(layout, parent, false);
+    }
+
+    @Override
+    public String toString() {
+        return "preinflated=" + mHits + " inflated=" + mMisses + " waiting=" + mViews.size();
+    }
+}
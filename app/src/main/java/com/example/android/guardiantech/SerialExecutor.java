@@ -0,0 +1,61 @@
+package com.example.android.guardiantech;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs commands on another executor one at a time, in the order they were submitted, so work
+ * on shared files (writes, reads and a clear of the same directory) can't overtake itself on
+ * a multi-threaded pool.
+ */
+public class SerialExecutor implements Executor {
+
+    private final Executor target;
+    private final ArrayDeque<Runnable> mPending = new ArrayDeque<>();
+    private boolean mRunning;
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Runnable command;
+                synchronized (SerialExecutor.this) {
+                    command = mPending.poll();
+                    if (command == null) {
+                        mRunning = false;
+                        return;
+                    }
+                }
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    // Don't strand the commands behind it
+                    synchronized (SerialExecutor.this) {
+                        if (!mPending.isEmpty()) {
+                            target.execute(this);
+                        } else {
+                            mRunning = false;
+                        }
+                    }
+                    throw e;
+                }
+            }
+        }
+    };
+
+    public SerialExecutor(Executor target) {
+        this.target = target;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        synchronized (this) {
+            mPending.add(command);
+            if (mRunning) {
+                return;
+            }
+            mRunning = true;
+        }
+        target.execute(drain);
+    }
+}
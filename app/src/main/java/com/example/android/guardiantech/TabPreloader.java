@@ -0,0 +1,180 @@
+package com.example.android.guardiantech;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Guesses which article is tapped next and tells the browser, so its page is already loading
+ * when the tab opens.
+ *
+ * The rows on screen are reported as the list scrolls. A row only counts once it has stayed
+ * on screen for a while, so rows flung past are never hinted. The one on screen longest is
+ * the likeliest tap, ties going to the row nearer the top; the runners up are sent along as
+ * other likely URLs, which the browser only warms connections for.
+ *
+ * Preloading spends data and battery on pages that may never be read, so it holds back: at
+ * most one hint per interval, nothing when the hint would be the same as the last, only the
+ * likeliest URL on a metered network and nothing at all when the battery is low.
+ *
+ * Plain Java; times come from any monotonic millisecond clock. Call on one thread.
+ */
+public class TabPreloader {
+
+    /** Where hints go, the browser's Custom Tabs session. */
+    public interface Session {
+        /** @return false if the browser declined the hint */
+        boolean mayLaunchUrl(String url, List<String> otherLikelyUrls);
+    }
+
+    /** The state of the device, asked each time a hint is due. */
+    public interface Conditions {
+        boolean isMetered();
+
+        boolean isBatteryLow();
+    }
+
+    private final Conditions conditions;
+    private final long dwellMillis;
+    private final long minIntervalMillis;
+    private final int maxOtherUrls;
+
+    private Session mSession;
+    /** Rows on screen, top first, with when each came on screen */
+    private final Map<String, Long> mVisibleSince = new LinkedHashMap<>();
+    private List<String> mLastHint = Collections.emptyList();
+    private long mLastHintTime;
+    private final Set<String> mHinted = new HashSet<>();
+
+    private int mSent;
+    private int mThrottled;
+    private int mSkipped;
+
+    /**
+     * @param dwellMillis       how long a row must stay on screen to be worth hinting
+     * @param minIntervalMillis shortest time between two hints
+     * @param maxOtherUrls      how many runners up to send with the likeliest URL
+     */
+    public TabPreloader(Conditions conditions, long dwellMillis, long minIntervalMillis, int maxOtherUrls) {
+        this.conditions = conditions;
+        this.dwellMillis = dwellMillis;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxOtherUrls = maxOtherUrls;
+    }
+
+    /**
+     * Set once the browser is connected, null when it goes away. Hints are only counted as
+     * sent once there is a session to send them to.
+     */
+    public void setSession(Session session) {
+        mSession = session;
+        mLastHint = Collections.emptyList();
+        mHinted.clear();
+    }
+
+    /**
+     * The URLs of the rows now on screen, top first. Rows that were already on screen keep
+     * their time, rows that went off screen are forgotten.
+     */
+    public void onRowsVisible(List<String> urls, long now) {
+        Map<String, Long> previous = new LinkedHashMap<>(mVisibleSince);
+        mVisibleSince.clear();
+        for (String url : urls) {
+            if (url == null || mVisibleSince.containsKey(url)) {
+                continue;
+            }
+            Long since = previous.get(url);
+            mVisibleSince.put(url, since != null ? since : now);
+        }
+    }
+
+    /**
+     * Rows that have stayed on screen long enough, likeliest first.
+     */
+    List<String> rank(final long now) {
+        final List<String> positions = new ArrayList<>(mVisibleSince.keySet());
+        List<String> ranked = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : mVisibleSince.entrySet()) {
+            if (now - entry.getValue() >= dwellMillis) {
+                ranked.add(entry.getKey());
+            }
+        }
+        Collections.sort(ranked, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                long sinceA = mVisibleSince.get(a);
+                long sinceB = mVisibleSince.get(b);
+                if (sinceA != sinceB) {
+                    // Earlier on screen, longer looked at
+                    return sinceA < sinceB ? -1 : 1;
+                }
+                return positions.indexOf(a) - positions.indexOf(b);
+            }
+        });
+        return ranked;
+    }
+
+    /**
+     * Send a hint for the rows on screen now, if it is worth sending.
+     *
+     * @return whether a hint went to the browser and it took it
+     */
+    public boolean hint(long now) {
+        if (mSession == null) {
+            return false;
+        }
+        List<String> ranked = rank(now);
+        if (ranked.isEmpty()) {
+            return false;
+        }
+        if (!mLastHint.isEmpty() && now - mLastHintTime < minIntervalMillis) {
+            mThrottled++;
+            return false;
+        }
+        if (conditions.isBatteryLow()) {
+            mSkipped++;
+            return false;
+        }
+        int others = conditions.isMetered() ? 0 : Math.min(maxOtherUrls, ranked.size() - 1);
+        List<String> hint = new ArrayList<>(ranked.subList(0, others + 1));
+        if (hint.equals(mLastHint)) {
+            return false;
+        }
+
+        mLastHint = hint;
+        mLastHintTime = now;
+        mHinted.clear();
+        mHinted.addAll(hint);
+        mSent++;
+        return mSession.mayLaunchUrl(hint.get(0), hint.subList(1, hint.size()));
+    }
+
+    /** Whether the URL was in the last hint sent, i.e. the browser had a head start on it. */
+    public boolean wasHinted(String url) {
+        return mHinted.contains(url);
+    }
+
+    public int getSent() {
+        return mSent;
+    }
+
+    /** Hints held back for coming too soon after the last one. */
+    public int getThrottled() {
+        return mThrottled;
+    }
+
+    /** Hints not sent to save battery. */
+    public int getSkipped() {
+        return mSkipped;
+    }
+
+    @Override
+    public String toString() {
+        return "sent=" + mSent + " throttled=" + mThrottled + " skipped=" + mSkipped;
+    }
+}
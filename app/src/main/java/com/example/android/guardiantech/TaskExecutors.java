@@ -0,0 +1,94 @@
+package com.example.android.guardiantech;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads background work runs on, split by what the work waits for.
+ *
+ * <ul>
+ *   <li>io: network requests and disk, mostly blocked, so more threads than cores. Loads here
+ *   wait for their feeds, and there can be any number of them (the loader, the pager in both
+ *   directions, superseded loads still winding down), so the feeds must never be queued behind
+ *   them on this pool: {@link FeedAggregator} fetches on a pool of its own.</li>
+ *   <li>compute: CPU work such as list diffs and searches, one thread per core at
+ *   below normal priority so it doesn't compete with the UI thread.</li>
+ *   <li>main: runs on the UI thread, several results posted close together run in one
+ *   message, see {@link BatchingExecutor}.</li>
+ * </ul>
+ *
+ * Tests build their own with executors they step by hand.
+ */
+public class TaskExecutors {
+
+    private static final int IO_THREADS = 8;
+
+    private static TaskExecutors sDefault;
+
+    private final ExecutorService io;
+    private final ExecutorService compute;
+    private final Executor main;
+
+    public TaskExecutors(ExecutorService io, ExecutorService compute, Executor main) {
+        this.io = io;
+        this.compute = compute;
+        this.main = main;
+    }
+
+    /** The process wide executors, created on first use. */
+    public static synchronized TaskExecutors getDefault() {
+        if (sDefault == null) {
+            final Handler handler = new Handler(Looper.getMainLooper());
+            Executor mainThread = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    handler.post(command);
+                }
+            };
+            int cores = Runtime.getRuntime().availableProcessors();
+            sDefault = new TaskExecutors(newPool("io", IO_THREADS, Thread.NORM_PRIORITY),
+                    newPool("compute", Math.max(1, cores), Thread.NORM_PRIORITY - 1),
+                    new BatchingExecutor(mainThread));
+        }
+        return sDefault;
+    }
+
+    /**
+     * A fixed-size pool of daemon threads with an unbounded queue, whose threads exit when idle.
+     */
+    static ExecutorService newPool(final String name, int threads, final int priority) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(priority);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public ExecutorService io() {
+        return io;
+    }
+
+    public ExecutorService compute() {
+        return compute;
+    }
+
+    public Executor main() {
+        return main;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.android.guardiantech;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Background tasks that belong to a screen and end with it.
+ *
+ * Each task gets its own {@link CancellationToken} and runs on the executor it is launched on;
+ * its result comes back through the main executor. Closing the scope, from onDestroy, cancels
+ * every task still running, which aborts any request they have in flight, and drops their
+ * results. A task can also be cancelled on its own through its token, e.g. when a newer
+ * search replaces it.
+ */
+public class TaskScope {
+
+    private static final String LOG_TAG = TaskScope.class.getName();
+
+    /** Work to run in the background. Should give up early once the token is cancelled. */
+    public interface Task<T> {
+        T run(CancellationToken token) throws Exception;
+    }
+
+    /** Receives the result on the main executor, null if the task failed. Not called once cancelled. */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private final Executor mainExecutor;
+    private final Set<CancellationToken> mActive = new HashSet<>();
+    private boolean mClosed;
+
+    public TaskScope(Executor mainExecutor) {
+        this.mainExecutor = mainExecutor;
+    }
+
+    /**
+     * Run the task on the executor and hand its result to the callback, unless it is
+     * cancelled first. Returns the task's token.
+     */
+    public <T> CancellationToken launch(Executor executor, final Task<T> task, final Callback<T> callback) {
+        final CancellationToken token = new CancellationToken();
+        synchronized (this) {
+            if (mClosed) {
+                token.cancel();
+                return token;
+            }
+            mActive.add(token);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                T result = null;
+                if (!token.isCancelled()) {
+                    try {
+                        result = task.run(token);
+                    } catch (Exception e) {
+                        Log.e(LOG_TAG, "Task failed", e);
+                    }
+                }
+                final T delivered = result;
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (TaskScope.this) {
+                            mActive.remove(token);
+                        }
+                        if (!token.isCancelled() && callback != null) {
+                            callback.onResult(delivered);
+                        }
+                    }
+                });
+            }
+        });
+        return token;
+    }
+
+    /** Number of tasks launched whose results haven't been delivered or dropped yet. */
+    public synchronized int getActiveCount() {
+        return mActive.size();
+    }
+
+    /** Cancel every task and refuse new ones. */
+    public void close() {
+        List<CancellationToken> active;
+        synchronized (this) {
+            mClosed = true;
+            active = new ArrayList<>(mActive);
+            mActive.clear();
+        }
+        for (CancellationToken token : active) {
+            token.cancel();
+        }
+    }
+}
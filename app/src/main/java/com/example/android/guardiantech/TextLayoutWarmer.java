@@ -0,0 +1,102 @@
+package com.example.android.guardiantech;
+
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.view.View;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Lays out text on a background thread before it is bound, so the measure pass on the main
+ * thread finds the shapes and widths of its words already in the platform's text layout
+ * cache instead of working them out mid-fling.
+ *
+ * PrecomputedText would hand over the finished layout, but it needs API 28 or support
+ * library 28. A StaticLayout built with the same paint at the same width warms the same cache
+ * on every version, which is most of the win.
+ *
+ * Configure it from a laid out TextView with {@link #configure(TextView)}, then pass it the
+ * text about to be shown. Call those on the main thread; the layouts are built on the executor.
+ */
+public class TextLayoutWarmer {
+
+    /** Texts remembered as done, so re-submitting the same list doesn't lay it out again */
+    private static final int MAX_REMEMBERED = 500;
+
+    private final Executor executor;
+    // Written on the main thread, copied by each background pass
+    private volatile TextPaint mPaint;
+    private volatile int mWidth;
+    private final Map<String, Boolean> mWarmed = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_REMEMBERED;
+        }
+    };
+
+    public TextLayoutWarmer(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Take the paint and the widest the text can be from a view that has been laid out.
+     * Returns false if it hasn't been yet.
+     */
+    public boolean configure(TextView view) {
+        View parent = (View) view.getParent();
+        if (parent == null || parent.getWidth() == 0) {
+            return false;
+        }
+        // wrap_content, so the view itself may be narrower than the room it has
+        int width = parent.getWidth() - parent.getPaddingRight() - view.getLeft()
+                - view.getTotalPaddingLeft() - view.getTotalPaddingRight();
+        if (width <= 0) {
+            return false;
+        }
+        mPaint = new TextPaint(view.getPaint());
+        mWidth = width;
+        return true;
+    }
+
+    public boolean isConfigured() {
+        return mPaint != null;
+    }
+
+    /**
+     * Lay out the given texts in the background, skipping any done recently.
+     */
+    public void warm(List<String> texts) {
+        final TextPaint shared = mPaint;
+        final int width = mWidth;
+        if (shared == null || texts.isEmpty()) {
+            return;
+        }
+        final List<String> pending = new ArrayList<>(texts.size());
+        synchronized (mWarmed) {
+            for (String text : texts) {
+                if (text != null && mWarmed.put(text, Boolean.TRUE) == null) {
+                    pending.add(text);
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // TextPaint isn't thread safe, and passes may run side by side
+                TextPaint paint = new TextPaint(shared);
+                for (String text : pending) {
+                    new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+                }
+            }
+        });
+    }
+}
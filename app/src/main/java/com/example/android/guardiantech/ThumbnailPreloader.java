@@ -0,0 +1,89 @@
+package com.example.android.guardiantech;
+
+/**
+ * Preloads the thumbnails of the rows about to scroll into view, in the direction of travel.
+ *
+ * Each row is asked for once per pass in a direction; turning round starts a new pass from the
+ * other edge of the screen. Rows the user is moving away from are never preloaded.
+ * Call on the main thread.
+ */
+public class ThumbnailPreloader {
+
+    /** The rows being scrolled through. */
+    public interface Rows {
+        int getItemCount();
+
+        void preload(int position);
+    }
+
+    private final Rows rows;
+    private int mDistance;
+
+    private int mLastFirst = -1;
+    private int mLastLast = -1;
+    private boolean mScrollingDown = true;
+    /** Rows up to here (exclusive) going down, or from here (inclusive) going up, are done */
+    private int mPreloadedEdge = -1;
+
+    /**
+     * @param distance how many rows ahead of the screen to preload
+     */
+    public ThumbnailPreloader(Rows rows, int distance) {
+        this.rows = rows;
+        this.mDistance = distance;
+    }
+
+    /** Preload this many rows ahead from the next scroll on, 0 to stop preloading. */
+    public void setDistance(int distance) {
+        mDistance = distance;
+    }
+
+    /** Forget what was preloaded, e.g. when the list is replaced. */
+    public void reset() {
+        mLastFirst = -1;
+        mLastLast = -1;
+        mScrollingDown = true;
+        mPreloadedEdge = -1;
+    }
+
+    public void onScrolled(int firstVisiblePosition, int lastVisiblePosition) {
+        if (firstVisiblePosition < 0 || lastVisiblePosition < firstVisiblePosition) {
+            return;
+        }
+        boolean down;
+        if (mLastFirst < 0) {
+            down = true;
+        } else if (firstVisiblePosition != mLastFirst) {
+            down = firstVisiblePosition > mLastFirst;
+        } else if (lastVisiblePosition != mLastLast) {
+            down = lastVisiblePosition > mLastLast;
+        } else {
+            return;
+        }
+        mLastFirst = firstVisiblePosition;
+        mLastLast = lastVisiblePosition;
+        if (down != mScrollingDown) {
+            mScrollingDown = down;
+            mPreloadedEdge = -1;
+        }
+
+        if (down) {
+            int from = Math.max(lastVisiblePosition + 1, mPreloadedEdge);
+            int to = Math.min(lastVisiblePosition + mDistance, rows.getItemCount() - 1);
+            for (int position = from; position <= to; position++) {
+                rows.preload(position);
+            }
+            mPreloadedEdge = Math.max(mPreloadedEdge, to + 1);
+        } else {
+            int from = mPreloadedEdge < 0 ? firstVisiblePosition - 1
+                    : Math.min(firstVisiblePosition - 1, mPreloadedEdge - 1);
+            int to = Math.max(firstVisiblePosition - mDistance, 0);
+            for (int position = from; position >= to; position--) {
+                rows.preload(position);
+            }
+            if (from >= to) {
+                mPreloadedEdge = to;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.android.guardiantech;
+
+import com.bumptech.glide.load.DataSource;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts where thumbnails came from and how long they took to appear, from bind to ready.
+ * For disk cache hits that time is mostly decode, for remote loads it includes the download.
+ */
+public class ThumbnailStats {
+
+    private int mMemoryHits;
+    private int mDiskHits;
+    private int mRemoteLoads;
+    private int mFailures;
+    private long mDiskNanos;
+    private long mRemoteNanos;
+
+    public synchronized void onReady(DataSource source, long elapsedNanos) {
+        switch (source) {
+            case MEMORY_CACHE:
+                mMemoryHits++;
+                break;
+            case RESOURCE_DISK_CACHE:
+            case DATA_DISK_CACHE:
+            case LOCAL:
+                mDiskHits++;
+                mDiskNanos += elapsedNanos;
+                break;
+            default:
+                mRemoteLoads++;
+                mRemoteNanos += elapsedNanos;
+                break;
+        }
+    }
+
+    public synchronized void onFailed() {
+        mFailures++;
+    }
+
+    /** Share of loads served without going to the network, memory and disk. */
+    public synchronized double getHitRatio() {
+        int total = mMemoryHits + mDiskHits + mRemoteLoads;
+        return total == 0 ? 0 : (double) (mMemoryHits + mDiskHits) / total;
+    }
+
+    public synchronized double getMemoryHitRatio() {
+        int total = mMemoryHits + mDiskHits + mRemoteLoads;
+        return total == 0 ? 0 : (double) mMemoryHits / total;
+    }
+
+    /** Mean time to show a thumbnail decoded from the disk cache. */
+    public synchronized long getMeanDiskMillis() {
+        return mDiskHits == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(mDiskNanos / mDiskHits);
+    }
+
+    /** Mean time to show a thumbnail downloaded and decoded. */
+    public synchronized long getMeanRemoteMillis() {
+        return mRemoteLoads == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(mRemoteNanos / mRemoteLoads);
+    }
+
+    public synchronized int getFailures() {
+        return mFailures;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.UK, "memory=%d disk=%d remote=%d failed=%d hit=%.0f%% disk=%dms remote=%dms",
+                mMemoryHits, mDiskHits, mRemoteLoads, mFailures, getHitRatio() * 100,
+                getMeanDiskMillis(), getMeanRemoteMillis());
+    }
+}
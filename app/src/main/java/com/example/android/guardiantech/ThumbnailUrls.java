@@ -0,0 +1,51 @@
+package com.example.android.guardiantech;
+
+/**
+ * Picks the size of Guardian thumbnail to download for the size it is drawn at.
+ *
+ * The API hands out media.guim.co.uk URLs such as ".../0_0_3000_1800/500.jpg", and the same
+ * crop is published at a few fixed widths. Asking for the smallest one at least as wide as the
+ * view saves decoding and downloading pixels that are thrown away when the image is scaled down.
+ */
+public final class ThumbnailUrls {
+
+    private static final String MEDIA_HOST = "://media.guim.co.uk/";
+    private static final String JPG = ".jpg";
+
+    /** Widths published for every crop, smallest first */
+    static final int[] WIDTHS = {140, 500, 1000, 2000};
+
+    private ThumbnailUrls() {
+    }
+
+    /**
+     * Return the URL of the smallest published width covering the given pixel width,
+     * or the URL unchanged if it isn't a Guardian media URL we recognise.
+     */
+    public static String forWidth(String url, int widthPx) {
+        if (url == null || !url.contains(MEDIA_HOST) || !url.endsWith(JPG)) {
+            return url;
+        }
+        int slash = url.lastIndexOf('/');
+        int end = url.length() - JPG.length();
+        if (slash < 0 || slash + 1 >= end) {
+            return url;
+        }
+        for (int i = slash + 1; i < end; i++) {
+            char c = url.charAt(i);
+            if (c < '0' || c > '9') {
+                return url;
+            }
+        }
+        return url.substring(0, slash + 1) + widthFor(widthPx) + JPG;
+    }
+
+    static int widthFor(int widthPx) {
+        for (int width : WIDTHS) {
+            if (width >= widthPx) {
+                return width;
+            }
+        }
+        return WIDTHS[WIDTHS.length - 1];
+    }
+}
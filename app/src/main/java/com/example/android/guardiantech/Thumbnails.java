@@ -0,0 +1,88 @@
+package com.example.android.guardiantech;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+
+/**
+ * Loads article thumbnails at the size they are drawn. Binding and preloading build the same
+ * request, so a preloaded thumbnail is a memory cache hit when its row is bound.
+ *
+ * On a slow network {@link #setDownloadScale(float)} downloads a smaller published width and
+ * scales it up. Thumbnails that had to be downloaded feed their load time to
+ * {@link NetworkQualityEstimator} as a round trip; Glide doesn't say how many bytes came, and
+ * decoding is counted in, so it errs on the slow side.
+ */
+public class Thumbnails {
+
+    private final Context context;
+    private final int sizePx;
+    private final RequestOptions options;
+    private final ThumbnailStats stats = new ThumbnailStats();
+    private final NetworkQualityEstimator estimator = NetworkQualityEstimator.getDefault();
+    private int mDownloadWidthPx;
+
+    /**
+     * @param sizePx width and height of the thumbnail view, in pixels
+     */
+    public Thumbnails(Context context, int sizePx) {
+        this.context = context;
+        this.sizePx = sizePx;
+        this.mDownloadWidthPx = sizePx;
+        // Same transformation and size as the view would get, so the cache keys match
+        this.options = RequestOptions.centerCropTransform().override(sizePx);
+    }
+
+    public void load(String url, ImageView view) {
+        request(url).into(view);
+    }
+
+    public void preload(String url) {
+        request(url).preload();
+    }
+
+    /**
+     * Download at this share of the drawn size, 1 for full size. Call on the main thread.
+     */
+    public void setDownloadScale(float scale) {
+        mDownloadWidthPx = Math.max(1, Math.round(sizePx * scale));
+    }
+
+    public ThumbnailStats getStats() {
+        return stats;
+    }
+
+    private RequestBuilder<Drawable> request(String url) {
+        final long start = System.nanoTime();
+        return Glide.with(context)
+                .load(ThumbnailUrls.forWidth(url, mDownloadWidthPx))
+                .apply(options)
+                .listener(new RequestListener<Drawable>() {
+                    @Override
+                    public boolean onLoadFailed(GlideException e, Object model, Target<Drawable> target,
+                                                boolean isFirstResource) {
+                        stats.onFailed();
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                                   DataSource dataSource, boolean isFirstResource) {
+                        long elapsedNanos = System.nanoTime() - start;
+                        stats.onReady(dataSource, elapsedNanos);
+                        if (dataSource == DataSource.REMOTE) {
+                            estimator.onRoundTrip(elapsedNanos);
+                        }
+                        return false;
+                    }
+                });
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.android.guardiantech;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Body HTML to paragraphs, and storing them compressed under a size cap.
+ */
+public class ArticleBodyStoreTest {
+
+    private static final String URL_A = "https://www.theguardian.com/technology/a";
+    private static final String URL_B = "https://www.theguardian.com/technology/b";
+    private static final String URL_C = "https://www.theguardian.com/technology/c";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+
+    @Before
+    public void setUp() {
+        dir = new File(folder.getRoot(), "bodies");
+    }
+
+    @Test
+    public void fromHtml_keepsParagraphsAndDropsEmbeds() {
+        String html = "<p>First &amp; <strong>bold</strong>\n  words.</p>"
+                + "<figure class=\"element\"><img src=\"x.jpg\"/><figcaption>Caption</figcaption></figure>"
+                + "<h2>Heading</h2><p>Caf&#233;&nbsp;and <a href=\"/b\">link</a></p>"
+                + "<script>var x = '<p>no</p>';</script><p>   </p>";
+
+        ArticleBody body = ArticleBody.fromHtml("Headline", null, html);
+
+        assertEquals(Arrays.asList("First & bold words.", "Heading", "Caf\u00e9 and link"), body.getParagraphs());
+        assertEquals("Headline", body.getHeadline());
+        assertNull(body.getAuthor());
+    }
+
+    @Test
+    public void writeThenRead_roundTripsAcrossBlocks() {
+        ArticleBodyStore store = new ArticleBodyStore(dir, ArticleBodyStore.DEFAULT_MAX_BYTES);
+        List<String> paragraphs = paragraphs(50, 400);
+        ArticleBody body = new ArticleBody("Headline", "Author", paragraphs);
+        assertTrue(ArticleBodyStore.blocks(paragraphs).size() > 1);
+
+        assertTrue(store.write(URL_A, body));
+        ArticleBody read = store.read(URL_A);
+
+        assertTrue(store.contains(URL_A));
+        assertEquals("Headline", read.getHeadline());
+        assertEquals("Author", read.getAuthor());
+        assertEquals(paragraphs, read.getParagraphs());
+        // Repetitive text, compressed well below its length
+        assertTrue(store.getSizeBytes() < body.getLength() / 2);
+        assertNull(store.read(URL_B));
+    }
+
+    @Test
+    public void writeAll_storesOnlyArticlesWithBodies() {
+        ArticleBodyStore store = new ArticleBodyStore(dir, ArticleBodyStore.DEFAULT_MAX_BYTES);
+        List<Article> articles = Arrays.asList(article(URL_A), article(URL_B));
+
+        store.writeAll(articles, Collections.singletonMap(URL_B, "<p>Body of b</p>"));
+
+        assertFalse(store.contains(URL_A));
+        assertEquals(Collections.singletonList("Body of b"), store.read(URL_B).getParagraphs());
+    }
+
+    @Test
+    public void overCap_evictsLeastRecentlyUsed() {
+        ArticleBody body = new ArticleBody("Headline", null, randomParagraphs(20, 300));
+        ArticleBodyStore sizing = new ArticleBodyStore(new File(folder.getRoot(), "sizing"), Long.MAX_VALUE);
+        sizing.write(URL_A, body);
+        long oneBody = sizing.getSizeBytes();
+
+        ArticleBodyStore store = new ArticleBodyStore(dir, oneBody * 2 + oneBody / 2);
+        store.write(URL_A, body);
+        store.write(URL_B, body);
+        // A is now the most recently used
+        assertNotNull(store.read(URL_A));
+        store.write(URL_C, body);
+
+        assertTrue(store.contains(URL_A));
+        assertFalse(store.contains(URL_B));
+        assertTrue(store.contains(URL_C));
+        assertTrue(store.getSizeBytes() <= oneBody * 2 + oneBody / 2);
+        assertEquals(2, dir.list().length);
+    }
+
+    @Test
+    public void reopened_findsStoredBodiesInIndex() {
+        ArticleBodyStore store = new ArticleBodyStore(dir, ArticleBodyStore.DEFAULT_MAX_BYTES);
+        store.write(URL_A, new ArticleBody("Headline", null, Collections.singletonList("Text")));
+
+        ArticleBodyStore reopened = new ArticleBodyStore(dir, ArticleBodyStore.DEFAULT_MAX_BYTES);
+        assertFalse(reopened.contains(URL_A));
+        reopened.loadIndex();
+
+        assertTrue(reopened.contains(URL_A));
+        assertEquals(store.getSizeBytes(), reopened.getSizeBytes());
+        assertEquals(Collections.singletonList("Text"), reopened.read(URL_A).getParagraphs());
+    }
+
+    @Test
+    public void corruptFile_readsAsMissing() throws IOException {
+        ArticleBodyStore store = new ArticleBodyStore(dir, ArticleBodyStore.DEFAULT_MAX_BYTES);
+        store.write(URL_A, new ArticleBody("Headline", null, paragraphs(10, 200)));
+        File file = dir.listFiles()[0];
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(file.length() - 20);
+        raf.close();
+
+        assertNull(store.read(URL_A));
+    }
+
+    @Test
+    public void damagedBlock_losesOnlyItsParagraphs() throws IOException {
+        ArticleBodyStore store = new ArticleBodyStore(dir, ArticleBodyStore.DEFAULT_MAX_BYTES);
+        List<String> paragraphs = paragraphs(50, 400);
+        store.write(URL_A, new ArticleBody("Headline", null, paragraphs));
+        // Break the zlib header of the first block's data
+        RandomAccessFile raf = new RandomAccessFile(dir.listFiles()[0], "rw");
+        raf.seek(firstBlockOffset() + 8);
+        raf.write(new byte[]{0, 0});
+        raf.close();
+
+        int lost = ArticleBodyStore.blocks(paragraphs).get(0).size();
+        assertEquals(paragraphs.subList(lost, paragraphs.size()), store.read(URL_A).getParagraphs());
+    }
+
+    @Test
+    public void impossibleBlockLength_readsAsMissing() throws IOException {
+        ArticleBodyStore store = new ArticleBodyStore(dir, ArticleBodyStore.DEFAULT_MAX_BYTES);
+        store.write(URL_A, new ArticleBody("Headline", null, paragraphs(10, 200)));
+        RandomAccessFile raf = new RandomAccessFile(dir.listFiles()[0], "rw");
+        raf.seek(firstBlockOffset() + 4);
+        raf.writeInt(Integer.MAX_VALUE - 8);
+        raf.close();
+
+        assertNull(store.read(URL_A));
+    }
+
+    @Test
+    public void clear_deletesEverything() {
+        ArticleBodyStore store = new ArticleBodyStore(dir, ArticleBodyStore.DEFAULT_MAX_BYTES);
+        store.write(URL_A, new ArticleBody("Headline", null, Collections.singletonList("Text")));
+
+        store.clear();
+
+        assertFalse(store.contains(URL_A));
+        assertEquals(0, store.getSizeBytes());
+        assertEquals(0, dir.list().length);
+    }
+
+    /**
+     * Where the first block starts in URL_A's file, headline "Headline" and no author: magic,
+     * version, URL, headline, author and block count.
+     */
+    private static int firstBlockOffset() {
+        return 4 + 4 + (2 + URL_A.length()) + (1 + 2 + "Headline".length()) + 1 + 4;
+    }
+
+    private static Article article(String webUrl) {
+        return new Article("Headline", "thumb.jpg", null, webUrl, "Technology", "2018-05-20T09:00:00Z");
+    }
+
+    private static List<String> paragraphs(int count, int length) {
+        List<String> paragraphs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder paragraph = new StringBuilder("Paragraph " + i + ".");
+            while (paragraph.length() < length) {
+                paragraph.append(" The quick brown fox jumps over the lazy dog.");
+            }
+            paragraphs.add(paragraph.toString());
+        }
+        return paragraphs;
+    }
+
+    /** Text that doesn't compress, so file sizes are predictable */
+    private static List<String> randomParagraphs(int count, int length) {
+        Random random = new Random(42);
+        List<String> paragraphs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder paragraph = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                paragraph.append((char) ('a' + random.nextInt(26)));
+            }
+            paragraphs.add(paragraph.toString());
+        }
+        return paragraphs;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.android.guardiantech;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that common refreshes dispatch the smallest set of row updates.
+ */
+public class ArticleDiffCallbackTest {
+
+    @Test
+    public void newArticlesAtTop_onlyInserted() {
+        List<Article> old = articles(0, 10);
+        List<Article> updated = new ArrayList<>(articles(10, 12));
+        updated.addAll(old);
+
+        assertEquals(Arrays.asList("insert 0 2"), diff(old, updated));
+    }
+
+    @Test
+    public void editedHeadline_onlyChanged() {
+        List<Article> old = articles(0, 10);
+        List<Article> updated = new ArrayList<>(old);
+        Article edited = old.get(3);
+        updated.set(3, new Article("Updated headline", edited.getThumbnail(), edited.getAuthor(),
+                edited.getWebUrl(), edited.getCategory(), edited.getWebPublicationDate()));
+
+        assertEquals(Arrays.asList("change 3 1"), diff(old, updated));
+    }
+
+    @Test
+    public void removedArticle_onlyRemoved() {
+        List<Article> old = articles(0, 10);
+        List<Article> updated = new ArrayList<>(old);
+        updated.remove(5);
+
+        assertEquals(Arrays.asList("remove 5 1"), diff(old, updated));
+    }
+
+    @Test
+    public void unchangedRefresh_noUpdates() {
+        assertTrue(diff(articles(0, 10), articles(0, 10)).isEmpty());
+    }
+
+    private static List<String> diff(List<Article> old, List<Article> updated) {
+        final List<String> updates = new ArrayList<>();
+        DiffUtil.calculateDiff(new ArticleDiffCallback(old, updated)).dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                updates.add("insert " + position + " " + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                updates.add("remove " + position + " " + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                updates.add("move " + fromPosition + " " + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                updates.add("change " + position + " " + count);
+            }
+        });
+        return updates;
+    }
+
+    private static List<Article> articles(int from, int to) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            articles.add(new Article("Headline " + i, "https://media.guim.co.uk/" + i + ".jpg", "Alex Hern",
+                    "https://www.theguardian.com/technology/" + i, "Technology", "2018-05-20T09:00:00Z"));
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.android.guardiantech;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stale-while-revalidate against {@link GuardianStubServer}, driving the loader's background
+ * passes directly: the first serves the store, the one after revalidates it.
+ */
+public class ArticleLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GuardianStubServer server;
+    private ExecutorService pool;
+    private ArticleStore store;
+    private ArticleRepository repository;
+    private GuardianQuery query;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new GuardianStubServer();
+        pool = Executors.newSingleThreadExecutor();
+        store = new ArticleStore(folder.getRoot(), ArticleStore.DEFAULT_TTL_MILLIS);
+        repository = new ArticleRepository(store, new UrlConnectionTransport());
+        query = new QueryConfig(server.getSearchUrl(), QueryConfig.DEFAULT_API_KEY, 10,
+                GuardianQuery.ORDER_NEWEST).feed("technology", 1);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void expiredEntry_isServedFirstThenRevalidatedWithItsEtag() {
+        ArticleStore.Entry seeded = seed();
+        // Saved at the epoch, long past its TTL
+        store.writePage(query.getFeedKey(), seeded.getArticles(), seeded.getEtag(), null, query.getPageSize(), 0);
+        ArticleLoader loader = loader(true);
+
+        List<Article> stored = loader.loadInBackground();
+
+        assertEquals(seeded.getArticles(), stored);
+        assertEquals(1, server.getRequestCount());
+        assertTrue(loader.isRevalidationPending());
+
+        List<Article> revalidated = loader.loadInBackground();
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, server.getNotModifiedCount());
+        assertEquals(stored, revalidated);
+        ArticleStore.Entry entry = store.read(query.getFeedKey());
+        assertTrue(entry.isFresh(System.currentTimeMillis()));
+        assertEquals(seeded.getEtag(), entry.getEtag());
+    }
+
+    @Test
+    public void freshEntry_isServedWithoutRevalidating() {
+        ArticleStore.Entry seeded = seed();
+        ArticleLoader loader = loader(true);
+
+        assertEquals(seeded.getArticles(), loader.loadInBackground());
+        assertEquals(1, server.getRequestCount());
+        assertFalse(loader.isRevalidationPending());
+    }
+
+    @Test
+    public void offline_servesExpiredEntryWithoutRevalidating() {
+        ArticleStore.Entry seeded = seed();
+        store.writePage(query.getFeedKey(), seeded.getArticles(), seeded.getEtag(), null, query.getPageSize(), 0);
+        ArticleLoader loader = loader(false);
+
+        assertEquals(seeded.getArticles(), loader.loadInBackground());
+        assertEquals(1, server.getRequestCount());
+        assertFalse(loader.isRevalidationPending());
+    }
+
+    @Test
+    public void emptyStore_fetchesAndStoresValidators() {
+        ArticleLoader loader = loader(true);
+
+        List<Article> articles = loader.loadInBackground();
+
+        assertEquals(10, articles.size());
+        assertEquals(1, server.getRequestCount());
+        ArticleStore.Entry entry = store.read(query.getFeedKey());
+        assertEquals(articles, entry.getArticles());
+        assertNotNull(entry.getEtag());
+    }
+
+    @Test
+    public void entryFromOtherPageSize_isServedThenFetchedAtTheNewSize() {
+        ArticleStore.Entry seeded = seed();
+        GuardianQuery smaller = new QueryConfig(server.getSearchUrl(), QueryConfig.DEFAULT_API_KEY, 5,
+                GuardianQuery.ORDER_NEWEST).feed("technology", 1);
+        assertEquals(query.getFeedKey(), smaller.getFeedKey());
+        ArticleLoader loader = newLoader(smaller, repository, pool, true);
+
+        assertEquals(seeded.getArticles(), loader.loadInBackground());
+        assertEquals(10, loader.getPageSize());
+        assertTrue(loader.isRevalidationPending());
+
+        List<Article> refetched = loader.loadInBackground();
+
+        assertEquals(5, refetched.size());
+        assertEquals(5, loader.getPageSize());
+        assertEquals(5, store.read(query.getFeedKey()).getPageSize());
+    }
+
+    /** Store the feed as a previous run would have, one request against the server. */
+    private ArticleStore.Entry seed() {
+        ArticleStore.Entry entry = repository.refresh(query, null, null);
+        assertNotNull(entry.getEtag());
+        return entry;
+    }
+
+    private ArticleLoader loader(boolean online) {
+        return newLoader(query, repository, pool, online);
+    }
+
+    /**
+     * A loader for one feed, outside any activity. Drive it by calling loadInBackground, the
+     * main executor runs what it posts straight away.
+     */
+    static ArticleLoader newLoader(GuardianQuery query, ArticleRepository repository, ExecutorService pool,
+                                   final boolean online) {
+        Context context = new ContextWrapper(null) {
+            @Override
+            public Context getApplicationContext() {
+                return this;
+            }
+
+            @Override
+            public Object getSystemService(String name) {
+                return null;
+            }
+        };
+        NetworkStatus network = new NetworkStatus(context) {
+            @Override
+            public boolean isConnected() {
+                return online;
+            }
+        };
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        return new ArticleLoader(context, Collections.singletonList(query), repository,
+                new FeedAggregator(pool, 5000), new LoadScheduler(0), new TaskExecutors(pool, pool, direct),
+                network);
+    }
+}
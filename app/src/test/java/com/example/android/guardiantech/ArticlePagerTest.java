@@ -0,0 +1,314 @@
+package com.example.android.guardiantech;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class ArticlePagerTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int TOTAL_PAGES = 50;
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private final List<Article> rows = new ArrayList<>();
+    private final List<Integer> fetched = new ArrayList<>();
+    private final Map<String, List<Article>> spilled = new HashMap<>();
+    private Executor background;
+    private Executor direct;
+    private ArticlePager.PageSource source;
+    private ArticlePager.Listener listener;
+    private ArticlePager pager;
+
+    @Before
+    public void setUp() {
+        background = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        };
+        direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        source = new ArticlePager.PageSource() {
+            @Override
+            public FetchResult fetchPage(int page) {
+                fetched.add(page);
+                return result(page);
+            }
+        };
+        listener = new ArticlePager.Listener() {
+            @Override
+            public void onArticlesInserted(int position, List<Article> articles) {
+                rows.addAll(position, articles);
+            }
+
+            @Override
+            public void onArticlesRemoved(int position, int count) {
+                rows.subList(position, position + count).clear();
+            }
+        };
+        pager = new ArticlePager(source, listener, background, direct, 3, 3);
+
+        List<Article> first = page(1);
+        rows.addAll(first);
+        pager.reset(first);
+    }
+
+    @Test
+    public void nearEnd_prefetchesNextPageOnce() {
+        pager.onScrolled(0, 5);
+        assertTrue(queued.isEmpty());
+
+        pager.onScrolled(2, 6);
+        pager.onScrolled(3, 7);
+        assertEquals(1, queued.size());
+        assertTrue(pager.isInFlight(2));
+
+        runQueued();
+        assertEquals(20, rows.size());
+        assertEquals("page2-0", rows.get(10).getWebUrl());
+    }
+
+    @Test
+    public void scrollingFar_keepsPageCountBounded() {
+        for (int page = 1; page < 20; page++) {
+            pager.onScrolled(pager.getItemCount() - 3, pager.getItemCount() - 1);
+            runQueued();
+        }
+
+        assertEquals(3, pager.getPageCount());
+        assertEquals(3 * PAGE_SIZE, rows.size());
+        assertEquals(18, pager.getFirstPage());
+        assertEquals("page18-0", rows.get(0).getWebUrl());
+    }
+
+    @Test
+    public void scrollingBack_reloadsDroppedPages() {
+        for (int page = 1; page < 5; page++) {
+            pager.onScrolled(pager.getItemCount() - 3, pager.getItemCount() - 1);
+            runQueued();
+        }
+        assertEquals(3, pager.getFirstPage());
+
+        pager.onScrolled(0, 4);
+        runQueued();
+
+        assertEquals(2, pager.getFirstPage());
+        assertEquals("page2-0", rows.get(0).getWebUrl());
+        assertEquals(3 * PAGE_SIZE, rows.size());
+    }
+
+    @Test
+    public void reset_ignoresResultsStartedBefore() {
+        pager.onScrolled(7, 9);
+        List<Article> first = page(1);
+        pager.reset(first);
+        runQueued();
+
+        assertEquals(1, pager.getPageCount());
+        assertEquals(PAGE_SIZE, rows.size());
+    }
+
+    @Test
+    public void lastPage_stopsPrefetching() {
+        for (int page = 1; page < TOTAL_PAGES + 5; page++) {
+            pager.onScrolled(pager.getItemCount() - 3, pager.getItemCount() - 1);
+            runQueued();
+        }
+
+        assertEquals(TOTAL_PAGES, (int) fetched.get(fetched.size() - 1));
+        assertEquals(TOTAL_PAGES - 1, fetched.size());
+    }
+
+    @Test
+    public void withSpill_scrollingBackReadsDroppedPagesFromIt() {
+        pager = spillingPager();
+        for (int page = 1; page < 5; page++) {
+            pager.onScrolled(pager.getItemCount() - 3, pager.getItemCount() - 1);
+            runQueued();
+        }
+        runQueued();
+        assertEquals(3, pager.getFirstPage());
+        assertEquals(2, spilled.size());
+        fetched.clear();
+
+        pager.onScrolled(0, 4);
+        runQueued();
+
+        assertTrue(fetched.isEmpty());
+        assertEquals(2, pager.getFirstPage());
+        assertEquals("page2-0", rows.get(0).getWebUrl());
+    }
+
+    @Test
+    public void trimTo_keepsPagesOnScreenAndSpillsTheRest() {
+        pager = spillingPager();
+        pager.onScrolled(7, 9);
+        runQueued();
+        pager.onScrolled(17, 19);
+        runQueued();
+        assertEquals(3, pager.getPageCount());
+        // Looking at the end of page 2 and the start of page 3
+        pager.onScrolled(15, 24);
+
+        pager.trimTo(0);
+        runQueued();
+
+        assertEquals(2, pager.getPageCount());
+        assertEquals(2, pager.getFirstPage());
+        assertEquals(2 * PAGE_SIZE, rows.size());
+        assertEquals("page2-0", rows.get(0).getWebUrl());
+        assertEquals(1, spilled.size());
+    }
+
+    @Test
+    public void trimmed_windowStaysSmallUntilRestored() {
+        pager = spillingPager();
+        pager.trimTo(0);
+        for (int page = 1; page < 6; page++) {
+            pager.onScrolled(pager.getItemCount() - 3, pager.getItemCount() - 1);
+            runQueued();
+        }
+        assertEquals(2, pager.getPageCount());
+
+        pager.trimTo(1);
+        pager.onScrolled(pager.getItemCount() - 3, pager.getItemCount() - 1);
+        runQueued();
+        assertEquals(3, pager.getPageCount());
+    }
+
+    @Test
+    public void replaceFirstPage_keepsLaterPagesAndFetches() {
+        pager.onScrolled(7, 9);
+        runQueued();
+        pager.onScrolled(17, 19);
+        assertTrue(pager.isInFlight(3));
+        List<Article> fresher = page(0);
+        fresher.add(0, new Article("New", null, null, "new", "Technology", "2018-05-21T09:00:00Z"));
+        // What the adapter does with the new first page before telling the pager
+        rows.subList(0, pager.getFirstPageSize()).clear();
+        rows.addAll(0, fresher);
+
+        pager.replaceFirstPage(fresher);
+        runQueued();
+
+        assertEquals(3, pager.getPageCount());
+        assertEquals(PAGE_SIZE + 1, pager.getFirstPageSize());
+        assertEquals(3 * PAGE_SIZE + 1, pager.getItemCount());
+        assertEquals(pager.getItemCount(), rows.size());
+        assertEquals("page3-0", rows.get(2 * PAGE_SIZE + 1).getWebUrl());
+    }
+
+    @Test
+    public void replaceFirstPage_onceDropped_isSpilledForScrollingBack() {
+        pager = spillingPager();
+        for (int page = 1; page < 5; page++) {
+            pager.onScrolled(pager.getItemCount() - 3, pager.getItemCount() - 1);
+            runQueued();
+        }
+        runQueued();
+        assertFalse(pager.holdsFirstPage());
+        int shown = rows.size();
+
+        pager.replaceFirstPage(page(0));
+        runQueued();
+        assertEquals(shown, rows.size());
+        pager.onScrolled(0, 4);
+        runQueued();
+        pager.onScrolled(0, 4);
+        runQueued();
+
+        assertEquals(1, pager.getFirstPage());
+        assertEquals("page0-0", rows.get(0).getWebUrl());
+    }
+
+    @Test
+    public void failedPage_askedForAgainAfterBackoff() throws InterruptedException {
+        final int[] failures = {1};
+        pager = new ArticlePager(new ArticlePager.PageSource() {
+            @Override
+            public FetchResult fetchPage(int page) {
+                fetched.add(page);
+                if (failures[0]-- > 0) {
+                    return FetchResult.failed(0);
+                }
+                return result(page);
+            }
+        }, listener, background, direct, 3, 3);
+        pager.reset(new ArrayList<>(rows));
+        pager.onScrolled(7, 9);
+        runQueued();
+        assertEquals(1, fetched.size());
+
+        pager.onScrolled(7, 9);
+        assertTrue(queued.isEmpty());
+
+        Thread.sleep(ArticlePager.RETRY_DELAY_MILLIS + 100);
+        pager.onScrolled(7, 9);
+        runQueued();
+
+        assertEquals(2, fetched.size());
+        assertEquals(2 * PAGE_SIZE, rows.size());
+    }
+
+    private ArticlePager spillingPager() {
+        ArticlePager.PageSpill spill = new ArticlePager.PageSpill() {
+            @Override
+            public void write(String key, List<Article> articles) {
+                spilled.put(key, articles);
+            }
+
+            @Override
+            public List<Article> read(String key) {
+                return spilled.remove(key);
+            }
+
+            @Override
+            public void clear() {
+                spilled.clear();
+            }
+        };
+        ArticlePager spilling = new ArticlePager(source, spill, listener, background, background, direct, 3, 3);
+        spilling.reset(new ArrayList<>(rows));
+        return spilling;
+    }
+
+    /** Run the background work, and what it queues in turn, e.g. a fetch after a spill miss. */
+    private void runQueued() {
+        while (!queued.isEmpty()) {
+            List<Runnable> tasks = new ArrayList<>(queued);
+            queued.clear();
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        }
+    }
+
+    private static FetchResult result(int number) {
+        ArticlePage page = new ArticlePage();
+        page.articles.addAll(page(number));
+        page.currentPage = number;
+        page.pages = TOTAL_PAGES;
+        return new FetchResult(FetchResult.STATUS_OK, page, null, null, 0);
+    }
+
+    private static List<Article> page(int number) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            articles.add(new Article("Headline " + i, null, null, "page" + number + "-" + i,
+                    "Technology", "2018-05-20T09:00:00Z"));
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.android.guardiantech;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Delta sync against a local server standing in for the search endpoint.
+ */
+public class ArticleSyncTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private ArticleStore store;
+    private ArticleSync sync;
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<String>());
+
+    // What the server answers: two pages of the full feed, and the two pages of the delta
+    private volatile int status = 200;
+    private volatile String full;
+    private volatile String fullPage2;
+    private volatile String deltaPage1;
+    private volatile String deltaPage2;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+                queries.add(query);
+                boolean page2 = query.contains("page=2");
+                String body = !query.contains("from-date=") ? (page2 ? fullPage2 : full)
+                        : page2 ? deltaPage2 : deltaPage1;
+                byte[] bytes = body.getBytes(UTF_8);
+                exchange.sendResponseHeaders(status, bytes.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(bytes);
+                out.close();
+                exchange.close();
+            }
+        });
+        server.start();
+
+        store = new ArticleStore(folder.getRoot(), ArticleStore.DEFAULT_TTL_MILLIS);
+        sync = new ArticleSync(store, new UrlConnectionTransport(), 5);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void emptyStore_fetchesWholeFeed() {
+        full = response(1, article("a", "2018-05-19T10:00:00Z"), article("b", "2018-05-18T10:00:00Z"));
+
+        assertEquals(2, sync.sync(query(), null));
+
+        assertFalse(queries.get(0).contains("from-date="));
+        assertEquals(2, store.read(key()).getArticles().size());
+    }
+
+    @Test
+    public void storedFeed_fetchesOnlyNewerArticlesAndMerges() {
+        store.write(key(), Arrays.asList(
+                article("newest", "2018-05-20T09:00:00Z"), article("older", "2018-05-19T10:00:00Z")),
+                "\"etag\"", "Sun, 20 May 2018 09:00:00 GMT");
+        // from-date is inclusive, so the newest stored article comes back too
+        deltaPage1 = response(2, article("new1", "2018-05-21T08:00:00Z"), article("newest", "2018-05-20T09:00:00Z"));
+        deltaPage2 = response(2, article("new2", "2018-05-20T12:00:00Z"));
+
+        assertEquals(2, sync.sync(query(), null));
+
+        assertEquals(2, queries.size());
+        assertTrue(queries.get(0), queries.get(0).contains("from-date=2018-05-20T09:00:00Z"));
+        assertTrue(queries.get(0).contains("order-by=newest"));
+        assertTrue(queries.get(1).contains("page=2"));
+
+        ArticleStore.Entry entry = store.read(key());
+        List<String> urls = new ArrayList<>();
+        for (Article article : entry.getArticles()) {
+            urls.add(article.getWebUrl());
+        }
+        assertEquals(Arrays.asList("https://example.com/new1", "https://example.com/new2",
+                "https://example.com/newest", "https://example.com/older"), urls);
+        // Kept, the server answers a stale one with the whole page
+        assertEquals("\"etag\"", entry.getEtag());
+    }
+
+    @Test
+    public void nothingNew_keepsListAndValidators() {
+        List<Article> stored = Collections.singletonList(article("newest", "2018-05-20T09:00:00Z"));
+        store.write(key(), stored, "\"etag\"", null, 0);
+        deltaPage1 = response(1, article("newest", "2018-05-20T09:00:00Z"));
+
+        assertEquals(0, sync.sync(query(), null));
+
+        ArticleStore.Entry entry = store.read(key());
+        assertEquals(stored, entry.getArticles());
+        assertEquals("\"etag\"", entry.getEtag());
+        assertTrue(entry.getSavedAt() > 0);
+    }
+
+    @Test
+    public void failedDelta_leavesStoreUntouched() {
+        List<Article> stored = Collections.singletonList(article("newest", "2018-05-20T09:00:00Z"));
+        store.write(key(), stored, "\"etag\"", null, 1234);
+        status = 500;
+        deltaPage1 = "{}";
+
+        assertEquals(-1, sync.sync(query(), null));
+        assertFalse(sync.syncAll(Collections.singletonList(query()), null));
+
+        assertEquals(1234, store.read(key()).getSavedAt());
+    }
+
+    @Test
+    public void syncThenLoadAndPage_showsEachArticleOnce() {
+        final GuardianQuery query = query().newBuilder().pageSize(2).build();
+        store.write(query.getFeedKey(), Arrays.asList(
+                article("b", "2018-05-20T09:00:00Z"), article("c", "2018-05-19T10:00:00Z")), "\"etag\"", null);
+        // Since then a is out, the feed is now a, b | c, d
+        deltaPage1 = response(1, article("a", "2018-05-21T08:00:00Z"), article("b", "2018-05-20T09:00:00Z"));
+        fullPage2 = response(2, article("c", "2018-05-19T10:00:00Z"), article("d", "2018-05-18T10:00:00Z"));
+
+        assertEquals(1, sync.sync(query, null));
+
+        final HttpTransport transport = new UrlConnectionTransport();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            ArticleLoader loader = ArticleLoaderTest.newLoader(query, new ArticleRepository(store, transport),
+                    pool, true);
+            List<Article> firstPage = loader.loadInBackground();
+            assertEquals(Arrays.asList("https://example.com/a", "https://example.com/b"), webUrls(firstPage));
+            assertFalse(loader.isRevalidationPending());
+
+            final List<Article> shown = new ArrayList<>(firstPage);
+            Executor direct = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            };
+            ArticlePager pager = new ArticlePager(new ArticlePager.PageSource() {
+                @Override
+                public FetchResult fetchPage(int page) {
+                    return QueryUtils.fetchArticleData(transport, query.newBuilder().page(page).build(),
+                            null, null, null);
+                }
+            }, new ArticlePager.Listener() {
+                @Override
+                public void onArticlesInserted(int position, List<Article> articles) {
+                    shown.addAll(position, articles);
+                }
+
+                @Override
+                public void onArticlesRemoved(int position, int count) {
+                    shown.subList(position, position + count).clear();
+                }
+            }, direct, direct, 1, 5);
+            pager.reset(firstPage);
+            pager.onScrolled(0, 1);
+
+            assertEquals(Arrays.asList("https://example.com/a", "https://example.com/b",
+                    "https://example.com/c", "https://example.com/d"), webUrls(shown));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void deltaQuery_keepsFeedAndAsksForNewestSince() {
+        long from = ArticleDateFormatter.parse("2018-05-20T09:00:00Z");
+        GuardianQuery feed = query().newBuilder().orderBy(GuardianQuery.ORDER_OLDEST).build();
+
+        GuardianQuery delta = ArticleSync.deltaQuery(feed, from).page(2).build();
+
+        assertEquals("technology", delta.getParameter(GuardianQuery.PARAM_SECTION));
+        assertEquals("2018-05-20T09:00:00Z", delta.getParameter(GuardianQuery.PARAM_FROM_DATE));
+        assertEquals(GuardianQuery.ORDER_NEWEST, delta.getParameter(GuardianQuery.PARAM_ORDER_BY));
+        assertEquals("2", delta.getParameter(GuardianQuery.PARAM_PAGE));
+    }
+
+    private GuardianQuery query() {
+        return new GuardianQuery.Builder("http://127.0.0.1:" + server.getAddress().getPort() + "/search")
+                .sections("technology")
+                .build();
+    }
+
+    private String key() {
+        return query().getFeedKey();
+    }
+
+    private static List<String> webUrls(List<Article> articles) {
+        List<String> urls = new ArrayList<>();
+        for (Article article : articles) {
+            urls.add(article.getWebUrl());
+        }
+        return urls;
+    }
+
+    private static Article article(String slug, String date) {
+        return new Article("Headline " + slug, "https://media.example.com/" + slug + ".jpg", "Author",
+                "https://example.com/" + slug, "Technology", date);
+    }
+
+    private static String response(int pages, Article... articles) {
+        StringBuilder json = new StringBuilder("{\"response\":{\"status\":\"ok\",\"currentPage\":1,\"pages\":")
+                .append(pages).append(",\"results\":[");
+        for (int i = 0; i < articles.length; i++) {
+            Article article = articles[i];
+            json.append(i > 0 ? "," : "")
+                    .append("{\"sectionName\":\"").append(article.getCategory())
+                    .append("\",\"webPublicationDate\":\"").append(article.getWebPublicationDate())
+                    .append("\",\"webUrl\":\"").append(article.getWebUrl())
+                    .append("\",\"fields\":{\"headline\":\"").append(article.getHeadline())
+                    .append("\",\"thumbnail\":\"").append(article.getThumbnail())
+                    .append("\"},\"tags\":[{\"webTitle\":\"").append(article.getAuthor()).append("\"}]}");
+        }
+        return json.append("]}}").toString();
+    }
+}
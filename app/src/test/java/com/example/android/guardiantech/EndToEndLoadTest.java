@@ -0,0 +1,192 @@
+package com.example.android.guardiantech;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load times from request to parsed articles against {@link GuardianStubServer}, with p95
+ * budgets per page size.
+ *
+ * Requests go through the same code as the app's, real HTTP over loopback included, so a
+ * regression in the transport, parsing or merging shows up here. The stub adds a fixed
+ * latency to stand in for the network; each budget is that latency plus what the page may
+ * cost to move and parse, with headroom for a busy CI machine. Each run prints its
+ * percentiles, compare those between changes rather than relying on the budgets alone.
+ */
+public class EndToEndLoadTest {
+
+    private static final long LATENCY_MILLIS = 20;
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 20;
+    private static final String[] SECTIONS = {"technology", "science", "business"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GuardianStubServer server;
+    private QueryConfig config;
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new GuardianStubServer().latency(LATENCY_MILLIS, 0);
+        config = new QueryConfig(server.getSearchUrl(), QueryConfig.DEFAULT_API_KEY, QueryConfig.DEFAULT_PAGE_SIZE,
+                GuardianQuery.ORDER_NEWEST);
+        pool = Executors.newFixedThreadPool(SECTIONS.length);
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void fetchArticleData_p95WithinBudget_10To1000Articles() {
+        int[] sizes = {10, 100, 200, 500, 1000};
+        long[] budgetsMillis = {150, 200, 250, 400, 600};
+        HttpTransport transport = new UrlConnectionTransport();
+
+        for (int i = 0; i < sizes.length; i++) {
+            server.articlesPerPage(sizes[i]);
+            Histogram histogram = fetch(transport, config.feed("technology", 1), sizes[i]);
+            assertWithinBudget(histogram, budgetsMillis[i]);
+        }
+    }
+
+    @Test
+    public void throttledBandwidth_costsTransferTime() {
+        // About 1.1KB an article, so 200 articles are a quarter of a second at 1MB/s
+        long bytesPerSecond = 1024 * 1024;
+        server.articlesPerPage(200).bandwidth(bytesPerSecond);
+        long bytes = pageBytes(config.feed("technology", 1));
+        long transferMillis = bytes * 1000 / bytesPerSecond;
+
+        Histogram histogram = fetch(new UrlConnectionTransport(), config.feed("technology", 1), 200);
+
+        // The throttle is working, and nothing on our side adds much on top of it
+        assertTrue(histogram.toString(), histogram.getPercentile(0.5) / 1000 >= transferMillis);
+        assertWithinBudget(histogram, LATENCY_MILLIS + transferMillis + 250);
+    }
+
+    @Test
+    public void errors_retriedWithinBudget() {
+        server.articlesPerPage(100).errorRate(0.2);
+        RetryPolicy policy = new RetryPolicy(4, 10, 40, 2000, 1000);
+        HttpTransport transport = new ResilientTransport(new UrlConnectionTransport(), policy,
+                new CircuitBreaker(100, 1000));
+
+        Histogram histogram = fetch(transport, config.feed("technology", 1), 100);
+
+        assertTrue(server.getErrorCount() > 0);
+        // One or two retries, each a round trip and a short backoff
+        assertWithinBudget(histogram, 400);
+    }
+
+    @Test
+    public void largePayload_withBodies_p95WithinBudget() {
+        // 50 articles with 20KB bodies, about a megabyte a page
+        server.articlesPerPage(50).bodyBytes(20 * 1024);
+        GuardianQuery query = config.withBodies(true).feed("technology", 1);
+
+        Histogram histogram = fetch(new UrlConnectionTransport(), query, 50);
+
+        assertTrue(pageBytes(query) > 1000 * 1000);
+        assertWithinBudget(histogram, 400);
+    }
+
+    @Test
+    public void loaderPath_coldAndRevalidated_p95WithinBudget() throws Exception {
+        server.articlesPerPage(200);
+        FeedAggregator aggregator = new FeedAggregator(pool, 5000);
+        List<GuardianQuery> queries = config.feeds(SECTIONS, 1);
+        Histogram cold = new Histogram("load.cold", Metrics.UNIT_MICROS);
+        Histogram revalidated = new Histogram("load.revalidated", Metrics.UNIT_MICROS);
+
+        for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+            ArticleStore store = new ArticleStore(folder.newFolder(), ArticleStore.DEFAULT_TTL_MILLIS);
+            ArticleRepository repository = new ArticleRepository(store, new UrlConnectionTransport());
+
+            long start = System.nanoTime();
+            List<Article> first = load(aggregator, repository, queries);
+            long coldNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            List<Article> second = load(aggregator, repository, queries);
+            long revalidatedNanos = System.nanoTime() - start;
+
+            // Every section gets the same recorded articles, merged down to one copy of each
+            assertEquals(200, first.size());
+            assertEquals(first, second);
+            if (run >= WARMUP_RUNS) {
+                cold.record(TimeUnit.NANOSECONDS.toMicros(coldNanos));
+                revalidated.record(TimeUnit.NANOSECONDS.toMicros(revalidatedNanos));
+            }
+        }
+
+        // Sections are fetched in parallel, so about one round trip each
+        assertWithinBudget(cold, 300);
+        assertWithinBudget(revalidated, 150);
+    }
+
+    /**
+     * Time fetching and parsing the query, after a few unmeasured runs to warm up the JIT.
+     */
+    private static Histogram fetch(HttpTransport transport, GuardianQuery query, int expectedArticles) {
+        Histogram histogram = new Histogram("fetch." + expectedArticles, Metrics.UNIT_MICROS);
+        for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+            long start = System.nanoTime();
+            FetchResult result = QueryUtils.fetchArticleData(transport, query, null, null, null);
+            long nanos = System.nanoTime() - start;
+            assertEquals(FetchResult.STATUS_OK, result.getStatus());
+            assertEquals(expectedArticles, result.getArticles().size());
+            if (run >= WARMUP_RUNS) {
+                histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Load every feed the way ArticleLoader revalidates them: in parallel through the
+     * repository, sending the stored validators, merged newest first.
+     */
+    private static List<Article> load(FeedAggregator aggregator, final ArticleRepository repository,
+                                      List<GuardianQuery> queries) throws InterruptedException {
+        final Map<String, GuardianQuery> byKey = new LinkedHashMap<>();
+        for (GuardianQuery query : queries) {
+            byKey.put(query.getFeedKey(), query);
+        }
+        return aggregator.load(new ArrayList<>(byKey.keySet()), new FeedAggregator.FeedFetcher() {
+            @Override
+            public List<Article> fetch(String key, CancellationToken token) {
+                GuardianQuery query = byKey.get(key);
+                ArticleStore.Entry entry = repository.refresh(query, repository.getStored(query), token);
+                return entry != null ? entry.getArticles() : null;
+            }
+        }, null, null);
+    }
+
+    private long pageBytes(GuardianQuery query) {
+        long before = server.getBytesSent();
+        QueryUtils.fetchArticleData(new UrlConnectionTransport(), query, null, null, null);
+        return server.getBytesSent() - before;
+    }
+
+    private static void assertWithinBudget(Histogram histogram, long budgetMillis) {
+        long p95Millis = histogram.getPercentile(0.95) / 1000;
+        assertTrue(histogram + " over budget " + budgetMillis + "ms", p95Millis <= budgetMillis);
+    }
+}
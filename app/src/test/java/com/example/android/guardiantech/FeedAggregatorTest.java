@@ -0,0 +1,241 @@
+package com.example.android.guardiantech;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FeedAggregatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = FeedAggregator.newBoundedExecutor(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void load_mergesNewestFirstWithoutDuplicates() throws InterruptedException {
+        FeedAggregator aggregator = new FeedAggregator(executor, 5000);
+        final Map<String, List<Article>> feeds = new HashMap<>();
+        feeds.put("technology", Arrays.asList(
+                article("a", "2018-05-20T09:00:00Z"), article("shared", "2018-05-19T09:00:00Z")));
+        feeds.put("science", Arrays.asList(
+                article("b", "2018-05-20T10:00:00Z"), article("shared", "2018-05-19T09:00:00Z")));
+
+        List<Article> merged = aggregator.load(Arrays.asList("technology", "science"),
+                new FeedAggregator.FeedFetcher() {
+                    @Override
+                    public List<Article> fetch(String key, CancellationToken token) {
+                        return feeds.get(key);
+                    }
+                }, null, null);
+
+        assertEquals(Arrays.asList("b", "a", "shared"), urls(merged));
+    }
+
+    @Test
+    public void moreLoadsThanIoThreads_allFinish() throws InterruptedException {
+        // The loads fill every io thread; their feeds must not be queued behind them
+        final FeedAggregator aggregator = new FeedAggregator(executor, 5000);
+        ExecutorService io = TaskExecutors.newPool("io", 2, Thread.NORM_PRIORITY);
+        final CountDownLatch finished = new CountDownLatch(5);
+        try {
+            for (int i = 0; i < 5; i++) {
+                io.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            aggregator.load(Arrays.asList("technology", "science", "business"),
+                                    new FeedAggregator.FeedFetcher() {
+                                        @Override
+                                        public List<Article> fetch(String key, CancellationToken token)
+                                                throws InterruptedException {
+                                            Thread.sleep(50);
+                                            return Collections.singletonList(article(key, "2018-05-20T09:00:00Z"));
+                                        }
+                                    }, null, null);
+                            finished.countDown();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+        } finally {
+            io.shutdownNow();
+        }
+    }
+
+    @Test
+    public void load_publishesEachFeedAndTakesAboutAsLongAsTheSlowest() throws InterruptedException {
+        FeedAggregator aggregator = new FeedAggregator(executor, 5000);
+        final Map<String, Long> delays = new HashMap<>();
+        delays.put("fast", 50L);
+        delays.put("medium", 200L);
+        delays.put("slow", 400L);
+        final List<Integer> partialSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+        long start = System.nanoTime();
+        List<Article> merged = aggregator.load(Arrays.asList("slow", "medium", "fast"),
+                new FeedAggregator.FeedFetcher() {
+                    @Override
+                    public List<Article> fetch(String key, CancellationToken token) throws InterruptedException {
+                        Thread.sleep(delays.get(key));
+                        return Collections.singletonList(article(key, "2018-05-20T09:00:00Z"));
+                    }
+                }, null, new FeedAggregator.Listener() {
+                    @Override
+                    public void onPartialResult(List<Article> merged, int feedsDone, int feedsTotal) {
+                        partialSizes.add(merged.size());
+                    }
+                });
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(3, merged.size());
+        assertEquals(Arrays.asList(1, 2, 3), partialSizes);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 650);
+    }
+
+    @Test
+    public void load_timesOutSlowFeedAndKeepsItsFallback() throws InterruptedException {
+        FeedAggregator aggregator = new FeedAggregator(executor, 200);
+        Map<String, List<Article>> fallback = new HashMap<>();
+        fallback.put("stuck", Collections.singletonList(article("old", "2018-05-01T09:00:00Z")));
+
+        long start = System.nanoTime();
+        List<Article> merged = aggregator.load(Arrays.asList("ok", "stuck"),
+                new FeedAggregator.FeedFetcher() {
+                    @Override
+                    public List<Article> fetch(String key, CancellationToken token) throws InterruptedException {
+                        if (key.equals("stuck")) {
+                            Thread.sleep(10000);
+                        }
+                        return Collections.singletonList(article("new", "2018-05-20T09:00:00Z"));
+                    }
+                }, fallback, null);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(Arrays.asList("new", "old"), urls(merged));
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 2000);
+    }
+
+    @Test
+    public void load_timedOutFeed_abortsItsRequestAndStoresNothing() throws Exception {
+        GuardianStubServer server = new GuardianStubServer().latency(5000, 0);
+        try {
+            final GuardianQuery query = new QueryConfig(server.getSearchUrl(), QueryConfig.DEFAULT_API_KEY,
+                    QueryConfig.DEFAULT_PAGE_SIZE, GuardianQuery.ORDER_NEWEST).feed("technology", 1);
+            ArticleStore store = new ArticleStore(folder.getRoot(), ArticleStore.DEFAULT_TTL_MILLIS);
+            final ArticleRepository repository = new ArticleRepository(store, new UrlConnectionTransport());
+            final CountDownLatch returned = new CountDownLatch(1);
+            FeedAggregator aggregator = new FeedAggregator(executor, 200);
+
+            aggregator.load(Collections.singletonList(query.getFeedKey()), new FeedAggregator.FeedFetcher() {
+                @Override
+                public List<Article> fetch(String key, CancellationToken token) {
+                    try {
+                        ArticleStore.Entry entry = repository.refresh(query, null, token);
+                        return entry != null ? entry.getArticles() : null;
+                    } finally {
+                        returned.countDown();
+                    }
+                }
+            }, null, null);
+
+            // Left to itself the request would wait out the stub's 5s before the headers
+            assertTrue(returned.await(2, TimeUnit.SECONDS));
+            assertNull(store.read(query.getFeedKey()));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void load_cancelledToken_cancelsEveryFeed() throws InterruptedException {
+        FeedAggregator aggregator = new FeedAggregator(executor, 5000);
+        final CancellationToken token = new CancellationToken();
+        final CountDownLatch started = new CountDownLatch(2);
+        final AtomicInteger cancelled = new AtomicInteger();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    started.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                token.cancel();
+            }
+        });
+
+        List<Article> merged = aggregator.load(Arrays.asList("a", "b"), new FeedAggregator.FeedFetcher() {
+            @Override
+            public List<Article> fetch(String key, final CancellationToken feedToken) throws InterruptedException {
+                final CountDownLatch aborted = new CountDownLatch(1);
+                feedToken.setOnCancelListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        aborted.countDown();
+                    }
+                });
+                started.countDown();
+                if (aborted.await(5, TimeUnit.SECONDS)) {
+                    cancelled.incrementAndGet();
+                }
+                return null;
+            }
+        }, null, null, token);
+
+        assertTrue(merged.isEmpty());
+        assertEquals(2, cancelled.get());
+    }
+
+    @Test
+    public void load_failedFeedIsSkipped() throws InterruptedException {
+        FeedAggregator aggregator = new FeedAggregator(executor, 5000);
+
+        List<Article> merged = aggregator.load(Arrays.asList("ok", "broken"),
+                new FeedAggregator.FeedFetcher() {
+                    @Override
+                    public List<Article> fetch(String key, CancellationToken token) throws Exception {
+                        if (key.equals("broken")) {
+                            throw new Exception("boom");
+                        }
+                        return Collections.singletonList(article("a", "2018-05-20T09:00:00Z"));
+                    }
+                }, null, null);
+
+        assertEquals(Arrays.asList("a"), urls(merged));
+    }
+
+    private static Article article(String url, String date) {
+        return new Article("Headline " + url, null, null, url, "Technology", date);
+    }
+
+    private static List<String> urls(List<Article> articles) {
+        List<String> urls = new ArrayList<>();
+        for (Article article : articles) {
+            urls.add(article.getWebUrl());
+        }
+        return urls;
+    }
+}
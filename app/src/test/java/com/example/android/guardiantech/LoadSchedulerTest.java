@@ -0,0 +1,199 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Coalescing, throttling and cancellation of refreshes.
+ */
+public class LoadSchedulerTest {
+
+    private static final long WINDOW = 30000;
+
+    private final LoadScheduler scheduler = new LoadScheduler(WINDOW);
+
+    @Test
+    public void refreshesWhileBusy_areCoalesced() {
+        assertTrue(scheduler.requestRefresh(0));
+        scheduler.onScheduled();
+        assertFalse(scheduler.requestRefresh(1));
+
+        scheduler.onLoadStarted();
+        CancellationToken token = scheduler.startFetch();
+        assertFalse(scheduler.requestRefresh(2));
+        assertFalse(scheduler.requestRefresh(3));
+
+        scheduler.finishFetch(token, 4);
+        assertEquals(1, scheduler.getFetchesIssued());
+        assertEquals(3, scheduler.getFetchesCoalesced());
+        assertFalse(scheduler.isBusy());
+    }
+
+    @Test
+    public void refreshWithinWindow_isThrottled() {
+        scheduler.finishFetch(scheduler.startFetch(), 1000);
+
+        assertFalse(scheduler.requestRefresh(1000 + WINDOW - 1));
+        assertTrue(scheduler.requestRefresh(1000 + WINDOW));
+        assertEquals(1, scheduler.getRefreshesThrottled());
+    }
+
+    @Test
+    public void newFetch_cancelsTheOneItSupersedes() {
+        CancellationToken first = scheduler.startFetch();
+        CancellationToken second = scheduler.startFetch();
+
+        assertTrue(first.isCancelled());
+        assertFalse(second.isCancelled());
+        assertEquals(2, scheduler.getFetchesIssued());
+        assertEquals(1, scheduler.getFetchesCancelled());
+
+        // The superseded fetch finishing late must not clear the running one
+        scheduler.finishFetch(first, 10);
+        assertTrue(scheduler.isBusy());
+    }
+
+    @Test
+    public void cancelledFetch_doesNotRestartWindow() {
+        CancellationToken token = scheduler.startFetch();
+        assertTrue(scheduler.cancel());
+        scheduler.finishFetch(token, 1000);
+
+        assertTrue(token.isCancelled());
+        assertTrue(scheduler.requestRefresh(1001));
+        assertFalse(scheduler.cancel());
+        assertEquals(1, scheduler.getFetchesCancelled());
+    }
+
+    @Test
+    public void cancel_runsAbortActionOnce() {
+        final AtomicInteger aborted = new AtomicInteger();
+        CancellationToken token = new CancellationToken();
+        token.setOnCancelListener(new Runnable() {
+            @Override
+            public void run() {
+                aborted.incrementAndGet();
+            }
+        });
+
+        token.cancel();
+        token.cancel();
+        assertEquals(1, aborted.get());
+
+        // Registered after the fact, runs straight away
+        token.setOnCancelListener(new Runnable() {
+            @Override
+            public void run() {
+                aborted.incrementAndGet();
+            }
+        });
+        assertEquals(2, aborted.get());
+    }
+
+    @Test
+    public void cancel_abortsFetchBlockedOnBody() throws InterruptedException {
+        final StallingTransport transport = new StallingTransport();
+        final CancellationToken token = new CancellationToken();
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    transport.reading.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                token.cancel();
+            }
+        });
+        canceller.start();
+
+        FetchResult result = QueryUtils.fetchArticleData(transport,
+                "http://127.0.0.1/search?section=technology", null, null, token);
+        canceller.join();
+
+        assertEquals(FetchResult.STATUS_FAILED, result.getStatus());
+        assertEquals(1, transport.aborts.get());
+    }
+
+    /**
+     * Answers 200 with a body whose first read blocks until the response is aborted.
+     */
+    private static final class StallingTransport implements HttpTransport {
+
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch aborted = new CountDownLatch(1);
+        final AtomicInteger aborts = new AtomicInteger();
+
+        @Override
+        public Response get(URL url, Map<String, String> headers) {
+            return get(url, headers, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public Response get(URL url, Map<String, String> headers, int timeoutMillis) {
+            return get(url, headers, timeoutMillis, null);
+        }
+
+        @Override
+        public Response get(URL url, Map<String, String> headers, int timeoutMillis, CancellationToken token) {
+            return new Response() {
+                @Override
+                public int getCode() {
+                    return 200;
+                }
+
+                @Override
+                public String getHeader(String name) {
+                    return null;
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return new InputStream() {
+                        @Override
+                        public int read() throws IOException {
+                            reading.countDown();
+                            try {
+                                if (aborted.await(10, TimeUnit.SECONDS)) {
+                                    throw new IOException("Socket closed");
+                                }
+                            } catch (InterruptedException e) {
+                                throw new IOException(e);
+                            }
+                            return -1;
+                        }
+                    };
+                }
+
+                @Override
+                public long getBytesOnWire() {
+                    return 0;
+                }
+
+                @Override
+                public long getRoundTripNanos() {
+                    return 0;
+                }
+
+                @Override
+                public void abort() {
+                    aborts.incrementAndGet();
+                    aborted.countDown();
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.android.guardiantech;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+import static org.junit.Assert.*;
+
+/**
+ * Trim levels played against a thumbnail cache, a pager with a spill and a search index set up
+ * the way MainActivity wires them, checking what each keeps resident.
+ */
+public class MemoryTrimmerTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_PAGES = 6;
+    private static final int THUMBNAIL_BYTES = 1000;
+    private static final int INDEX_TRIM_ARTICLES = 40;
+
+    private final List<String> trimmed = new ArrayList<>();
+    private final Map<String, List<Article>> spilled = new HashMap<>();
+    private final List<Runnable> queued = new ArrayList<>();
+    private final ArticleIndex index = new ArticleIndex();
+    private MemoryTrimmer trimmer;
+    private ArticlePager pager;
+    private long thumbnailBytes = THUMBNAIL_BYTES;
+
+    @Before
+    public void setUp() {
+        Executor background = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        };
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        final List<Article> rows = new ArrayList<>();
+        pager = new ArticlePager(new ArticlePager.PageSource() {
+            @Override
+            public FetchResult fetchPage(int page) {
+                ArticlePage result = new ArticlePage();
+                result.articles.addAll(page(page));
+                return new FetchResult(FetchResult.STATUS_OK, result, null, null, 0);
+            }
+        }, new ArticlePager.PageSpill() {
+            @Override
+            public void write(String key, List<Article> articles) {
+                spilled.put(key, articles);
+            }
+
+            @Override
+            public List<Article> read(String key) {
+                return spilled.remove(key);
+            }
+
+            @Override
+            public void clear() {
+                spilled.clear();
+            }
+        }, new ArticlePager.Listener() {
+            @Override
+            public void onArticlesInserted(int position, List<Article> articles) {
+                rows.addAll(position, articles);
+                index.addAll(articles);
+            }
+
+            @Override
+            public void onArticlesRemoved(int position, int count) {
+                rows.subList(position, position + count).clear();
+            }
+        }, background, background, direct, 3, MAX_PAGES);
+        rows.addAll(page(1));
+        pager.reset(page(1));
+        index.addAll(page(1));
+        // Load the whole window and keep reading the last page
+        for (int page = 2; page <= MAX_PAGES; page++) {
+            pager.onScrolled(pager.getItemCount() - 3, pager.getItemCount() - 1);
+            runQueued();
+        }
+        pager.onScrolled(pager.getItemCount() - 10, pager.getItemCount() - 5);
+
+        trimmer = new MemoryTrimmer();
+        trimmer.register(MemoryTrimmer.TIER_THUMBNAILS, new MemoryTrimmer.Cache() {
+            @Override
+            public void trimTo(float share) {
+                trimmed.add("thumbnails");
+                thumbnailBytes = Math.min(thumbnailBytes, Math.round(THUMBNAIL_BYTES * share));
+            }
+
+            @Override
+            public long getResidentSize() {
+                return thumbnailBytes;
+            }
+        });
+        trimmer.register(MemoryTrimmer.TIER_PAGES, new MemoryTrimmer.Cache() {
+            @Override
+            public void trimTo(float share) {
+                trimmed.add("pages");
+                pager.trimTo(share);
+            }
+
+            @Override
+            public long getResidentSize() {
+                return pager.getPageCount();
+            }
+        });
+        trimmer.register(MemoryTrimmer.TIER_ARTICLES, new MemoryTrimmer.Cache() {
+            @Override
+            public void trimTo(float share) {
+                trimmed.add("articles");
+                if (share < 1f) {
+                    index.trimTo(Math.round(INDEX_TRIM_ARTICLES * share));
+                }
+            }
+
+            @Override
+            public long getResidentSize() {
+                return index.size();
+            }
+        });
+    }
+
+    @Test
+    public void runningModerate_halvesThumbnailsOnly() {
+        trimmer.onTrimMemory(TRIM_MEMORY_RUNNING_MODERATE);
+
+        assertEquals(Arrays.asList("thumbnails"), trimmed);
+        assertEquals(THUMBNAIL_BYTES / 2, thumbnailBytes);
+        assertEquals(MAX_PAGES, pager.getPageCount());
+        assertEquals(MAX_PAGES * PAGE_SIZE, index.size());
+    }
+
+    @Test
+    public void runningLow_spillsHalfThePages() {
+        trimmer.onTrimMemory(TRIM_MEMORY_RUNNING_LOW);
+        runQueued();
+
+        assertEquals(Arrays.asList("thumbnails", "pages"), trimmed);
+        assertEquals(MAX_PAGES / 2, pager.getPageCount());
+        assertEquals(MAX_PAGES / 2, spilled.size());
+        // The page being read is still there
+        assertEquals(MAX_PAGES - 2, pager.getFirstPage());
+        assertEquals(MAX_PAGES * PAGE_SIZE, index.size());
+    }
+
+    @Test
+    public void runningCritical_trimsEveryTierInOrder() {
+        trimmer.onTrimMemory(TRIM_MEMORY_RUNNING_CRITICAL);
+        runQueued();
+
+        assertEquals(Arrays.asList("thumbnails", "pages", "articles"), trimmed);
+        assertEquals(THUMBNAIL_BYTES / 4, thumbnailBytes);
+        assertEquals(2, pager.getPageCount());
+        assertEquals(INDEX_TRIM_ARTICLES / 2, index.size());
+    }
+
+    @Test
+    public void uiHidden_dropsThumbnailsAndKeepsData() {
+        trimmer.onTrimMemory(TRIM_MEMORY_UI_HIDDEN);
+
+        assertEquals(0, thumbnailBytes);
+        assertEquals(MAX_PAGES, pager.getPageCount());
+        assertEquals(MAX_PAGES * PAGE_SIZE, index.size());
+    }
+
+    @Test
+    public void deeperInTheBackground_trimsMore() {
+        trimmer.onTrimMemory(TRIM_MEMORY_UI_HIDDEN);
+        trimmer.onTrimMemory(TRIM_MEMORY_BACKGROUND);
+        runQueued();
+        assertEquals(MAX_PAGES / 2, pager.getPageCount());
+        assertEquals(MAX_PAGES * PAGE_SIZE, index.size());
+
+        trimmer.onTrimMemory(TRIM_MEMORY_MODERATE);
+        runQueued();
+        assertEquals(2, pager.getPageCount());
+        assertEquals(INDEX_TRIM_ARTICLES / 4, index.size());
+
+        trimmer.onTrimMemory(TRIM_MEMORY_COMPLETE);
+        assertEquals(0, index.size());
+        // Still on screen when the app comes back, if the process survives
+        assertEquals(2, pager.getPageCount());
+        assertEquals(MAX_PAGES - 2, spilled.size());
+    }
+
+    @Test
+    public void milderLevel_doesNotGrowCachesBack() {
+        trimmer.onTrimMemory(TRIM_MEMORY_MODERATE);
+        trimmed.clear();
+
+        trimmer.onTrimMemory(TRIM_MEMORY_RUNNING_MODERATE);
+        trimmer.onTrimMemory(TRIM_MEMORY_BACKGROUND);
+
+        assertTrue(trimmed.isEmpty());
+        assertEquals(0.25f, trimmer.getShare(MemoryTrimmer.TIER_ARTICLES), 0f);
+    }
+
+    @Test
+    public void restore_letsTrimmedTiersGrowAndRestoresPagesOnScrollBack() {
+        trimmer.onTrimMemory(TRIM_MEMORY_RUNNING_LOW);
+        runQueued();
+        trimmed.clear();
+
+        trimmer.restore();
+        assertEquals(Arrays.asList("thumbnails", "pages"), trimmed);
+        assertEquals(1f, trimmer.getShare(MemoryTrimmer.TIER_PAGES), 0f);
+
+        // Scrolling back to the top reads the spilled pages back, one at a time
+        int spilledPages = spilled.size();
+        for (int i = 0; i < spilledPages; i++) {
+            pager.onScrolled(0, 4);
+            runQueued();
+        }
+        assertEquals(1, pager.getFirstPage());
+        assertEquals(MAX_PAGES, pager.getPageCount());
+        assertTrue(spilled.isEmpty());
+    }
+
+    @Test
+    public void lowMemory_countsAsComplete() {
+        trimmer.onLowMemory();
+
+        for (int tier = MemoryTrimmer.TIER_THUMBNAILS; tier <= MemoryTrimmer.TIER_ARTICLES; tier++) {
+            assertEquals(0f, trimmer.getShare(tier), 0f);
+        }
+        assertEquals(0, thumbnailBytes);
+        assertEquals(0, index.size());
+    }
+
+    private void runQueued() {
+        while (!queued.isEmpty()) {
+            List<Runnable> tasks = new ArrayList<>(queued);
+            queued.clear();
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        }
+    }
+
+    private static List<Article> page(int number) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            articles.add(new Article("Headline " + number + " " + i, null, null, "page" + number + "-" + i,
+                    "Technology", "2018-05-20T09:00:00Z"));
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NetworkPolicyTest {
+
+    private static final int[] CLASSES = {NetworkQualityEstimator.POOR, NetworkQualityEstimator.MODERATE,
+            NetworkQualityEstimator.GOOD, NetworkQualityEstimator.EXCELLENT};
+
+    @Test
+    public void unknown_keepsUsualSettings() {
+        NetworkPolicy policy = NetworkPolicy.forClass(NetworkQualityEstimator.UNKNOWN);
+
+        assertEquals(QueryConfig.DEFAULT_PAGE_SIZE, policy.getPageSize());
+        assertEquals(1f, policy.getThumbnailScale(), 0);
+        assertTrue(policy.allowsBodies());
+        assertSame(policy, NetworkPolicy.forClass(-1));
+        assertSame(policy, NetworkPolicy.forClass(99));
+    }
+
+    @Test
+    public void betterNetwork_neverAsksForLess() {
+        for (int i = 1; i < CLASSES.length; i++) {
+            NetworkPolicy worse = NetworkPolicy.forClass(CLASSES[i - 1]);
+            NetworkPolicy better = NetworkPolicy.forClass(CLASSES[i]);
+            assertTrue(better.getPageSize() >= worse.getPageSize());
+            assertTrue(better.getPrefetchRows() >= worse.getPrefetchRows());
+            assertTrue(better.getThumbnailPreloadRows() >= worse.getThumbnailPreloadRows());
+            assertTrue(better.getThumbnailScale() >= worse.getThumbnailScale());
+            assertTrue(better.allowsBodies() || !worse.allowsBodies());
+        }
+    }
+
+    @Test
+    public void poorNetwork_smallerFirstPageAndThumbnails() {
+        NetworkPolicy poor = NetworkPolicy.forClass(NetworkQualityEstimator.POOR);
+
+        assertTrue(poor.getPageSize() < QueryConfig.DEFAULT_PAGE_SIZE);
+        assertEquals(0, poor.getThumbnailPreloadRows());
+        assertFalse(poor.allowsBodies());
+        // The 80dp thumbnail at 3x comes from the 140px image instead of the 500px one
+        assertEquals(140, ThumbnailUrls.widthFor(Math.round(240 * poor.getThumbnailScale())));
+    }
+
+    @Test
+    public void excellentNetwork_largerPagesFetchedFurtherAhead() {
+        NetworkPolicy usual = NetworkPolicy.forClass(NetworkQualityEstimator.UNKNOWN);
+        NetworkPolicy excellent = NetworkPolicy.forClass(NetworkQualityEstimator.EXCELLENT);
+
+        assertTrue(excellent.getPageSize() > usual.getPageSize());
+        assertTrue(excellent.getPrefetchRows() > usual.getPrefetchRows());
+        assertTrue(excellent.getThumbnailPreloadRows() > usual.getThumbnailPreloadRows());
+    }
+
+    @Test
+    public void apply_shapesFeedQueries() {
+        NetworkPolicy poor = NetworkPolicy.forClass(NetworkQualityEstimator.POOR);
+        NetworkPolicy good = NetworkPolicy.forClass(NetworkQualityEstimator.GOOD);
+
+        GuardianQuery slow = poor.apply(QueryConfig.DEFAULT, true).feed("technology", 1);
+        GuardianQuery fast = good.apply(QueryConfig.DEFAULT, true).feed("technology", 1);
+
+        assertEquals(String.valueOf(poor.getPageSize()), slow.getParameter(GuardianQuery.PARAM_PAGE_SIZE));
+        assertFalse(slow.getParameter(GuardianQuery.PARAM_SHOW_FIELDS).contains(GuardianQuery.FIELD_BODY));
+        assertTrue(fast.getParameter(GuardianQuery.PARAM_SHOW_FIELDS).contains(GuardianQuery.FIELD_BODY));
+        assertFalse(good.apply(QueryConfig.DEFAULT, false).hasBodies());
+    }
+}
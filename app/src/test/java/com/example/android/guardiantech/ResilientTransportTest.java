@@ -0,0 +1,239 @@
+package com.example.android.guardiantech;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Retries, budgets and the circuit breaker against a local server that fails on cue.
+ */
+public class ResilientTransportTest {
+
+    private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FaultInjectingServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FaultInjectingServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    private static ResilientTransport transport(int attempts, long deadlineMillis, int attemptTimeoutMillis,
+                                                CircuitBreaker breaker) {
+        return new ResilientTransport(new UrlConnectionTransport(),
+                new RetryPolicy(attempts, 10, 50, deadlineMillis, attemptTimeoutMillis), breaker);
+    }
+
+    @Test
+    public void serverErrors_retriedUntilSuccess() {
+        server.enqueue(FaultInjectingServer.Fault.status(503), FaultInjectingServer.Fault.status(500));
+        CircuitBreaker breaker = new CircuitBreaker(3, 30000);
+
+        FetchResult result = QueryUtils.fetchArticleData(transport(3, 5000, 1000, breaker), server.url(), null, null);
+
+        assertEquals(FetchResult.STATUS_OK, result.getStatus());
+        assertEquals(10, result.getArticles().size());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void droppedConnection_retried() {
+        server.enqueue(FaultInjectingServer.Fault.drop());
+
+        FetchResult result = QueryUtils.fetchArticleData(
+                transport(3, 5000, 1000, new CircuitBreaker(3, 30000)), server.url(), null, null);
+
+        assertEquals(FetchResult.STATUS_OK, result.getStatus());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void clientError_notRetried() {
+        server.enqueue(FaultInjectingServer.Fault.status(404));
+        CircuitBreaker breaker = new CircuitBreaker(1, 30000);
+
+        FetchResult result = QueryUtils.fetchArticleData(transport(3, 5000, 1000, breaker), server.url(), null, null);
+
+        assertEquals(FetchResult.STATUS_FAILED, result.getStatus());
+        assertEquals(1, server.getRequestCount());
+        // The API answered, it isn't down
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void stalledAttempt_timesOutAndRetriesWithinBudget() {
+        server.enqueue(FaultInjectingServer.Fault.stall(5000));
+
+        long start = System.nanoTime();
+        FetchResult result = QueryUtils.fetchArticleData(
+                transport(3, 2000, 200, new CircuitBreaker(3, 30000)), server.url(), null, null);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(FetchResult.STATUS_OK, result.getStatus());
+        assertEquals(2, server.getRequestCount());
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 1500);
+    }
+
+    @Test
+    public void budget_boundsTimeSpentOnDeadServer() {
+        for (int i = 0; i < 10; i++) {
+            server.enqueue(FaultInjectingServer.Fault.stall(5000));
+        }
+
+        long start = System.nanoTime();
+        FetchResult result = QueryUtils.fetchArticleData(
+                transport(10, 600, 250, new CircuitBreaker(3, 30000)), server.url(), null, null);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(FetchResult.STATUS_FAILED, result.getStatus());
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 1200);
+    }
+
+    @Test
+    public void rateLimited_retryAfterWithinBudgetIsHonoured() {
+        server.enqueue(FaultInjectingServer.Fault.status(RetryPolicy.HTTP_TOO_MANY_REQUESTS, "0"));
+
+        FetchResult result = QueryUtils.fetchArticleData(
+                transport(3, 5000, 1000, new CircuitBreaker(3, 30000)), server.url(), null, null);
+
+        assertEquals(FetchResult.STATUS_OK, result.getStatus());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void roundTrip_excludesEarlierAttemptsAndBackoff() throws IOException {
+        server.enqueue(FaultInjectingServer.Fault.status(RetryPolicy.HTTP_TOO_MANY_REQUESTS, "1"));
+        ResilientTransport transport = transport(3, 5000, 1000, new CircuitBreaker(3, 30000));
+
+        long start = System.nanoTime();
+        HttpTransport.Response response = transport.get(server.parsedUrl(), NO_HEADERS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        response.close();
+
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 1000);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(response.getRoundTripNanos()) < 500);
+    }
+
+    @Test
+    public void rateLimited_retryAfterBeyondBudgetOpensBreaker() throws IOException {
+        server.enqueue(FaultInjectingServer.Fault.status(RetryPolicy.HTTP_TOO_MANY_REQUESTS, "120"));
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000);
+        ResilientTransport transport = transport(3, 5000, 1000, breaker);
+
+        FetchResult result = QueryUtils.fetchArticleData(transport, server.url(), null, null);
+
+        assertEquals(FetchResult.STATUS_FAILED, result.getStatus());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        try {
+            transport.get(server.parsedUrl(), NO_HEADERS);
+            fail("Expected the breaker to refuse the request");
+        } catch (ResilientTransport.CircuitOpenException expected) {
+            assertEquals(1, server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void openBreaker_repositoryFailsFastAndKeepsStoredArticles() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(FaultInjectingServer.Fault.status(500));
+        }
+        CircuitBreaker breaker = new CircuitBreaker(2, 30000);
+        ResilientTransport transport = transport(2, 5000, 1000, breaker);
+        ArticleStore store = new ArticleStore(folder.getRoot(), ArticleStore.DEFAULT_TTL_MILLIS);
+        ArticleRepository repository = new ArticleRepository(store, transport);
+        ArticleStore.Entry stored = store.write(server.url(),
+                Collections.singletonList(new Article("Stored", null, null, "https://www.theguardian.com/s",
+                        "Technology", "2018-05-20T09:00:00Z")), null, null);
+
+        assertNull(repository.refresh(server.url(), stored));
+        assertNull(repository.refresh(server.url(), stored));
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertEquals(4, server.getRequestCount());
+
+        long start = System.nanoTime();
+        assertNull(repository.refresh(server.url(), stored));
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 100);
+        assertEquals(4, server.getRequestCount());
+        assertEquals(stored.getArticles(), repository.getStored(server.url()).getArticles());
+    }
+
+    @Test
+    public void cancelledProbe_wakesFromBackoffAndReleasesBreaker() throws Exception {
+        server.enqueue(FaultInjectingServer.Fault.status(RetryPolicy.HTTP_TOO_MANY_REQUESTS, "5"));
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure(0);
+        ResilientTransport transport = transport(3, 10000, 1000, breaker);
+        final CancellationToken token = new CancellationToken();
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                token.cancel();
+            }
+        });
+        canceller.start();
+
+        long start = System.nanoTime();
+        try {
+            transport.get(server.parsedUrl(), NO_HEADERS, 10000, token);
+            fail("Expected the cancelled probe to throw");
+        } catch (IOException expected) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 2000);
+        }
+        canceller.join();
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        // The next request is the probe, and closes the breaker when it gets through
+        transport.get(server.parsedUrl(), NO_HEADERS).close();
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void backoff_isJitteredBelowCappedExponential() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 1000, 10000, 1000);
+        Random random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.backoffMillis(1, random) < 100);
+            assertTrue(policy.backoffMillis(2, random) < 200);
+            assertTrue(policy.backoffMillis(3, random) < 400);
+            assertTrue(policy.backoffMillis(30, random) < 1000);
+        }
+    }
+
+    @Test
+    public void retryAfter_secondsOrDate() {
+        long now = 1526806800000L; // Sun, 20 May 2018 09:00:00 GMT
+        assertEquals(120000, RetryPolicy.retryAfterMillis("120", now));
+        assertEquals(30000, RetryPolicy.retryAfterMillis("Sun, 20 May 2018 09:00:30 GMT", now));
+        assertEquals(0, RetryPolicy.retryAfterMillis("Sun, 20 May 2018 08:00:00 GMT", now));
+        assertEquals(-1, RetryPolicy.retryAfterMillis(null, now));
+        assertEquals(-1, RetryPolicy.retryAfterMillis("soon", now));
+    }
+}
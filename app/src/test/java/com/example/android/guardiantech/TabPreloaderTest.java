@@ -0,0 +1,154 @@
+package com.example.android.guardiantech;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TabPreloaderTest {
+
+    private static final long DWELL = 500;
+    private static final long INTERVAL = 2000;
+
+    /** Hints as the browser saw them, likeliest URL first */
+    private final List<List<String>> hints = new ArrayList<>();
+    private boolean metered;
+    private boolean batteryLow;
+
+    private final TabPreloader.Session session = new TabPreloader.Session() {
+        @Override
+        public boolean mayLaunchUrl(String url, List<String> otherLikelyUrls) {
+            List<String> hint = new ArrayList<>();
+            hint.add(url);
+            hint.addAll(otherLikelyUrls);
+            hints.add(hint);
+            return true;
+        }
+    };
+
+    private final TabPreloader preloader = new TabPreloader(new TabPreloader.Conditions() {
+        @Override
+        public boolean isMetered() {
+            return metered;
+        }
+
+        @Override
+        public boolean isBatteryLow() {
+            return batteryLow;
+        }
+    }, DWELL, INTERVAL, 2);
+
+    @Before
+    public void setUp() {
+        preloader.setSession(session);
+    }
+
+    @Test
+    public void rowsOnScreenLongEnough_hintedTopFirst() {
+        preloader.onRowsVisible(Arrays.asList("a", "b", "c", "d"), 0);
+
+        assertFalse(preloader.hint(DWELL - 1));
+        assertTrue(preloader.hint(DWELL));
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b", "c")), hints);
+        assertTrue(preloader.wasHinted("a"));
+        assertFalse(preloader.wasHinted("d"));
+    }
+
+    @Test
+    public void rowsThatStayed_rankAboveRowsJustScrolledIn() {
+        preloader.onRowsVisible(Arrays.asList("a", "b", "c"), 0);
+        preloader.onRowsVisible(Arrays.asList("b", "c", "d"), 300);
+        preloader.onRowsVisible(Arrays.asList("c", "d", "e"), 900);
+
+        preloader.hint(1400);
+
+        assertEquals(Arrays.asList("c", "d", "e"), hints.get(0));
+    }
+
+    @Test
+    public void rowsFlungPast_neverHinted() {
+        preloader.onRowsVisible(Arrays.asList("a", "b"), 0);
+        preloader.onRowsVisible(Arrays.asList("x", "y"), 100);
+
+        preloader.hint(DWELL + 50);
+
+        assertTrue(hints.isEmpty());
+        assertFalse(preloader.wasHinted("a"));
+    }
+
+    @Test
+    public void hintsWithinInterval_throttled() {
+        preloader.onRowsVisible(Arrays.asList("a", "b"), 0);
+        preloader.hint(DWELL);
+        preloader.onRowsVisible(Arrays.asList("c", "d"), DWELL);
+
+        assertFalse(preloader.hint(2 * DWELL));
+        assertEquals(1, preloader.getThrottled());
+
+        assertTrue(preloader.hint(DWELL + INTERVAL));
+        assertEquals(Arrays.asList("c", "d"), hints.get(1));
+    }
+
+    @Test
+    public void sameRows_notHintedAgain() {
+        preloader.onRowsVisible(Arrays.asList("a", "b"), 0);
+        preloader.hint(DWELL);
+        preloader.onRowsVisible(Arrays.asList("a", "b"), 5000);
+
+        assertFalse(preloader.hint(10000));
+        assertEquals(1, preloader.getSent());
+    }
+
+    @Test
+    public void metered_onlyLikeliestUrl() {
+        metered = true;
+        preloader.onRowsVisible(Arrays.asList("a", "b", "c"), 0);
+
+        preloader.hint(DWELL);
+
+        assertEquals(Collections.singletonList("a"), hints.get(0));
+        assertFalse(preloader.wasHinted("b"));
+    }
+
+    @Test
+    public void batteryLow_nothingSent() {
+        batteryLow = true;
+        preloader.onRowsVisible(Arrays.asList("a", "b"), 0);
+
+        assertFalse(preloader.hint(DWELL));
+
+        assertTrue(hints.isEmpty());
+        assertEquals(1, preloader.getSkipped());
+    }
+
+    @Test
+    public void noSession_nothingSentUntilConnected() {
+        preloader.setSession(null);
+        preloader.onRowsVisible(Arrays.asList("a", "b"), 0);
+
+        assertFalse(preloader.hint(DWELL));
+        assertEquals(0, preloader.getSent());
+
+        preloader.setSession(session);
+        assertTrue(preloader.hint(DWELL));
+        assertEquals(1, hints.size());
+    }
+
+    @Test
+    public void newSession_hintsAgain() {
+        preloader.onRowsVisible(Arrays.asList("a", "b"), 0);
+        preloader.hint(DWELL);
+
+        // Browser restarted, it has forgotten the last hint
+        preloader.setSession(session);
+
+        assertTrue(preloader.hint(DWELL + 1));
+        assertEquals(2, hints.size());
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Task scopes and batched delivery, stepped through with test schedulers standing in for the
+ * io, compute and main threads.
+ */
+public class TaskScopeTest {
+
+    private final TestScheduler io = new TestScheduler();
+    private final TestScheduler compute = new TestScheduler();
+    private final TestScheduler mainThread = new TestScheduler();
+    private final BatchingExecutor main = new BatchingExecutor(mainThread);
+    private final TaskExecutors executors = new TaskExecutors(io, compute, main);
+    private final List<String> delivered = new ArrayList<>();
+
+    private TaskScope.Callback<String> record() {
+        return new TaskScope.Callback<String>() {
+            @Override
+            public void onResult(String result) {
+                delivered.add(result);
+            }
+        };
+    }
+
+    private static TaskScope.Task<String> returning(final String value) {
+        return new TaskScope.Task<String>() {
+            @Override
+            public String run(CancellationToken token) {
+                return value;
+            }
+        };
+    }
+
+    @Test
+    public void result_runsOnExecutorAndArrivesOnMain() {
+        TaskScope scope = new TaskScope(executors.main());
+        scope.launch(executors.io(), returning("a"), record());
+        assertEquals(1, io.size());
+        assertEquals(0, mainThread.size());
+
+        io.runAll();
+        assertTrue(delivered.isEmpty());
+        assertEquals(1, scope.getActiveCount());
+
+        mainThread.runAll();
+        assertEquals(1, delivered.size());
+        assertEquals("a", delivered.get(0));
+        assertEquals(0, scope.getActiveCount());
+    }
+
+    @Test
+    public void closedScope_cancelsRunningTaskAndDropsResult() {
+        TaskScope scope = new TaskScope(executors.main());
+        final AtomicInteger aborted = new AtomicInteger();
+        CancellationToken token = scope.launch(executors.io(), new TaskScope.Task<String>() {
+            @Override
+            public String run(CancellationToken token) {
+                // Stands in for a request in flight when the activity goes away
+                token.setOnCancelListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        aborted.incrementAndGet();
+                    }
+                });
+                return "late";
+            }
+        }, record());
+        io.runAll();
+
+        scope.close();
+        mainThread.runAll();
+
+        assertTrue(token.isCancelled());
+        assertEquals(1, aborted.get());
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    public void closedScope_refusesNewTasks() {
+        TaskScope scope = new TaskScope(executors.main());
+        scope.close();
+
+        CancellationToken token = scope.launch(executors.compute(), returning("never"), record());
+
+        assertTrue(token.isCancelled());
+        assertEquals(0, compute.size());
+    }
+
+    @Test
+    public void cancelledBeforeRunning_taskIsSkipped() {
+        TaskScope scope = new TaskScope(executors.main());
+        final AtomicInteger runs = new AtomicInteger();
+        CancellationToken first = scope.launch(executors.compute(), new TaskScope.Task<String>() {
+            @Override
+            public String run(CancellationToken token) {
+                runs.incrementAndGet();
+                return "stale";
+            }
+        }, record());
+        scope.launch(executors.compute(), returning("fresh"), record());
+
+        // A newer search replaced the first before the pool got to it
+        first.cancel();
+        compute.runAll();
+        mainThread.runAll();
+
+        assertEquals(0, runs.get());
+        assertEquals(1, delivered.size());
+        assertEquals("fresh", delivered.get(0));
+    }
+
+    @Test
+    public void failedTask_deliversNull() {
+        TaskScope scope = new TaskScope(executors.main());
+        scope.launch(executors.io(), new TaskScope.Task<String>() {
+            @Override
+            public String run(CancellationToken token) throws Exception {
+                throw new IOException("offline");
+            }
+        }, record());
+        io.runAll();
+        mainThread.runAll();
+
+        assertEquals(1, delivered.size());
+        assertNull(delivered.get(0));
+    }
+
+    @Test
+    public void resultsArrivingTogether_runInOneMainBatch() {
+        TaskScope scope = new TaskScope(executors.main());
+        scope.launch(executors.io(), returning("a"), record());
+        scope.launch(executors.io(), returning("b"), record());
+        scope.launch(executors.compute(), returning("c"), record());
+        io.runAll();
+        compute.runAll();
+
+        assertEquals(1, mainThread.size());
+        mainThread.runAll();
+
+        assertEquals(3, delivered.size());
+        assertEquals("a", delivered.get(0));
+        assertEquals("b", delivered.get(1));
+        assertEquals("c", delivered.get(2));
+        assertEquals(1, main.getBatches());
+        assertEquals(3, main.getCommands());
+    }
+
+    @Test
+    public void commandQueuedDuringBatch_runsInNextBatch() {
+        main.execute(new Runnable() {
+            @Override
+            public void run() {
+                delivered.add("first");
+                main.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        delivered.add("second");
+                    }
+                });
+            }
+        });
+
+        assertTrue(mainThread.runNext());
+        assertEquals(1, delivered.size());
+        assertEquals(1, mainThread.size());
+        mainThread.runAll();
+        assertEquals(2, delivered.size());
+        assertEquals(2, main.getBatches());
+    }
+
+    @Test
+    public void feedsOnIoPool_fetchedTogether() throws Exception {
+        // Every section is handed to the io pool before any is waited on, so parsing one
+        // section's response overlaps downloading the others
+        ExecutorService pool = TaskExecutors.newPool("io-test", 3, Thread.NORM_PRIORITY);
+        final CountDownLatch allStarted = new CountDownLatch(3);
+        final AtomicInteger overlapped = new AtomicInteger();
+        FeedAggregator aggregator = new FeedAggregator(pool, 5000);
+
+        aggregator.load(Arrays.asList("a", "b", "c"), new FeedAggregator.FeedFetcher() {
+            @Override
+            public List<Article> fetch(String key, CancellationToken token) throws Exception {
+                allStarted.countDown();
+                if (allStarted.await(2, TimeUnit.SECONDS)) {
+                    overlapped.incrementAndGet();
+                }
+                return new ArrayList<>();
+            }
+        }, null, null);
+        pool.shutdown();
+
+        assertEquals(3, overlapped.get());
+    }
+}
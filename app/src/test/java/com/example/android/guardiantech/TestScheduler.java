@@ -0,0 +1,74 @@
+package com.example.android.guardiantech;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor that only runs what it is given when the test says so, on the test's own thread,
+ * so the interleaving of background work and main thread delivery is fixed by the test.
+ */
+final class TestScheduler extends AbstractExecutorService {
+
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+    private boolean shutdown;
+
+    @Override
+    public void execute(Runnable command) {
+        queue.add(command);
+    }
+
+    /** Run the oldest queued command. Returns false if there was none. */
+    boolean runNext() {
+        Runnable command = queue.poll();
+        if (command == null) {
+            return false;
+        }
+        command.run();
+        return true;
+    }
+
+    /** Run queued commands, including any they queue, until none are left. Returns how many ran. */
+    int runAll() {
+        int count = 0;
+        while (runNext()) {
+            count++;
+        }
+        return count;
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<>(queue);
+        queue.clear();
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && queue.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return isTerminated();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ThumbnailPreloaderTest {
+
+    private final List<Integer> preloaded = new ArrayList<>();
+    private int itemCount = 100;
+
+    private final ThumbnailPreloader preloader = new ThumbnailPreloader(new ThumbnailPreloader.Rows() {
+        @Override
+        public int getItemCount() {
+            return itemCount;
+        }
+
+        @Override
+        public void preload(int position) {
+            preloaded.add(position);
+        }
+    }, 3);
+
+    @Test
+    public void scrollingDown_preloadsRowsBelowOnce() {
+        preloader.onScrolled(0, 4);
+        preloader.onScrolled(1, 5);
+        preloader.onScrolled(1, 5);
+
+        assertEquals(Arrays.asList(5, 6, 7, 8), preloaded);
+    }
+
+    @Test
+    public void scrollingUp_preloadsRowsAbove() {
+        preloader.onScrolled(20, 24);
+        preloaded.clear();
+
+        preloader.onScrolled(19, 23);
+        preloader.onScrolled(18, 22);
+
+        assertEquals(Arrays.asList(18, 17, 16, 15), preloaded);
+    }
+
+    @Test
+    public void stopsAtTheEnds() {
+        itemCount = 7;
+        preloader.onScrolled(3, 5);
+        preloader.onScrolled(4, 6);
+        preloader.onScrolled(2, 4);
+        preloader.onScrolled(1, 3);
+
+        assertEquals(Arrays.asList(6, 1, 0), preloaded);
+    }
+
+    @Test
+    public void reset_preloadsAgain() {
+        preloader.onScrolled(0, 4);
+        preloader.reset();
+        preloader.onScrolled(0, 4);
+
+        assertEquals(Arrays.asList(5, 6, 7, 5, 6, 7), preloaded);
+    }
+}
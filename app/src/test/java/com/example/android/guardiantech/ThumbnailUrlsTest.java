@@ -0,0 +1,27 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ThumbnailUrlsTest {
+
+    private static final String CROP = "https://media.guim.co.uk/00000000c771b13ce7ef7b290d2d7c06456c52f5/0_0_3000_1800/";
+
+    @Test
+    public void picksSmallestWidthCoveringTheView() {
+        assertEquals(CROP + "140.jpg", ThumbnailUrls.forWidth(CROP + "500.jpg", 80));
+        assertEquals(CROP + "140.jpg", ThumbnailUrls.forWidth(CROP + "500.jpg", 140));
+        assertEquals(CROP + "500.jpg", ThumbnailUrls.forWidth(CROP + "500.jpg", 240));
+        assertEquals(CROP + "1000.jpg", ThumbnailUrls.forWidth(CROP + "500.jpg", 501));
+        assertEquals(CROP + "2000.jpg", ThumbnailUrls.forWidth(CROP + "500.jpg", 4000));
+    }
+
+    @Test
+    public void leavesOtherUrlsAlone() {
+        assertNull(ThumbnailUrls.forWidth(null, 80));
+        assertEquals("https://example.com/a/500.jpg", ThumbnailUrls.forWidth("https://example.com/a/500.jpg", 80));
+        assertEquals(CROP + "master.jpg", ThumbnailUrls.forWidth(CROP + "master.jpg", 80));
+        assertEquals(CROP + "500.png", ThumbnailUrls.forWidth(CROP + "500.png", 80));
+    }
+}
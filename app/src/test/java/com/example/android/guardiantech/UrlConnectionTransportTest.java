@@ -0,0 +1,155 @@
+package com.example.android.guardiantech;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs conditional, gzip-encoded requests against a local HTTP server.
+ */
+public class UrlConnectionTransportTest {
+
+    private static final String ETAG = "\"a1b2c3\"";
+    private static final String LAST_MODIFIED = "Sun, 20 May 2018 09:00:00 GMT";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private byte[] gzippedBody;
+    private final List<RecordedRequest> requests = Collections.synchronizedList(new ArrayList<RecordedRequest>());
+
+    private static final class RecordedRequest {
+        String acceptEncoding;
+        String ifNoneMatch;
+        String ifModifiedSince;
+        int remotePort;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        gzippedBody = gzip(ArticleStreamParserTest.readFixture("fixtures/search_technology.json"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                RecordedRequest request = new RecordedRequest();
+                request.acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                request.ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                request.ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+                request.remotePort = exchange.getRemoteAddress().getPort();
+                requests.add(request);
+
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                if (ETAG.equals(request.ifNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                    exchange.sendResponseHeaders(200, gzippedBody.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(gzippedBody);
+                    out.close();
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void firstRequest_asksForGzipAndCountsCompressedBytes() {
+        FetchResult result = QueryUtils.fetchArticleData(new UrlConnectionTransport(), url(), null, null);
+
+        assertEquals(FetchResult.STATUS_OK, result.getStatus());
+        assertEquals(10, result.getArticles().size());
+        assertEquals(ETAG, result.getEtag());
+        assertEquals(LAST_MODIFIED, result.getLastModified());
+        assertEquals(gzippedBody.length, result.getBytesOnWire());
+
+        RecordedRequest request = requests.get(0);
+        assertEquals("gzip", request.acceptEncoding);
+        assertNull(request.ifNoneMatch);
+        assertNull(request.ifModifiedSince);
+    }
+
+    @Test
+    public void validators_giveNotModifiedWithNoBody() {
+        FetchResult result = QueryUtils.fetchArticleData(new UrlConnectionTransport(), url(), ETAG, LAST_MODIFIED);
+
+        assertEquals(FetchResult.STATUS_NOT_MODIFIED, result.getStatus());
+        assertEquals(0, result.getBytesOnWire());
+        assertEquals(ETAG, requests.get(0).ifNoneMatch);
+        assertEquals(LAST_MODIFIED, requests.get(0).ifModifiedSince);
+    }
+
+    @Test
+    public void secondRequest_reusesConnection() {
+        HttpTransport transport = new UrlConnectionTransport();
+        QueryUtils.fetchArticleData(transport, url(), null, null);
+        QueryUtils.fetchArticleData(transport, url(), ETAG, null);
+
+        assertEquals(2, requests.size());
+        assertEquals(requests.get(0).remotePort, requests.get(1).remotePort);
+    }
+
+    @Test
+    public void repository_keepsStoredListOnNotModified() {
+        ArticleStore store = new ArticleStore(folder.getRoot(), ArticleStore.DEFAULT_TTL_MILLIS);
+        ArticleRepository repository = new ArticleRepository(store, new UrlConnectionTransport());
+
+        ArticleStore.Entry first = repository.refresh(url(), null);
+        ArticleStore.Entry second = repository.refresh(url(), first);
+
+        assertSame(first.getArticles(), second.getArticles());
+        assertEquals(ETAG, store.read(url()).getEtag());
+        assertEquals(first.getArticles(), store.read(url()).getArticles());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void cancelledToken_sendsNoRequest() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        FetchResult result = QueryUtils.fetchArticleData(new UrlConnectionTransport(), url(), null, null, token);
+
+        assertEquals(FetchResult.STATUS_FAILED, result.getStatus());
+        assertTrue(requests.isEmpty());
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/search?section=technology";
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(text.getBytes(Charset.forName("UTF-8")));
+        out.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.android.guardiantech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building an Article and formatting its date for a row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleBenchmark {
+
+    private static final String DATE = "2018-05-20T09:00:00Z";
+
+    private String headline;
+    private String thumbnail;
+    private String author;
+    private String webUrl;
+    private ArticleDateFormatter formatter;
+    private long publishedAt;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        // Fresh copies, so nothing is shared with interned literals
+        headline = new String("Apple unveils new iPad Pro with faster chip");
+        thumbnail = new String("https://media.guim.co.uk/c771b13ce7ef/0_0_3000_1800/500.jpg");
+        author = new String("Samuel Gibbs");
+        webUrl = new String("https://www.theguardian.com/technology/2018/may/20/apple-unveils-new-ipad-pro");
+        formatter = new ArticleDateFormatter(TimeZone.getDefault(), Locale.UK, "Just now", "%dm ago", "%dh ago");
+        publishedAt = ArticleDateFormatter.parse(DATE);
+        now = publishedAt + TimeUnit.DAYS.toMillis(3);
+    }
+
+    @Benchmark
+    public Article construct() {
+        return new Article(headline, thumbnail, author, webUrl, "Technology", DATE);
+    }
+
+    /** ArticleAdapter.formatDate as it was before dates were parsed up front. */
+    @Benchmark
+    public String formatDateLegacy() throws ParseException {
+        DateFormat outputFormat = new SimpleDateFormat("dd-MM-yyyy", Locale.UK);
+        DateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.UK);
+        Date date = inputFormat.parse(DATE);
+        return outputFormat.format(date);
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return formatter.format(publishedAt, now);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.android.guardiantech;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates Guardian search responses of a given size, shaped like a recorded
+ * section=technology response with headline/thumbnail fields and contributor tags.
+ * Every result carries the fields the app skips as well, so parsers do realistic work.
+ */
+final class BenchmarkFixtures {
+
+    private static final String[] AUTHORS = {
+            "Alex Hern", "Samuel Gibbs", "Kari Paul", "Arwa Mahdawi", "John Naughton", "Keza MacDonald"
+    };
+
+    private static final String[] SECTIONS = {"Technology", "Science", "Business", "Money", "Media"};
+
+    private static final String[] WORDS = {
+            "apple", "google", "amazon", "facebook", "microsoft", "tesla", "uber", "twitter", "netflix",
+            "privacy", "data", "breach", "regulator", "fine", "launch", "review", "phone", "laptop",
+            "chip", "battery", "electric", "car", "robot", "artificial", "intelligence", "climate",
+            "energy", "market", "shares", "profit", "loss", "startup", "founder", "investor", "crypto",
+            "bitcoin", "blockchain", "security", "hack", "password", "cloud", "server", "software",
+            "update", "game", "console", "streaming", "music", "video", "social", "network", "search",
+            "ads", "children", "online", "safety", "law", "court", "ruling", "europe", "china", "us",
+            "uk", "jobs", "workers", "strike", "growth", "economy", "tax", "bank", "payments", "app"
+    };
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Articles with headlines of five to ten words drawn from a small news vocabulary, so
+     * prefixes hit realistic numbers of documents. The same seed gives the same articles.
+     */
+    static List<Article> articles(int count, long seed) {
+        Random random = new Random(seed);
+        List<Article> articles = new ArrayList<>(count);
+        StringBuilder headline = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            headline.setLength(0);
+            int words = 5 + random.nextInt(6);
+            for (int w = 0; w < words; w++) {
+                headline.append(w > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            String date = String.format("2018-%02d-%02dT%02d:%02d:00Z",
+                    1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+            articles.add(new Article(headline.toString(), null, AUTHORS[random.nextInt(AUTHORS.length)],
+                    "https://www.theguardian.com/benchmark/" + i, SECTIONS[random.nextInt(SECTIONS.length)], date));
+        }
+        return articles;
+    }
+
+    static String searchResponse(int results) {
+        StringBuilder json = new StringBuilder(results * 1400);
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"total\":7305,")
+                .append("\"startIndex\":1,\"pageSize\":").append(results)
+                .append(",\"currentPage\":1,\"pages\":").append(7305 / results + 1)
+                .append(",\"orderBy\":\"newest\",\"results\":[");
+        for (int i = 0; i < results; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String slug = "benchmark-article-" + i;
+            String path = "technology/2018/may/" + (10 + i % 20) + "/" + slug;
+            String author = AUTHORS[i % AUTHORS.length];
+            String profile = author.toLowerCase().replace(" ", "");
+            json.append("{\"id\":\"").append(path).append("\",\"type\":\"article\",")
+                    .append("\"sectionId\":\"technology\",\"sectionName\":\"Technology\",")
+                    .append("\"webPublicationDate\":\"2018-05-").append(10 + i % 20)
+                    .append("T").append(10 + i % 12).append(":").append(10 + i % 50).append(":00Z\",")
+                    .append("\"webTitle\":\"Benchmark headline number ").append(i).append("\",")
+                    .append("\"webUrl\":\"https://www.theguardian.com/").append(path).append("\",")
+                    .append("\"apiUrl\":\"https://content.guardianapis.com/").append(path).append("\",")
+                    .append("\"fields\":{\"headline\":\"Benchmark headline number ").append(i)
+                    .append(" \\u2013 with an escaped dash\",")
+                    .append("\"thumbnail\":\"https://media.guim.co.uk/").append(Integer.toHexString(slug.hashCode()))
+                    .append("/0_0_3000_1800/500.jpg\"},")
+                    .append("\"tags\":[{\"id\":\"profile/").append(profile).append("\",\"type\":\"contributor\",")
+                    .append("\"webTitle\":\"").append(author).append("\",")
+                    .append("\"webUrl\":\"https://www.theguardian.com/profile/").append(profile).append("\",")
+                    .append("\"apiUrl\":\"https://content.guardianapis.com/profile/").append(profile).append("\",")
+                    .append("\"references\":[],\"firstName\":\"x\",\"lastName\":\"y\"}],")
+                    .append("\"isHosted\":false,\"pillarId\":\"pillar/news\",\"pillarName\":\"News\"}");
+        }
+        json.append("]}}");
+        return json.toString();
+    }
+
+    static byte[] searchResponseBytes(int results) {
+        return searchResponse(results).getBytes(Charset.forName("UTF-8"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.android.guardiantech;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading a list of articles with ArticleCodec, against the same articles as flat
+ * JSON objects through Gson's streaming reader and writer. Run with -prof gc for allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"100", "1000", "5000"})
+    public int articles;
+
+    private List<Article> list;
+    private byte[] binary;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        list = ArticleStreamParser.parse(new ByteArrayInputStream(BenchmarkFixtures.searchResponseBytes(articles)));
+        binary = ArticleCodec.encode(list);
+        json = writeJson(list);
+        System.out.println("\n" + articles + " articles: binary " + binary.length + " bytes, json "
+                + json.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return ArticleCodec.encode(list);
+    }
+
+    @Benchmark
+    public List<Article> decodeBinary() throws IOException {
+        return ArticleCodec.decode(binary);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return writeJson(list);
+    }
+
+    @Benchmark
+    public List<Article> decodeJson() throws IOException {
+        return readJson(json);
+    }
+
+    private static byte[] writeJson(List<Article> articles) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(articles.size() * 300);
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, UTF_8));
+        writer.beginArray();
+        for (Article article : articles) {
+            writer.beginObject()
+                    .name("headline").value(article.getHeadline())
+                    .name("thumbnail").value(article.getThumbnail())
+                    .name("author").value(article.getAuthor())
+                    .name("webUrl").value(article.getWebUrl())
+                    .name("sectionName").value(article.getCategory())
+                    .name("webPublicationDate").value(article.getWebPublicationDate())
+                    .endObject();
+        }
+        writer.endArray();
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private static List<Article> readJson(byte[] json) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), UTF_8));
+        List<Article> articles = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String headline = null, thumbnail = null, author = null, webUrl = null, section = null, date = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                String value;
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    value = null;
+                } else {
+                    value = reader.nextString();
+                }
+                switch (name) {
+                    case "headline": headline = value; break;
+                    case "thumbnail": thumbnail = value; break;
+                    case "author": author = value; break;
+                    case "webUrl": webUrl = value; break;
+                    case "sectionName": section = value; break;
+                    case "webPublicationDate": date = value; break;
+                    default: break;
+                }
+            }
+            reader.endObject();
+            articles.add(new Article(headline, thumbnail, author, webUrl, section, date));
+        }
+        reader.endArray();
+        reader.close();
+        return articles;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.android.guardiantech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bind-time cost of the date column, old path against new, over a few rows' worth of dates.
+ * The old path is the formatDate that ArticleAdapter used to run on every bind.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateFormatBenchmark {
+
+    private static final String[] DATES = {
+            "2018-05-20T09:00:00Z", "2018-05-19T17:42:11Z", "2018-05-19T08:03:59Z", "2018-05-18T22:15:00Z"
+    };
+
+    private Article[] articles;
+    private ArticleDateFormatter formatter;
+    private long now;
+    private int row;
+
+    @Setup
+    public void setUp() {
+        articles = new Article[DATES.length];
+        for (int i = 0; i < DATES.length; i++) {
+            articles[i] = new Article("Headline", null, null, "url" + i, "Technology", DATES[i]);
+        }
+        formatter = new ArticleDateFormatter(TimeZone.getDefault(), Locale.UK, "Just now", "%dm ago", "%dh ago");
+        now = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public String bindDateLegacy() throws ParseException {
+        DateFormat outputFormat = new SimpleDateFormat("dd-MM-yyyy", Locale.UK);
+        DateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.UK);
+        Date date = inputFormat.parse(articles[row++ & 3].getWebPublicationDate());
+        return outputFormat.format(date);
+    }
+
+    @Benchmark
+    public String bindDate() {
+        return formatter.format(articles[row++ & 3].getPublishedAtMillis(), now);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.guardiantech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and parsing search responses of 10 to 1000 results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"10", "50", "200", "1000"})
+    public int results;
+
+    private byte[] payload;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        payload = BenchmarkFixtures.searchResponseBytes(results);
+        json = BenchmarkFixtures.searchResponse(results);
+    }
+
+    @Benchmark
+    public String readFromStream() throws IOException {
+        return QueryUtils.readFromStream(new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    public List<Article> extractFeatureFromJSON() {
+        return QueryUtils.extractFeatureFromJSON(json);
+    }
+
+    /** What the network path did before streaming: buffer the body, then build the tree. */
+    @Benchmark
+    public List<Article> readAndExtract() throws IOException {
+        return QueryUtils.extractFeatureFromJSON(QueryUtils.readFromStream(new ByteArrayInputStream(payload)));
+    }
+
+    @Benchmark
+    public List<Article> streamParse() {
+        return ArticleStreamParser.parse(new ByteArrayInputStream(payload));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.android.guardiantech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the local search index and querying it at 1k, 10k and 100k articles.
+ * Queries are what a user types: a short prefix, two words, a single letter, a rare word.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int LIMIT = 50;
+
+    @Param({"1000", "10000", "100000"})
+    public int documents;
+
+    private List<Article> articles;
+    private ArticleIndex index;
+
+    @Setup
+    public void setUp() {
+        articles = BenchmarkFixtures.articles(documents, 42);
+        index = new ArticleIndex();
+        index.addAll(articles);
+    }
+
+    @Benchmark
+    public ArticleIndex build() {
+        ArticleIndex fresh = new ArticleIndex();
+        fresh.addAll(articles);
+        return fresh;
+    }
+
+    @Benchmark
+    public List<Article> prefix() {
+        return index.search("priv", LIMIT);
+    }
+
+    @Benchmark
+    public List<Article> twoWords() {
+        return index.search("apple sam", LIMIT);
+    }
+
+    @Benchmark
+    public List<Article> singleLetter() {
+        return index.search("s", LIMIT);
+    }
+
+    @Benchmark
+    public List<Article> rareWord() {
+        return index.search("blockchain court", LIMIT);
+    }
+}
@@ -0,0 +1,65 @@
+#!/bin/sh
+# Cold and warm start times of the installed app on a connected device:
+#
+#     ./gradlew :app:installDebug && benchmark/startup-benchmark.sh [runs]
+#
+# Cold starts kill the process first, warm starts back out of the activity so the process
+# stays up and only the activity is created again. For each run it records TotalTime from
+# am start -W (first frame) and the time to reportFullyDrawn (first list on screen) from
+# logcat, then prints the median and worst of each.
+
+set -e
+
+PACKAGE=com.example.android.guardiantech
+ACTIVITY=$PACKAGE/.MainActivity
+RUNS=${1:-10}
+ADB=${ADB:-adb}
+
+# Milliseconds of the last "Fully drawn" line, logged as +850ms or +1s234ms
+fully_drawn() {
+    $ADB logcat -d -s ActivityManager:I ActivityTaskManager:I \
+        | grep "Fully drawn $ACTIVITY" | tail -n 1 \
+        | sed -n 's/.*: +\([0-9sm]*\)ms.*/\1/p' \
+        | awk -F s '{ if (NF == 2) print $1 * 1000 + $2; else print $1 }'
+}
+
+launch() {
+    $ADB logcat -c
+    total=$($ADB shell am start -W -n "$ACTIVITY" | tr -d '\r' | sed -n 's/^TotalTime: //p')
+    drawn=""
+    tries=0
+    while [ -z "$drawn" ] && [ $tries -lt 20 ]; do
+        sleep 0.5
+        drawn=$(fully_drawn)
+        tries=$((tries + 1))
+    done
+    echo "$total ${drawn:-0}"
+}
+
+summary() {
+    sort -n | awk -v name="$1" '{ v[NR] = $1 } END { printf "%-22s median %5d ms   max %5d ms\n", name, v[int((NR + 1) / 2)], v[NR] }'
+}
+
+COLD=$(mktemp)
+WARM=$(mktemp)
+trap 'rm -f "$COLD" "$WARM"' EXIT
+
+i=0
+while [ $i -lt "$RUNS" ]; do
+    $ADB shell am force-stop $PACKAGE
+    sleep 1
+    launch >> "$COLD"
+
+    # Back out so the next start creates the activity in the running process
+    $ADB shell input keyevent KEYCODE_BACK
+    sleep 1
+    launch >> "$WARM"
+    $ADB shell input keyevent KEYCODE_BACK
+    i=$((i + 1))
+done
+
+echo "$RUNS runs"
+cut -d ' ' -f 1 "$COLD" | summary "cold first frame"
+cut -d ' ' -f 2 "$COLD" | summary "cold fully drawn"
+cut -d ' ' -f 1 "$WARM" | summary "warm first frame"
+cut -d ' ' -f 2 "$WARM" | summary "warm fully drawn"
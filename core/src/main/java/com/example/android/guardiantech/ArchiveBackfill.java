@@ -0,0 +1,504 @@
+package com.example.android.guardiantech;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches every article of some sections published over a range of dates into an
+ * {@link ArticleArchive}, headless, e.g. to seed article stores and search indexes with months
+ * of history.
+ *
+ * The range is cut into slices of {@link Builder#sliceDays(int) a few days} per section. The
+ * first page of each slice says how many more it has, and those are fetched next; all of them
+ * by a pool of workers that share one {@link RateLimiter}, so more workers means more pages in
+ * flight until the limit is what holds them back. Only the coordinating thread, the one that
+ * calls {@link #run(CancellationToken)}, writes: pages go into the archive as they arrive,
+ * and about once a second the archive is synced and the {@link BackfillCheckpoint} saved.
+ *
+ * Running it again with the same settings resumes from the checkpoint: pages already in the
+ * archive are skipped and pages written after the last save are cut off and fetched again.
+ * An archive shorter than its checkpoint says is refused; delete the checkpoint to start over.
+ * Pages that fail, after the transport's own retries, are left for the next run.
+ *
+ * From the command line, see {@link #main(String[])} or the core module's backfill task.
+ */
+public final class ArchiveBackfill {
+
+    private static final String LOG_TAG = ArchiveBackfill.class.getName();
+
+    public static final int DEFAULT_SLICE_DAYS = 7;
+    public static final int DEFAULT_CONCURRENCY = 4;
+    /** A little under the 12 calls a second a Guardian developer key allows */
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 10;
+    private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /** Failed requests in a row, across all workers, before the default transport backs off */
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MILLIS = 30000;
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /** Told about each page as it goes into the archive, on the coordinating thread. */
+    public interface Listener {
+        void onPage(String slice, int page, int pages, int articles);
+    }
+
+    private final QueryConfig config;
+    private final String[] sections;
+    private final long fromMillis;
+    private final long toMillis;
+    private final long sliceMillis;
+    private final int concurrency;
+    private final RateLimiter rateLimiter;
+    private final HttpTransport transport;
+    private final File archive;
+    private final File checkpoint;
+    private final Listener listener;
+
+    private ArchiveBackfill(Builder builder) {
+        this.config = builder.config;
+        this.sections = builder.sections;
+        this.fromMillis = builder.fromMillis;
+        this.toMillis = builder.toMillis;
+        this.sliceMillis = builder.sliceDays * DAY_MILLIS;
+        this.concurrency = builder.concurrency;
+        this.rateLimiter = new RateLimiter(builder.requestsPerSecond);
+        this.transport = builder.transport != null ? builder.transport : newDefaultTransport();
+        this.archive = builder.archive;
+        this.checkpoint = builder.checkpoint != null ? builder.checkpoint
+                : new File(builder.archive.getPath() + ".checkpoint");
+        this.listener = builder.listener;
+    }
+
+    /**
+     * What this run fetches. A checkpoint is only resumed by a run with the same key.
+     */
+    public String getRunKey() {
+        return String.format(Locale.US, "%s %s %s..%s by %dd, %d a page%s", config.getBaseUrl(),
+                Arrays.toString(sections), ArticleDateFormatter.formatIso(fromMillis),
+                ArticleDateFormatter.formatIso(toMillis), sliceMillis / DAY_MILLIS, config.getPageSize(),
+                config.hasBodies() ? ", bodies" : "");
+    }
+
+    /**
+     * Fetch whatever the archive is missing, until done or the token is cancelled. Pages
+     * already being fetched when it is cancelled are still written.
+     *
+     * @param token may be null
+     */
+    public Result run(CancellationToken token) throws IOException {
+        long start = System.nanoTime();
+        BackfillCheckpoint progress = BackfillCheckpoint.load(checkpoint, getRunKey());
+        ArticleArchive.Writer writer = ArticleArchive.append(archive, progress.getArchiveLength());
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        CompletionService<PageResult> completion = new ExecutorCompletionService<>(workers);
+        Result result = new Result();
+        int inFlight = 0;
+        try {
+            for (String section : sections) {
+                for (long sliceStart = fromMillis; sliceStart < toMillis; sliceStart += sliceMillis) {
+                    Slice slice = new Slice(section, sliceStart, Math.min(sliceStart + sliceMillis, toMillis));
+                    if (progress.isComplete(slice.key)) {
+                        continue;
+                    }
+                    // Page 1 is done whenever the page count is known, the rest are fetched below
+                    int pages = progress.getPages(slice.key);
+                    inFlight += submit(completion, slice, pages == ArticlePage.UNKNOWN ? 1 : 2,
+                            Math.max(pages, 1), progress, token);
+                }
+            }
+
+            long lastSaved = System.nanoTime();
+            while (inFlight > 0) {
+                PageResult page = take(completion);
+                inFlight--;
+                if (page.articles == null) {
+                    if (!page.cancelled) {
+                        result.failedPages++;
+                    }
+                    continue;
+                }
+                long length = page.articles.isEmpty() ? writer.length() : writer.append(page.articles);
+                progress.markDone(page.slice.key, page.page, page.pages, length);
+                result.pages++;
+                result.articles += page.articles.size();
+                if (listener != null) {
+                    listener.onPage(page.slice.key, page.page, page.pages, page.articles.size());
+                }
+                if (page.page == 1) {
+                    inFlight += submit(completion, page.slice, 2, page.pages, progress, token);
+                }
+                if (System.nanoTime() - lastSaved >= CHECKPOINT_INTERVAL_NANOS) {
+                    commit(writer, progress);
+                    lastSaved = System.nanoTime();
+                }
+            }
+            commit(writer, progress);
+        } finally {
+            workers.shutdownNow();
+            writer.close();
+        }
+        result.cancelled = token != null && token.isCancelled();
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /** Queue the pages of the slice in the range that aren't in the archive yet. */
+    private int submit(CompletionService<PageResult> completion, final Slice slice, int from, int to,
+                       BackfillCheckpoint progress, final CancellationToken token) {
+        int submitted = 0;
+        for (int page = from; page <= to; page++) {
+            if (progress.isDone(slice.key, page)) {
+                continue;
+            }
+            final int number = page;
+            completion.submit(new Callable<PageResult>() {
+                @Override
+                public PageResult call() {
+                    return fetch(slice, number, token);
+                }
+            });
+            submitted++;
+        }
+        return submitted;
+    }
+
+    /** Runs on a worker. */
+    private PageResult fetch(Slice slice, int page, CancellationToken token) {
+        if (token != null && token.isCancelled()) {
+            return new PageResult(slice, page, null, ArticlePage.UNKNOWN, true);
+        }
+        try {
+            rateLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new PageResult(slice, page, null, ArticlePage.UNKNOWN, true);
+        }
+        GuardianQuery query = config.range(slice.section, slice.fromMillis, slice.toMillis, page);
+        // The token holds one cancel action, and several fetches are in flight, so each runs
+        // to the transport's own timeouts
+        FetchResult fetched = QueryUtils.fetchArticleData(transport, query.getUrl(), null, null, null);
+        if (fetched.getStatus() != FetchResult.STATUS_OK) {
+            CoreLog.e(LOG_TAG, "Failed to fetch " + slice.key + " page " + page);
+            return new PageResult(slice, page, null, ArticlePage.UNKNOWN, false);
+        }
+        // An empty slice reports no pages at all, it is complete with its first
+        int pages = Math.max(fetched.getPages(), 1);
+        return new PageResult(slice, page, fetched.getArticles(), pages, false);
+    }
+
+    private static PageResult take(CompletionService<PageResult> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Fetch failed", e.getCause());
+        }
+    }
+
+    private static HttpTransport newDefaultTransport() {
+        return new ResilientTransport(new UrlConnectionTransport(), RetryPolicy.DEFAULT,
+                new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS));
+    }
+
+    /** Make the written pages durable, then record them as done. */
+    private static void commit(ArticleArchive.Writer writer, BackfillCheckpoint progress) throws IOException {
+        writer.sync();
+        progress.save();
+    }
+
+    /** One section over one stretch of dates. */
+    private static final class Slice {
+        final String section;
+        final long fromMillis;
+        final long toMillis;
+        final String key;
+
+        Slice(String section, long fromMillis, long toMillis) {
+            this.section = section;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.key = section + "/" + ArticleDateFormatter.formatIso(fromMillis);
+        }
+    }
+
+    private static final class PageResult {
+        final Slice slice;
+        final int page;
+        /** Null if the page wasn't fetched */
+        final List<Article> articles;
+        final int pages;
+        final boolean cancelled;
+
+        PageResult(Slice slice, int page, List<Article> articles, int pages, boolean cancelled) {
+            this.slice = slice;
+            this.page = page;
+            this.articles = articles;
+            this.pages = pages;
+            this.cancelled = cancelled;
+        }
+    }
+
+    /** What one run added to the archive. */
+    public static final class Result {
+        private int pages;
+        private int articles;
+        private int failedPages;
+        private boolean cancelled;
+        private long elapsedNanos;
+
+        public int getPages() {
+            return pages;
+        }
+
+        public int getArticles() {
+            return articles;
+        }
+
+        /** Pages that couldn't be fetched, left for the next run. */
+        public int getFailedPages() {
+            return failedPages;
+        }
+
+        /** Whether the archive now holds the whole range. */
+        public boolean isComplete() {
+            return failedPages == 0 && !cancelled;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getArticlesPerSecond() {
+            return elapsedNanos == 0 ? 0 : articles * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d articles in %d pages, %d failed, %.1fs, %.0f articles/s%s",
+                    articles, pages, failedPages, elapsedNanos / 1e9, getArticlesPerSecond(),
+                    cancelled ? ", cancelled" : "");
+        }
+    }
+
+    public static final class Builder {
+        private final QueryConfig config;
+        private final File archive;
+        private String[] sections = {"technology"};
+        private long fromMillis;
+        private long toMillis;
+        private int sliceDays = DEFAULT_SLICE_DAYS;
+        private int concurrency = DEFAULT_CONCURRENCY;
+        private double requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+        private HttpTransport transport;
+        private File checkpoint;
+        private Listener listener;
+
+        /**
+         * @param config endpoint, key, page size and fields of every request
+         */
+        public Builder(QueryConfig config, File archive) {
+            this.config = config;
+            this.archive = archive;
+        }
+
+        public Builder sections(String... sections) {
+            if (sections.length == 0) {
+                throw new IllegalArgumentException("No sections");
+            }
+            this.sections = sections.clone();
+            return this;
+        }
+
+        /** Articles published from fromMillis up to toMillis. */
+        public Builder range(long fromMillis, long toMillis) {
+            if (toMillis <= fromMillis) {
+                throw new IllegalArgumentException("Empty range");
+            }
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            return this;
+        }
+
+        public Builder sliceDays(int days) {
+            if (days < 1) {
+                throw new IllegalArgumentException("Bad slice " + days);
+            }
+            this.sliceDays = days;
+            return this;
+        }
+
+        /** Requests in flight at once. */
+        public Builder concurrency(int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("Bad concurrency " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /** Limit on requests a second across all workers, 0 for none. */
+        public Builder requestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        /**
+         * By default a retrying transport with a circuit breaker of its own, so a backfill's
+         * failures don't trip the breaker the app's feeds go through, nor theirs stop it.
+         */
+        public Builder transport(HttpTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /** Where progress is saved, the archive's path plus ".checkpoint" by default. */
+        public Builder checkpoint(File checkpoint) {
+            this.checkpoint = checkpoint;
+            return this;
+        }
+
+        public Builder listener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public ArchiveBackfill build() {
+            if (toMillis <= fromMillis) {
+                throw new IllegalStateException("No range set");
+            }
+            return new ArchiveBackfill(this);
+        }
+    }
+
+    /**
+     * Backfill from the command line. Dates are UTC days, both included:
+     * <pre>
+     *   --from 2018-01-01 --to 2018-06-30 --out archive.gtba
+     *   [--section technology,science] [--slice-days 7] [--page-size 200]
+     *   [--concurrency 4] [--rate 10] [--api-key test] [--url https://...] [--bodies] [--verbose]
+     * </pre>
+     * Exits with 1 if any page failed; run the same command again to fetch what is missing.
+     */
+    public static void main(String[] args) throws IOException {
+        String from = null;
+        String to = null;
+        String out = null;
+        String[] sections = {"technology"};
+        int sliceDays = DEFAULT_SLICE_DAYS;
+        int pageSize = GuardianQuery.MAX_PAGE_SIZE;
+        int concurrency = DEFAULT_CONCURRENCY;
+        double rate = DEFAULT_REQUESTS_PER_SECOND;
+        String apiKey = QueryConfig.DEFAULT_API_KEY;
+        String url = QueryConfig.GUARDIAN_SEARCH_URL;
+        boolean bodies = false;
+        boolean verbose = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--bodies":
+                    bodies = true;
+                    continue;
+                case "--verbose":
+                    verbose = true;
+                    continue;
+                default:
+                    break;
+            }
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--from":
+                    from = value;
+                    break;
+                case "--to":
+                    to = value;
+                    break;
+                case "--out":
+                    out = value;
+                    break;
+                case "--section":
+                    sections = value.split(",");
+                    break;
+                case "--slice-days":
+                    sliceDays = Integer.parseInt(value);
+                    break;
+                case "--page-size":
+                    pageSize = Integer.parseInt(value);
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(value);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(value);
+                    break;
+                case "--api-key":
+                    apiKey = value;
+                    break;
+                case "--url":
+                    url = value;
+                    break;
+                default:
+                    usage("Unknown option " + arg);
+            }
+        }
+        if (from == null || to == null || out == null) {
+            usage("--from, --to and --out are needed");
+        }
+        if (!verbose) {
+            // Every request logs at info, too much for thousands of them
+            Logger.getLogger("").setLevel(Level.WARNING);
+        }
+
+        QueryConfig config = new QueryConfig(url, apiKey, pageSize, GuardianQuery.ORDER_OLDEST).withBodies(bodies);
+        ArchiveBackfill backfill = new Builder(config, new File(out))
+                .sections(sections)
+                .range(parseDay(from), parseDay(to) + DAY_MILLIS)
+                .sliceDays(sliceDays)
+                .concurrency(concurrency)
+                .requestsPerSecond(rate)
+                .listener(new Listener() {
+                    @Override
+                    public void onPage(String slice, int page, int pages, int articles) {
+                        System.out.println(slice + " page " + page + "/" + pages + ": " + articles + " articles");
+                    }
+                })
+                .build();
+        Result result = backfill.run(null);
+        System.out.println(result);
+        if (!result.isComplete()) {
+            System.exit(1);
+        }
+    }
+
+    private static long parseDay(String day) {
+        long millis = ArticleDateFormatter.parse(day + "T00:00:00Z");
+        if (millis == ArticleDateFormatter.UNKNOWN) {
+            usage("Bad date " + day + ", expected yyyy-mm-dd");
+        }
+        return millis;
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: ArchiveBackfill --from yyyy-mm-dd --to yyyy-mm-dd --out FILE"
+                + " [--section a,b] [--slice-days N] [--page-size N] [--concurrency N] [--rate N]"
+                + " [--api-key KEY] [--url URL] [--bodies] [--verbose]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.android.guardiantech;
+
+/**
+ * One article in the feed. Immutable.
+ *
+ * Kept compact because thousands are held at once: section and author names are shared through
+ * a pool, the publication date is held as epoch millis (the API string is only kept when it
+ * can't be parsed), and a stable 64-bit id is derived from webUrl for cheap identity checks.
+ */
+public final class Article {
+
+    /** Sections and authors repeat across nearly every article */
+    private static final StringPool NAMES = new StringPool(4096);
+
+    private final String headline;
+    private final String thumbnail;
+    private final String author;
+    private final String webUrl;
+    private final String category;
+    /** webPublicationDate parsed once here, off the UI thread, so binding never parses */
+    private final long publishedAtMillis;
+    /** The API date as given, only when it couldn't be parsed */
+    private final String unparsedDate;
+    private final long id;
+
+    public Article (String headline, String thumbnail, String author, String webUrl,
+                    String category, String webPublicationDate) {
+        this.headline = headline;
+        this.thumbnail = thumbnail;
+        this.author = NAMES.intern(author);
+        this.webUrl = webUrl;
+        this.category = NAMES.intern(category);
+        this.publishedAtMillis = ArticleDateFormatter.parse(webPublicationDate);
+        this.unparsedDate = publishedAtMillis == ArticleDateFormatter.UNKNOWN ? webPublicationDate : null;
+        this.id = idFor(webUrl);
+    }
+
+    /**
+     * For {@link ArticleCodec}, which already has the date in millis.
+     */
+    Article(String headline, String thumbnail, String author, String webUrl, String category,
+            long publishedAtMillis, String unparsedDate) {
+        this.headline = headline;
+        this.thumbnail = thumbnail;
+        this.author = NAMES.intern(author);
+        this.webUrl = webUrl;
+        this.category = NAMES.intern(category);
+        this.publishedAtMillis = publishedAtMillis;
+        this.unparsedDate = publishedAtMillis == ArticleDateFormatter.UNKNOWN ? unparsedDate : null;
+        this.id = idFor(webUrl);
+    }
+
+    public String getHeadline() {
+        return headline;
+    }
+
+    public String getThumbnail() {
+        return thumbnail;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getWebUrl() {
+        return webUrl;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * The date as the API gives it, e.g. "2018-05-20T09:00:00Z". Built on each call,
+     * prefer {@link #getPublishedAtMillis()}.
+     */
+    public String getWebPublicationDate() {
+        if (publishedAtMillis == ArticleDateFormatter.UNKNOWN) {
+            return unparsedDate;
+        }
+        return ArticleDateFormatter.formatIso(publishedAtMillis);
+    }
+
+    /**
+     * Publication time in epoch millis, or {@link ArticleDateFormatter#UNKNOWN}
+     */
+    public long getPublishedAtMillis() {
+        return publishedAtMillis;
+    }
+
+    /**
+     * Stable id derived from webUrl, the same across runs and app versions.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters of the URL. String.hashCode is only 32 bits,
+     * which collides too easily across a large store.
+     */
+    static long idFor(String webUrl) {
+        if (webUrl == null) {
+            return 0;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < webUrl.length(); i++) {
+            char c = webUrl.charAt(i);
+            hash ^= c & 0xff;
+            hash *= 0x100000001b3L;
+            hash ^= c >>> 8;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Two articles are equal when every field matches, so a refreshed list can be
+     * compared against the cached one.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Article)) {
+            return false;
+        }
+        Article other = (Article) o;
+        return id == other.id
+                && publishedAtMillis == other.publishedAtMillis
+                && same(headline, other.headline)
+                && same(thumbnail, other.thumbnail)
+                && same(author, other.author)
+                && same(webUrl, other.webUrl)
+                && same(category, other.category)
+                && same(unparsedDate, other.unparsedDate);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hash(headline);
+        result = 31 * result + hash(thumbnail);
+        result = 31 * result + hash(author);
+        result = 31 * result + (int) (id ^ (id >>> 32));
+        result = 31 * result + hash(category);
+        result = 31 * result + (int) (publishedAtMillis ^ (publishedAtMillis >>> 32));
+        result = 31 * result + hash(unparsedDate);
+        return result;
+    }
+
+    // java.util.Objects needs API 19, we support 15
+    private static boolean same(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static int hash(String s) {
+        return s == null ? 0 : s.hashCode();
+    }
+}
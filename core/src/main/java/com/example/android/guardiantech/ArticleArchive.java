@@ -0,0 +1,168 @@
+package com.example.android.guardiantech;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of pages of articles, the output of {@link ArchiveBackfill}, to be read
+ * back into an {@link ArticleIndex} or the app's article store.
+ *
+ * Layout: int magic "GTBA" and a version byte, then one record per page: int length, int
+ * CRC32 of the payload, and the page in {@link ArticleCodec} form, about 150 bytes an article.
+ * Each record is written with a single write, so a crash leaves at most one torn record at
+ * the end; readers stop there, and a writer told how much was committed cuts it off.
+ */
+public final class ArticleArchive {
+
+    private static final String LOG_TAG = ArticleArchive.class.getName();
+
+    private static final int MAGIC = 0x47544241; // "GTBA"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 5;
+    /** Larger records are taken as corrupt rather than allocated */
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    /** Told about each page read back. */
+    public interface Visitor {
+        void onPage(List<Article> articles);
+    }
+
+    private ArticleArchive() {
+    }
+
+    /**
+     * Open the file for appending after its first validLength bytes, dropping anything beyond
+     * them. A validLength of 0 starts a new archive. A file shorter than validLength has lost
+     * pages its checkpoint says are written, so it is refused rather than started over.
+     */
+    public static Writer append(File file, long validLength) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < validLength) {
+                throw new IOException("Archive is " + raf.length() + " bytes, its checkpoint says "
+                        + validLength + ": " + file);
+            }
+            if (validLength < HEADER_BYTES) {
+                raf.setLength(0);
+                raf.writeInt(MAGIC);
+                raf.writeByte(VERSION);
+            } else {
+                raf.seek(0);
+                if (raf.readInt() != MAGIC || raf.readByte() != VERSION) {
+                    throw new IOException("Not an archive: " + file);
+                }
+                raf.setLength(validLength);
+                raf.seek(validLength);
+            }
+            return new Writer(raf);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read every complete page in order. Returns the number of articles read.
+     */
+    public static int read(File file, Visitor visitor) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not an archive: " + file);
+            }
+            int count = 0;
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload = readRecord(in, crc);
+                if (payload == null) {
+                    return count;
+                }
+                List<Article> articles = ArticleCodec.decode(payload);
+                count += articles.size();
+                visitor.onPage(articles);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /** The next record's payload, or null at the end or a torn or damaged record. */
+    private static byte[] readRecord(DataInputStream in, CRC32 crc) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 0 || length > MAX_RECORD_BYTES) {
+                CoreLog.e(LOG_TAG, "Bad record length " + length + ", stopping");
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                CoreLog.e(LOG_TAG, "Bad record checksum, stopping");
+                return null;
+            }
+            return payload;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Appends pages to an archive. Not thread-safe, one thread writes.
+     */
+    public static final class Writer implements Closeable {
+
+        private final RandomAccessFile raf;
+        private final CRC32 crc = new CRC32();
+
+        private Writer(RandomAccessFile raf) {
+            this.raf = raf;
+        }
+
+        /**
+         * Write one page. Returns the archive's length once it is written, to commit it with.
+         */
+        public long append(List<Article> articles) throws IOException {
+            byte[] payload = ArticleCodec.encode(articles);
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            byte[] record = new byte[8 + payload.length];
+            putInt(record, 0, payload.length);
+            putInt(record, 4, (int) crc.getValue());
+            System.arraycopy(payload, 0, record, 8, payload.length);
+            raf.write(record);
+            return raf.getFilePointer();
+        }
+
+        public long length() throws IOException {
+            return raf.getFilePointer();
+        }
+
+        /** Make what is written so far survive a crash. */
+        public void sync() throws IOException {
+            raf.getFD().sync();
+        }
+
+        @Override
+        public void close() throws IOException {
+            raf.close();
+        }
+
+        private static void putInt(byte[] bytes, int offset, int value) {
+            bytes[offset] = (byte) (value >>> 24);
+            bytes[offset + 1] = (byte) (value >>> 16);
+            bytes[offset + 2] = (byte) (value >>> 8);
+            bytes[offset + 3] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.android.guardiantech;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, versioned binary form of a list of articles, for the store and for handing lists
+ * across process or lifecycle boundaries.
+ *
+ * Layout, all integers as unsigned LEB128 varints unless noted:
+ * <pre>
+ *   int magic "GTAC" (big-endian), byte version
+ *   count of names, then each name as a string
+ *   count of articles, then for each:
+ *     zigzag delta of publishedAtMillis from the previous article (lists are newest first)
+ *     section and author as index + 1 into the names, 0 for null
+ *     headline as a string
+ *     thumbnail and webUrl as index of a known prefix, then the rest as a string
+ *     the unparsed date as a string, only when publishedAtMillis is UNKNOWN
+ * </pre>
+ * Strings are length + 1 followed by UTF-8, with 0 for null. The article id isn't stored,
+ * it is derived from webUrl on read.
+ *
+ * Encoding and decoding work on one growable byte array and one char array, so the only
+ * allocations per article are its strings and the Article itself.
+ */
+public final class ArticleCodec {
+
+    private static final int MAGIC = 0x47544143; // "GTAC"
+    static final int VERSION = 1;
+
+    /** Prefixes nearly every URL starts with. Append only, indexes are part of the format. */
+    private static final String[] PREFIXES = {
+            "",
+            "https://www.theguardian.com/",
+            "https://media.guim.co.uk/",
+            "https://i.guim.co.uk/img/media/",
+    };
+
+    private ArticleCodec() {
+    }
+
+    public static byte[] encode(List<Article> articles) {
+        Output out = new Output(64 + articles.size() * 160);
+        write(out, articles);
+        return out.toByteArray();
+    }
+
+    public static void write(List<Article> articles, OutputStream stream) throws IOException {
+        Output out = new Output(64 + articles.size() * 160);
+        write(out, articles);
+        stream.write(out.buffer, 0, out.size);
+    }
+
+    public static List<Article> decode(byte[] bytes) throws IOException {
+        return read(new Input(bytes, bytes.length));
+    }
+
+    /**
+     * Read a list written by {@link #write(List, OutputStream)}. Reads the stream to its end.
+     */
+    public static List<Article> read(InputStream stream) throws IOException {
+        byte[] buffer = new byte[8192];
+        int size = 0;
+        int read;
+        while ((read = stream.read(buffer, size, buffer.length - size)) != -1) {
+            size += read;
+            if (size == buffer.length) {
+                byte[] bigger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, bigger, 0, size);
+                buffer = bigger;
+            }
+        }
+        return read(new Input(buffer, size));
+    }
+
+    private static void write(Output out, List<Article> articles) {
+        // Names first, in order of first use
+        Map<String, Integer> names = new HashMap<>();
+        List<String> nameList = new ArrayList<>();
+        for (Article article : articles) {
+            addName(names, nameList, article.getCategory());
+            addName(names, nameList, article.getAuthor());
+        }
+
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeVarLong(nameList.size());
+        for (String name : nameList) {
+            out.writeString(name);
+        }
+
+        out.writeVarLong(articles.size());
+        long previous = 0;
+        for (Article article : articles) {
+            long published = article.getPublishedAtMillis();
+            out.writeVarLong(zigzag(published - previous));
+            previous = published;
+            out.writeVarLong(nameIndex(names, article.getCategory()));
+            out.writeVarLong(nameIndex(names, article.getAuthor()));
+            out.writeString(article.getHeadline());
+            writeUrl(out, article.getThumbnail());
+            writeUrl(out, article.getWebUrl());
+            if (published == ArticleDateFormatter.UNKNOWN) {
+                out.writeString(article.getWebPublicationDate());
+            }
+        }
+    }
+
+    private static List<Article> read(Input in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an article list");
+        }
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported article list version " + version);
+        }
+        int nameCount = in.readSize();
+        String[] names = new String[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            names[i] = in.readString();
+        }
+
+        int count = in.readSize();
+        List<Article> articles = new ArrayList<>(count);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long published = previous + unzigzag(in.readVarLong());
+            previous = published;
+            String category = name(names, in.readCount());
+            String author = name(names, in.readCount());
+            String headline = in.readString();
+            String thumbnail = readUrl(in);
+            String webUrl = readUrl(in);
+            String unparsedDate = published == ArticleDateFormatter.UNKNOWN ? in.readString() : null;
+            articles.add(new Article(headline, thumbnail, author, webUrl, category, published, unparsedDate));
+        }
+        return articles;
+    }
+
+    private static void addName(Map<String, Integer> names, List<String> nameList, String name) {
+        if (name != null && !names.containsKey(name)) {
+            names.put(name, nameList.size());
+            nameList.add(name);
+        }
+    }
+
+    private static int nameIndex(Map<String, Integer> names, String name) {
+        return name == null ? 0 : names.get(name) + 1;
+    }
+
+    private static String name(String[] names, int index) throws IOException {
+        if (index == 0) {
+            return null;
+        }
+        if (index > names.length) {
+            throw new IOException("Bad name index " + index);
+        }
+        return names[index - 1];
+    }
+
+    private static void writeUrl(Output out, String url) {
+        int prefix = 0;
+        if (url != null) {
+            for (int i = 1; i < PREFIXES.length; i++) {
+                if (url.startsWith(PREFIXES[i])) {
+                    prefix = i;
+                    break;
+                }
+            }
+        }
+        out.writeVarLong(prefix);
+        out.writeString(url, PREFIXES[prefix].length());
+    }
+
+    private static String readUrl(Input in) throws IOException {
+        int prefix = in.readCount();
+        if (prefix >= PREFIXES.length) {
+            throw new IOException("Bad URL prefix " + prefix);
+        }
+        return in.readString(PREFIXES[prefix]);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Growable byte array with varint and UTF-8 writers. */
+    private static final class Output {
+
+        byte[] buffer;
+        int size;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                byte[] bigger = new byte[Math.max(buffer.length * 2, size + extra)];
+                System.arraycopy(buffer, 0, bigger, 0, size);
+                buffer = bigger;
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            buffer[size++] = (byte) (value >>> 24);
+            buffer[size++] = (byte) (value >>> 16);
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            writeString(value, 0);
+        }
+
+        /** Write the string from the given offset, as its UTF-8 length + 1 and the bytes. */
+        void writeString(String value, int start) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            int length = utf8Length(value, start);
+            writeVarLong(length + 1);
+            ensure(length);
+            for (int i = start; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[size++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[size++] = (byte) (0xC0 | (c >> 6));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    buffer[size++] = (byte) (0xE0 | (c >> 12));
+                    buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private static int utf8Length(String value, int start) {
+            int length = 0;
+            for (int i = start; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    length++;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = new byte[size];
+            System.arraycopy(buffer, 0, bytes, 0, size);
+            return bytes;
+        }
+    }
+
+    /** Reader over a byte array, decoding strings through one reused char array. */
+    private static final class Input {
+
+        private final byte[] buffer;
+        private final int limit;
+        private int position;
+        private char[] chars = new char[256];
+
+        Input(byte[] buffer, int limit) {
+            this.buffer = buffer;
+            this.limit = limit;
+        }
+
+        private void require(int count) throws IOException {
+            if (count < 0 || position + count > limit) {
+                throw new EOFException();
+            }
+        }
+
+        int readByte() throws IOException {
+            require(1);
+            return buffer[position++] & 0xFF;
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            return (buffer[position++] & 0xFF) << 24 | (buffer[position++] & 0xFF) << 16
+                    | (buffer[position++] & 0xFF) << 8 | (buffer[position++] & 0xFF);
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        /** A varint used as a count or index, which must fit an int. */
+        int readCount() throws IOException {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Count out of range " + value);
+            }
+            return (int) value;
+        }
+
+        /**
+         * The number of items in a list, each at least a byte, so no more than the bytes left.
+         * Keeps a damaged count from allocating more than the input could hold.
+         */
+        int readSize() throws IOException {
+            int count = readCount();
+            if (count > limit - position) {
+                throw new IOException("Size " + count + " beyond the data");
+            }
+            return count;
+        }
+
+        String readString() throws IOException {
+            return readString("");
+        }
+
+        /** Read a string, returning it with the prefix in front, or null. */
+        String readString(String prefix) throws IOException {
+            int length = readCount() - 1;
+            if (length < 0) {
+                return null;
+            }
+            require(length);
+            int needed = prefix.length() + length;
+            if (chars.length < needed) {
+                chars = new char[Math.max(needed, chars.length * 2)];
+            }
+            prefix.getChars(0, prefix.length(), chars, 0);
+            int count = prefix.length();
+            int end = position + length;
+            while (position < end) {
+                int b = buffer[position++] & 0xFF;
+                if (b < 0x80) {
+                    chars[count++] = (char) b;
+                } else if (b < 0xE0) {
+                    chars[count++] = (char) (((b & 0x1F) << 6) | (next(end) & 0x3F));
+                } else if (b < 0xF0) {
+                    chars[count++] = (char) (((b & 0x0F) << 12) | ((next(end) & 0x3F) << 6) | (next(end) & 0x3F));
+                } else {
+                    int codePoint = ((b & 0x07) << 18) | ((next(end) & 0x3F) << 12)
+                            | ((next(end) & 0x3F) << 6) | (next(end) & 0x3F);
+                    // Character.highSurrogate/lowSurrogate need API 19
+                    codePoint -= 0x10000;
+                    chars[count++] = (char) ((codePoint >>> 10) + 0xD800);
+                    chars[count++] = (char) ((codePoint & 0x3FF) + 0xDC00);
+                }
+            }
+            return new String(chars, 0, count);
+        }
+
+        private int next(int end) throws IOException {
+            if (position >= end) {
+                throw new IOException("Truncated UTF-8");
+            }
+            return buffer[position++];
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.android.guardiantech;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses Guardian publication dates once, when an {@link Article} is built, and formats them
+ * for display without allocating on the bind path.
+ *
+ * Dates within the last day are shown relative ("5m ago", "3h ago"), older ones as dd-MM-yyyy.
+ * Formatted strings are cached: one per calendar day and one per minute/hour bucket.
+ * The caches only ever hold immutable entries, so an instance can be shared between threads.
+ */
+public final class ArticleDateFormatter {
+
+    /** Stored on an Article whose date could not be parsed. */
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    // Direct-mapped, a screenful of articles spans only a few days
+    private static final int DAY_CACHE_SIZE = 64;
+
+    private final TimeZone timeZone;
+    private final Locale locale;
+    private final String justNow;
+    private final String minutesAgoFormat;
+    private final String hoursAgoFormat;
+
+    private final DayEntry[] dayCache = new DayEntry[DAY_CACHE_SIZE];
+    private final String[] minutesAgo = new String[60];
+    private final String[] hoursAgo = new String[24];
+
+    private static final class DayEntry {
+        final long epochDay;
+        final String text;
+
+        DayEntry(long epochDay, String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+
+    /**
+     * @param justNow          shown for dates less than a minute old
+     * @param minutesAgoFormat format with one %d for the minutes, e.g. "%dm ago"
+     * @param hoursAgoFormat   format with one %d for the hours, e.g. "%dh ago"
+     */
+    public ArticleDateFormatter(TimeZone timeZone, Locale locale, String justNow,
+                                String minutesAgoFormat, String hoursAgoFormat) {
+        this.timeZone = timeZone;
+        this.locale = locale;
+        this.justNow = justNow;
+        this.minutesAgoFormat = minutesAgoFormat;
+        this.hoursAgoFormat = hoursAgoFormat;
+    }
+
+    /**
+     * Return the text to display for a publication time, relative to now.
+     * Empty if the time is {@link #UNKNOWN}.
+     */
+    public String format(long publishedAtMillis, long nowMillis) {
+        if (publishedAtMillis == UNKNOWN) {
+            return "";
+        }
+        long age = nowMillis - publishedAtMillis;
+        if (age >= -MINUTE && age < MINUTE) {
+            // Allow a little clock skew for articles "from the future"
+            return justNow;
+        }
+        if (age > 0 && age < HOUR) {
+            int minutes = (int) (age / MINUTE);
+            String text = minutesAgo[minutes];
+            if (text == null) {
+                text = String.format(locale, minutesAgoFormat, minutes);
+                minutesAgo[minutes] = text;
+            }
+            return text;
+        }
+        if (age > 0 && age < DAY) {
+            int hours = (int) (age / HOUR);
+            String text = hoursAgo[hours];
+            if (text == null) {
+                text = String.format(locale, hoursAgoFormat, hours);
+                hoursAgo[hours] = text;
+            }
+            return text;
+        }
+        return formatDay(publishedAtMillis);
+    }
+
+    /**
+     * Return the calendar date of the time in this formatter's time zone, as dd-MM-yyyy.
+     */
+    public String formatDay(long millis) {
+        long local = millis + timeZone.getOffset(millis);
+        long epochDay = floorDiv(local, DAY);
+        int slot = (int) (epochDay & (DAY_CACHE_SIZE - 1));
+        DayEntry entry = dayCache[slot];
+        if (entry == null || entry.epochDay != epochDay) {
+            entry = new DayEntry(epochDay, formatEpochDay(epochDay));
+            dayCache[slot] = entry;
+        }
+        return entry.text;
+    }
+
+    /**
+     * Parse a Guardian webPublicationDate such as "2018-05-20T09:00:00Z" to epoch millis,
+     * or return {@link #UNKNOWN} if it isn't in that form.
+     */
+    public static long parse(String date) {
+        if (date == null || date.length() != 20
+                || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != 'T'
+                || date.charAt(13) != ':' || date.charAt(16) != ':' || date.charAt(19) != 'Z') {
+            return UNKNOWN;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 2);
+        int day = digits(date, 8, 2);
+        int hour = digits(date, 11, 2);
+        int minute = digits(date, 14, 2);
+        int second = digits(date, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return UNKNOWN;
+        }
+        long epochDay = daysFromCivil(year, month, day);
+        return epochDay * DAY + hour * HOUR + minute * MINUTE + second * 1000L;
+    }
+
+    private static int digits(String s, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date.
+     * See http://howardhinnant.github.io/date_algorithms.html
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Format epoch millis in the same form the API uses, "2018-05-20T09:00:00Z", e.g. for the
+     * from-date query parameter. The inverse of {@link #parse(String)}.
+     */
+    public static String formatIso(long millis) {
+        long epochDay = floorDiv(millis, DAY);
+        int[] civil = civilFromDays(epochDay);
+        int secondOfDay = (int) ((millis - epochDay * DAY) / 1000);
+
+        char[] text = new char[20];
+        putDigits(text, 0, civil[0], 4);
+        text[4] = '-';
+        putDigits(text, 5, civil[1], 2);
+        text[7] = '-';
+        putDigits(text, 8, civil[2], 2);
+        text[10] = 'T';
+        putDigits(text, 11, secondOfDay / 3600, 2);
+        text[13] = ':';
+        putDigits(text, 14, secondOfDay / 60 % 60, 2);
+        text[16] = ':';
+        putDigits(text, 17, secondOfDay % 60, 2);
+        text[19] = 'Z';
+        return new String(text);
+    }
+
+    private static String formatEpochDay(long epochDay) {
+        int[] civil = civilFromDays(epochDay);
+        char[] text = new char[10];
+        putDigits(text, 0, civil[2], 2);
+        text[2] = '-';
+        putDigits(text, 3, civil[1], 2);
+        text[5] = '-';
+        putDigits(text, 6, civil[0], 4);
+        return new String(text);
+    }
+
+    /**
+     * Year, month and day of a day count since 1970-01-01, the inverse of daysFromCivil.
+     */
+    private static int[] civilFromDays(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[]{year, month, day};
+    }
+
+    private static void putDigits(char[] text, int start, int value, int count) {
+        for (int i = start + count - 1; i >= start; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // Math.floorDiv needs API 24
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x < 0) != (y < 0))) {
+            q--;
+        }
+        return q;
+    }
+}
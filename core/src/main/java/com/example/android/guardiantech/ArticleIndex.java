@@ -0,0 +1,308 @@
+package com.example.android.guardiantech;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over the headline, author and section of every article seen, for
+ * search-as-you-type without going back to the API.
+ *
+ * Each word maps to the documents containing it and which fields it appears in. Every query
+ * word is treated as a prefix and a document must match all of them. Matches score by field
+ * (headline over author over section) with a bonus for whole words; ties go to the newer
+ * article. Re-adding an article that changed replaces it; replaced documents are skipped at
+ * query time and swept out once they make up half the index.
+ *
+ * {@link #trimTo(int)} forgets all but the most recently added articles, for when memory is
+ * short; they come back as they are loaded again.
+ *
+ * Thread safe, all methods synchronize on the index.
+ */
+public class ArticleIndex {
+
+    private static final int FIELD_HEADLINE = 1;
+    private static final int FIELD_AUTHOR = 2;
+    private static final int FIELD_SECTION = 4;
+    private static final int FIELD_BITS = 3;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+
+    private static final int WEIGHT_HEADLINE = 3;
+    private static final int WEIGHT_AUTHOR = 2;
+    private static final int WEIGHT_SECTION = 1;
+    /** A query word that is a whole indexed word counts this many times over a prefix match */
+    private static final int EXACT_BONUS = 2;
+
+    /** Postings per word, sorted so prefixes are a sub-map */
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final List<Article> docs = new ArrayList<>();
+    private final Map<Long, Integer> docById = new HashMap<>();
+    private int deleted;
+
+    // Per-query scratch, indexed by document number and reused between queries
+    private int[] scores = new int[0];
+    private int[] matched = new int[0];
+    private int[] stamps = new int[0];
+    /** Best score of each document for the word being matched */
+    private int[] wordStamps = new int[0];
+    private int[] wordScores = new int[0];
+    private int[] candidates = new int[0];
+    private int stamp;
+
+    /** Document numbers and field bits for one word, packed as docNo << FIELD_BITS | fields */
+    private static final class Postings {
+        int[] entries = new int[4];
+        int size;
+
+        void add(int docNo, int fields) {
+            if (size > 0 && entries[size - 1] >>> FIELD_BITS == docNo) {
+                // Same document again, from another field
+                entries[size - 1] |= fields;
+                return;
+            }
+            if (size == entries.length) {
+                int[] bigger = new int[size * 2];
+                System.arraycopy(entries, 0, bigger, 0, size);
+                entries = bigger;
+            }
+            entries[size++] = docNo << FIELD_BITS | fields;
+        }
+    }
+
+    /**
+     * Index the articles, skipping any already indexed unchanged.
+     */
+    public synchronized void addAll(Collection<Article> articles) {
+        for (Article article : articles) {
+            add(article);
+        }
+        if (deleted > docs.size() / 2) {
+            compact();
+        }
+    }
+
+    private void add(Article article) {
+        Integer existing = docById.get(article.getId());
+        if (existing != null) {
+            if (article.equals(docs.get(existing))) {
+                return;
+            }
+            docs.set(existing, null);
+            deleted++;
+        }
+        int docNo = docs.size();
+        docs.add(article);
+        docById.put(article.getId(), docNo);
+        addField(docNo, article.getHeadline(), FIELD_HEADLINE);
+        addField(docNo, article.getAuthor(), FIELD_AUTHOR);
+        addField(docNo, article.getCategory(), FIELD_SECTION);
+    }
+
+    private void addField(int docNo, String text, int field) {
+        for (String word : tokenize(text)) {
+            Postings postings = terms.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(word, postings);
+            }
+            postings.add(docNo, field);
+        }
+    }
+
+    /** Rebuild without the replaced documents. */
+    private void compact() {
+        rebuild(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Keep at most the given number of articles, the ones added last.
+     */
+    public synchronized void trimTo(int maxArticles) {
+        if (size() > maxArticles) {
+            rebuild(maxArticles);
+            // Sized for the old index, grown again by the next query
+            scores = matched = stamps = wordStamps = wordScores = candidates = new int[0];
+            stamp = 0;
+        }
+    }
+
+    private void rebuild(int maxArticles) {
+        List<Article> live = new ArrayList<>(Math.min(docs.size() - deleted, maxArticles));
+        for (int i = docs.size() - 1; i >= 0 && live.size() < maxArticles; i--) {
+            if (docs.get(i) != null) {
+                live.add(docs.get(i));
+            }
+        }
+        Collections.reverse(live);
+        terms.clear();
+        docs.clear();
+        docById.clear();
+        deleted = 0;
+        for (Article article : live) {
+            add(article);
+        }
+    }
+
+    /** Number of articles currently searchable. */
+    public synchronized int size() {
+        return docs.size() - deleted;
+    }
+
+    /**
+     * Return up to limit articles matching every word of the query as a prefix, best first.
+     * Empty if the query has no words.
+     */
+    public synchronized List<Article> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        ensureScratch();
+        int queryStamp = ++stamp;
+
+        // Documents hit by the first word are the only candidates, later words can only narrow.
+        int candidateCount = 0;
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            int wordStamp = ++stamp;
+            NavigableMap<String, Postings> matches = terms.subMap(word, true, word + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Postings> entry : matches.entrySet()) {
+                boolean exact = entry.getKey().length() == word.length();
+                Postings postings = entry.getValue();
+                for (int i = 0; i < postings.size; i++) {
+                    int docNo = postings.entries[i] >>> FIELD_BITS;
+                    if (docs.get(docNo) == null) {
+                        continue;
+                    }
+                    if (w == 0 && stamps[docNo] != queryStamp) {
+                        stamps[docNo] = queryStamp;
+                        scores[docNo] = 0;
+                        matched[docNo] = 0;
+                        candidates[candidateCount++] = docNo;
+                    } else if (stamps[docNo] != queryStamp || matched[docNo] < w) {
+                        // Missed an earlier word
+                        continue;
+                    }
+                    int score = weight(postings.entries[i] & FIELD_MASK) * (exact ? EXACT_BONUS : 1);
+                    if (wordStamps[docNo] != wordStamp) {
+                        // First match for this word
+                        wordStamps[docNo] = wordStamp;
+                        wordScores[docNo] = score;
+                        matched[docNo]++;
+                        scores[docNo] += score;
+                    } else if (score > wordScores[docNo]) {
+                        // A better match for the same word, e.g. a whole word after a prefix
+                        scores[docNo] += score - wordScores[docNo];
+                        wordScores[docNo] = score;
+                    }
+                }
+            }
+        }
+
+        int wordCount = words.size();
+        Comparator<Integer> worstFirst = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareDocs(a, b);
+            }
+        };
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, worstFirst);
+        for (int c = 0; c < candidateCount; c++) {
+            int docNo = candidates[c];
+            if (matched[docNo] != wordCount
+                    || (top.size() == limit && compareDocs(docNo, top.peek()) <= 0)) {
+                continue;
+            }
+            top.add(docNo);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Article> results = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            results.add(docs.get(top.poll()));
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /** Lower score first, then older first, so the heap drops the worst. */
+    private int compareDocs(int a, int b) {
+        if (scores[a] != scores[b]) {
+            return scores[a] < scores[b] ? -1 : 1;
+        }
+        long x = docs.get(a).getPublishedAtMillis();
+        long y = docs.get(b).getPublishedAtMillis();
+        return x < y ? -1 : (x == y ? 0 : 1);
+    }
+
+    private void ensureScratch() {
+        int size = docs.size();
+        if (scores.length < size) {
+            int capacity = Math.max(size, scores.length * 2);
+            scores = grow(scores, capacity);
+            matched = grow(matched, capacity);
+            stamps = grow(stamps, capacity);
+            wordStamps = grow(wordStamps, capacity);
+            wordScores = grow(wordScores, capacity);
+            candidates = grow(candidates, capacity);
+        }
+        if (stamp > Integer.MAX_VALUE - 1024) {
+            // Start the stamps again before they overflow
+            stamp = 0;
+            Arrays.fill(stamps, 0);
+            Arrays.fill(wordStamps, 0);
+        }
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        int[] bigger = new int[capacity];
+        System.arraycopy(array, 0, bigger, 0, array.length);
+        return bigger;
+    }
+
+    private static int weight(int fields) {
+        if ((fields & FIELD_HEADLINE) != 0) {
+            return WEIGHT_HEADLINE;
+        }
+        if ((fields & FIELD_AUTHOR) != 0) {
+            return WEIGHT_AUTHOR;
+        }
+        return (fields & FIELD_SECTION) != 0 ? WEIGHT_SECTION : 0;
+    }
+
+    /**
+     * Lower-cased runs of letters and digits. Apostrophes inside a word are dropped,
+     * so "Apple's" indexes as "apples".
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if ((c == '\'' || c == '\u2019') && word.length() > 0) {
+                continue;
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.android.guardiantech;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of search results with the paging fields the Guardian API returns alongside them.
+ */
+public final class ArticlePage {
+
+    /** Used when a response doesn't say which page it is. */
+    public static final int UNKNOWN = 0;
+
+    final List<Article> articles = new ArrayList<>();
+    int currentPage = UNKNOWN;
+    int pages = UNKNOWN;
+    /** Body HTML by webUrl, only when the query asked for bodies */
+    final Map<String, String> bodies = new HashMap<>();
+
+    ArticlePage() {
+    }
+
+    public List<Article> getArticles() {
+        return articles;
+    }
+
+    /** 1-based number of this page, or {@link #UNKNOWN}. */
+    public int getCurrentPage() {
+        return currentPage;
+    }
+
+    /** Total number of pages for the query, or {@link #UNKNOWN}. */
+    public int getPages() {
+        return pages;
+    }
+
+    /** Body HTML of the articles by webUrl, empty unless the query asked for bodies. */
+    public Map<String, String> getBodies() {
+        return bodies;
+    }
+}
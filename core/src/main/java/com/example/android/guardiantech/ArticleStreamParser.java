@@ -0,0 +1,284 @@
+package com.example.android.guardiantech;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull parser for Guardian search responses.
+ * Reads response.results[] straight off the stream and skips every field the app does not use,
+ * so the payload never has to be held in memory as a String or a JSONObject tree.
+ * Results match {@link QueryUtils#extractFeatureFromJSON(String)} for the same payload.
+ */
+public final class ArticleStreamParser {
+
+    private static final String LOG_TAG = ArticleStreamParser.class.getName();
+    private static final String TAG_RESPONSE = "response";
+    private static final String TAG_RESULTS = "results";
+    private static final String TAG_CURRENTPAGE = "currentPage";
+    private static final String TAG_PAGES = "pages";
+    private static final String TAG_SECTIONNAME = "sectionName";
+    private static final String TAG_WEBPUBLICATIONDATE = "webPublicationDate";
+    private static final String TAG_WEBURL = "webUrl";
+    private static final String TAG_FIELDS = "fields";
+    private static final String TAG_HEADLINE = "headline";
+    private static final String TAG_THUMBNAIL = "thumbnail";
+    private static final String TAG_BODY = "body";
+    private static final String TAG_TAGS = "tags";
+    private static final String TAG_WEBTITLE = "webTitle";
+
+    /**
+     * Receives each article as soon as its result object has been read.
+     */
+    public interface Listener {
+        void onArticle(Article article);
+    }
+
+    /**
+     * Thrown internally where the JSON parser would throw a JSONException,
+     * i.e. a required value is missing or has the wrong type.
+     */
+    private static final class ResultFormatException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        ResultFormatException(String name) {
+            super("No value for " + name);
+        }
+    }
+
+    private ArticleStreamParser() {
+    }
+
+    /**
+     * Return a list of Article objects read from the given stream,
+     * or null if the stream is null or empty.
+     * A malformed document gives an empty list, the same as the JSON parser.
+     */
+    public static List<Article> parse(InputStream inputStream) {
+        ArticlePage page = parsePage(inputStream);
+        return page != null ? page.getArticles() : null;
+    }
+
+    /**
+     * Like {@link #parse(InputStream)}, but also keeps the paging fields of the response.
+     */
+    public static ArticlePage parsePage(InputStream inputStream) {
+        final ArticlePage page = new ArticlePage();
+        try {
+            boolean hasContent = parse(inputStream, new Listener() {
+                @Override
+                public void onArticle(Article article) {
+                    page.articles.add(article);
+                }
+            }, page);
+            if (!hasContent) {
+                return null;
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            CoreLog.e(LOG_TAG, "Problem parsing the article JSON results", e);
+            page.articles.clear();
+            page.bodies.clear();
+        }
+        return page;
+    }
+
+    /**
+     * Read the stream and pass each article to the listener as soon as it is parsed.
+     * Returns false if there was nothing to parse.
+     *
+     * A result missing a required field stops parsing but keeps the articles already emitted,
+     * as the JSON parser does. Syntax errors are thrown, so callers that need all-or-nothing
+     * behaviour have to hold back what they were given.
+     */
+    public static boolean parse(InputStream inputStream, Listener listener) throws IOException {
+        return parse(inputStream, listener, null);
+    }
+
+    private static boolean parse(InputStream inputStream, Listener listener, ArticlePage page)
+            throws IOException {
+        if (inputStream == null) {
+            return false;
+        }
+
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        try {
+            reader.peek();
+        } catch (EOFException e) {
+            // An empty body is reported the same way as an empty JSON string.
+            return false;
+        }
+
+        try {
+            readRoot(reader, listener, page);
+        } catch (ResultFormatException e) {
+            CoreLog.e(LOG_TAG, "Problem parsing the article JSON results", e);
+        }
+        return true;
+    }
+
+    private static void readRoot(JsonReader reader, Listener listener, ArticlePage page)
+            throws IOException, ResultFormatException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new ResultFormatException(TAG_RESPONSE);
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (TAG_RESPONSE.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readResponse(reader, listener, page);
+                return;
+            } else {
+                reader.skipValue();
+            }
+        }
+        throw new ResultFormatException(TAG_RESPONSE);
+    }
+
+    private static void readResponse(JsonReader reader, Listener listener, ArticlePage page)
+            throws IOException, ResultFormatException {
+        boolean hasResults = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (!hasResults && TAG_RESULTS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                hasResults = true;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        throw new ResultFormatException(TAG_RESULTS);
+                    }
+                    listener.onArticle(readResult(reader, page));
+                }
+                reader.endArray();
+                if (page == null) {
+                    return;
+                }
+            } else if (page != null && TAG_CURRENTPAGE.equals(name) && reader.peek() == JsonToken.NUMBER) {
+                page.currentPage = reader.nextInt();
+            } else if (page != null && TAG_PAGES.equals(name) && reader.peek() == JsonToken.NUMBER) {
+                page.pages = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
+        }
+        if (!hasResults) {
+            throw new ResultFormatException(TAG_RESULTS);
+        }
+    }
+
+    /**
+     * Read one result. Its body, if asked for, goes into the page rather than the article,
+     * as only the reader needs it.
+     */
+    private static Article readResult(JsonReader reader, ArticlePage page)
+            throws IOException, ResultFormatException {
+        String sectionName = null;
+        String webPublicationDate = null;
+        String webUrl = null;
+        String headline = null;
+        String thumbnail = null;
+        String author = null;
+        String body = null;
+        boolean hasFields = false;
+        boolean hasTags = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (TAG_SECTIONNAME.equals(name)) {
+                sectionName = nextStringOrNull(reader);
+            } else if (TAG_WEBPUBLICATIONDATE.equals(name)) {
+                webPublicationDate = nextStringOrNull(reader);
+            } else if (TAG_WEBURL.equals(name)) {
+                webUrl = nextStringOrNull(reader);
+            } else if (TAG_FIELDS.equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                hasFields = true;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if (TAG_HEADLINE.equals(field)) {
+                        headline = nextStringOrNull(reader);
+                    } else if (TAG_THUMBNAIL.equals(field)) {
+                        thumbnail = nextStringOrNull(reader);
+                    } else if (page != null && TAG_BODY.equals(field)) {
+                        body = nextStringOrNull(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (TAG_TAGS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                hasTags = true;
+                author = readAuthor(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Same order of checks as extractFeatureFromJSON, so the first missing field reported matches.
+        require(sectionName, TAG_SECTIONNAME);
+        require(webPublicationDate, TAG_WEBPUBLICATIONDATE);
+        require(webUrl, TAG_WEBURL);
+        require(hasFields ? TAG_FIELDS : null, TAG_FIELDS);
+        require(headline, TAG_HEADLINE);
+        require(thumbnail, TAG_THUMBNAIL);
+        require(hasTags ? TAG_TAGS : null, TAG_TAGS);
+
+        if (body != null) {
+            page.bodies.put(webUrl, body);
+        }
+        return new Article(headline, thumbnail, author, webUrl, sectionName, webPublicationDate);
+    }
+
+    /**
+     * The author is the webTitle of the first contributor tag, if there is one.
+     */
+    private static String readAuthor(JsonReader reader) throws IOException {
+        String author = null;
+        boolean first = true;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (first && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (TAG_WEBTITLE.equals(reader.nextName())) {
+                        author = nextStringOrNull(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+            first = false;
+        }
+        reader.endArray();
+        return author;
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static void require(String value, String name) throws ResultFormatException {
+        if (value == null) {
+            throw new ResultFormatException(name);
+        }
+    }
+}
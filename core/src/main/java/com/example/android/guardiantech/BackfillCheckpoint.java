@@ -0,0 +1,151 @@
+package com.example.android.guardiantech;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How far an {@link ArchiveBackfill} run has got, saved so an interrupted run picks up where
+ * it left off instead of starting again.
+ *
+ * Kept per slice, one section over one stretch of dates: how many pages it has, once its first
+ * page has said, and which of them are in the archive. Also the archive length those pages
+ * add up to; anything after it was written but never committed and is cut off on resume, so
+ * no page is in the archive twice.
+ *
+ * Saved by writing a temporary file and renaming it over the old one, so a crash leaves one
+ * or the other. Not thread-safe, the backfill's coordinating thread owns it.
+ */
+public final class BackfillCheckpoint {
+
+    private static final int MAGIC = 0x47544243; // "GTBC"
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final String runKey;
+    private final Map<String, Slice> slices = new LinkedHashMap<>();
+    private long mArchiveLength;
+
+    private static final class Slice {
+        int pages = ArticlePage.UNKNOWN;
+        final BitSet done = new BitSet();
+    }
+
+    private BackfillCheckpoint(File file, String runKey) {
+        this.file = file;
+        this.runKey = runKey;
+    }
+
+    /**
+     * The saved progress of the run, or none if it hasn't started.
+     *
+     * @param runKey what the run fetches; a checkpoint saved by a different run is refused,
+     *               its archive would be appended to with the wrong articles
+     */
+    public static BackfillCheckpoint load(File file, String runKey) throws IOException {
+        BackfillCheckpoint checkpoint = new BackfillCheckpoint(file, runKey);
+        if (!file.exists()) {
+            return checkpoint;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a checkpoint: " + file);
+            }
+            String savedKey = in.readUTF();
+            if (!savedKey.equals(runKey)) {
+                throw new IOException("Checkpoint " + file + " is for another run: " + savedKey);
+            }
+            checkpoint.mArchiveLength = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Slice slice = new Slice();
+                String key = in.readUTF();
+                slice.pages = in.readInt();
+                int done = in.readInt();
+                for (int j = 0; j < done; j++) {
+                    slice.done.set(in.readInt());
+                }
+                checkpoint.slices.put(key, slice);
+            }
+        } finally {
+            in.close();
+        }
+        return checkpoint;
+    }
+
+    /** Length of the archive that holds every page marked done. */
+    public long getArchiveLength() {
+        return mArchiveLength;
+    }
+
+    /** Pages the slice has, or ArticlePage.UNKNOWN until its first page is in. */
+    public int getPages(String slice) {
+        Slice progress = slices.get(slice);
+        return progress != null ? progress.pages : ArticlePage.UNKNOWN;
+    }
+
+    public boolean isDone(String slice, int page) {
+        Slice progress = slices.get(slice);
+        return progress != null && progress.done.get(page);
+    }
+
+    /** Whether every page of the slice is in the archive. */
+    public boolean isComplete(String slice) {
+        Slice progress = slices.get(slice);
+        return progress != null && progress.pages != ArticlePage.UNKNOWN
+                && progress.done.cardinality() >= progress.pages;
+    }
+
+    /**
+     * Record that the page is in the archive, which is now archiveLength long, and how many
+     * pages its slice has.
+     */
+    public void markDone(String slice, int page, int pages, long archiveLength) {
+        Slice progress = slices.get(slice);
+        if (progress == null) {
+            progress = new Slice();
+            slices.put(slice, progress);
+        }
+        if (pages != ArticlePage.UNKNOWN) {
+            progress.pages = pages;
+        }
+        progress.done.set(page);
+        mArchiveLength = archiveLength;
+    }
+
+    public void save() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(runKey);
+            out.writeLong(mArchiveLength);
+            out.writeInt(slices.size());
+            for (Map.Entry<String, Slice> entry : slices.entrySet()) {
+                Slice slice = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(slice.pages);
+                out.writeInt(slice.done.cardinality());
+                for (int page = slice.done.nextSetBit(0); page >= 0; page = slice.done.nextSetBit(page + 1)) {
+                    out.writeInt(page);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        // Not atomic over an existing file on every platform, so clear the way first
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+}
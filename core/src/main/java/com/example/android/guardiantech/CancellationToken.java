@@ -0,0 +1,47 @@
+package com.example.android.guardiantech;
+
+/**
+ * Cancels a fetch from another thread. Whoever is doing blocking work registers an action
+ * that unblocks it, e.g. aborting the HTTP exchange, and it is run at most once on cancel.
+ * android.os.CancellationSignal needs API 16 and isn't available in local unit tests.
+ */
+public final class CancellationToken {
+
+    private boolean cancelled;
+    private Runnable onCancel;
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        Runnable action;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            action = onCancel;
+            onCancel = null;
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * Replace the action run on cancel, or clear it with null.
+     * If the token is already cancelled the action runs straight away.
+     */
+    public void setOnCancelListener(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                onCancel = action;
+                return;
+            }
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.android.guardiantech;
+
+/**
+ * Stops sending requests to an API that keeps failing, so callers fall back to what they have
+ * stored at once instead of each waiting out its own timeouts and retries.
+ *
+ * After a run of failed requests the breaker opens and refuses everything for a cool-down
+ * period. Once that has passed one request is let through as a probe: if it succeeds the
+ * breaker closes, if it fails it opens again. A server asking us to back off, such as a 429
+ * with Retry-After, can hold it open for longer.
+ *
+ * Times are passed in from any monotonic millisecond clock.
+ */
+public class CircuitBreaker {
+
+    public static final int CLOSED = 0;
+    public static final int OPEN = 1;
+    public static final int HALF_OPEN = 2;
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private int mState = CLOSED;
+    private int mFailures;
+    private long mOpenUntil;
+    private int mRejected;
+
+    /**
+     * @param failureThreshold consecutive failed requests that open the breaker
+     * @param openMillis       how long it stays open before letting a probe through
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Whether a request may go out now. When this returns true the caller must report the
+     * outcome with {@link #onSuccess()} or {@link #onFailure(long)}, or {@link #release()} it
+     * if it was given up without one.
+     */
+    public synchronized boolean allowRequest(long now) {
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now >= mOpenUntil) {
+                    mState = HALF_OPEN;
+                    return true;
+                }
+                break;
+            default:
+                // A probe is already out
+                break;
+        }
+        mRejected++;
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        mState = CLOSED;
+        mFailures = 0;
+    }
+
+    public synchronized void onFailure(long now) {
+        mFailures++;
+        if (mState == HALF_OPEN || mFailures >= failureThreshold) {
+            open(now + openMillis);
+        }
+    }
+
+    /**
+     * A request let through ended without telling us whether the API is up, e.g. it was
+     * cancelled. If it was the probe the breaker goes back to open, already past its cool-down,
+     * so the next request becomes the probe instead of everything being refused for good.
+     */
+    public synchronized void release() {
+        if (mState == HALF_OPEN) {
+            mState = OPEN;
+        }
+    }
+
+    /**
+     * Open until at least the given time, e.g. when told when to come back.
+     */
+    public synchronized void openUntil(long until) {
+        if (mState != OPEN || until > mOpenUntil) {
+            open(until);
+        }
+    }
+
+    private void open(long until) {
+        mState = OPEN;
+        mOpenUntil = until;
+    }
+
+    public synchronized int getState() {
+        return mState;
+    }
+
+    /** Requests refused while open, since the breaker was created. */
+    public synchronized int getRejected() {
+        return mRejected;
+    }
+
+    @Override
+    public synchronized String toString() {
+        String[] states = {"closed", "open", "half-open"};
+        return states[mState] + " failures=" + mFailures + " rejected=" + mRejected;
+    }
+}
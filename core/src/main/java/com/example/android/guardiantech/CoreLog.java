@@ -0,0 +1,30 @@
+package com.example.android.guardiantech;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logging for the core module, with the same calls as android.util.Log so code reads the same
+ * on both sides.
+ *
+ * Goes through java.util.logging, one logger per tag. On a device that ends up in logcat under
+ * the last part of the tag, the class name; on the desktop JVM it goes to stderr, or wherever
+ * the logging config sends it.
+ */
+public final class CoreLog {
+
+    private CoreLog() {
+    }
+
+    public static void i(String tag, String msg) {
+        Logger.getLogger(tag).log(Level.INFO, msg);
+    }
+
+    public static void e(String tag, String msg) {
+        Logger.getLogger(tag).log(Level.SEVERE, msg);
+    }
+
+    public static void e(String tag, String msg, Throwable tr) {
+        Logger.getLogger(tag).log(Level.SEVERE, msg, tr);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.android.guardiantech;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of one request to the Guardian API, along with the cache validators
+ * and transfer size needed to make the next request conditional.
+ */
+public final class FetchResult {
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_NOT_MODIFIED = 1;
+    public static final int STATUS_FAILED = 2;
+
+    private final int status;
+    private final List<Article> articles;
+    private final String etag;
+    private final String lastModified;
+    private final long bytesOnWire;
+    private final int currentPage;
+    private final int pages;
+    private final Map<String, String> bodies;
+
+    FetchResult(int status, ArticlePage page, String etag, String lastModified, long bytesOnWire) {
+        this.status = status;
+        this.articles = page != null ? page.getArticles() : null;
+        this.currentPage = page != null ? page.getCurrentPage() : ArticlePage.UNKNOWN;
+        this.pages = page != null ? page.getPages() : ArticlePage.UNKNOWN;
+        this.bodies = page != null ? page.getBodies() : Collections.<String, String>emptyMap();
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.bytesOnWire = bytesOnWire;
+    }
+
+    static FetchResult failed(long bytesOnWire) {
+        return new FetchResult(STATUS_FAILED, null, null, null, bytesOnWire);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /** Parsed articles for {@link #STATUS_OK}, otherwise null. */
+    public List<Article> getArticles() {
+        return articles;
+    }
+
+    /** 1-based page number the server reported, or {@link ArticlePage#UNKNOWN}. */
+    public int getCurrentPage() {
+        return currentPage;
+    }
+
+    /** Total pages the server reported for the query, or {@link ArticlePage#UNKNOWN}. */
+    public int getPages() {
+        return pages;
+    }
+
+    /** Body HTML by webUrl for {@link #STATUS_OK} when the query asked for bodies, otherwise empty. */
+    public Map<String, String> getBodies() {
+        return bodies;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /** Body bytes as received, before gzip decoding. */
+    public long getBytesOnWire() {
+        return bytesOnWire;
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.android.guardiantech;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * One request to the Guardian content API search endpoint, built with {@link Builder} instead
+ * of by formatting a URL string.
+ *
+ * Queries are normalized as they are built: sections, fields and tags are sorted and
+ * de-duplicated, parameters are kept in name order and values equal to the API's defaults are
+ * left out. Queries asking for the same thing therefore have the same {@link #getCacheKey()}.
+ * Stored feeds and their ETags are filed under the looser {@link #getFeedKey()}, which also
+ * leaves out page size, fields and tags, so a feed fetched for another network or with bodies
+ * is still found. Neither key has the API key, so changing it doesn't throw the stored feeds
+ * away.
+ *
+ * Plain Java, immutable and safe to share between threads.
+ */
+public final class GuardianQuery {
+
+    public static final String FIELD_HEADLINE = "headline";
+    public static final String FIELD_THUMBNAIL = "thumbnail";
+    /** The article text as HTML, many times the size of the rest of a result */
+    public static final String FIELD_BODY = "body";
+    public static final String TAG_CONTRIBUTOR = "contributor";
+
+    public static final String ORDER_NEWEST = "newest";
+    public static final String ORDER_OLDEST = "oldest";
+    public static final String ORDER_RELEVANCE = "relevance";
+
+    static final String PARAM_API_KEY = "api-key";
+    static final String PARAM_FROM_DATE = "from-date";
+    static final String PARAM_ORDER_BY = "order-by";
+    static final String PARAM_PAGE = "page";
+    static final String PARAM_PAGE_SIZE = "page-size";
+    static final String PARAM_SECTION = "section";
+    static final String PARAM_SHOW_FIELDS = "show-fields";
+    static final String PARAM_SHOW_TAGS = "show-tags";
+    static final String PARAM_TO_DATE = "to-date";
+
+    /** What a page holds when no page size is asked for */
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    /** The API refuses larger pages */
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final SortedMap<String, String> params;
+    private final String cacheKey;
+    private final String feedKey;
+
+    private GuardianQuery(Builder builder) {
+        this.baseUrl = builder.baseUrl;
+        this.apiKey = builder.apiKey;
+        this.params = Collections.unmodifiableSortedMap(builder.params());
+        this.cacheKey = withQuery(baseUrl, params, null);
+        SortedMap<String, String> feed = new TreeMap<>(params);
+        feed.remove(PARAM_PAGE_SIZE);
+        feed.remove(PARAM_SHOW_FIELDS);
+        feed.remove(PARAM_SHOW_TAGS);
+        this.feedKey = withQuery(baseUrl, feed, null);
+    }
+
+    /** The URL to request, API key included. */
+    public String getUrl() {
+        return withQuery(baseUrl, params, apiKey);
+    }
+
+    /**
+     * The normalized query without the API key, the same for every query asking for the same
+     * articles.
+     */
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * The cache key without page size, fields and tags: which feed and page this is, however
+     * many articles a page holds and however much of each is asked for. A stored list under
+     * this key may be longer or shorter than the query's page, or lack its fields, and its
+     * ETag only ever matches the exact same request.
+     */
+    public String getFeedKey() {
+        return feedKey;
+    }
+
+    /** Articles a page of this query holds, the API's default if none is asked for. */
+    public int getPageSize() {
+        String pageSize = params.get(PARAM_PAGE_SIZE);
+        return pageSize != null ? Integer.parseInt(pageSize) : DEFAULT_PAGE_SIZE;
+    }
+
+    /** The value sent for a parameter, or null if it is left to the API's default. */
+    public String getParameter(String name) {
+        return params.get(name);
+    }
+
+    /** A builder starting from this query, to ask for another page or a narrower range. */
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    /** The request URLs of the queries, in order. */
+    public static List<String> urls(List<GuardianQuery> queries) {
+        List<String> urls = new ArrayList<>(queries.size());
+        for (GuardianQuery query : queries) {
+            urls.add(query.getUrl());
+        }
+        return urls;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GuardianQuery && cacheKey.equals(((GuardianQuery) o).cacheKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return cacheKey.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return cacheKey;
+    }
+
+    private static String withQuery(String baseUrl, Map<String, String> params, String apiKey) {
+        StringBuilder url = new StringBuilder(baseUrl);
+        char separator = baseUrl.indexOf('?') < 0 ? '?' : '&';
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            url.append(separator).append(param.getKey()).append('=').append(encode(param.getValue()));
+            separator = '&';
+        }
+        if (apiKey != null) {
+            url.append(separator).append(PARAM_API_KEY).append('=').append(encode(apiKey));
+        }
+        return url.toString();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String join(Collection<String> values, char separator) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(separator);
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Builds a {@link GuardianQuery}. Everything is optional, anything not set is left to the
+     * API's default.
+     */
+    public static final class Builder {
+
+        private final String baseUrl;
+        private String apiKey;
+        private final SortedSet<String> sections = new TreeSet<>();
+        private final SortedSet<String> fields = new TreeSet<>();
+        private final SortedSet<String> tags = new TreeSet<>();
+        private int page = 1;
+        private int pageSize;
+        private String fromDate;
+        private String toDate;
+        private String orderBy;
+
+        /**
+         * @param baseUrl the search endpoint, e.g. https://content.guardianapis.com/search
+         */
+        public Builder(String baseUrl) {
+            if (baseUrl == null) {
+                throw new IllegalArgumentException("No base URL");
+            }
+            this.baseUrl = baseUrl;
+        }
+
+        private Builder(GuardianQuery query) {
+            this(query.baseUrl);
+            apiKey = query.apiKey;
+            addAll(sections, query.params.get(PARAM_SECTION), "\\|");
+            addAll(fields, query.params.get(PARAM_SHOW_FIELDS), ",");
+            addAll(tags, query.params.get(PARAM_SHOW_TAGS), ",");
+            String value = query.params.get(PARAM_PAGE);
+            page = value != null ? Integer.parseInt(value) : 1;
+            value = query.params.get(PARAM_PAGE_SIZE);
+            pageSize = value != null ? Integer.parseInt(value) : 0;
+            fromDate = query.params.get(PARAM_FROM_DATE);
+            toDate = query.params.get(PARAM_TO_DATE);
+            orderBy = query.params.get(PARAM_ORDER_BY);
+        }
+
+        private static void addAll(SortedSet<String> set, String joined, String separator) {
+            if (joined != null) {
+                Collections.addAll(set, joined.split(separator));
+            }
+        }
+
+        public Builder apiKey(String apiKey) {
+            this.apiKey = apiKey;
+            return this;
+        }
+
+        /** Articles from any of these sections, by section id such as "technology". */
+        public Builder sections(String... sections) {
+            for (String section : sections) {
+                this.sections.add(section.trim().toLowerCase(Locale.ROOT));
+            }
+            return this;
+        }
+
+        /** Only these fields of each article, instead of none. */
+        public Builder fields(String... fields) {
+            Collections.addAll(this.fields, fields);
+            return this;
+        }
+
+        /** Only these types of tag on each article, instead of none. */
+        public Builder tags(String... tags) {
+            Collections.addAll(this.tags, tags);
+            return this;
+        }
+
+        /** 1 for the first page. */
+        public Builder page(int page) {
+            if (page < 1) {
+                throw new IllegalArgumentException("Bad page " + page);
+            }
+            this.page = page;
+            return this;
+        }
+
+        public Builder pageSize(int pageSize) {
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Bad page size " + pageSize);
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /** Only articles published at or after this time. */
+        public Builder fromDate(long millis) {
+            this.fromDate = ArticleDateFormatter.formatIso(millis);
+            return this;
+        }
+
+        /** Only articles published at or before this time. */
+        public Builder toDate(long millis) {
+            this.toDate = ArticleDateFormatter.formatIso(millis);
+            return this;
+        }
+
+        /** One of {@link #ORDER_NEWEST}, {@link #ORDER_OLDEST} or {@link #ORDER_RELEVANCE}. */
+        public Builder orderBy(String orderBy) {
+            if (!ORDER_NEWEST.equals(orderBy) && !ORDER_OLDEST.equals(orderBy)
+                    && !ORDER_RELEVANCE.equals(orderBy)) {
+                throw new IllegalArgumentException("Bad order " + orderBy);
+            }
+            this.orderBy = orderBy;
+            return this;
+        }
+
+        public GuardianQuery build() {
+            return new GuardianQuery(this);
+        }
+
+        private SortedMap<String, String> params() {
+            SortedMap<String, String> params = new TreeMap<>();
+            if (!sections.isEmpty()) {
+                // The API reads | as or
+                params.put(PARAM_SECTION, join(sections, '|'));
+            }
+            if (!fields.isEmpty()) {
+                params.put(PARAM_SHOW_FIELDS, join(fields, ','));
+            }
+            if (!tags.isEmpty()) {
+                params.put(PARAM_SHOW_TAGS, join(tags, ','));
+            }
+            if (page > 1) {
+                params.put(PARAM_PAGE, String.valueOf(page));
+            }
+            if (pageSize > 0) {
+                params.put(PARAM_PAGE_SIZE, String.valueOf(pageSize));
+            }
+            if (fromDate != null) {
+                params.put(PARAM_FROM_DATE, fromDate);
+            }
+            if (toDate != null) {
+                params.put(PARAM_TO_DATE, toDate);
+            }
+            if (orderBy != null) {
+                params.put(PARAM_ORDER_BY, orderBy);
+            }
+            return params;
+        }
+    }
+}
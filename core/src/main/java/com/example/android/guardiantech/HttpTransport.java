@@ -0,0 +1,72 @@
+package com.example.android.guardiantech;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Performs the GET requests behind {@link QueryUtils}. Implementations decide how connections
+ * are pooled and how the body is decoded; callers only see the decoded stream.
+ */
+public interface HttpTransport {
+
+    String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    String HEADER_ETAG = "ETag";
+    String HEADER_LAST_MODIFIED = "Last-Modified";
+    String HEADER_IF_NONE_MATCH = "If-None-Match";
+    String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    /**
+     * Send a GET request with the given extra headers. The returned response must be closed,
+     * which is what hands the connection back for reuse.
+     */
+    Response get(URL url, Map<String, String> headers) throws IOException;
+
+    /**
+     * As above, connecting and each read giving up after at most the given time, which may
+     * be shorter than the transport's own timeouts but never longer.
+     */
+    Response get(URL url, Map<String, String> headers, int timeoutMillis) throws IOException;
+
+    /**
+     * As above, abandoning the request if the token is cancelled while waiting for the
+     * response, which blocking socket I/O wouldn't notice otherwise. The token's cancel action
+     * is taken over; once this returns, hand it to {@link Response#abort()} or clear it.
+     *
+     * @param token may be null
+     */
+    Response get(URL url, Map<String, String> headers, int timeoutMillis, CancellationToken token)
+            throws IOException;
+
+    /**
+     * A response whose body is read through {@link #getBody()}.
+     */
+    interface Response extends Closeable {
+
+        int getCode();
+
+        /** Header value, or null if the header is absent. */
+        String getHeader(String name);
+
+        /** Decoded body. Empty for responses without one, such as 304. */
+        InputStream getBody() throws IOException;
+
+        /** Body bytes received so far as they came off the wire, i.e. before decompression. */
+        long getBytesOnWire();
+
+        /**
+         * Time from connecting to the response headers, for the attempt that gave this
+         * response only, so retries and their backoff aren't counted.
+         */
+        long getRoundTripNanos();
+
+        /**
+         * Abandon the exchange from another thread. A read blocked on the body fails promptly
+         * and the connection is not reused.
+         */
+        void abort();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.android.guardiantech;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named histograms of where load time goes, from the request on the wire to the first row
+ * on screen. Times come from {@link System#nanoTime()}, which is monotonic, so a clock change
+ * mid-request can't produce a negative or inflated stage.
+ *
+ * Usage: {@code long start = Metrics.now(); ...; metrics.recordSince(Metrics.HTTP_TTFB, start);}
+ *
+ * Plain Java, shared process wide through {@link #getDefault()} and safe to use from any
+ * thread.
+ */
+public class Metrics {
+
+    public static final String UNIT_MICROS = "us";
+    public static final String UNIT_BYTES = "bytes";
+    public static final String UNIT_COUNT = "count";
+
+    // DNS, TCP and TLS, which HttpURLConnection doesn't report separately
+    public static final String HTTP_CONNECT = "http.connect";
+    // Request sent to status line received
+    public static final String HTTP_TTFB = "http.ttfb";
+    // The body is parsed as it streams: download is the time blocked reading it,
+    // parse the rest of the time taken to turn it into articles
+    public static final String HTTP_DOWNLOAD = "http.download";
+    public static final String HTTP_BYTES = "http.bytes";
+    // Attempts made for one request, including retries
+    public static final String HTTP_ATTEMPTS = "http.attempts";
+    public static final String PARSE_TIME = "parse.time";
+    public static final String PARSE_ARTICLES = "parse.articles";
+    // Load requested to load running on the loader thread
+    public static final String LOADER_QUEUE_WAIT = "loader.queueWait";
+    public static final String LOADER_TIME = "loader.time";
+    // Activity created to the first non-empty list committed to the adapter
+    public static final String TIME_TO_FIRST_ROW = "ui.timeToFirstRow";
+    // Article tapped to its page finished loading in the Custom Tab, split by whether the
+    // browser was told about it beforehand
+    public static final String TAP_TO_CONTENT_HINTED = "ui.tapToContent.hinted";
+    public static final String TAP_TO_CONTENT_COLD = "ui.tapToContent.cold";
+    // Article tapped to its stored body showing in the reader
+    public static final String TAP_TO_READER = "ui.tapToContent.reader";
+
+    private static final Metrics DEFAULT = new Metrics();
+
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public static Metrics getDefault() {
+        return DEFAULT;
+    }
+
+    /** Monotonic timestamp to pass to {@link #recordSince(String, long)}. */
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /** The histogram with this name, created empty on first use. */
+    public Histogram histogram(String name, String unit) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(name, unit);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /** Record the time since a {@link #now()} timestamp, in microseconds. */
+    public void recordSince(String name, long startNanos) {
+        recordNanos(name, now() - startNanos);
+    }
+
+    /** Record a duration measured some other way, in microseconds. */
+    public void recordNanos(String name, long nanos) {
+        histogram(name, UNIT_MICROS).record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void recordBytes(String name, long bytes) {
+        histogram(name, UNIT_BYTES).record(bytes);
+    }
+
+    public void recordCount(String name, long count) {
+        histogram(name, UNIT_COUNT).record(count);
+    }
+
+    /** Every histogram, sorted by name. */
+    public List<Histogram> getHistograms() {
+        List<Histogram> list = new ArrayList<>(histograms.values());
+        Collections.sort(list, new Comparator<Histogram>() {
+            @Override
+            public int compare(Histogram a, Histogram b) {
+                return a.getName().compareTo(b.getName());
+            }
+        });
+        return list;
+    }
+
+    public void reset() {
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /** Write one line per histogram, as shown on the debug screen. */
+    public void dump(Writer writer) throws IOException {
+        writer.write(toString());
+        writer.flush();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Histogram histogram : getHistograms()) {
+            report.append(histogram).append('\n');
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.android.guardiantech;
+
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Estimates how good the network is from the transfers the app makes anyway, and sorts it
+ * into one of four classes for the app's NetworkPolicy.
+ *
+ * Each response is a sample of up to two things: the round trip, request to response
+ * headers, which gives the latency; and the body, bytes read and the time spent blocked
+ * reading them, which give the throughput. Bodies smaller than {@link #MIN_TRANSFER_BYTES}
+ * are dominated by TCP slow start and say little about bandwidth, so they are left out of the
+ * throughput. Each is averaged in log space, a geometric mean one stalled request can't drag
+ * far.
+ *
+ * The class is the worse of the throughput's and the latency's, or whichever is known. It
+ * only changes once {@link #SAMPLES_TO_CHANGE} responses in a row point away from it, so a
+ * single slow response doesn't flip the app between policies.
+ *
+ * Plain Java and thread-safe. Listeners are called on the thread that recorded the response
+ * that changed the class.
+ */
+public class NetworkQualityEstimator {
+
+    public static final int UNKNOWN = 0;
+    public static final int POOR = 1;
+    public static final int MODERATE = 2;
+    public static final int GOOD = 3;
+    public static final int EXCELLENT = 4;
+
+    private static final String[] NAMES = {"unknown", "poor", "moderate", "good", "excellent"};
+
+    /** Upper bounds of throughput in kilobits a second for poor, moderate and good */
+    static final double[] KBPS_BOUNDS = {150, 550, 2000};
+    /** Lower bounds of round trip in milliseconds for poor, moderate and good */
+    static final double[] RTT_BOUNDS_MILLIS = {2000, 1000, 400};
+
+    /** Smaller transfers only count towards the latency */
+    static final long MIN_TRANSFER_BYTES = 8 * 1024;
+    /** Weight of a new response in the averages */
+    static final double SMOOTHING = 0.5;
+    /** Responses in a row pointing at another class before it is taken */
+    static final int SAMPLES_TO_CHANGE = 2;
+
+    private static final NetworkQualityEstimator sDefault = new NetworkQualityEstimator();
+
+    /** Told when the class changes. */
+    public interface Listener {
+        void onNetworkClassChanged(int networkClass);
+    }
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Log of kilobits a second and of round trip millis, NaN until sampled */
+    private double mLogKbps = Double.NaN;
+    private double mLogRttMillis = Double.NaN;
+    private int mSamples;
+    private int mClass = UNKNOWN;
+    private int mDisagreeing;
+
+    /** The estimator fed by QueryUtils and the thumbnail loads. */
+    public static NetworkQualityEstimator getDefault() {
+        return sDefault;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Record one response. Each response is one sample, however much it tells.
+     *
+     * @param roundTripNanos from sending the request to the response headers, 0 if unknown
+     * @param bytes size of the body on the wire, 0 if there was none
+     * @param transferNanos time spent waiting for the body, not processing it
+     */
+    public void onResponse(long roundTripNanos, long bytes, long transferNanos) {
+        boolean transfer = bytes >= MIN_TRANSFER_BYTES && transferNanos > 0;
+        if (roundTripNanos <= 0 && !transfer) {
+            return;
+        }
+        int changed;
+        synchronized (this) {
+            if (roundTripNanos > 0) {
+                mLogRttMillis = average(mLogRttMillis, Math.log(roundTripNanos / 1000000.0));
+            }
+            if (transfer) {
+                mLogKbps = average(mLogKbps, Math.log(bytes * 8.0 * 1000000.0 / transferNanos));
+            }
+            changed = update();
+        }
+        notifyIfChanged(changed);
+    }
+
+    /**
+     * Record a response of which only the time to arrive is known.
+     */
+    public void onRoundTrip(long nanos) {
+        onResponse(nanos, 0, 0);
+    }
+
+    /**
+     * Start from a class known from before, e.g. the last one measured on a previous run.
+     * Ignored once there are samples of this run.
+     */
+    public void seed(int networkClass) {
+        int changed;
+        synchronized (this) {
+            if (mSamples > 0 || networkClass == mClass || networkClass < UNKNOWN || networkClass > EXCELLENT) {
+                return;
+            }
+            mClass = networkClass;
+            changed = networkClass;
+        }
+        notifyIfChanged(changed);
+    }
+
+    public synchronized int getNetworkClass() {
+        return mClass;
+    }
+
+    /** Estimated throughput in kilobits a second, or -1 before any large enough transfer. */
+    public synchronized double getKbps() {
+        return Double.isNaN(mLogKbps) ? -1 : Math.exp(mLogKbps);
+    }
+
+    /** Estimated round trip in milliseconds, or -1 before any request. */
+    public synchronized double getRoundTripMillis() {
+        return Double.isNaN(mLogRttMillis) ? -1 : Math.exp(mLogRttMillis);
+    }
+
+    /** Forget every sample, e.g. in tests. */
+    public synchronized void reset() {
+        mLogKbps = Double.NaN;
+        mLogRttMillis = Double.NaN;
+        mSamples = 0;
+        mClass = UNKNOWN;
+        mDisagreeing = 0;
+    }
+
+    public static String name(int networkClass) {
+        return networkClass >= 0 && networkClass < NAMES.length ? NAMES[networkClass] : NAMES[UNKNOWN];
+    }
+
+    /**
+     * The class for the given throughput and round trip, either of which may be negative for
+     * unknown.
+     */
+    static int classify(double kbps, double rttMillis) {
+        int byThroughput = EXCELLENT;
+        if (kbps >= 0) {
+            for (int i = 0; i < KBPS_BOUNDS.length; i++) {
+                if (kbps < KBPS_BOUNDS[i]) {
+                    byThroughput = POOR + i;
+                    break;
+                }
+            }
+        }
+        int byLatency = EXCELLENT;
+        if (rttMillis >= 0) {
+            for (int i = 0; i < RTT_BOUNDS_MILLIS.length; i++) {
+                if (rttMillis >= RTT_BOUNDS_MILLIS[i]) {
+                    byLatency = POOR + i;
+                    break;
+                }
+            }
+        }
+        if (kbps < 0 && rttMillis < 0) {
+            return UNKNOWN;
+        }
+        return Math.min(byThroughput, byLatency);
+    }
+
+    private static double average(double current, double sample) {
+        return Double.isNaN(current) ? sample : current + SMOOTHING * (sample - current);
+    }
+
+    /** Take a response into account; returns the new class if it changed, else -1. */
+    private int update() {
+        mSamples++;
+        int candidate = classify(getKbps(), getRoundTripMillis());
+        if (candidate == mClass) {
+            mDisagreeing = 0;
+            return -1;
+        }
+        // The first estimate is taken straight away, anything is better than none
+        if (mClass != UNKNOWN && ++mDisagreeing < SAMPLES_TO_CHANGE) {
+            return -1;
+        }
+        mDisagreeing = 0;
+        mClass = candidate;
+        return candidate;
+    }
+
+    private void notifyIfChanged(int networkClass) {
+        if (networkClass < 0) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.onNetworkClassChanged(networkClass);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%s (%.0f kbps, %.0f ms round trip, %d samples)",
+                name(mClass), getKbps(), getRoundTripMillis(), mSamples);
+    }
+}
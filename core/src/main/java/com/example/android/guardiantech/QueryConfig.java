@@ -0,0 +1,124 @@
+package com.example.android.guardiantech;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the app asks the Guardian API for: which endpoint, with which key, and how each feed
+ * query is shaped.
+ *
+ * Feed queries ask only for what a row shows, the headline and thumbnail fields and the
+ * contributor tags the author is read from; every other field is left out of the response.
+ * Add to {@link #ROW_FIELDS} or {@link #ROW_TAGS} when a row starts showing something new.
+ *
+ * A config made {@link #withBodies(boolean) with bodies} also asks for each article's body,
+ * for reading offline. That makes a page many times larger, so it is off by default.
+ * The app's NetworkPolicy picks the page size and whether bodies come along for the network.
+ */
+public final class QueryConfig {
+
+    public static final String GUARDIAN_SEARCH_URL = "https://content.guardianapis.com/search";
+    public static final String DEFAULT_API_KEY = "test";
+
+    /** Fields the article row renders, see ArticleAdapter */
+    static final String[] ROW_FIELDS = {GuardianQuery.FIELD_HEADLINE, GuardianQuery.FIELD_THUMBNAIL};
+    /** Tags the article row renders, the first contributor is shown as the author */
+    static final String[] ROW_TAGS = {GuardianQuery.TAG_CONTRIBUTOR};
+    /** Row fields plus the body, for a config with bodies */
+    static final String[] BODY_FIELDS = {GuardianQuery.FIELD_HEADLINE, GuardianQuery.FIELD_THUMBNAIL,
+            GuardianQuery.FIELD_BODY};
+
+    /** The API's own default, made explicit so the stored pages stay the same size */
+    public static final int DEFAULT_PAGE_SIZE = 10;
+
+    public static final QueryConfig DEFAULT = new QueryConfig(GUARDIAN_SEARCH_URL, DEFAULT_API_KEY,
+            DEFAULT_PAGE_SIZE, GuardianQuery.ORDER_NEWEST);
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final int pageSize;
+    private final String orderBy;
+    private final boolean bodies;
+
+    public QueryConfig(String baseUrl, String apiKey, int pageSize, String orderBy) {
+        this(baseUrl, apiKey, pageSize, orderBy, false);
+    }
+
+    private QueryConfig(String baseUrl, String apiKey, int pageSize, String orderBy, boolean bodies) {
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.pageSize = pageSize;
+        this.orderBy = orderBy;
+        this.bodies = bodies;
+    }
+
+    /** This config, asking for article bodies along with the rows or not. */
+    public QueryConfig withBodies(boolean bodies) {
+        return bodies == this.bodies ? this : new QueryConfig(baseUrl, apiKey, pageSize, orderBy, bodies);
+    }
+
+    public boolean hasBodies() {
+        return bodies;
+    }
+
+    /** This config, asking for the given number of articles per page. */
+    public QueryConfig withPageSize(int pageSize) {
+        return pageSize == this.pageSize ? this : new QueryConfig(baseUrl, apiKey, pageSize, orderBy, bodies);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /** A query on this endpoint with this key and nothing else set. */
+    public GuardianQuery.Builder newQuery() {
+        return new GuardianQuery.Builder(baseUrl).apiKey(apiKey);
+    }
+
+    /**
+     * The given page of one section, projected to what a row shows, and the body if asked for.
+     */
+    public GuardianQuery feed(String section, int page) {
+        return newQuery()
+                .sections(section)
+                .fields(bodies ? BODY_FIELDS : ROW_FIELDS)
+                .tags(ROW_TAGS)
+                .pageSize(pageSize)
+                .orderBy(orderBy)
+                .page(page)
+                .build();
+    }
+
+    /**
+     * The given page of one section's articles published from fromMillis up to toMillis,
+     * projected like {@link #feed(String, int)}. The API's dates are to the second, so the
+     * last second before toMillis is the last one asked for.
+     */
+    public GuardianQuery range(String section, long fromMillis, long toMillis, int page) {
+        return newQuery()
+                .sections(section)
+                .fields(bodies ? BODY_FIELDS : ROW_FIELDS)
+                .tags(ROW_TAGS)
+                .pageSize(pageSize)
+                .orderBy(orderBy)
+                .fromDate(fromMillis)
+                .toDate(toMillis - 1000)
+                .page(page)
+                .build();
+    }
+
+    /**
+     * The given page of each section, one query per section.
+     */
+    public List<GuardianQuery> feeds(String[] sections, int page) {
+        List<GuardianQuery> queries = new ArrayList<>(sections.length);
+        for (String section : sections) {
+            queries.add(feed(section, page));
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.android.guardiantech;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helper methods related to requesting and receiving articles from the Guardian API.
+ */
+
+public final class QueryUtils {
+
+    private static final String LOG_TAG = QueryUtils.class.getName();
+    private static final String TAG_RESPONSE = "response";
+    private static final String TAG_RESULTS = "results";
+    private static final String TAG_SECTIONNAME = "sectionName";
+    private static final String TAG_WEBPUBLICATIONDATE = "webPublicationDate";
+    private static final String TAG_WEBURL = "webUrl";
+    private static final String TAG_FIELDS = "fields";
+    private static final String TAG_HEADLINE = "headline";
+    private static final String TAG_THUMBNAIL = "thumbnail";
+    private static final String TAG_TAGS = "tags";
+    private static final String TAG_WEBTITLE = "webTitle";
+
+
+    // Consecutive failed requests before we stop asking the API, and for how long
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 3;
+    private static final long CIRCUIT_OPEN_MILLIS = 30000;
+
+    /**
+     * Shared so every caller goes through the same connection pool, and so they all see
+     * the API is failing as soon as one of them does.
+     */
+    private static final HttpTransport DEFAULT_TRANSPORT = new ResilientTransport(new UrlConnectionTransport(),
+            RetryPolicy.DEFAULT, new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS));
+
+    private QueryUtils() {
+    }
+
+    public static HttpTransport getDefaultTransport() {
+        return DEFAULT_TRANSPORT;
+    }
+
+    public static List<Article> fetchArticleData(String requestUrl) {
+        return fetchArticleData(DEFAULT_TRANSPORT, requestUrl, null, null).getArticles();
+    }
+
+    /**
+     * Fetch articles, sending the validators from a previous response so the server
+     * can answer 304 Not Modified instead of sending the same list again.
+     */
+    public static FetchResult fetchArticleData(HttpTransport transport, String requestUrl,
+                                               String etag, String lastModified) {
+        return fetchArticleData(transport, requestUrl, etag, lastModified, null);
+    }
+
+    /**
+     * Fetch the articles a query asks for, see {@link #fetchArticleData(HttpTransport, String,
+     * String, String, CancellationToken)}.
+     */
+    public static FetchResult fetchArticleData(HttpTransport transport, GuardianQuery query,
+                                               String etag, String lastModified,
+                                               CancellationToken token) {
+        return fetchArticleData(transport, query.getUrl(), etag, lastModified, token);
+    }
+
+    /**
+     * As above, abandoning the request if the token is cancelled, even part way through
+     * reading the response. A cancelled fetch always reports failure.
+     */
+    public static FetchResult fetchArticleData(HttpTransport transport, String requestUrl,
+                                               String etag, String lastModified,
+                                               CancellationToken token) {
+
+        CoreLog.i(LOG_TAG, "Test FetchArticleData() called");
+
+        // Create URL object
+        URL url = createUrl(requestUrl);
+
+        // Perform HTTP request to the URL and parse the articles straight off the response stream
+        FetchResult result = FetchResult.failed(0);
+        try {
+            result = makeHttpRequest(transport, url, etag, lastModified, token);
+        } catch (IOException e) {
+            CoreLog.e(LOG_TAG, "Error closing input stream", e);
+        }
+        return result;
+    }
+
+    /**
+     * Returns new URL object from the given string URL.
+     */
+    private static URL createUrl(String stringUrl) {
+        URL url = null;
+        try {
+            url = new URL(stringUrl);
+        } catch (MalformedURLException e) {
+            CoreLog.e(LOG_TAG, "Error with creating URL ", e);
+        }
+        return url;
+    }
+
+    /**
+     * Make an HTTP request to the given URL and return the articles in the response.
+     */
+    private static FetchResult makeHttpRequest(HttpTransport transport, URL url, String etag,
+                                               String lastModified, CancellationToken token)
+            throws IOException {
+        // If the URL is null, or the caller has already given up, then return early.
+        if (url == null || (token != null && token.isCancelled())) {
+            return FetchResult.failed(0);
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        if (etag != null) {
+            headers.put(HttpTransport.HEADER_IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            headers.put(HttpTransport.HEADER_IF_MODIFIED_SINCE, lastModified);
+        }
+
+        HttpTransport.Response response = null;
+        try {
+            response = transport.get(url, headers, Integer.MAX_VALUE, token);
+            // The last attempt's own time, a retried request's backoff says nothing of the network
+            long roundTripNanos = response.getRoundTripNanos();
+            if (token != null) {
+                final HttpTransport.Response current = response;
+                token.setOnCancelListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        current.abort();
+                    }
+                });
+            }
+            int code = response.getCode();
+
+            // If the request was successful (response code 200),
+            // then parse the response as it is read from the input stream.
+            if (code == HttpURLConnection.HTTP_OK) {
+                // Reading and parsing interleave, so time spent blocked on the socket is
+                // counted separately and the rest is put down to parsing.
+                TimedInputStream body = new TimedInputStream(response.getBody());
+                long start = Metrics.now();
+                ArticlePage page = ArticleStreamParser.parsePage(body);
+                long elapsedNanos = Metrics.now() - start;
+                if (token != null && token.isCancelled()) {
+                    // The parser keeps whatever it read before the abort, don't pass that on.
+                    CoreLog.i(LOG_TAG, "Request cancelled: " + url);
+                    return FetchResult.failed(response.getBytesOnWire());
+                }
+                Metrics metrics = Metrics.getDefault();
+                metrics.recordNanos(Metrics.HTTP_DOWNLOAD, body.readNanos);
+                metrics.recordNanos(Metrics.PARSE_TIME, elapsedNanos - body.readNanos);
+                metrics.recordBytes(Metrics.HTTP_BYTES, response.getBytesOnWire());
+                metrics.recordCount(Metrics.PARSE_ARTICLES, page.getArticles().size());
+                NetworkQualityEstimator.getDefault().onResponse(roundTripNanos, response.getBytesOnWire(),
+                        body.readNanos);
+                return new FetchResult(FetchResult.STATUS_OK, page,
+                        response.getHeader(HttpTransport.HEADER_ETAG),
+                        response.getHeader(HttpTransport.HEADER_LAST_MODIFIED),
+                        response.getBytesOnWire());
+            } else if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                // Nothing changed since the validators were issued, keep them.
+                NetworkQualityEstimator.getDefault().onRoundTrip(roundTripNanos);
+                return new FetchResult(FetchResult.STATUS_NOT_MODIFIED, null,
+                        etag, lastModified, response.getBytesOnWire());
+            } else {
+                CoreLog.e(LOG_TAG, "Error response code: " + code);
+                return FetchResult.failed(response.getBytesOnWire());
+            }
+        } catch (ResilientTransport.CircuitOpenException e) {
+            // Expected while the API is down, the caller falls back to stored articles
+            CoreLog.i(LOG_TAG, e.getMessage());
+            return FetchResult.failed(0);
+        } catch (IOException e) {
+            if (token != null && token.isCancelled()) {
+                CoreLog.i(LOG_TAG, "Request cancelled: " + url);
+                return FetchResult.failed(response == null ? 0 : response.getBytesOnWire());
+            }
+            CoreLog.e(LOG_TAG, "Problem retrieving the article JSON results.", e);
+            return FetchResult.failed(response == null ? 0 : response.getBytesOnWire());
+        } finally {
+            if (token != null) {
+                // Don't let a late cancel abort a connection that is back in the pool
+                token.setOnCancelListener(null);
+            }
+            if (response != null) {
+                response.close();
+                CoreLog.i(LOG_TAG, "Received " + response.getBytesOnWire() + " bytes from " + url.getHost());
+            }
+        }
+    }
+
+    /**
+     * Convert the {@link InputStream} into a String which contains the
+     * whole JSON response from the server.
+     * The network path streams with {@link ArticleStreamParser}; this is kept for callers
+     * that already hold the whole payload.
+     */
+    static String readFromStream(InputStream inputStream) throws IOException {
+        StringBuilder output = new StringBuilder();
+        if (inputStream != null) {
+            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
+            BufferedReader reader = new BufferedReader(inputStreamReader);
+            String line = reader.readLine();
+            while (line != null) {
+                output.append(line);
+                line = reader.readLine();
+            }
+        }
+        return output.toString();
+    }
+
+    /**
+     * Adds up the time spent inside read calls, i.e. waiting on the network.
+     */
+    static final class TimedInputStream extends FilterInputStream {
+
+        long readNanos;
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read(buffer, offset, length);
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * Return a list of Article objects that has been built up from
+     * parsing a JSON response.
+     */
+    public static List<Article> extractFeatureFromJSON(String articlesJSON) {
+        // If the JSON string is empty or null, then return early.
+        if (articlesJSON == null || articlesJSON.isEmpty()) {
+            return null;
+        }
+        long start = Metrics.now();
+
+        // Create an empty ArrayList that we can start adding articles to
+        List<Article> articles = new ArrayList<>();
+
+        // Try to parse the JSONRESPONSE. This will catch the exception and write to logs
+        try {
+
+            // lets extract the data from JSON
+            JSONObject root = new JSONObject(articlesJSON);
+            JSONObject responseObject = root.getJSONObject(TAG_RESPONSE);
+            JSONArray resultsArray = responseObject.getJSONArray(TAG_RESULTS);
+            // Enter the results array and retrieve some values
+            for (int i = 0; i < resultsArray.length(); i++) {
+                JSONObject data = resultsArray.getJSONObject(i);
+                String sectionName = data.getString(TAG_SECTIONNAME);
+                String webPublicationDate = data.getString(TAG_WEBPUBLICATIONDATE);
+                String webUrl = data.getString(TAG_WEBURL);
+                JSONObject fields = data.getJSONObject(TAG_FIELDS);
+                String headline = fields.getString(TAG_HEADLINE);
+                String thumbnail = fields.getString(TAG_THUMBNAIL);
+                JSONArray tagsArray = data.getJSONArray(TAG_TAGS);
+
+                String author = null;
+                // Check that there is a contributor (author) array returned
+
+                if (tagsArray.length() > 0) {
+                        JSONObject authorObject = tagsArray.getJSONObject(0);
+
+                        //Author might not always be present so best to catch possible errors
+                        try {
+                            author = authorObject.getString(TAG_WEBTITLE);
+
+                        } catch (JSONException e) {
+                            CoreLog.e(LOG_TAG, "Error retrieving authors details", e);
+                        }
+                }
+
+                Article article = new Article(headline, thumbnail, author, webUrl, sectionName, webPublicationDate);
+                articles.add(article);
+            }
+
+        } catch (JSONException e) {
+
+            CoreLog.e("QueryUtils", "Problem parsing the article JSON results", e);
+        }
+        Metrics.getDefault().recordSince(Metrics.PARSE_TIME, start);
+        Metrics.getDefault().recordCount(Metrics.PARSE_ARTICLES, articles.size());
+        return articles;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.example.android.guardiantech;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces calls out to at most a given number a second across every thread that shares it,
+ * e.g. the requests of all backfill workers against the API's limit.
+ *
+ * Each {@link #acquire()} reserves the next free slot and sleeps until it comes round, so
+ * callers go in the order they asked and the rate holds however many of them there are.
+ * Slots left unused aren't saved up: after a pause the next call goes at once, and the ones
+ * after it are spaced again.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private long mNextFreeNanos = Long.MIN_VALUE;
+
+    /**
+     * @param permitsPerSecond 0 or less for no limit
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    /**
+     * Wait for the next slot.
+     */
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long waitNanos = reserve(System.nanoTime());
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /** Take the next slot at or after now; returns how long until it. */
+    synchronized long reserve(long nowNanos) {
+        long slot = mNextFreeNanos == Long.MIN_VALUE || mNextFreeNanos - nowNanos < 0 ? nowNanos : mNextFreeNanos;
+        mNextFreeNanos = slot + intervalNanos;
+        return slot - nowNanos;
+    }
+
+    public double getPermitsPerSecond() {
+        return intervalNanos == 0 ? 0 : (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.android.guardiantech;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HttpTransport} that retries failed GETs within a time budget and stops asking an API
+ * that keeps failing.
+ *
+ * Connection errors, timeouts, 429 and 5xx responses are retried as set by a
+ * {@link RetryPolicy}, waiting as long as a Retry-After header asks when it fits in the budget.
+ * Every attempt's timeouts are cut to what is left of the budget, so a request never takes
+ * much longer than the budget however the network misbehaves. Once a request has used up its
+ * attempts the {@link CircuitBreaker} hears about it; while the breaker is open requests fail
+ * at once with {@link CircuitOpenException}, leaving callers to show what they have stored.
+ *
+ * Only the exchange up to the response headers is retried, a body that fails part way is left
+ * to the caller. All requests are GETs, so repeating one is always safe.
+ */
+public class ResilientTransport implements HttpTransport {
+
+    private static final String LOG_TAG = ResilientTransport.class.getName();
+
+    private final HttpTransport delegate;
+    private final RetryPolicy policy;
+    private final CircuitBreaker breaker;
+    private final Random random = new Random();
+
+    /**
+     * Thrown instead of sending a request while the API is considered down.
+     */
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CircuitOpenException(String message) {
+            super(message);
+        }
+    }
+
+    public ResilientTransport(HttpTransport delegate, RetryPolicy policy, CircuitBreaker breaker) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.breaker = breaker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    @Override
+    public Response get(URL url, Map<String, String> headers) throws IOException {
+        return get(url, headers, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the first response worth keeping, or the last failed one once the attempts or
+     * the budget run out. Throws if the last attempt failed without a response.
+     */
+    @Override
+    public Response get(URL url, Map<String, String> headers, int timeoutMillis) throws IOException {
+        return get(url, headers, timeoutMillis, null);
+    }
+
+    /**
+     * As above, passing the token to each attempt and giving up without another attempt once
+     * it is cancelled, waking from a backoff to do so. A cancelled request doesn't count
+     * against the breaker; if it was the probe, the breaker is released for the next one.
+     */
+    @Override
+    public Response get(URL url, Map<String, String> headers, int timeoutMillis, CancellationToken token)
+            throws IOException {
+        long start = nowMillis();
+        if (!breaker.allowRequest(start)) {
+            throw new CircuitOpenException("Not sending request, " + breaker);
+        }
+        long deadline = start + Math.min(timeoutMillis, policy.getDeadlineMillis());
+
+        // Every way out must report to the breaker, or an abandoned probe would hold it half-open
+        boolean reported = false;
+        int attempt = 0;
+        try {
+            while (true) {
+                attempt++;
+                long remaining = deadline - nowMillis();
+                int attemptTimeout = (int) Math.max(1, Math.min(policy.getAttemptTimeoutMillis(), remaining));
+                Response response = null;
+                IOException error = null;
+                long retryAfter = -1;
+                try {
+                    response = delegate.get(url, headers, attemptTimeout, token);
+                    if (!RetryPolicy.isRetryable(response.getCode())) {
+                        finish(attempt);
+                        breaker.onSuccess();
+                        reported = true;
+                        return response;
+                    }
+                    retryAfter = RetryPolicy.retryAfterMillis(
+                            response.getHeader(RetryPolicy.HEADER_RETRY_AFTER), System.currentTimeMillis());
+                    CoreLog.i(LOG_TAG, "Attempt " + attempt + " got " + response.getCode() + " from " + url.getHost());
+                } catch (IOException e) {
+                    error = e;
+                    CoreLog.i(LOG_TAG, "Attempt " + attempt + " failed for " + url.getHost() + ": " + e);
+                }
+
+                if (token != null && token.isCancelled()) {
+                    finish(attempt);
+                    if (response != null) {
+                        response.close();
+                    }
+                    throw new IOException("Cancelled");
+                }
+                long wait = retryAfter >= 0 ? retryAfter : policy.backoffMillis(attempt, random);
+                long now = nowMillis();
+                if (attempt >= policy.getMaxAttempts() || now + wait >= deadline) {
+                    finish(attempt);
+                    breaker.onFailure(now);
+                    reported = true;
+                    if (retryAfter >= 0) {
+                        // Told when to come back, don't ask again before then
+                        breaker.openUntil(now + retryAfter);
+                    }
+                    if (response != null) {
+                        return response;
+                    }
+                    throw error;
+                }
+                if (response != null) {
+                    response.close();
+                }
+                if (!sleep(wait, token)) {
+                    finish(attempt);
+                    throw new IOException("Cancelled");
+                }
+            }
+        } finally {
+            if (!reported) {
+                breaker.release();
+            }
+        }
+    }
+
+    private static void finish(int attempts) {
+        Metrics.getDefault().recordCount(Metrics.HTTP_ATTEMPTS, attempts);
+    }
+
+    private static long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Wait before the next attempt, waking early if the token is cancelled. Returns false if
+     * it was.
+     */
+    private static boolean sleep(long millis, CancellationToken token) throws IOException {
+        if (token == null) {
+            try {
+                Thread.sleep(millis);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting to retry");
+            }
+        }
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        token.setOnCancelListener(new Runnable() {
+            @Override
+            public void run() {
+                cancelled.countDown();
+            }
+        });
+        try {
+            return !cancelled.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to retry");
+        } finally {
+            token.setOnCancelListener(null);
+        }
+    }
+}
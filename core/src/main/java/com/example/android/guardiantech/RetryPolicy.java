@@ -0,0 +1,112 @@
+package com.example.android.guardiantech;
+
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * How hard {@link ResilientTransport} tries before giving up on a request: how many attempts,
+ * how long to wait between them and the overall time budget they all share.
+ *
+ * Waits use exponential backoff with full jitter, a random time between zero and the capped
+ * exponential delay, so clients that failed together don't all retry together.
+ */
+public final class RetryPolicy {
+
+    /** Status the Guardian API answers with when the key's rate limit is used up */
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    public static final String HEADER_RETRY_AFTER = "Retry-After";
+
+    /**
+     * Three attempts within eight seconds, each allowed at most four seconds to connect and
+     * between reads, instead of one attempt waiting up to 15 + 10 seconds.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 250, 2000, 8000, 4000);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long deadlineMillis;
+    private final int attemptTimeoutMillis;
+
+    /**
+     * @param maxAttempts          attempts including the first
+     * @param baseDelayMillis      cap on the wait before the first retry, doubled for each one after
+     * @param maxDelayMillis       cap on any single wait
+     * @param deadlineMillis       budget for all attempts and waits together
+     * @param attemptTimeoutMillis connect and read timeout of one attempt, cut to the budget left
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long deadlineMillis,
+                       int attemptTimeoutMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.deadlineMillis = deadlineMillis;
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public int getAttemptTimeoutMillis() {
+        return attemptTimeoutMillis;
+    }
+
+    /**
+     * Random wait before the given retry, 1 for the first retry.
+     */
+    public long backoffMillis(int retry, Random random) {
+        long cap = baseDelayMillis << Math.min(retry - 1, 20);
+        cap = Math.min(cap, maxDelayMillis);
+        return cap <= 0 ? 0 : (long) (random.nextDouble() * cap);
+    }
+
+    /**
+     * Whether a response with this status is worth asking for again: rate limited, timed out
+     * or a server side failure. Anything else is an answer, if not the one we wanted.
+     */
+    public static boolean isRetryable(int code) {
+        return code == HTTP_TOO_MANY_REQUESTS
+                || code == HttpURLConnection.HTTP_CLIENT_TIMEOUT
+                || code == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || code == HttpURLConnection.HTTP_BAD_GATEWAY
+                || code == HttpURLConnection.HTTP_UNAVAILABLE
+                || code == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * Milliseconds a Retry-After header asks us to wait, given as seconds or an HTTP date,
+     * or -1 if the header is absent or unreadable.
+     *
+     * @param nowMillis wall clock time, to turn a date into a wait
+     */
+    public static long retryAfterMillis(String header, long nowMillis) {
+        if (header == null) {
+            return -1;
+        }
+        header = header.trim();
+        try {
+            return Math.max(0, Long.parseLong(header) * 1000);
+        } catch (NumberFormatException e) {
+            // Not seconds, try a date
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            Date date = format.parse(header);
+            return Math.max(0, date.getTime() - nowMillis);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
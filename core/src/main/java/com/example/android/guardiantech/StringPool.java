@@ -0,0 +1,40 @@
+package com.example.android.guardiantech;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one instance of each frequently repeated string, such as section names and authors,
+ * so thousands of articles don't each carry their own copy. Bounded, once full further strings
+ * are returned as they are. Safe to use from any thread.
+ */
+public final class StringPool {
+
+    private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public StringPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the pooled instance equal to the string, adding it if there is room.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = pool.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (pool.size() >= maxSize) {
+            return value;
+        }
+        pooled = pool.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    public int size() {
+        return pool.size();
+    }
+}
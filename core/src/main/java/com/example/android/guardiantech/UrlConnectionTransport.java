@@ -0,0 +1,215 @@
+package com.example.android.guardiantech;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link HttpTransport} on top of {@link HttpURLConnection}.
+ *
+ * Connections are left to the platform keep-alive pool: a response is drained and closed
+ * rather than disconnected, so the next request to the same host reuses the socket.
+ * gzip is asked for explicitly and decoded here, which lets us count the compressed bytes.
+ * Connect time and time to first byte of each request go to {@link Metrics}.
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+    private static final String LOG_TAG = UrlConnectionTransport.class.getName();
+    private static final String GZIP = "gzip";
+    // Draining more than this to save a handshake isn't worth it
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final Metrics metrics;
+
+    public UrlConnectionTransport() {
+        this(15000 /* milliseconds */, 10000 /* milliseconds */);
+    }
+
+    public UrlConnectionTransport(int connectTimeoutMillis, int readTimeoutMillis) {
+        this(connectTimeoutMillis, readTimeoutMillis, Metrics.getDefault());
+    }
+
+    public UrlConnectionTransport(int connectTimeoutMillis, int readTimeoutMillis, Metrics metrics) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response get(URL url, Map<String, String> headers) throws IOException {
+        return get(url, headers, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Response get(URL url, Map<String, String> headers, int timeoutMillis) throws IOException {
+        return get(url, headers, timeoutMillis, null);
+    }
+
+    @Override
+    public Response get(URL url, Map<String, String> headers, int timeoutMillis, CancellationToken token)
+            throws IOException {
+        final HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        if (token != null) {
+            // Closes the socket under a connect or a wait for headers in progress
+            token.setOnCancelListener(new Runnable() {
+                @Override
+                public void run() {
+                    urlConnection.disconnect();
+                }
+            });
+            if (token.isCancelled()) {
+                throw new IOException("Cancelled");
+            }
+        }
+        try {
+            // 0 would mean no timeout at all
+            urlConnection.setReadTimeout(Math.max(1, Math.min(readTimeoutMillis, timeoutMillis)));
+            urlConnection.setConnectTimeout(Math.max(1, Math.min(connectTimeoutMillis, timeoutMillis)));
+            urlConnection.setRequestMethod("GET");
+            urlConnection.setRequestProperty(HEADER_ACCEPT_ENCODING, GZIP);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                urlConnection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            long start = Metrics.now();
+            urlConnection.connect();
+            metrics.recordSince(Metrics.HTTP_CONNECT, start);
+            long sent = Metrics.now();
+            int code = urlConnection.getResponseCode();
+            metrics.recordSince(Metrics.HTTP_TTFB, sent);
+            return new ConnectionResponse(urlConnection, code, Metrics.now() - start);
+        } catch (IOException e) {
+            // The socket is in an unknown state, don't hand it back to the pool.
+            urlConnection.disconnect();
+            throw e;
+        }
+    }
+
+    private static final class ConnectionResponse implements Response {
+
+        private final HttpURLConnection connection;
+        private final int code;
+        private final long roundTripNanos;
+        private CountingInputStream raw;
+        private InputStream body;
+        private volatile boolean aborted;
+
+        ConnectionResponse(HttpURLConnection connection, int code, long roundTripNanos) {
+            this.connection = connection;
+            this.code = code;
+            this.roundTripNanos = roundTripNanos;
+        }
+
+        @Override
+        public int getCode() {
+            return code;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream in = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+                if (in == null || code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    in = new ByteArrayInputStream(new byte[0]);
+                }
+                raw = new CountingInputStream(in);
+                body = GZIP.equalsIgnoreCase(getHeader(HEADER_CONTENT_ENCODING))
+                        ? new GZIPInputStream(raw) : raw;
+            }
+            return body;
+        }
+
+        @Override
+        public long getBytesOnWire() {
+            return raw == null ? 0 : raw.count;
+        }
+
+        @Override
+        public long getRoundTripNanos() {
+            return roundTripNanos;
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            // On Android this closes the socket under any thread still reading from it
+            connection.disconnect();
+        }
+
+        /**
+         * Drain whatever is left of the body so the connection can go back to the pool.
+         * A large unread remainder is cheaper to drop along with the connection.
+         */
+        @Override
+        public void close() {
+            if (aborted) {
+                return;
+            }
+            try {
+                InputStream in = getBody();
+                byte[] skip = new byte[1024];
+                long drained = 0;
+                int read;
+                while ((read = raw.read(skip)) != -1) {
+                    drained += read;
+                    if (drained > MAX_DRAIN_BYTES) {
+                        connection.disconnect();
+                        return;
+                    }
+                }
+                in.close();
+            } catch (IOException e) {
+                CoreLog.e(LOG_TAG, "Error draining response, dropping connection", e);
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Counts bytes as they are read from the underlying connection stream.
+     */
+    static final class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.android.guardiantech;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Backfills against {@link GuardianStubServer}, which gives each section and range articles
+ * of its own, so a page fetched twice or written twice shows up as a duplicate webUrl.
+ */
+public class ArchiveBackfillTest {
+
+    private static final String[] SECTIONS = {"technology", "science"};
+    private static final int SLICES = 4;
+    private static final int PAGES = 3;
+    private static final int PAGE_SIZE = 10;
+    private static final long FROM = ArticleDateFormatter.parse("2018-01-01T00:00:00Z");
+    private static final long TO = ArticleDateFormatter.parse("2018-01-29T00:00:00Z");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GuardianStubServer server;
+    private QueryConfig config;
+    private File archive;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new GuardianStubServer().totalPages(PAGES);
+        config = new QueryConfig(server.getSearchUrl(), QueryConfig.DEFAULT_API_KEY, PAGE_SIZE,
+                GuardianQuery.ORDER_OLDEST);
+        archive = new File(folder.getRoot(), "archive.gtba");
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    @Test
+    public void run_fetchesEveryPageOfEverySlice() throws IOException {
+        ArchiveBackfill.Result result = builder().build().run(null);
+
+        int pages = SECTIONS.length * SLICES * PAGES;
+        assertTrue(result.isComplete());
+        assertEquals(pages, result.getPages());
+        assertEquals(pages * PAGE_SIZE, result.getArticles());
+        assertEquals(pages, server.getRequestCount());
+        List<Article> articles = readArchive();
+        assertEquals(pages * PAGE_SIZE, articles.size());
+        assertEquals(articles.size(), webUrls(articles).size());
+    }
+
+    @Test
+    public void archive_loadsIntoSearchIndex() throws IOException {
+        builder().build().run(null);
+
+        ArticleIndex index = new ArticleIndex();
+        index.addAll(readArchive());
+
+        // One iPad story a page
+        assertEquals(SECTIONS.length * SLICES * PAGES, index.search("ipad", 100).size());
+    }
+
+    @Test
+    public void run_again_fetchesNothing() throws IOException {
+        builder().build().run(null);
+        int requests = server.getRequestCount();
+
+        ArchiveBackfill.Result result = builder().build().run(null);
+
+        assertTrue(result.isComplete());
+        assertEquals(0, result.getPages());
+        assertEquals(requests, server.getRequestCount());
+    }
+
+    @Test
+    public void cancelledRun_resumesWithoutDuplicates() throws IOException {
+        final CancellationToken token = new CancellationToken();
+        ArchiveBackfill.Result first = builder()
+                .concurrency(2)
+                .listener(new ArchiveBackfill.Listener() {
+                    int written;
+
+                    @Override
+                    public void onPage(String slice, int page, int pages, int articles) {
+                        if (++written == 5) {
+                            token.cancel();
+                        }
+                    }
+                })
+                .build().run(token);
+        assertFalse(first.isComplete());
+        // Bytes after the committed length, as a crash between write and checkpoint leaves
+        FileOutputStream out = new FileOutputStream(archive, true);
+        out.write(new byte[]{0, 0, 0, 42, 1, 2, 3});
+        out.close();
+
+        ArchiveBackfill.Result second = builder().build().run(null);
+
+        int pages = SECTIONS.length * SLICES * PAGES;
+        assertTrue(second.isComplete());
+        assertEquals(pages, first.getPages() + second.getPages());
+        assertEquals(pages, server.getRequestCount());
+        List<Article> articles = readArchive();
+        assertEquals(pages * PAGE_SIZE, articles.size());
+        assertEquals(articles.size(), webUrls(articles).size());
+    }
+
+    @Test
+    public void failedPages_areLeftForNextRun() throws IOException {
+        server.errorRate(0.3);
+        ArchiveBackfill.Result first = builder().build().run(null);
+        assertTrue(first.getFailedPages() > 0);
+        assertFalse(first.isComplete());
+
+        server.errorRate(0);
+        ArchiveBackfill.Result second = builder().build().run(null);
+
+        assertTrue(second.isComplete());
+        List<Article> articles = readArchive();
+        assertEquals(SECTIONS.length * SLICES * PAGES * PAGE_SIZE, articles.size());
+        assertEquals(articles.size(), webUrls(articles).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void checkpointOfAnotherRange_isRefused() throws IOException {
+        builder().build().run(null);
+
+        builder().range(FROM, TO + TimeUnit.DAYS.toMillis(1)).build().run(null);
+    }
+
+    @Test(expected = IOException.class)
+    public void archiveShorterThanCheckpoint_isRefused() throws IOException {
+        builder().build().run(null);
+        RandomAccessFile raf = new RandomAccessFile(archive, "rw");
+        raf.setLength(raf.length() / 2);
+        raf.close();
+
+        builder().build().run(null);
+    }
+
+    @Test
+    public void throughput_scalesWithConcurrencyUpToRateLimit() throws IOException {
+        server.latency(20, 0).totalPages(5);
+        String[] sections = {"technology", "science", "business"};
+        int[] concurrency = {1, 2, 4, 8};
+        double[] perSecond = new double[concurrency.length];
+        StringBuilder runs = new StringBuilder();
+        for (int i = 0; i < concurrency.length; i++) {
+            File file = new File(folder.getRoot(), "throughput-" + concurrency[i] + ".gtba");
+            ArchiveBackfill.Result result = new ArchiveBackfill.Builder(config, file)
+                    .sections(sections)
+                    .range(FROM, TO)
+                    .concurrency(concurrency[i])
+                    .requestsPerSecond(i < concurrency.length - 1 ? 0 : 50)
+                    .transport(new UrlConnectionTransport())
+                    .build().run(null);
+            assertTrue(result.isComplete());
+            perSecond[i] = result.getPages() * 1e9 / result.getElapsedNanos();
+            runs.append(String.format(Locale.US, "%nconcurrency %d%s: %s, %.0f pages/s", concurrency[i],
+                    i < concurrency.length - 1 ? "" : " at 50 requests/s", result, perSecond[i]));
+        }
+
+        // Latency bound: twice the workers, well over one and a half times the pages
+        assertTrue(runs.toString(), perSecond[1] > 1.5 * perSecond[0]);
+        assertTrue(runs.toString(), perSecond[2] > 1.5 * perSecond[1]);
+        // Rate bound: more workers, but no more than the limit allows
+        assertTrue(runs.toString(), perSecond[3] <= 55);
+    }
+
+    private ArchiveBackfill.Builder builder() {
+        return new ArchiveBackfill.Builder(config, archive)
+                .sections(SECTIONS)
+                .range(FROM, TO)
+                .requestsPerSecond(0)
+                .transport(new UrlConnectionTransport());
+    }
+
+    private List<Article> readArchive() throws IOException {
+        final List<Article> articles = new ArrayList<>();
+        ArticleArchive.read(archive, new ArticleArchive.Visitor() {
+            @Override
+            public void onPage(List<Article> page) {
+                articles.addAll(page);
+            }
+        });
+        return articles;
+    }
+
+    private static Set<String> webUrls(List<Article> articles) {
+        Set<String> urls = new HashSet<>();
+        for (Article article : articles) {
+            urls.add(article.getWebUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.android.guardiantech;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ArticleArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendAndRead_roundTrip() throws IOException {
+        File file = folder.newFile();
+        ArticleArchive.Writer writer = ArticleArchive.append(file, 0);
+        writer.append(page(1, 20));
+        writer.append(page(2, 5));
+        writer.close();
+
+        List<List<Article>> pages = readPages(file);
+
+        assertEquals(2, pages.size());
+        assertEquals(page(1, 20), pages.get(0));
+        assertEquals(page(2, 5), pages.get(1));
+    }
+
+    @Test
+    public void append_dropsWhatWasNeverCommitted() throws IOException {
+        File file = folder.newFile();
+        ArticleArchive.Writer writer = ArticleArchive.append(file, 0);
+        long committed = writer.append(page(1, 10));
+        writer.append(page(2, 10));
+        writer.close();
+
+        writer = ArticleArchive.append(file, committed);
+        writer.append(page(3, 10));
+        writer.close();
+
+        List<List<Article>> pages = readPages(file);
+        assertEquals(2, pages.size());
+        assertEquals(page(3, 10), pages.get(1));
+    }
+
+    @Test
+    public void read_stopsAtTornRecord() throws IOException {
+        File file = folder.newFile();
+        ArticleArchive.Writer writer = ArticleArchive.append(file, 0);
+        writer.append(page(1, 10));
+        long length = writer.append(page(2, 10));
+        writer.close();
+        // Cut the last record short, as a crash part way through the write would
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(length - 7);
+        raf.close();
+
+        assertEquals(1, readPages(file).size());
+    }
+
+    @Test
+    public void read_stopsAtDamagedRecord() throws IOException {
+        File file = folder.newFile();
+        ArticleArchive.Writer writer = ArticleArchive.append(file, 0);
+        long first = writer.append(page(1, 10));
+        writer.append(page(2, 10));
+        writer.close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(first + 20);
+        raf.write(0xff);
+        raf.close();
+
+        assertEquals(1, readPages(file).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void append_refusesOtherFiles() throws IOException {
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("not an archive".getBytes("UTF-8"));
+        out.close();
+
+        ArticleArchive.append(file, 10);
+    }
+
+    @Test
+    public void append_refusesFileShorterThanCommitted() throws IOException {
+        File file = folder.newFile();
+        ArticleArchive.Writer writer = ArticleArchive.append(file, 0);
+        writer.append(page(1, 10));
+        long committed = writer.append(page(2, 10));
+        writer.close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(committed - 7);
+        raf.close();
+
+        try {
+            ArticleArchive.append(file, committed);
+            fail();
+        } catch (IOException expected) {
+            // The pages that are left must not have been thrown away
+            assertEquals(1, readPages(file).size());
+        }
+    }
+
+    private static List<List<Article>> readPages(File file) throws IOException {
+        final List<List<Article>> pages = new ArrayList<>();
+        ArticleArchive.read(file, new ArticleArchive.Visitor() {
+            @Override
+            public void onPage(List<Article> articles) {
+                pages.add(articles);
+            }
+        });
+        return pages;
+    }
+
+    private static List<Article> page(int page, int count) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            articles.add(new Article("Headline " + page + "." + i, "https://media.guim.co.uk/a/500.jpg",
+                    i % 2 == 0 ? "Author" : null, "https://www.theguardian.com/technology/" + page + "-" + i,
+                    "Technology", "2018-05-20T09:00:00Z"));
+        }
+        return articles;
+    }
+}
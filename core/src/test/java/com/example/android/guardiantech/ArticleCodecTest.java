@@ -0,0 +1,119 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ArticleCodecTest {
+
+    @Test
+    public void roundTrip_keepsEveryField() throws IOException {
+        List<Article> articles = parseFixture("fixtures/search_technology.json");
+        articles.add(new Article("Emoji \uD83D\uDE00, caf\u00e9 and \u2013 dash", null, null, "https://example.com/x",
+                null, "not a date"));
+
+        List<Article> decoded = ArticleCodec.decode(ArticleCodec.encode(articles));
+
+        assertEquals(articles, decoded);
+        Article last = decoded.get(decoded.size() - 1);
+        assertEquals("not a date", last.getWebPublicationDate());
+        assertEquals(articles.get(0).getId(), decoded.get(0).getId());
+        assertEquals("2018-05-20T09:00:00Z", decoded.get(0).getWebPublicationDate());
+    }
+
+    @Test
+    public void stream_roundTrip() throws IOException {
+        List<Article> articles = parseFixture("fixtures/search_no_contributors.json");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArticleCodec.write(articles, out);
+
+        assertEquals(articles, ArticleCodec.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    public void namesAreShared() throws IOException {
+        List<Article> decoded = ArticleCodec.decode(ArticleCodec.encode(parseFixture("fixtures/search_technology.json")));
+
+        assertSame(decoded.get(0).getCategory(), decoded.get(1).getCategory());
+    }
+
+    @Test
+    public void isMuchSmallerThanTheJson() throws IOException {
+        String json = ArticleStreamParserTest.readFixture("fixtures/search_technology.json");
+        List<Article> articles = parseFixture("fixtures/search_technology.json");
+
+        int binary = ArticleCodec.encode(articles).length;
+        int source = json.getBytes(Charset.forName("UTF-8")).length;
+        assertTrue(binary + " vs " + source, binary * 4 < source);
+    }
+
+    @Test
+    public void rejectsOtherVersionsAndTruncation() {
+        byte[] bytes = ArticleCodec.encode(Arrays.asList(
+                new Article("Headline", null, "Author", "https://www.theguardian.com/a", "Technology",
+                        "2018-05-20T09:00:00Z")));
+
+        byte[] otherVersion = bytes.clone();
+        otherVersion[4] = (byte) (ArticleCodec.VERSION + 1);
+        assertDecodeFails(otherVersion);
+        assertDecodeFails(Arrays.copyOf(bytes, bytes.length - 3));
+    }
+
+    @Test
+    public void rejectsNegativeAndImpossibleCounts() {
+        byte[] header = Arrays.copyOf(ArticleCodec.encode(new ArrayList<Article>()), 5);
+        // A ten-byte varint with the top bit set, negative as a long
+        byte[] negative = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01};
+        // Integer.MAX_VALUE names in a few bytes
+        byte[] huge = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+
+        assertDecodeFails(concat(header, negative));
+        assertDecodeFails(concat(header, huge));
+        // No names, then as many articles
+        assertDecodeFails(concat(header, new byte[]{0}, huge));
+    }
+
+    @Test
+    public void ids_areStableAndDistinct() {
+        assertEquals(Article.idFor("https://www.theguardian.com/a"), Article.idFor("https://www.theguardian.com/a"));
+        assertNotEquals(Article.idFor("https://www.theguardian.com/a"), Article.idFor("https://www.theguardian.com/b"));
+        // Pinned, the id must not change between releases
+        assertEquals(0xf7f7e000b5ac310eL, Article.idFor("https://www.theguardian.com/a"));
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertDecodeFails(byte[] bytes) {
+        try {
+            ArticleCodec.decode(bytes);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    private static List<Article> parseFixture(String name) throws IOException {
+        InputStream in = ArticleStreamParserTest.openFixture(name);
+        try {
+            return new ArrayList<>(ArticleStreamParser.parse(in));
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ArticleDateFormatterTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final ArticleDateFormatter formatter =
+            new ArticleDateFormatter(UTC, Locale.UK, "Just now", "%dm ago", "%dh ago");
+
+    @Test
+    public void parse_matchesSimpleDateFormat() throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.UK);
+        format.setTimeZone(UTC);
+        String[] dates = {
+                "2018-05-20T09:00:00Z", "1970-01-01T00:00:00Z", "2000-02-29T23:59:59Z",
+                "2016-12-31T12:30:45Z", "1969-07-20T20:17:40Z", "2100-03-01T00:00:01Z"
+        };
+        for (String date : dates) {
+            assertEquals(date, format.parse(date).getTime(), ArticleDateFormatter.parse(date));
+        }
+    }
+
+    @Test
+    public void formatIso_isTheInverseOfParse() {
+        String[] dates = {
+                "2018-05-20T09:00:00Z", "1970-01-01T00:00:00Z", "2000-02-29T23:59:59Z", "1969-07-20T20:17:40Z"
+        };
+        for (String date : dates) {
+            assertEquals(date, ArticleDateFormatter.formatIso(ArticleDateFormatter.parse(date)));
+        }
+    }
+
+    @Test
+    public void parse_rejectsOtherForms() {
+        assertEquals(ArticleDateFormatter.UNKNOWN, ArticleDateFormatter.parse(null));
+        assertEquals(ArticleDateFormatter.UNKNOWN, ArticleDateFormatter.parse(""));
+        assertEquals(ArticleDateFormatter.UNKNOWN, ArticleDateFormatter.parse("20-05-2018"));
+        assertEquals(ArticleDateFormatter.UNKNOWN, ArticleDateFormatter.parse("2018-13-20T09:00:00Z"));
+        assertEquals(ArticleDateFormatter.UNKNOWN, ArticleDateFormatter.parse("2018-05-20T09:00:0xZ"));
+    }
+
+    @Test
+    public void unknownDate_formatsEmptyInsteadOfCrashing() {
+        Article article = new Article("Headline", null, null, "url", "Technology", "not a date");
+
+        assertEquals("", formatter.format(article.getPublishedAtMillis(), System.currentTimeMillis()));
+    }
+
+    @Test
+    public void recentDates_areRelative() {
+        long published = ArticleDateFormatter.parse("2018-05-20T09:00:00Z");
+
+        assertEquals("Just now", formatter.format(published, published + TimeUnit.SECONDS.toMillis(30)));
+        assertEquals("5m ago", formatter.format(published, published + TimeUnit.MINUTES.toMillis(5)));
+        assertEquals("3h ago", formatter.format(published, published + TimeUnit.MINUTES.toMillis(200)));
+        assertEquals("20-05-2018", formatter.format(published, published + TimeUnit.DAYS.toMillis(2)));
+    }
+
+    @Test
+    public void formatDay_usesTimeZoneAndCaches() {
+        long published = ArticleDateFormatter.parse("2018-05-20T23:30:00Z");
+        ArticleDateFormatter tokyo = new ArticleDateFormatter(TimeZone.getTimeZone("Asia/Tokyo"),
+                Locale.UK, "Just now", "%dm ago", "%dh ago");
+
+        assertEquals("20-05-2018", formatter.formatDay(published));
+        assertEquals("21-05-2018", tokyo.formatDay(published));
+        assertSame(formatter.formatDay(published), formatter.formatDay(published + 1000));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ArticleIndexTest {
+
+    private final ArticleIndex index = new ArticleIndex();
+
+    @Test
+    public void prefixesOfEveryWordMustMatch() {
+        index.addAll(Arrays.asList(
+                article("a", "Apple unveils new iPad Pro", "Samuel Gibbs", "2018-05-20T09:00:00Z"),
+                article("b", "Applications for the new tax year", "Alex Hern", "2018-05-19T09:00:00Z"),
+                article("c", "Google Pixel review", "Samuel Gibbs", "2018-05-18T09:00:00Z")));
+
+        assertEquals(Arrays.asList("a", "b"), slugs(index.search("app", 10)));
+        assertEquals(Collections.singletonList("a"), slugs(index.search("app sam", 10)));
+        assertEquals(Collections.singletonList("c"), slugs(index.search("PIX", 10)));
+        assertTrue(index.search("app pixel", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    public void headlineBeatsAuthorBeatsSection_wholeWordBeatsPrefix() {
+        index.addAll(Arrays.asList(
+                article("section", "Markets slide", "Alex Hern", "2018-05-20T09:00:00Z"),
+                article("author", "Markets rally", "Tech Reporter", "2018-05-19T09:00:00Z"),
+                article("prefix", "Technological change", "Alex Hern", "2018-05-18T09:00:00Z"),
+                article("headline", "Tech giants report", "Alex Hern", "2018-05-17T09:00:00Z")));
+
+        // Everything is in the Technology section, so all four match "tech". Whole word in the
+        // headline 6, whole word in the author 4, prefix in the headline 3, section prefix only 1.
+        assertEquals(Arrays.asList("headline", "author", "prefix", "section"), slugs(index.search("tech", 10)));
+    }
+
+    @Test
+    public void tiesGoToNewerArticles_andLimitKeepsTheBest() {
+        List<Article> articles = new ArrayList<>();
+        for (int day = 10; day < 30; day++) {
+            articles.add(article("d" + day, "Daily briefing", "Alex Hern", "2018-05-" + day + "T09:00:00Z"));
+        }
+        index.addAll(articles);
+
+        assertEquals(Arrays.asList("d29", "d28", "d27"), slugs(index.search("brief", 3)));
+    }
+
+    @Test
+    public void changedArticleReplacesItsOldVersion() {
+        index.addAll(Collections.singletonList(article("a", "Original headline", "Alex Hern", "2018-05-20T09:00:00Z")));
+        index.addAll(Collections.singletonList(article("a", "Original headline", "Alex Hern", "2018-05-20T09:00:00Z")));
+        index.addAll(Collections.singletonList(article("a", "Corrected headline", "Alex Hern", "2018-05-20T09:00:00Z")));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("original", 10).isEmpty());
+        assertEquals(Collections.singletonList("a"), slugs(index.search("corrected", 10)));
+    }
+
+    @Test
+    public void trimTo_keepsMostRecentlyAdded() {
+        index.addAll(Arrays.asList(
+                article("a", "Apple unveils new iPad Pro", "Samuel Gibbs", "2018-05-20T09:00:00Z"),
+                article("b", "Applications for the new tax year", "Alex Hern", "2018-05-19T09:00:00Z")));
+        index.addAll(Collections.singletonList(
+                article("c", "Apps that track you", "Alex Hern", "2018-05-18T09:00:00Z")));
+
+        index.trimTo(2);
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("b", "c"), slugs(index.search("app", 10)));
+        index.addAll(Collections.singletonList(
+                article("a", "Apple unveils new iPad Pro", "Samuel Gibbs", "2018-05-20T09:00:00Z")));
+        assertEquals(Arrays.asList("a", "b", "c"), slugs(index.search("app", 10)));
+    }
+
+    @Test
+    public void tokenize_lowerCasesAndDropsApostrophes() {
+        assertEquals(Arrays.asList("apples", "m1", "chip", "isn", "t", "slow"),
+                ArticleIndex.tokenize("Apple's M1-chip \"isn t\" slow!"));
+    }
+
+    private static Article article(String slug, String headline, String author, String date) {
+        return new Article(headline, null, author, "https://www.theguardian.com/" + slug, "Technology", date);
+    }
+
+    private static List<String> slugs(List<Article> articles) {
+        List<String> slugs = new ArrayList<>();
+        for (Article article : articles) {
+            slugs.add(article.getWebUrl().substring("https://www.theguardian.com/".length()));
+        }
+        return slugs;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds recorded search responses through both the JSONObject parser and the streaming parser.
+ */
+public class ArticleStreamParserTest {
+
+    private static final String[] FIXTURES = {
+            "fixtures/search_technology.json",
+            "fixtures/search_no_contributors.json",
+            "fixtures/search_missing_thumbnail.json",
+            "fixtures/search_empty.json"
+    };
+
+    @Test
+    public void fixtures_matchJsonParser() throws IOException {
+        for (String fixture : FIXTURES) {
+            List<Article> expected = QueryUtils.extractFeatureFromJSON(readFixture(fixture));
+            List<Article> actual = ArticleStreamParser.parse(openFixture(fixture));
+            assertSameArticles(fixture, expected, actual);
+        }
+    }
+
+    @Test
+    public void technology_readsAllFields() throws IOException {
+        List<Article> articles = ArticleStreamParser.parse(openFixture("fixtures/search_technology.json"));
+
+        assertEquals(10, articles.size());
+        Article first = articles.get(0);
+        assertEquals("Apple unveils new iPad Pro with faster chip", first.getHeadline());
+        assertEquals("Samuel Gibbs", first.getAuthor());
+        assertEquals("Technology", first.getCategory());
+        assertEquals("2018-05-20T09:00:00Z", first.getWebPublicationDate());
+        assertEquals("https://www.theguardian.com/technology/2018/may/20/apple-unveils-new-ipad-pro",
+                first.getWebUrl());
+    }
+
+    @Test
+    public void missingContributor_givesNullAuthor() throws IOException {
+        List<Article> articles = ArticleStreamParser.parse(openFixture("fixtures/search_no_contributors.json"));
+
+        assertNull(articles.get(0).getAuthor());
+        assertEquals("Alex Hern", articles.get(1).getAuthor());
+    }
+
+    @Test
+    public void missingThumbnail_keepsEarlierArticles() throws IOException {
+        List<Article> articles = ArticleStreamParser.parse(openFixture("fixtures/search_missing_thumbnail.json"));
+
+        assertEquals(4, articles.size());
+    }
+
+    @Test
+    public void emptyStream_returnsNull() {
+        assertNull(ArticleStreamParser.parse(new ByteArrayInputStream(new byte[0])));
+        assertNull(ArticleStreamParser.parse(null));
+    }
+
+    @Test
+    public void truncatedDocument_returnsNoArticles() throws IOException {
+        String json = readFixture("fixtures/search_technology.json");
+        InputStream truncated = new ByteArrayInputStream(
+                json.substring(0, json.length() / 2).getBytes(Charset.forName("UTF-8")));
+
+        assertTrue(ArticleStreamParser.parse(truncated).isEmpty());
+    }
+
+    @Test
+    public void listener_receivesArticlesInOrder() throws IOException {
+        final StringBuilder urls = new StringBuilder();
+        boolean parsed = ArticleStreamParser.parse(openFixture("fixtures/search_technology.json"),
+                new ArticleStreamParser.Listener() {
+                    @Override
+                    public void onArticle(Article article) {
+                        urls.append(article.getWebUrl()).append('\n');
+                    }
+                });
+
+        assertTrue(parsed);
+        assertTrue(urls.toString().startsWith(
+                "https://www.theguardian.com/technology/2018/may/20/apple-unveils-new-ipad-pro\n"));
+    }
+
+    @Test
+    public void bodyField_collectedByWebUrl() throws IOException {
+        String json = readFixture("fixtures/search_technology.json").replaceFirst(
+                "\"headline\": ", "\"body\": \"<p>Text</p>\", \"headline\": ");
+        ArticlePage page = ArticleStreamParser.parsePage(
+                new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8"))));
+
+        assertEquals(10, page.getArticles().size());
+        assertEquals(1, page.getBodies().size());
+        assertEquals("<p>Text</p>", page.getBodies().get(
+                "https://www.theguardian.com/technology/2018/may/20/apple-unveils-new-ipad-pro"));
+    }
+
+    private static void assertSameArticles(String fixture, List<Article> expected, List<Article> actual) {
+        assertEquals(fixture, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Article e = expected.get(i);
+            Article a = actual.get(i);
+            String message = fixture + " #" + i;
+            assertEquals(message, e.getHeadline(), a.getHeadline());
+            assertEquals(message, e.getThumbnail(), a.getThumbnail());
+            assertEquals(message, e.getAuthor(), a.getAuthor());
+            assertEquals(message, e.getWebUrl(), a.getWebUrl());
+            assertEquals(message, e.getCategory(), a.getCategory());
+            assertEquals(message, e.getWebPublicationDate(), a.getWebPublicationDate());
+        }
+    }
+
+    static InputStream openFixture(String name) {
+        InputStream in = ArticleStreamParserTest.class.getClassLoader().getResourceAsStream(name);
+        assertNotNull("Missing fixture " + name, in);
+        return in;
+    }
+
+    static String readFixture(String name) throws IOException {
+        InputStream in = openFixture(name);
+        try {
+            return QueryUtils.readFromStream(in);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000);
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        breaker.onSuccess();
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+
+        breaker.onFailure(10);
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(500));
+        assertFalse(breaker.allowRequest(1009));
+        assertEquals(2, breaker.getRejected());
+    }
+
+    @Test
+    public void letsOneProbeThroughAfterCoolDown() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.onFailure(0);
+
+        assertTrue(breaker.allowRequest(1000));
+        assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(1001));
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest(1002));
+    }
+
+    @Test
+    public void failedProbeOpensAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(5, 1000);
+        breaker.openUntil(100);
+        assertTrue(breaker.allowRequest(100));
+
+        breaker.onFailure(100);
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(1099));
+        assertTrue(breaker.allowRequest(1100));
+    }
+
+    @Test
+    public void releasedProbe_letsTheNextOneThrough() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.onFailure(0);
+        assertTrue(breaker.allowRequest(1000));
+
+        breaker.release();
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest(1001));
+        assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    public void release_whileClosed_changesNothing() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1000);
+        breaker.onFailure(0);
+        assertTrue(breaker.allowRequest(1));
+
+        breaker.release();
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        breaker.onFailure(2);
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void openUntil_onlyExtends() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.onFailure(0);
+        breaker.openUntil(500);
+        assertFalse(breaker.allowRequest(999));
+
+        breaker.openUntil(5000);
+        assertFalse(breaker.allowRequest(4999));
+        assertTrue(breaker.allowRequest(5000));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.android.guardiantech;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server that answers each request with the next scripted fault, then with the
+ * search_technology fixture once the script runs out.
+ */
+final class FaultInjectingServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Queue<Fault> faults = new ArrayDeque<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final byte[] body;
+
+    /** What to do with one request. */
+    static final class Fault {
+        final int code;
+        final String retryAfter;
+        final long stallMillis;
+        final boolean drop;
+
+        private Fault(int code, String retryAfter, long stallMillis, boolean drop) {
+            this.code = code;
+            this.retryAfter = retryAfter;
+            this.stallMillis = stallMillis;
+            this.drop = drop;
+        }
+
+        static Fault status(int code) {
+            return new Fault(code, null, 0, false);
+        }
+
+        static Fault status(int code, String retryAfter) {
+            return new Fault(code, retryAfter, 0, false);
+        }
+
+        /** Answer normally, but only after the given time. */
+        static Fault stall(long millis) {
+            return new Fault(200, null, millis, false);
+        }
+
+        /** Close the connection without answering. */
+        static Fault drop() {
+            return new Fault(0, null, 0, true);
+        }
+    }
+
+    FaultInjectingServer() throws IOException {
+        body = ArticleStreamParserTest.readFixture("fixtures/search_technology.json").getBytes(Charset.forName("UTF-8"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Stalled requests mustn't hold up the retries behind them
+        server.setExecutor(executor);
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                Fault fault;
+                synchronized (faults) {
+                    fault = faults.poll();
+                }
+                if (fault == null) {
+                    fault = Fault.status(200);
+                }
+                if (fault.drop) {
+                    exchange.close();
+                    return;
+                }
+                if (fault.stallMillis > 0) {
+                    try {
+                        Thread.sleep(fault.stallMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (fault.retryAfter != null) {
+                    exchange.getResponseHeaders().set(RetryPolicy.HEADER_RETRY_AFTER, fault.retryAfter);
+                }
+                if (fault.code == 200) {
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                } else {
+                    exchange.sendResponseHeaders(fault.code, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    void enqueue(Fault... script) {
+        synchronized (faults) {
+            for (Fault fault : script) {
+                faults.add(fault);
+            }
+        }
+    }
+
+    int getRequestCount() {
+        return requests.get();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/search?section=technology";
+    }
+
+    URL parsedUrl() throws MalformedURLException {
+        return new URL(url());
+    }
+
+    void shutdown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GuardianQueryTest {
+
+    private static final String BASE = "https://content.guardianapis.com/search";
+
+    @Test
+    public void url_onlyWhatWasAskedFor() {
+        GuardianQuery query = new GuardianQuery.Builder(BASE)
+                .apiKey("test")
+                .sections("technology")
+                .fields(GuardianQuery.FIELD_THUMBNAIL, GuardianQuery.FIELD_HEADLINE)
+                .tags(GuardianQuery.TAG_CONTRIBUTOR)
+                .pageSize(10)
+                .orderBy(GuardianQuery.ORDER_NEWEST)
+                .build();
+
+        assertEquals(BASE + "?order-by=newest&page-size=10&section=technology"
+                + "&show-fields=headline%2Cthumbnail&show-tags=contributor&api-key=test", query.getUrl());
+    }
+
+    @Test
+    public void sameRequest_sameCacheKey() {
+        GuardianQuery a = new GuardianQuery.Builder(BASE)
+                .apiKey("one")
+                .sections("science", "technology")
+                .fields(GuardianQuery.FIELD_HEADLINE, GuardianQuery.FIELD_THUMBNAIL)
+                .page(1)
+                .build();
+        GuardianQuery b = new GuardianQuery.Builder(BASE)
+                .apiKey("two")
+                .fields(GuardianQuery.FIELD_THUMBNAIL, GuardianQuery.FIELD_HEADLINE, GuardianQuery.FIELD_HEADLINE)
+                .sections(" Technology", "science")
+                .build();
+
+        assertEquals(a.getCacheKey(), b.getCacheKey());
+        assertEquals(a, b);
+        assertFalse(a.getCacheKey().contains("api-key"));
+        assertNull(a.getParameter(GuardianQuery.PARAM_PAGE));
+        assertEquals("science|technology", a.getParameter(GuardianQuery.PARAM_SECTION));
+    }
+
+    @Test
+    public void differentRequest_differentCacheKey() {
+        GuardianQuery first = new GuardianQuery.Builder(BASE).sections("technology").build();
+
+        assertNotEquals(first.getCacheKey(), first.newBuilder().page(2).build().getCacheKey());
+        assertNotEquals(first.getCacheKey(), first.newBuilder().pageSize(20).build().getCacheKey());
+        assertNotEquals(first.getCacheKey(), first.newBuilder().fields(GuardianQuery.FIELD_HEADLINE)
+                .build().getCacheKey());
+    }
+
+    @Test
+    public void feedKey_ignoresPageSizeFieldsAndTags() {
+        GuardianQuery feed = new GuardianQuery.Builder(BASE).sections("technology").pageSize(10)
+                .fields(GuardianQuery.FIELD_HEADLINE).build();
+        GuardianQuery withBodies = feed.newBuilder().pageSize(20).fields(GuardianQuery.FIELD_BODY)
+                .tags(GuardianQuery.TAG_CONTRIBUTOR).build();
+
+        assertNotEquals(feed.getCacheKey(), withBodies.getCacheKey());
+        assertEquals(feed.getFeedKey(), withBodies.getFeedKey());
+        assertNotEquals(feed.getFeedKey(), feed.newBuilder().page(2).build().getFeedKey());
+        assertNotEquals(feed.getFeedKey(), feed.newBuilder().sections("science").build().getFeedKey());
+    }
+
+    @Test
+    public void pageSize_apiDefaultWhenNotAsked() {
+        GuardianQuery query = new GuardianQuery.Builder(BASE).sections("technology").build();
+
+        assertEquals(GuardianQuery.DEFAULT_PAGE_SIZE, query.getPageSize());
+        assertEquals(25, query.newBuilder().pageSize(25).build().getPageSize());
+    }
+
+    @Test
+    public void newBuilder_keepsEverything() {
+        GuardianQuery query = new GuardianQuery.Builder(BASE)
+                .apiKey("test")
+                .sections("business", "science")
+                .fields(GuardianQuery.FIELD_HEADLINE)
+                .tags(GuardianQuery.TAG_CONTRIBUTOR)
+                .page(3)
+                .pageSize(50)
+                .fromDate(ArticleDateFormatter.parse("2018-05-01T00:00:00Z"))
+                .toDate(ArticleDateFormatter.parse("2018-05-31T23:59:59Z"))
+                .orderBy(GuardianQuery.ORDER_OLDEST)
+                .build();
+
+        GuardianQuery copy = query.newBuilder().build();
+
+        assertEquals(query.getUrl(), copy.getUrl());
+        assertEquals("2018-05-01T00:00:00Z", copy.getParameter(GuardianQuery.PARAM_FROM_DATE));
+        assertEquals("2018-05-31T23:59:59Z", copy.getParameter(GuardianQuery.PARAM_TO_DATE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pageSizeAboveApiLimit_rejected() {
+        new GuardianQuery.Builder(BASE).pageSize(GuardianQuery.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOrder_rejected() {
+        new GuardianQuery.Builder(BASE).orderBy("popular");
+    }
+
+    @Test
+    public void feeds_projectedToWhatARowShows() {
+        QueryConfig config = new QueryConfig(BASE, "test", 10, GuardianQuery.ORDER_NEWEST);
+
+        List<GuardianQuery> feeds = config.feeds(new String[]{"technology", "science"}, 2);
+
+        assertEquals(2, feeds.size());
+        assertEquals("technology", feeds.get(0).getParameter(GuardianQuery.PARAM_SECTION));
+        assertEquals("2", feeds.get(1).getParameter(GuardianQuery.PARAM_PAGE));
+        assertEquals("headline,thumbnail", feeds.get(0).getParameter(GuardianQuery.PARAM_SHOW_FIELDS));
+        assertEquals("contributor", feeds.get(0).getParameter(GuardianQuery.PARAM_SHOW_TAGS));
+        assertEquals(Arrays.asList(feeds.get(0).getUrl(), feeds.get(1).getUrl()), GuardianQuery.urls(feeds));
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.android.guardiantech;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Guardian search endpoint, for load tests that have to be repeatable
+ * and run offline.
+ *
+ * Answers /search with the results recorded in search_technology.json, repeated with fresh
+ * webUrls to make up as many articles as the request's page-size asks for, or as
+ * {@link #articlesPerPage(int)} forces, so pages can be scaled past the API's limit of 200.
+ * Queries with a from-date get articles of their own for each section and date, so ranges
+ * don't overlap.
+ * Responses carry an ETag and a matching If-None-Match gets a 304, like the real API.
+ *
+ * How it misbehaves is set per test: latency before the headers, a bandwidth cap on the body,
+ * a share of requests answered 503, and a body field of a given size on every article to
+ * make the payload bigger. Random choices come from a seeded Random so runs are repeatable.
+ */
+final class GuardianStubServer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int DEFAULT_TOTAL_PAGES = 100;
+    /** Bandwidth is enforced a chunk at a time */
+    private static final int CHUNK_BYTES = 4096;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final JSONArray recorded;
+    /** Rendered pages by page, size and body size, so rendering isn't part of what is timed */
+    private final Map<String, byte[]> pages = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile long bytesPerSecond;
+    private volatile double errorRate;
+    private volatile int articlesPerPage;
+    private volatile int bodyBytes;
+    private volatile int totalPages = DEFAULT_TOTAL_PAGES;
+    private final Random random = new Random(42);
+
+    GuardianStubServer() throws IOException {
+        try {
+            recorded = new JSONObject(ArticleStreamParserTest.readFixture("fixtures/search_technology.json"))
+                    .getJSONObject("response").getJSONArray("results");
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Slow responses mustn't hold up the parallel requests behind them
+        server.setExecutor(executor);
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    /** Base URL to give QueryConfig in place of the real endpoint. */
+    String getSearchUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/search";
+    }
+
+    /** Wait this long, plus up to the jitter, before answering. */
+    GuardianStubServer latency(long millis, long jitter) {
+        latencyMillis = millis;
+        jitterMillis = jitter;
+        return this;
+    }
+
+    /** Send bodies at most this fast, 0 for as fast as loopback goes. */
+    GuardianStubServer bandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /** Answer this share of requests with a 503. */
+    GuardianStubServer errorRate(double rate) {
+        errorRate = rate;
+        return this;
+    }
+
+    /** Return this many articles per page whatever page-size asks for, 0 to follow it. */
+    GuardianStubServer articlesPerPage(int count) {
+        articlesPerPage = count;
+        return this;
+    }
+
+    /** Give every article a body field of about this many bytes, 0 for none. */
+    GuardianStubServer bodyBytes(int bytes) {
+        bodyBytes = bytes;
+        return this;
+    }
+
+    /** Say every query has this many pages. */
+    GuardianStubServer totalPages(int pages) {
+        totalPages = pages;
+        return this;
+    }
+
+    int getRequestCount() {
+        return requests.get();
+    }
+
+    int getErrorCount() {
+        return errors.get();
+    }
+
+    /** Requests whose If-None-Match matched and were answered 304. */
+    int getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    void shutdown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+        long delay;
+        boolean fail;
+        synchronized (random) {
+            delay = latencyMillis + (jitterMillis > 0 ? (long) (random.nextDouble() * jitterMillis) : 0);
+            fail = random.nextDouble() < errorRate;
+        }
+        sleep(delay);
+        if (fail) {
+            errors.incrementAndGet();
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+
+        int page = intParam(params, "page", 1);
+        int count = articlesPerPage > 0 ? articlesPerPage : intParam(params, "page-size", DEFAULT_PAGE_SIZE);
+        String from = params.get("from-date");
+        String range = from != null ? params.get("section") + from : null;
+        byte[] body = page(range, page, count, bodyBytes);
+        String etag = "\"" + range + "-" + page + "-" + count + "-" + bodyBytes + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        write(out, body);
+        out.close();
+    }
+
+    /** Write the body, keeping to the bandwidth cap if there is one. */
+    private void write(OutputStream out, byte[] body) throws IOException {
+        long rate = bytesPerSecond;
+        long start = System.nanoTime();
+        for (int offset = 0; offset < body.length; offset += CHUNK_BYTES) {
+            int length = Math.min(CHUNK_BYTES, body.length - offset);
+            out.write(body, offset, length);
+            out.flush();
+            bytesSent.addAndGet(length);
+            if (rate > 0) {
+                long due = (offset + length) * 1000L / rate;
+                long elapsed = (System.nanoTime() - start) / 1000000L;
+                sleep(due - elapsed);
+            }
+        }
+    }
+
+    private byte[] page(String range, int page, int count, int bodyBytes) throws IOException {
+        String key = range + "/" + page + "/" + count + "/" + bodyBytes + "/" + totalPages;
+        byte[] rendered = pages.get(key);
+        if (rendered == null) {
+            rendered = render(range, page, count, bodyBytes);
+            pages.put(key, rendered);
+        }
+        return rendered;
+    }
+
+    /**
+     * A search response with count articles, the recorded ones first and then copies of them
+     * with webUrls of their own. Past the first page, or for a range, all are copies.
+     */
+    private byte[] render(String range, int page, int count, int bodyBytes) throws IOException {
+        try {
+            String paragraph = bodyBytes > 0 ? paragraph() : null;
+            JSONArray results = new JSONArray();
+            for (int i = 0; i < count; i++) {
+                JSONObject result = new JSONObject(recorded.getJSONObject(i % recorded.length()).toString());
+                if (range != null || page > 1 || i >= recorded.length()) {
+                    String suffix = (range != null ? "-" + range.replace(":", "") : "") + "-p" + page + "-" + i;
+                    result.put("id", result.getString("id") + suffix);
+                    result.put("webUrl", result.getString("webUrl") + suffix);
+                }
+                if (paragraph != null) {
+                    StringBuilder body = new StringBuilder(bodyBytes + paragraph.length());
+                    while (body.length() < bodyBytes) {
+                        body.append(paragraph);
+                    }
+                    result.getJSONObject("fields").put("body", body.toString());
+                }
+                results.put(result);
+            }
+            JSONObject response = new JSONObject()
+                    .put("status", "ok")
+                    .put("userTier", "developer")
+                    .put("total", totalPages * count)
+                    .put("startIndex", (page - 1) * count + 1)
+                    .put("pageSize", count)
+                    .put("currentPage", page)
+                    .put("pages", totalPages)
+                    .put("orderBy", "newest")
+                    .put("results", results);
+            return new JSONObject().put("response", response).toString().getBytes(UTF_8);
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String paragraph() {
+        return "<p>The quick brown fox jumps over the lazy dog, again and again, "
+                + "for as long as the payload needs to be.</p>";
+    }
+
+    private static Map<String, String> params(String rawQuery) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(value + " above its bucket", value <= Histogram.upperBound(bucket));
+            assertTrue(value + " in the bucket below", bucket == 0 || value > Histogram.upperBound(bucket - 1));
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentilesWithinBucketError() {
+        Histogram histogram = new Histogram("test", Metrics.UNIT_MICROS);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        assertWithin(500, histogram.getPercentile(0.50));
+        assertWithin(950, histogram.getPercentile(0.95));
+        assertWithin(990, histogram.getPercentile(0.99));
+        assertEquals(1000, histogram.getPercentile(1.0));
+    }
+
+    @Test
+    public void percentilesOfSkewedLatencies() {
+        // Mostly fast with a slow tail, the shape of real request times
+        Histogram histogram = new Histogram("test", Metrics.UNIT_MICROS);
+        Random random = new Random(1);
+        for (int i = 0; i < 9000; i++) {
+            histogram.record(20000 + random.nextInt(10000));
+        }
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(2000000 + random.nextInt(1000000));
+        }
+        assertTrue(histogram.getPercentile(0.50) < 30000 * 1.125);
+        assertTrue(histogram.getPercentile(0.95) >= 2000000);
+        assertTrue(histogram.getPercentile(0.99) <= histogram.getMax());
+    }
+
+    @Test
+    public void emptyAndNegative() {
+        Histogram histogram = new Histogram("test", Metrics.UNIT_MICROS);
+        assertEquals(0, histogram.getPercentile(0.99));
+        assertEquals(0, histogram.getMean(), 0);
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.5));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void dumpListsHistogramsByName() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.recordBytes(Metrics.HTTP_BYTES, 2048);
+        metrics.recordNanos(Metrics.HTTP_CONNECT, 3000000);
+        metrics.recordCount(Metrics.PARSE_ARTICLES, 10);
+        assertSame(metrics.histogram(Metrics.HTTP_BYTES, Metrics.UNIT_BYTES), metrics.getHistograms().get(0));
+
+        StringWriter writer = new StringWriter();
+        metrics.dump(writer);
+        String[] lines = writer.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].startsWith(Metrics.HTTP_BYTES) && lines[0].endsWith(Metrics.UNIT_BYTES));
+        assertTrue(lines[1], lines[1].startsWith(Metrics.HTTP_CONNECT) && lines[1].contains("max=3000 "));
+        assertTrue(lines[2], lines[2].startsWith(Metrics.PARSE_ARTICLES) && lines[2].contains("n=1 "));
+
+        metrics.reset();
+        assertEquals(0, metrics.histogram(Metrics.HTTP_CONNECT, Metrics.UNIT_MICROS).getCount());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 1.125);
+    }
+}
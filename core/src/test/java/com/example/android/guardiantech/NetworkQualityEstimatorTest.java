@@ -0,0 +1,152 @@
+package com.example.android.guardiantech;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Synthetic traces of feed responses played into the estimator: a page of three sections is
+ * about 30KB, sent at the throughput and after the round trip typical of each kind of link.
+ */
+public class NetworkQualityEstimatorTest {
+
+    private static final long PAGE_BYTES = 30 * 1024;
+
+    // {round trip ms, kilobits a second}
+    private static final long[] EDGE = {900, 60};
+    private static final long[] HSPA = {300, 400};
+    private static final long[] LTE = {120, 1500};
+    private static final long[] WIFI = {30, 20000};
+
+    private final List<Integer> changes = new ArrayList<>();
+    private NetworkQualityEstimator estimator;
+
+    @Before
+    public void setUp() {
+        estimator = new NetworkQualityEstimator();
+        estimator.addListener(new NetworkQualityEstimator.Listener() {
+            @Override
+            public void onNetworkClassChanged(int networkClass) {
+                changes.add(networkClass);
+            }
+        });
+    }
+
+    @Test
+    public void unknown_untilFirstResponse() {
+        assertEquals(NetworkQualityEstimator.UNKNOWN, estimator.getNetworkClass());
+        assertEquals(-1, estimator.getKbps(), 0);
+
+        play(WIFI, 1);
+
+        assertEquals(NetworkQualityEstimator.EXCELLENT, estimator.getNetworkClass());
+        assertEquals(20000, estimator.getKbps(), 1);
+        assertEquals(30, estimator.getRoundTripMillis(), 1);
+    }
+
+    @Test
+    public void eachKindOfLink_classified() {
+        long[][] links = {EDGE, HSPA, LTE, WIFI};
+        int[] expected = {NetworkQualityEstimator.POOR, NetworkQualityEstimator.MODERATE,
+                NetworkQualityEstimator.GOOD, NetworkQualityEstimator.EXCELLENT};
+        for (int i = 0; i < links.length; i++) {
+            estimator.reset();
+            play(links[i], 5);
+            assertEquals(NetworkQualityEstimator.name(expected[i]), expected[i], estimator.getNetworkClass());
+        }
+    }
+
+    @Test
+    public void highLatency_capsFastThroughput() {
+        // A satellite link: plenty of bandwidth, a long way away
+        play(new long[]{1200, 20000}, 5);
+
+        assertEquals(NetworkQualityEstimator.MODERATE, estimator.getNetworkClass());
+    }
+
+    @Test
+    public void smallBodies_onlyCountTowardsLatency() {
+        // 304s and tiny pages take their time mostly to arrive, not to be read
+        for (int i = 0; i < 5; i++) {
+            estimator.onResponse(millis(50), 1024, millis(500));
+        }
+
+        assertEquals(-1, estimator.getKbps(), 0);
+        assertEquals(NetworkQualityEstimator.EXCELLENT, estimator.getNetworkClass());
+    }
+
+    @Test
+    public void oneStall_doesNotChangeClass() {
+        play(WIFI, 5);
+        play(EDGE, 1);
+        play(WIFI, 3);
+
+        assertEquals(NetworkQualityEstimator.EXCELLENT, estimator.getNetworkClass());
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    public void linkGetsWorse_reclassifiedWithinAFewResponses() {
+        play(WIFI, 10);
+        int responses = 0;
+        while (estimator.getNetworkClass() != NetworkQualityEstimator.POOR && responses < 20) {
+            play(EDGE, 1);
+            responses++;
+        }
+
+        assertEquals(NetworkQualityEstimator.POOR, estimator.getNetworkClass());
+        assertTrue("took " + responses, responses <= 5);
+        // Down through the classes in between, never back up
+        for (int i = 1; i < changes.size(); i++) {
+            assertTrue(changes.toString(), changes.get(i) < changes.get(i - 1));
+        }
+    }
+
+    @Test
+    public void linkGetsBetter_reclassified() {
+        play(EDGE, 10);
+        play(WIFI, 6);
+
+        assertEquals(NetworkQualityEstimator.EXCELLENT, estimator.getNetworkClass());
+    }
+
+    @Test
+    public void seed_usedUntilResponsesDisagree() {
+        estimator.seed(NetworkQualityEstimator.POOR);
+        assertEquals(NetworkQualityEstimator.POOR, estimator.getNetworkClass());
+
+        play(WIFI, 1);
+        assertEquals(NetworkQualityEstimator.POOR, estimator.getNetworkClass());
+        play(WIFI, 1);
+        assertEquals(NetworkQualityEstimator.EXCELLENT, estimator.getNetworkClass());
+
+        // Too late once this run has its own measurements
+        estimator.seed(NetworkQualityEstimator.POOR);
+        assertEquals(NetworkQualityEstimator.EXCELLENT, estimator.getNetworkClass());
+    }
+
+    @Test
+    public void roundTripOnly_likeThumbnailLoads() {
+        for (int i = 0; i < 3; i++) {
+            estimator.onRoundTrip(millis(1500));
+        }
+
+        assertEquals(NetworkQualityEstimator.MODERATE, estimator.getNetworkClass());
+    }
+
+    /** Record count responses of a page each over the link. */
+    private void play(long[] link, int count) {
+        long transferNanos = PAGE_BYTES * 8 * 1000000L / link[1];
+        for (int i = 0; i < count; i++) {
+            estimator.onResponse(millis(link[0]), PAGE_BYTES, transferNanos);
+        }
+    }
+
+    private static long millis(long millis) {
+        return millis * 1000000L;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.android.guardiantech;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void reserve_spacesCallsOut() {
+        RateLimiter limiter = new RateLimiter(4);
+
+        assertEquals(0, limiter.reserve(0));
+        assertEquals(SECOND / 4, limiter.reserve(0));
+        assertEquals(SECOND / 2, limiter.reserve(0));
+        // Later callers wait less for the same slot queue
+        assertEquals(SECOND / 2, limiter.reserve(SECOND / 4));
+    }
+
+    @Test
+    public void reserve_afterPause_goesAtOnceWithoutBurst() {
+        RateLimiter limiter = new RateLimiter(4);
+        limiter.reserve(0);
+
+        assertEquals(0, limiter.reserve(10 * SECOND));
+        assertEquals(SECOND / 4, limiter.reserve(10 * SECOND));
+    }
+
+    @Test
+    public void acquire_holdsRateAcrossThreads() throws Exception {
+        final RateLimiter limiter = new RateLimiter(100);
+        final int perThread = 10;
+        Thread[] threads = new Thread[4];
+        long start = System.nanoTime();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < perThread; j++) {
+                            limiter.acquire();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 40 calls at 100 a second, the first at once
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 380);
+    }
+
+    @Test
+    public void noLimit_neverWaits() throws Exception {
+        RateLimiter limiter = new RateLimiter(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire();
+        }
+
+        assertTrue(System.nanoTime() - start < SECOND / 10);
+        assertEquals(0, limiter.getPermitsPerSecond(), 0);
+    }
+}